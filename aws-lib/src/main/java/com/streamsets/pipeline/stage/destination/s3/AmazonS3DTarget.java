@@ -27,7 +27,7 @@ import com.streamsets.pipeline.api.service.ServiceDependency;
 import com.streamsets.pipeline.api.service.dataformats.DataFormatGeneratorService;
 
 @StageDef(
-  version = 11,
+  version = 12,
   label = "Amazon S3",
   description = "Writes to Amazon S3",
   icon = "s3.png",
@@ -134,6 +134,12 @@ public class AmazonS3Target extends BaseTarget {
     }
     if (getContext().getService(DataFormatGeneratorService.class).isWholeFileFormat()) {
       fileHelper = new WholeFileHelper(getContext(), s3TargetConfigBean, transferManager, issues);
+    } else if (s3TargetConfigBean.streamingUpload) {
+      try {
+        fileHelper = new StreamingFileHelper(getContext(), s3TargetConfigBean, transferManager);
+      } catch (StageException e) {
+        issues.add(getContext().createConfigIssue(Groups.SSE.getLabel(), null, e.getErrorCode(), e.getParams()));
+      }
     } else {
       fileHelper = new DefaultFileHelper(getContext(), s3TargetConfigBean, transferManager);
     }
@@ -145,6 +151,10 @@ public class AmazonS3Target extends BaseTarget {
 
   @Override
   public void destroy() {
+    if (fileHelper != null) {
+      // completes the objects still open, if any
+      fileHelper.close();
+    }
     s3TargetConfigBean.s3Config.destroy();
     if (transferManager != null) {
       // don't shut down s3 client again since it's already closed by s3Config.destroy().
@@ -158,6 +168,8 @@ public class AmazonS3Target extends BaseTarget {
     Multimap<Partition, Record> partitions = partitionBatch(batch);
 
     try {
+      fileHelper.purge();
+
       List<UploadMetadata> uploads = new ArrayList<>();
       for (Partition partition : partitions.keySet()) {
         List<UploadMetadata> partitionUploads = fileHelper.handle(
@@ -191,6 +203,7 @@ public class AmazonS3Target extends BaseTarget {
         }
       }
 
+      fileHelper.flush();
     } catch (IOException e) {
       // IOException is hard exception on which we will stop pipeline
       LOG.error(Errors.S3_21.getMessage(), e.toString(), e);
@@ -90,6 +90,12 @@ public class AmazonS3TargetUpgrader implements StageUpgrader {
         // fall through
       case 10:
         upgradeV10toV11(configs, context);
+        if(toVersion == 11) {
+          break;
+        }
+        // fall through
+      case 11:
+        upgradeV11toV12(configs);
         break;
       default:
         throw new IllegalStateException(Utils.format("Unexpected fromVersion {}", fromVersion));
@@ -240,4 +246,13 @@ public class AmazonS3TargetUpgrader implements StageUpgrader {
     context.registerService(DataFormatGeneratorService.class, dataFormatConfigs);
   }
 
+  private static void upgradeV11toV12(List<Config> configs) {
+    configs.add(new Config(S3TargetConfigBean.S3_TARGET_CONFIG_BEAN_PREFIX + "streamingUpload", false));
+    configs.add(new Config(S3TargetConfigBean.S3_TARGET_CONFIG_BEAN_PREFIX + "partSize", 5));
+    configs.add(new Config(S3TargetConfigBean.S3_TARGET_CONFIG_BEAN_PREFIX + "maxObjectSize", 1024));
+    configs.add(new Config(S3TargetConfigBean.S3_TARGET_CONFIG_BEAN_PREFIX + "maxObjectAgeSecs", 3600));
+    configs.add(new Config(S3TargetConfigBean.S3_TARGET_CONFIG_BEAN_PREFIX + "idleTimeoutSecs", 300));
+    configs.add(new Config(S3TargetConfigBean.S3_TARGET_CONFIG_BEAN_PREFIX + "maxOpenObjects", 16));
+  }
+
 }
@@ -17,7 +17,6 @@ package com.streamsets.pipeline.stage.destination.s3;
 
 import com.amazonaws.services.s3.transfer.TransferManager;
 import com.amazonaws.services.s3.transfer.Upload;
-import com.amazonaws.util.StringUtils;
 import com.google.common.collect.ImmutableList;
 import com.streamsets.pipeline.api.EventRecord;
 import com.streamsets.pipeline.api.Record;
@@ -37,31 +36,10 @@ import java.util.List;
 import java.util.zip.GZIPOutputStream;
 
 final class DefaultFileHelper extends FileHelper {
-  private static final String GZIP_EXTENSION = ".gz";
-  private static final String DOT = ".";
-
-  private int fileCount = 0;
-
   DefaultFileHelper(Target.Context context, S3TargetConfigBean s3TargetConfigBean, TransferManager transferManager) {
     super(context, s3TargetConfigBean, transferManager);
   }
 
-  private String getUniqueDateWithIncrementalFileName(String keyPrefix) {
-    fileCount++;
-    StringBuilder fileName = new StringBuilder();
-    fileName = fileName.append(keyPrefix).append(fileCount);
-
-    if (!StringUtils.isNullOrEmpty(s3TargetConfigBean.fileNameSuffix)) {
-      fileName.append(DOT);
-      fileName = fileName.append(s3TargetConfigBean.fileNameSuffix);
-    }
-
-    if (s3TargetConfigBean.compress) {
-      fileName = fileName.append(GZIP_EXTENSION);
-    }
-    return fileName.toString();
-  }
-
   @Override
   public List<UploadMetadata> handle(Iterator<Record> recordIterator, String bucket, String keyPrefix) throws IOException, StageException {
     //For uniqueness
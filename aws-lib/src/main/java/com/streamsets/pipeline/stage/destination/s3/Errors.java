@@ -27,6 +27,8 @@ public enum Errors implements ErrorCode {
   S3_04("Invalid time basis expression '{}': {}"),
   S3_05("File Name Prefix cannot be empty"),
   S3_06("File Name Suffix contains '/' or starts with '.'"),
+  S3_07("Streaming uploads can buffer {} MB, (max open objects + upload threads) * part size, which exceeds half " +
+      "of the heap ({} MB)"),
 
 
   S3_20("Cannot connect to Amazon S3, reason : {}"),
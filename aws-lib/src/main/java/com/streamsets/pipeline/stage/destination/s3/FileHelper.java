@@ -22,6 +22,7 @@ import com.amazonaws.services.s3.model.PutObjectRequest;
 import com.amazonaws.services.s3.model.SSEAlgorithm;
 import com.amazonaws.services.s3.transfer.TransferManager;
 import com.amazonaws.services.s3.transfer.Upload;
+import com.amazonaws.util.StringUtils;
 import com.streamsets.pipeline.api.Record;
 import com.streamsets.pipeline.api.StageException;
 import com.streamsets.pipeline.api.Target;
@@ -43,12 +44,17 @@ abstract class FileHelper {
   protected static final String OBJECT_KEY = "objectKey";
   protected static final String RECORD_COUNT = "recordCount";
 
+  private static final String GZIP_EXTENSION = ".gz";
+  private static final String DOT = ".";
+
   private final TransferManager transferManager;
 
   protected final Target.Context context;
   protected final S3TargetConfigBean s3TargetConfigBean;
   protected final ErrorRecordHandler errorRecordHandler;
 
+  private int fileCount = 0;
+
   FileHelper(Target.Context context, S3TargetConfigBean s3TargetConfigBean, TransferManager transferManager) {
     this.context = context;
     this.s3TargetConfigBean = s3TargetConfigBean;
@@ -58,6 +64,40 @@ abstract class FileHelper {
 
   abstract List<UploadMetadata> handle(Iterator<Record> recordIterator, String bucket, String keyPrefix) throws IOException, StageException;
 
+  /**
+   * Invoked before the records of a batch are handled.
+   */
+  void purge() throws IOException, StageException {
+  }
+
+  /**
+   * Invoked once all the records of a batch have been handled.
+   */
+  void flush() throws IOException, StageException {
+  }
+
+  /**
+   * Invoked when the destination is destroyed.
+   */
+  void close() {
+  }
+
+  protected String getUniqueDateWithIncrementalFileName(String keyPrefix) {
+    fileCount++;
+    StringBuilder fileName = new StringBuilder();
+    fileName = fileName.append(keyPrefix).append(fileCount);
+
+    if (!StringUtils.isNullOrEmpty(s3TargetConfigBean.fileNameSuffix)) {
+      fileName.append(DOT);
+      fileName = fileName.append(s3TargetConfigBean.fileNameSuffix);
+    }
+
+    if (s3TargetConfigBean.compress) {
+      fileName = fileName.append(GZIP_EXTENSION);
+    }
+    return fileName.toString();
+  }
+
   protected ObjectMetadata getObjectMetadata() throws StageException {
     ObjectMetadata metadata = null;
     if (s3TargetConfigBean.sseConfig.useSSE) {
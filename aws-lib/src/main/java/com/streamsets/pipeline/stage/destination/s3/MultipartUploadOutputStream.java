@@ -0,0 +1,291 @@
+/*
+ * Copyright 2018 StreamSets Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.streamsets.pipeline.stage.destination.s3;
+
+import com.amazonaws.AmazonClientException;
+import com.amazonaws.services.s3.AmazonS3;
+import com.amazonaws.services.s3.model.AbortMultipartUploadRequest;
+import com.amazonaws.services.s3.model.CompleteMultipartUploadRequest;
+import com.amazonaws.services.s3.model.InitiateMultipartUploadRequest;
+import com.amazonaws.services.s3.model.ObjectMetadata;
+import com.amazonaws.services.s3.model.PartETag;
+import com.amazonaws.services.s3.model.SSECustomerKey;
+import com.amazonaws.services.s3.model.UploadPartRequest;
+import com.streamsets.pipeline.api.impl.Utils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * Output stream writing an Amazon S3 object as a multipart upload.
+ *
+ * Written bytes are collected in a buffer of the pool, every full buffer is uploaded as a part in the background and
+ * returned to the pool. Closing the stream uploads the last (possibly smaller) part and completes the upload.
+ *
+ * If a part fails to upload, or the upload can't be completed, the stream becomes unusable and the upload is aborted
+ * so that the parts already uploaded don't linger in the bucket (incomplete uploads are invisible but still billed).
+ */
+final class MultipartUploadOutputStream extends OutputStream {
+  private static final Logger LOG = LoggerFactory.getLogger(MultipartUploadOutputStream.class);
+
+  // Maximum number of parts of a multipart upload
+  static final int MAX_PARTS = 10000;
+
+  private final AmazonS3 s3Client;
+  private final ExecutorService executor;
+  private final PartBufferPool bufferPool;
+  private final SSECustomerKey customerKey;
+  private final String bucket;
+  private final String key;
+  private final String uploadId;
+  private final List<Future<PartETag>> parts = new ArrayList<>();
+
+  private byte[] buffer;
+  private int count;
+  private long bytesWritten;
+  private boolean closed;
+  private boolean failed;
+
+  MultipartUploadOutputStream(
+      AmazonS3 s3Client,
+      ExecutorService executor,
+      PartBufferPool bufferPool,
+      String bucket,
+      String key,
+      ObjectMetadata metadata,
+      SSECustomerKey customerKey
+  ) throws IOException {
+    this.s3Client = s3Client;
+    this.executor = executor;
+    this.bufferPool = bufferPool;
+    this.customerKey = customerKey;
+    this.bucket = bucket;
+    this.key = key;
+    InitiateMultipartUploadRequest request = new InitiateMultipartUploadRequest(
+        bucket,
+        key,
+        metadata == null ? new ObjectMetadata() : metadata
+    );
+    if (customerKey != null) {
+      request.setSSECustomerKey(customerKey);
+    }
+    try {
+      this.uploadId = s3Client.initiateMultipartUpload(request).getUploadId();
+    } catch (AmazonClientException e) {
+      throw new IOException(Utils.format("Cannot start multipart upload of '{}': {}", key, e.toString()), e);
+    }
+  }
+
+  String getKey() {
+    return key;
+  }
+
+  long getBytesWritten() {
+    return bytesWritten;
+  }
+
+  int getPartCount() {
+    return parts.size();
+  }
+
+  boolean hasFailed() {
+    return failed;
+  }
+
+  @Override
+  public void write(int b) throws IOException {
+    ensureBuffer();
+    buffer[count++] = (byte) b;
+    bytesWritten++;
+    if (count == buffer.length) {
+      uploadPart();
+    }
+  }
+
+  @Override
+  public void write(byte[] b, int off, int len) throws IOException {
+    while (len > 0) {
+      ensureBuffer();
+      int chunk = Math.min(len, buffer.length - count);
+      System.arraycopy(b, off, buffer, count, chunk);
+      count += chunk;
+      bytesWritten += chunk;
+      off += chunk;
+      len -= chunk;
+      if (count == buffer.length) {
+        uploadPart();
+      }
+    }
+  }
+
+  private void ensureBuffer() throws IOException {
+    if (closed || failed) {
+      throw new IOException(Utils.format("Multipart upload of '{}' is {}", key, closed ? "closed" : "failed"));
+    }
+    if (buffer == null) {
+      buffer = bufferPool.acquire();
+      count = 0;
+    }
+  }
+
+  private void uploadPart() throws IOException {
+    checkUploadedParts();
+    final byte[] part = buffer;
+    final UploadPartRequest request = new UploadPartRequest()
+        .withBucketName(bucket)
+        .withKey(key)
+        .withUploadId(uploadId)
+        .withPartNumber(parts.size() + 1)
+        .withInputStream(new ByteArrayInputStream(part, 0, count))
+        .withPartSize(count);
+    if (customerKey != null) {
+      request.setSSECustomerKey(customerKey);
+    }
+    buffer = null;
+    count = 0;
+    parts.add(executor.submit(() -> {
+      try {
+        return s3Client.uploadPart(request).getPartETag();
+      } finally {
+        bufferPool.release(part);
+      }
+    }));
+  }
+
+  // Fails fast on parts that have already failed to upload, without waiting for the pending ones
+  private void checkUploadedParts() throws IOException {
+    for (Future<PartETag> part : parts) {
+      if (part.isDone()) {
+        getPartETag(part);
+      }
+    }
+  }
+
+  private PartETag getPartETag(Future<PartETag> part) throws IOException {
+    try {
+      return part.get();
+    } catch (ExecutionException e) {
+      LOG.error(
+          "Failed to upload a part of '{}', aborting multipart upload '{}' of bucket '{}': {}",
+          key,
+          uploadId,
+          bucket,
+          e.getCause().toString(),
+          e.getCause()
+      );
+      fail();
+      throw new IOException(Utils.format("Cannot upload part of '{}': {}", key, e.getCause().toString()), e);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException(Utils.format("Interrupted while uploading '{}'", key));
+    }
+  }
+
+  /**
+   * Nothing to do, data is only sent to Amazon S3 in complete parts.
+   */
+  @Override
+  public void flush() {
+  }
+
+  /**
+   * Uploads the last part and completes the upload, waiting for all the parts to be uploaded.
+   */
+  @Override
+  public void close() throws IOException {
+    if (closed || failed) {
+      releaseBuffer();
+      return;
+    }
+    if (bytesWritten == 0) {
+      abort();
+      return;
+    }
+    if (count > 0) {
+      try {
+        uploadPart();
+      } finally {
+        releaseBuffer();
+      }
+    } else {
+      releaseBuffer();
+    }
+    closed = true;
+    List<PartETag> partETags = new ArrayList<>(parts.size());
+    for (Future<PartETag> part : parts) {
+      partETags.add(getPartETag(part));
+    }
+    try {
+      s3Client.completeMultipartUpload(new CompleteMultipartUploadRequest(bucket, key, uploadId, partETags));
+    } catch (AmazonClientException e) {
+      LOG.error("Failed to complete multipart upload '{}' of '{}', aborting it: {}", uploadId, key, e.toString(), e);
+      fail();
+      throw new IOException(Utils.format("Cannot complete multipart upload of '{}': {}", key, e.toString()), e);
+    }
+  }
+
+  /**
+   * Marks the stream as failed and aborts the upload once the parts still being uploaded are done, aborting while
+   * parts are in flight could leave these parts behind.
+   */
+  private void fail() {
+    if (failed) {
+      return;
+    }
+    failed = true;
+    for (Future<PartETag> part : parts) {
+      try {
+        part.get();
+      } catch (ExecutionException e) {
+        // already failed, the upload is being aborted anyway
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        break;
+      }
+    }
+    abort();
+  }
+
+  private void releaseBuffer() {
+    if (buffer != null) {
+      bufferPool.release(buffer);
+      buffer = null;
+    }
+  }
+
+  /**
+   * Discards the upload, used when nothing was written to it or when it failed.
+   */
+  void abort() {
+    closed = true;
+    releaseBuffer();
+    try {
+      s3Client.abortMultipartUpload(new AbortMultipartUploadRequest(bucket, key, uploadId));
+    } catch (AmazonClientException e) {
+      LOG.warn("Failed to abort multipart upload '{}' of '{}': {}", uploadId, key, e.toString(), e);
+    }
+  }
+
+}
@@ -0,0 +1,68 @@
+/*
+ * Copyright 2018 StreamSets Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.streamsets.pipeline.stage.destination.s3;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Bounded pool of part buffers shared by all the multipart uploads of a destination.
+ *
+ * Buffers are allocated lazily up to the capacity of the pool, after that acquiring a buffer blocks until an upload
+ * returns one. Memory use is then bounded by capacity * part size regardless of the batch size.
+ */
+final class PartBufferPool {
+  private final int bufferSize;
+  private final int capacity;
+  private final BlockingQueue<byte[]> free;
+  private int allocated;
+
+  PartBufferPool(int bufferSize, int capacity) {
+    this.bufferSize = bufferSize;
+    this.capacity = capacity;
+    this.free = new ArrayBlockingQueue<>(capacity);
+  }
+
+  int getBufferSize() {
+    return bufferSize;
+  }
+
+  byte[] acquire() throws IOException {
+    byte[] buffer = free.poll();
+    if (buffer != null) {
+      return buffer;
+    }
+    synchronized (this) {
+      if (allocated < capacity) {
+        allocated++;
+        return new byte[bufferSize];
+      }
+    }
+    try {
+      return free.take();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted while waiting for an upload buffer");
+    }
+  }
+
+  void release(byte[] buffer) {
+    free.offer(buffer);
+  }
+
+}
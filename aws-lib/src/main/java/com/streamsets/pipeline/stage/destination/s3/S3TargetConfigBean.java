@@ -35,6 +35,7 @@ public class S3TargetConfigBean {
   public static final String S3_CONFIG_PREFIX = S3_TARGET_CONFIG_BEAN_PREFIX + "s3Config.";
   public static final String S3_SSE_CONFIG_PREFIX = S3_TARGET_CONFIG_BEAN_PREFIX + "sseConfig.";
   public static final String S3_TM_CONFIG_PREFIX = S3_TARGET_CONFIG_BEAN_PREFIX + "tmConfig.";
+  static final long MEGA_BYTE = 1024 * 1024;
 
   @ConfigDefBean(groups = "S3")
   public S3ConnectionTargetConfig s3Config;
@@ -118,6 +119,95 @@ public class S3TargetConfigBean {
   )
   public boolean compress;
 
+  @ConfigDef(
+      required = true,
+      type = ConfigDef.Type.BOOLEAN,
+      defaultValue = "false",
+      label = "Stream Objects Across Batches",
+      description = "Streams records into multipart uploads that stay open across batches, instead of uploading one " +
+          "object per batch and partition. Objects are only visible once their upload completes. If Data Collector " +
+          "stops unexpectedly, all records of the incomplete uploads are lost, including the parts already " +
+          "uploaded. Failed uploads are aborted, use a bucket lifecycle rule to clean up the ones left behind by " +
+          "unexpected stops.",
+      displayPosition = 240,
+      group = "S3"
+  )
+  public boolean streamingUpload = false;
+
+  @ConfigDef(
+      required = true,
+      type = ConfigDef.Type.NUMBER,
+      defaultValue = "5",
+      label = "Part Size (MB)",
+      description = "Size of the parts uploaded to Amazon S3. Every open object buffers up to a part in memory.",
+      displayPosition = 250,
+      group = "S3",
+      min = 5,
+      max = 512,
+      dependsOn = "streamingUpload",
+      triggeredByValue = "true"
+  )
+  public int partSize = 5;
+
+  @ConfigDef(
+      required = true,
+      type = ConfigDef.Type.NUMBER,
+      defaultValue = "1024",
+      label = "Max Object Size (MB)",
+      description = "Exceeding this size triggers the creation of a new object. Use 0 to opt out.",
+      displayPosition = 260,
+      group = "S3",
+      min = 0,
+      dependsOn = "streamingUpload",
+      triggeredByValue = "true"
+  )
+  public long maxObjectSize = 1024;
+
+  @ConfigDef(
+      required = true,
+      type = ConfigDef.Type.NUMBER,
+      defaultValue = "3600",
+      label = "Max Object Age (secs)",
+      description = "Objects open for this time are completed at the next batch. Use 0 to opt out.",
+      displayPosition = 270,
+      group = "S3",
+      min = 0,
+      dependsOn = "streamingUpload",
+      triggeredByValue = "true"
+  )
+  public long maxObjectAgeSecs = 3600;
+
+  @ConfigDef(
+      required = true,
+      type = ConfigDef.Type.NUMBER,
+      defaultValue = "300",
+      label = "Idle Timeout (secs)",
+      description = "Objects that did not receive records for this time are completed at the next batch. " +
+          "Use 0 to opt out.",
+      displayPosition = 280,
+      group = "S3",
+      min = 0,
+      dependsOn = "streamingUpload",
+      triggeredByValue = "true"
+  )
+  public long idleTimeoutSecs = 300;
+
+  @ConfigDef(
+      required = true,
+      type = ConfigDef.Type.NUMBER,
+      defaultValue = "16",
+      label = "Max Open Objects",
+      description = "Maximum number of objects open at the same time, the least recently written object is " +
+          "completed to open a new one. Memory use is bounded by (max open objects + upload threads) * part size, " +
+          "which must not exceed half of the Data Collector heap.",
+      displayPosition = 290,
+      group = "S3",
+      min = 1,
+      dependsOn = "streamingUpload",
+      triggeredByValue = "true"
+  )
+  public int maxOpenObjects = 16;
+
   public List<Stage.ConfigIssue> init(Stage.Context context, List<Stage.ConfigIssue> issues) {
     DataFormatGeneratorService generatorService = context.getService(DataFormatGeneratorService.class);
 
@@ -147,6 +237,23 @@ public class S3TargetConfigBean {
       );
     }
 
+    // Every open object fills a part buffer while the others upload, all of them are allocated on the heap
+    if (streamingUpload) {
+      long bufferedBytes = partSize * MEGA_BYTE * (maxOpenObjects + tmConfig.threadPoolSize);
+      long maxBufferedBytes = Runtime.getRuntime().maxMemory() / 2;
+      if (bufferedBytes > maxBufferedBytes) {
+        issues.add(
+            context.createConfigIssue(
+                Groups.S3.getLabel(),
+                S3TargetConfigBean.S3_TARGET_CONFIG_BEAN_PREFIX + "maxOpenObjects",
+                Errors.S3_07,
+                bufferedBytes / MEGA_BYTE,
+                maxBufferedBytes / MEGA_BYTE
+            )
+        );
+      }
+    }
+
     return issues;
   }
 
@@ -0,0 +1,234 @@
+/*
+ * Copyright 2018 StreamSets Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.streamsets.pipeline.stage.destination.s3;
+
+import com.amazonaws.services.s3.AmazonS3;
+import com.amazonaws.services.s3.model.SSECustomerKey;
+import com.amazonaws.services.s3.transfer.TransferManager;
+import com.streamsets.pipeline.api.Record;
+import com.streamsets.pipeline.api.StageException;
+import com.streamsets.pipeline.api.Target;
+import com.streamsets.pipeline.api.base.OnRecordErrorException;
+import com.streamsets.pipeline.api.impl.Utils;
+import com.streamsets.pipeline.api.service.dataformats.DataFormatGeneratorService;
+import com.streamsets.pipeline.api.service.dataformats.DataGenerator;
+import com.streamsets.pipeline.lib.executor.SafeScheduledExecutorService;
+import com.streamsets.pipeline.stage.lib.aws.SSEOption;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Streams records into multipart uploads that stay open across batches, one per bucket and partition.
+ *
+ * An object is completed when it exceeds the max object size, when it has been open for longer than the max object
+ * age, when it has not received records for the idle timeout or when the least recently written object has to make
+ * room for a new one. Parts are uploaded in the background from a bounded buffer pool, so that memory use does not
+ * depend on the batch size.
+ */
+final class StreamingFileHelper extends FileHelper {
+  private static final Logger LOG = LoggerFactory.getLogger(StreamingFileHelper.class);
+
+  private final AmazonS3 s3Client;
+  private final ExecutorService uploadExecutor;
+  private final PartBufferPool bufferPool;
+  private final SSECustomerKey customerKey;
+  private final long maxObjectSize;
+  private final long maxObjectAgeMillis;
+  private final long idleTimeoutMillis;
+  private final int maxOpenObjects;
+
+  // In access order, the first object is the least recently written one
+  private final Map<String, OpenObject> openObjects = new LinkedHashMap<>(16, 0.75f, true);
+
+  private static class OpenObject {
+    final String bucket;
+    final MultipartUploadOutputStream stream;
+    final DataGenerator generator;
+    final long created;
+    long lastWrite;
+    int records;
+
+    OpenObject(String bucket, MultipartUploadOutputStream stream, DataGenerator generator, long now) {
+      this.bucket = bucket;
+      this.stream = stream;
+      this.generator = generator;
+      this.created = now;
+      this.lastWrite = now;
+    }
+  }
+
+  StreamingFileHelper(
+      Target.Context context,
+      S3TargetConfigBean s3TargetConfigBean,
+      TransferManager transferManager
+  ) throws StageException {
+    super(context, s3TargetConfigBean, transferManager);
+    this.s3Client = s3TargetConfigBean.s3Config.getS3Client();
+    this.maxObjectSize = s3TargetConfigBean.maxObjectSize * S3TargetConfigBean.MEGA_BYTE;
+    this.maxObjectAgeMillis = s3TargetConfigBean.maxObjectAgeSecs * 1000;
+    this.idleTimeoutMillis = s3TargetConfigBean.idleTimeoutSecs * 1000;
+    this.maxOpenObjects = s3TargetConfigBean.maxOpenObjects;
+    int uploadThreads = s3TargetConfigBean.tmConfig.threadPoolSize;
+    this.uploadExecutor = new SafeScheduledExecutorService(
+        uploadThreads,
+        "S3StreamingUpload_" + context.getStageInfo().getInstanceName()
+    );
+    // One buffer being filled per open object, the rest can be uploading
+    this.bufferPool = new PartBufferPool(
+        (int) (s3TargetConfigBean.partSize * S3TargetConfigBean.MEGA_BYTE),
+        maxOpenObjects + uploadThreads
+    );
+    if (s3TargetConfigBean.sseConfig.useSSE && s3TargetConfigBean.sseConfig.encryption == SSEOption.CUSTOMER) {
+      this.customerKey = new SSECustomerKey(s3TargetConfigBean.sseConfig.customerKey.get());
+    } else {
+      this.customerKey = null;
+    }
+  }
+
+  @Override
+  public List<UploadMetadata> handle(
+      Iterator<Record> recordIterator,
+      String bucket,
+      String keyPrefix
+  ) throws IOException, StageException {
+    // bucket names can't contain '/'
+    String id = bucket + "/" + keyPrefix;
+    while (recordIterator.hasNext()) {
+      Record record = recordIterator.next();
+      OpenObject object = openObjects.get(id);
+      if (object == null) {
+        object = open(id, bucket, keyPrefix);
+      }
+      try {
+        object.generator.write(record);
+        object.records++;
+        object.lastWrite = System.currentTimeMillis();
+      } catch (StageException e) {
+        errorRecordHandler.onError(new OnRecordErrorException(record, e.getErrorCode(), e.getParams()));
+      } catch (IOException e) {
+        if (object.stream.hasFailed()) {
+          // Amazon S3 is failing us, not the record
+          throw e;
+        }
+        errorRecordHandler.onError(
+            new OnRecordErrorException(record, Errors.S3_32, record.getHeader().getSourceId(), e.toString(), e)
+        );
+      }
+      if (isFull(object)) {
+        complete(id);
+      }
+    }
+    // Nothing to wait for, parts are uploaded in the background and objects completed as they roll
+    return Collections.emptyList();
+  }
+
+  @Override
+  void purge() throws IOException, StageException {
+    long now = System.currentTimeMillis();
+    for (Map.Entry<String, OpenObject> entry : new ArrayList<>(openObjects.entrySet())) {
+      OpenObject object = entry.getValue();
+      if ((maxObjectAgeMillis > 0 && now - object.created >= maxObjectAgeMillis)
+          || (idleTimeoutMillis > 0 && now - object.lastWrite >= idleTimeoutMillis)) {
+        complete(entry.getKey());
+      }
+    }
+  }
+
+  @Override
+  void flush() throws IOException, StageException {
+    for (Map.Entry<String, OpenObject> entry : new ArrayList<>(openObjects.entrySet())) {
+      OpenObject object = entry.getValue();
+      object.generator.flush();
+      if (isFull(object)) {
+        complete(entry.getKey());
+      }
+    }
+  }
+
+  @Override
+  void close() {
+    for (OpenObject object : openObjects.values()) {
+      try {
+        object.generator.close();
+      } catch (IOException | RuntimeException e) {
+        LOG.error("Failed to complete object '{}': {}", object.stream.getKey(), e.toString(), e);
+      }
+    }
+    openObjects.clear();
+    uploadExecutor.shutdownNow();
+  }
+
+  private boolean isFull(OpenObject object) {
+    return (maxObjectSize > 0 && object.stream.getBytesWritten() >= maxObjectSize)
+        || object.stream.getPartCount() >= MultipartUploadOutputStream.MAX_PARTS - 1;
+  }
+
+  private OpenObject open(String id, String bucket, String keyPrefix) throws IOException, StageException {
+    if (openObjects.size() >= maxOpenObjects) {
+      // make room completing the least recently written object
+      complete(openObjects.keySet().iterator().next());
+    }
+    //For uniqueness
+    String key = getUniqueDateWithIncrementalFileName(keyPrefix + System.currentTimeMillis() + "-");
+    MultipartUploadOutputStream stream = new MultipartUploadOutputStream(
+        s3Client,
+        uploadExecutor,
+        bufferPool,
+        bucket,
+        key,
+        getObjectMetadata(),
+        customerKey
+    );
+    OutputStream out = (s3TargetConfigBean.compress) ? new GZIPOutputStream(stream) : stream;
+    DataGenerator generator = context.getService(DataFormatGeneratorService.class).getGenerator(out);
+    OpenObject object = new OpenObject(bucket, stream, generator, System.currentTimeMillis());
+    openObjects.put(id, object);
+    LOG.debug("Opened object '{}' of bucket '{}'", key, bucket);
+    return object;
+  }
+
+  private void complete(String id) throws IOException {
+    OpenObject object = openObjects.remove(id);
+    // closing the generator closes the gzip stream, if any, and completes the multipart upload
+    object.generator.close();
+    if (object.stream.hasFailed()) {
+      throw new IOException(Utils.format("Multipart upload of '{}' failed", object.stream.getKey()));
+    }
+    if (object.records > 0) {
+      LOG.debug("Completed object '{}' of bucket '{}'", object.stream.getKey(), object.bucket);
+      context.toEvent(
+          S3Events.S3_OBJECT_WRITTEN
+              .create(context)
+              .with(BUCKET, object.bucket)
+              .with(OBJECT_KEY, object.stream.getKey())
+              .with(RECORD_COUNT, object.records)
+              .create()
+      );
+    }
+  }
+
+}
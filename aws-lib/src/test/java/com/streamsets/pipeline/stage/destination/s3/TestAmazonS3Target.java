@@ -194,6 +194,23 @@ public class TestAmazonS3Target {
     Assert.assertEquals(1, issues.size());
   }
 
+  @Test
+  public void testStreamingUploadBuffersExceedingHeap() throws Exception {
+    S3TargetConfigBean s3TargetConfigBean = createS3TargetConfigBean("testStreamingUploadBuffers", "", false, "txt");
+    s3TargetConfigBean.streamingUpload = true;
+    s3TargetConfigBean.partSize = 512;
+    // the part buffers alone would fill the heap
+    s3TargetConfigBean.maxOpenObjects =
+        (int) (Runtime.getRuntime().maxMemory() / (s3TargetConfigBean.partSize * S3TargetConfigBean.MEGA_BYTE)) + 1;
+    AmazonS3Target amazonS3Target = new AmazonS3Target(s3TargetConfigBean);
+    TargetRunner targetRunner = new TargetRunner.Builder(AmazonS3DTarget.class, amazonS3Target)
+      .addService(DataFormatGeneratorService.class, new SdkJsonDataFormatGeneratorService())
+      .build();
+    List<Stage.ConfigIssue> issues = targetRunner.runValidateConfigs();
+    Assert.assertEquals(1, issues.size());
+    Assert.assertTrue(issues.get(0).toString().contains(Errors.S3_07.name()));
+  }
+
   @Test
   public void testWriteTextDataWithPartitionPrefix() throws Exception {
 
@@ -252,11 +269,78 @@ public class TestAmazonS3Target {
 
   }
 
+  @Test
+  public void testStreamingUploadAcrossBatches() throws Exception {
+    String prefix = "testStreamingUploadAcrossBatches";
+    AmazonS3Target amazonS3Target = createS3targetWithTextData(prefix, false, "txt", true);
+    TargetRunner targetRunner = new TargetRunner.Builder(AmazonS3DTarget.class, amazonS3Target)
+      .addService(DataFormatGeneratorService.class, new SdkJsonDataFormatGeneratorService())
+      .build();
+    targetRunner.runInit();
+
+    targetRunner.runWrite(TestUtil.createStringRecords(BUCKET_NAME).subList(0, 4));
+    targetRunner.runWrite(TestUtil.createStringRecords(BUCKET_NAME).subList(4, 9));
+
+    // The object stays open across batches
+    Assert.assertTrue(s3client.listObjects(BUCKET_NAME, prefix).getObjectSummaries().isEmpty());
+    Assert.assertTrue(targetRunner.getEventRecords().isEmpty());
+
+    targetRunner.runDestroy();
+
+    // and holds the records of both batches once completed
+    TestUtil.assertStringRecords(s3client, BUCKET_NAME, prefix);
+  }
+
+  @Test
+  public void testStreamingUploadCompletesLeastRecentlyWritten() throws Exception {
+    String prefix = "testStreamingUploadCompletesLeastRecentlyWritten";
+    AmazonS3Target amazonS3Target = createS3targetWithTextData(prefix, false, "txt", true);
+    TargetRunner targetRunner = new TargetRunner.Builder(AmazonS3DTarget.class, amazonS3Target)
+      .addService(DataFormatGeneratorService.class, new SdkJsonDataFormatGeneratorService())
+      .build();
+    targetRunner.runInit();
+
+    List<Record> logRecords = TestUtil.createStringRecords(BUCKET_NAME);
+    logRecords.addAll(TestUtil.createStringRecords(SECOND_BUCKET_NAME));
+    targetRunner.runWrite(logRecords);
+
+    // Only one object can be open, opening the second one completed the first one
+    List<EventRecord> events = targetRunner.getEventRecords();
+    Assert.assertEquals(1, events.size());
+    Assert.assertEquals(9, events.get(0).get("/recordCount").getValueAsLong());
+
+    targetRunner.runDestroy();
+
+    TestUtil.assertStringRecords(s3client, BUCKET_NAME, prefix);
+    TestUtil.assertStringRecords(s3client, SECOND_BUCKET_NAME, prefix);
+  }
+
   private AmazonS3Target createS3targetWithTextData(String commonPrefix, boolean useCompression, String suffix) {
     return createS3targetWithTextData(commonPrefix, "", useCompression, suffix);
   }
 
   private AmazonS3Target createS3targetWithTextData(
+      String commonPrefix,
+      boolean useCompression,
+      String suffix,
+      boolean streamingUpload
+  ) {
+    S3TargetConfigBean s3TargetConfigBean = createS3TargetConfigBean(commonPrefix, "", useCompression, suffix);
+    s3TargetConfigBean.streamingUpload = streamingUpload;
+    s3TargetConfigBean.maxOpenObjects = 1;
+    return new AmazonS3Target(s3TargetConfigBean);
+  }
+
+  private AmazonS3Target createS3targetWithTextData(
+      String commonPrefix,
+      String partition,
+      boolean useCompression,
+      String suffix
+  ) {
+    return new AmazonS3Target(createS3TargetConfigBean(commonPrefix, partition, useCompression, suffix));
+  }
+
+  private S3TargetConfigBean createS3TargetConfigBean(
       String commonPrefix,
       String partition,
       boolean useCompression,
@@ -287,7 +371,7 @@ public class TestAmazonS3Target {
     s3TargetConfigBean.tmConfig.threadPoolSize = 3;
     s3TargetConfigBean.fileNameSuffix = suffix;
 
-    return new AmazonS3Target(s3TargetConfigBean);
+    return s3TargetConfigBean;
   }
 
   @Test
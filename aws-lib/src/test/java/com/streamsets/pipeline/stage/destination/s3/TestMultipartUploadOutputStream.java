@@ -0,0 +1,141 @@
+/*
+ * Copyright 2018 StreamSets Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.streamsets.pipeline.stage.destination.s3;
+
+import com.amazonaws.AmazonClientException;
+import com.amazonaws.services.s3.AmazonS3;
+import com.amazonaws.services.s3.model.AbortMultipartUploadRequest;
+import com.amazonaws.services.s3.model.CompleteMultipartUploadRequest;
+import com.amazonaws.services.s3.model.CompleteMultipartUploadResult;
+import com.amazonaws.services.s3.model.InitiateMultipartUploadRequest;
+import com.amazonaws.services.s3.model.InitiateMultipartUploadResult;
+import com.amazonaws.services.s3.model.UploadPartRequest;
+import com.amazonaws.services.s3.model.UploadPartResult;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+
+import java.io.IOException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+public class TestMultipartUploadOutputStream {
+  private AmazonS3 s3Client;
+  private ExecutorService executor;
+  private PartBufferPool bufferPool;
+
+  @Before
+  public void setUp() {
+    s3Client = Mockito.mock(AmazonS3.class);
+    InitiateMultipartUploadResult initiated = new InitiateMultipartUploadResult();
+    initiated.setUploadId("upload");
+    Mockito.when(s3Client.initiateMultipartUpload(Mockito.any(InitiateMultipartUploadRequest.class)))
+        .thenReturn(initiated);
+    executor = Executors.newSingleThreadExecutor();
+    bufferPool = new PartBufferPool(4, 2);
+  }
+
+  @After
+  public void tearDown() {
+    executor.shutdownNow();
+  }
+
+  private MultipartUploadOutputStream createStream() throws IOException {
+    return new MultipartUploadOutputStream(s3Client, executor, bufferPool, "bucket", "key", null, null);
+  }
+
+  // Waits for the parts submitted so far, the executor runs them in order
+  private void waitForParts() throws Exception {
+    executor.submit(() -> null).get();
+  }
+
+  // Fails (times out) if a buffer of the pool leaked
+  private void assertAllBuffersReleased() throws IOException {
+    bufferPool.acquire();
+    bufferPool.acquire();
+  }
+
+  @Test(timeout = 10000)
+  public void testUpload() throws Exception {
+    Mockito.when(s3Client.uploadPart(Mockito.any(UploadPartRequest.class))).thenAnswer(invocation -> {
+      UploadPartRequest request = (UploadPartRequest) invocation.getArguments()[0];
+      UploadPartResult result = new UploadPartResult();
+      result.setPartNumber(request.getPartNumber());
+      result.setETag("etag" + request.getPartNumber());
+      return result;
+    });
+    Mockito.when(s3Client.completeMultipartUpload(Mockito.any(CompleteMultipartUploadRequest.class)))
+        .thenReturn(new CompleteMultipartUploadResult());
+
+    MultipartUploadOutputStream stream = createStream();
+    stream.write(new byte[10]);
+    stream.close();
+
+    ArgumentCaptor<CompleteMultipartUploadRequest> complete =
+        ArgumentCaptor.forClass(CompleteMultipartUploadRequest.class);
+    Mockito.verify(s3Client).completeMultipartUpload(complete.capture());
+    Assert.assertEquals(3, complete.getValue().getPartETags().size());
+    Mockito.verify(s3Client, Mockito.never()).abortMultipartUpload(Mockito.any(AbortMultipartUploadRequest.class));
+    assertAllBuffersReleased();
+  }
+
+  @Test(timeout = 10000)
+  public void testFailedPartAbortsUpload() throws Exception {
+    Mockito.when(s3Client.uploadPart(Mockito.any(UploadPartRequest.class)))
+        .thenThrow(new AmazonClientException("failed"));
+
+    MultipartUploadOutputStream stream = createStream();
+    stream.write(new byte[4]);
+    waitForParts();
+    // a partially filled buffer is pending when the failure is noticed
+    stream.write(new byte[2]);
+    try {
+      stream.close();
+      Assert.fail();
+    } catch (IOException e) {
+      // expected
+    }
+    Assert.assertTrue(stream.hasFailed());
+    Mockito.verify(s3Client).abortMultipartUpload(Mockito.any(AbortMultipartUploadRequest.class));
+    Mockito.verify(s3Client, Mockito.never())
+        .completeMultipartUpload(Mockito.any(CompleteMultipartUploadRequest.class));
+
+    // closing again is a no-op
+    stream.close();
+    assertAllBuffersReleased();
+  }
+
+  @Test(timeout = 10000)
+  public void testFailedCompletionAbortsUpload() throws Exception {
+    Mockito.when(s3Client.uploadPart(Mockito.any(UploadPartRequest.class))).thenReturn(new UploadPartResult());
+    Mockito.when(s3Client.completeMultipartUpload(Mockito.any(CompleteMultipartUploadRequest.class)))
+        .thenThrow(new AmazonClientException("failed"));
+
+    MultipartUploadOutputStream stream = createStream();
+    stream.write(new byte[6]);
+    try {
+      stream.close();
+      Assert.fail();
+    } catch (IOException e) {
+      // expected
+    }
+    Mockito.verify(s3Client).abortMultipartUpload(Mockito.any(AbortMultipartUploadRequest.class));
+    assertAllBuffersReleased();
+  }
+}
@@ -75,7 +75,7 @@ public class EventHubProcessor implements IEventProcessor {
         lasEventData[0] = eventData;
         List<Record> records = new ArrayList<>();
         String requestId = System.currentTimeMillis() + "." + counter.getAndIncrement();
-        try (DataParser parser = dataParserFactory.getParser(requestId, eventData.getBytes())) {
+        try (DataParser parser = dataParserFactory.getMessageParser(requestId, eventData.getBytes())) {
           Record parsedRecord = parser.parse();
           while (parsedRecord != null) {
             records.add(parsedRecord);
@@ -21,8 +21,7 @@ import com.streamsets.pipeline.api.Record;
 import com.streamsets.pipeline.api.StageException;
 import com.streamsets.pipeline.api.base.BaseTarget;
 import com.streamsets.pipeline.api.base.OnRecordErrorException;
-import com.streamsets.pipeline.lib.generator.DataGenerator;
-import com.streamsets.pipeline.lib.generator.DataGeneratorFactory;
+import com.streamsets.pipeline.lib.generator.RecordSerializer;
 import com.streamsets.pipeline.lib.http.Groups;
 import com.streamsets.pipeline.lib.http.HttpClientCommon;
 import com.streamsets.pipeline.lib.mqtt.Errors;
@@ -38,7 +37,7 @@ import org.eclipse.paho.client.mqttv3.MqttMessage;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.io.ByteArrayOutputStream;
+import java.io.IOException;
 import java.util.Iterator;
 import java.util.List;
 
@@ -48,7 +47,7 @@ public class MqttClientTarget extends BaseTarget implements MqttCallback {
   private final MqttClientConfigBean commonConf;
   private final MqttClientTargetConfigBean publisherConf;
   private final MqttClientCommon mqttClientCommon;
-  private DataGeneratorFactory generatorFactory;
+  private RecordSerializer recordSerializer;
   private ErrorRecordHandler errorRecordHandler;
   private MqttClient mqttClient = null;
 
@@ -70,7 +69,7 @@ public class MqttClientTarget extends BaseTarget implements MqttCallback {
           HttpClientCommon.DATA_FORMAT_CONFIG_PREFIX,
           issues
       );
-      generatorFactory = publisherConf.dataGeneratorFormatConfig.getDataGeneratorFactory();
+      recordSerializer = new RecordSerializer(publisherConf.dataGeneratorFormatConfig.getDataGeneratorFactory());
 
       try {
         this.mqttClientCommon.init(getContext(), issues);
@@ -93,11 +92,8 @@ public class MqttClientTarget extends BaseTarget implements MqttCallback {
       Iterator<Record> records = batch.getRecords();
       while (records.hasNext()) {
         Record record = records.next();
-        ByteArrayOutputStream byteBufferOutputStream = new ByteArrayOutputStream();
-        try (DataGenerator dataGenerator = generatorFactory.getGenerator(byteBufferOutputStream)) {
-          dataGenerator.write(record);
-          dataGenerator.flush();
-          MqttMessage message = new MqttMessage(byteBufferOutputStream.toByteArray());
+        try {
+          MqttMessage message = new MqttMessage(recordSerializer.serialize(record));
           message.setQos(commonConf.qos.getValue());
           message.setRetained(publisherConf.retained);
           mqttClient.publish(publisherConf.topic, message);
@@ -129,6 +125,13 @@ public class MqttClientTarget extends BaseTarget implements MqttCallback {
   @Override
   public void destroy() {
     super.destroy();
+    if (recordSerializer != null) {
+      try {
+        recordSerializer.close();
+      } catch (IOException ex) {
+        LOG.warn("Error closing record serializer: {}", ex.toString(), ex);
+      }
+    }
     if (mqttClient != null) {
       try {
         mqttClient.disconnect();
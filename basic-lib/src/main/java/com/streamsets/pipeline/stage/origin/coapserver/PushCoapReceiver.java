@@ -73,7 +73,7 @@ public class PushCoapReceiver implements CoapReceiver {
   @Override
   public boolean process(byte[] payload) throws IOException {
     String requestId = System.currentTimeMillis() + "." + counter.getAndIncrement();
-    try (DataParser parser = parserFactory.getParser(requestId, payload)) {
+    try (DataParser parser = parserFactory.getMessageParser(requestId, payload)) {
       return process(parser);
     } catch (DataParserException ex) {
       throw new IOException(ex);
@@ -157,7 +157,7 @@ public class MqttClientSource implements PushSource, MqttCallback {
   @Override
   public void messageArrived(String topic, MqttMessage mqttMessage) throws Exception {
     String requestId = System.currentTimeMillis() + "." + counter.getAndIncrement();
-    try (DataParser parser = parserFactory.getParser(requestId, mqttMessage.getPayload())) {
+    try (DataParser parser = parserFactory.getMessageParser(requestId, mqttMessage.getPayload())) {
       process(topic, parser);
     } catch (DataParserException ex) {
       errorQueue.offer(ex);
@@ -27,10 +27,11 @@ import com.streamsets.pipeline.api.base.configurablestage.DSourceOffsetCommitter
 import com.streamsets.pipeline.stage.origin.sdcipc.Configs;
 
 @StageDef(
-    version = 3,
+    version = 4,
     label = "Dev SDC RPC with Buffering",
     description = "Receives records via SDC RPC from a Data Collector pipeline that uses an SDC RPC destination. " +
-        "It buffers records in memory/disk. In case of failure/stop records may be lost.",
+        "It buffers records in memory/disk. In case of failure/stop records may be lost, unless the disk buffer " +
+        "is kept across restarts.",
     execution = ExecutionMode.STANDALONE,
     icon = "dev.png",
     onlineHelpRefUrl ="index.html#datacollector/UserGuide/Pipeline_Design/DevStages.html",
@@ -82,8 +83,38 @@ public class SdcIpcWithDiskBufferDSource extends DSourceOffsetCommitter {
       max = 10000)
   public long waitTimeForEmptyBatches;
 
+  @ConfigDef(
+      required = true,
+      type = ConfigDef.Type.BOOLEAN,
+      defaultValue = "false",
+      label = "Keep Disk Buffer Across Restarts",
+      description = "Keeps the disk buffer when the pipeline stops, records still on disk are processed when the " +
+          "pipeline starts again. Records still in memory when the Data Collector fails are lost.",
+      displayPosition = 130,
+      group = "ADVANCED"
+  )
+  public boolean persistentDiskBuffer;
+
+  @ConfigDef(
+      required = true,
+      type = ConfigDef.Type.STRING,
+      label = "Disk Buffer Directory",
+      description = "Directory to keep the disk buffer in, a subdirectory is used for every pipeline and stage",
+      displayPosition = 140,
+      group = "ADVANCED",
+      dependsOn = "persistentDiskBuffer",
+      triggeredByValue = "true"
+  )
+  public String diskBufferDirectory;
+
   @Override
   protected Source createSource() {
-    return new SdcIpcWithDiskBufferSource(configs, maxFragmentsInMemory, maxDiskBufferMB, waitTimeForEmptyBatches);
+    return new SdcIpcWithDiskBufferSource(
+        configs,
+        maxFragmentsInMemory,
+        maxDiskBufferMB,
+        waitTimeForEmptyBatches,
+        persistentDiskBuffer ? diskBufferDirectory : null
+    );
   }
 }
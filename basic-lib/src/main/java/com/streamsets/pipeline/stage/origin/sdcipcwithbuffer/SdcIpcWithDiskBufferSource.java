@@ -21,9 +21,9 @@ import com.streamsets.pipeline.api.StageException;
 import com.streamsets.pipeline.api.base.OnRecordErrorException;
 import com.streamsets.pipeline.api.ext.ContextExtensions;
 import com.streamsets.pipeline.api.ext.RecordReader;
-import com.streamsets.pipeline.lib.fragmentqueue.FileFragmentQueue;
 import com.streamsets.pipeline.lib.fragmentqueue.FragmentQueue;
 import com.streamsets.pipeline.lib.fragmentqueue.MemoryBufferFragmentQueue;
+import com.streamsets.pipeline.lib.fragmentqueue.SegmentedFragmentQueue;
 import com.streamsets.pipeline.lib.http.HttpConfigs;
 import com.streamsets.pipeline.lib.http.HttpReceiverWithFragmenterWriter;
 import com.streamsets.pipeline.lib.httpsource.AbstractHttpServerSource;
@@ -38,21 +38,41 @@ public class SdcIpcWithDiskBufferSource extends AbstractHttpServerSource<HttpRec
   public static final String IPC_PATH = "/ipc/v1";
 
   private final FragmentQueue queue;
+  private final SegmentedFragmentQueue diskQueue;
   private final long waitTimeForEmptyBatches;
   private ContextExtensions contextExtensions;
 
+  /**
+   * The disk buffer is kept across restarts in given directory, if not null.
+   */
   public SdcIpcWithDiskBufferSource(
       HttpConfigs httpConfigs,
       int maxFragmentsInMemory,
       int maxDiskSpaceMB,
+      long waitTimeForEmptyBatches,
+      String persistentDiskBufferDir
+  ) {
+    this(
+        httpConfigs,
+        maxFragmentsInMemory,
+        new SegmentedFragmentQueue(maxDiskSpaceMB, persistentDiskBufferDir),
+        waitTimeForEmptyBatches
+    );
+  }
+
+  private SdcIpcWithDiskBufferSource(
+      HttpConfigs httpConfigs,
+      int maxFragmentsInMemory,
+      SegmentedFragmentQueue diskQueue,
       long waitTimeForEmptyBatches
   ) {
     super(httpConfigs, new HttpReceiverWithFragmenterWriter(IPC_PATH,
         httpConfigs,
         new SdcIpcRequestFragmenter(),
-        new MemoryBufferFragmentQueue(maxFragmentsInMemory, new FileFragmentQueue(maxDiskSpaceMB))
+        new MemoryBufferFragmentQueue(maxFragmentsInMemory, diskQueue)
     ));
     queue = (FragmentQueue) getReceiver().getWriter();
+    this.diskQueue = diskQueue;
     this.waitTimeForEmptyBatches = waitTimeForEmptyBatches;
   }
 
@@ -105,6 +125,17 @@ public class SdcIpcWithDiskBufferSource extends AbstractHttpServerSource<HttpRec
     } catch (IOException ex) {
       throw new OnRecordErrorException(Errors.IPC_ORIG_W_BUFFER_01, ex.toString(), ex);
     }
-    return super.produce(lastSourceOffset, maxBatchSize, batchMaker);
+    super.produce(lastSourceOffset, maxBatchSize, batchMaker);
+    // The position after the fragments of the batch, committed once the batch has been processed
+    return diskQueue.getPosition();
+  }
+
+  @Override
+  public void commit(String offset) throws StageException {
+    try {
+      diskQueue.commit(offset);
+    } catch (IOException ex) {
+      throw new StageException(Errors.IPC_ORIG_W_BUFFER_02, ex.toString(), ex);
+    }
   }
 }
@@ -39,6 +39,12 @@ public class SdcIpcWithDiskBufferSourceUpgrader implements StageUpgrader {
             "sslEnabled",
             "tlsEnabled"
         );
+        if (toVersion == 3) {
+          break;
+        }
+        // fall through
+      case 3:
+        upgradeV3ToV4(configs);
         break;
       default:
         throw new IllegalStateException(Utils.format("Unexpected fromVersion {}", fromVersion));
@@ -46,4 +52,9 @@ public class SdcIpcWithDiskBufferSourceUpgrader implements StageUpgrader {
     return configs;
   }
 
+  private static void upgradeV3ToV4(List<Config> configs) {
+    configs.add(new Config("persistentDiskBuffer", false));
+    configs.add(new Config("diskBufferDirectory", ""));
+  }
+
 }
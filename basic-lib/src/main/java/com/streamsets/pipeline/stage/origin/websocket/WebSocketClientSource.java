@@ -244,7 +244,7 @@ public class WebSocketClientSource implements PushSource {
   @OnWebSocketMessage
   public void onMessage(byte[] payload, int offset, int len) {
     String requestId = System.currentTimeMillis() + "." + counter.getAndIncrement();
-    try (DataParser parser = dataParserFactory.getParser(requestId, payload, offset, len)) {
+    try (DataParser parser = dataParserFactory.getMessageParser(requestId, payload, offset, len)) {
       process(parser);
     } catch (Exception ex) {
       errorQueue.offer(ex);
@@ -105,7 +105,7 @@ public class PushWebSocketReceiver implements WebSocketReceiver {
   @Override
   public boolean process(byte[] payload, int offset, int len) throws IOException {
     String requestId = System.currentTimeMillis() + "." + counter.getAndIncrement();
-    try (DataParser parser = parserFactory.getParser(requestId, payload, offset, len)) {
+    try (DataParser parser = parserFactory.getMessageParser(requestId, payload, offset, len)) {
       return process(parser);
     } catch (DataParserException ex) {
       throw new IOException(ex);
@@ -17,6 +17,10 @@ package com.streamsets.pipeline.stage.processor.aggregation;
 
 import com.streamsets.pipeline.api.Label;
 import com.streamsets.pipeline.stage.processor.aggregation.aggregator.Aggregator;
+import com.streamsets.pipeline.stage.processor.aggregation.aggregator.ApproxCountDistinctAggregator;
+import com.streamsets.pipeline.stage.processor.aggregation.aggregator.ApproxMedianAggregator;
+import com.streamsets.pipeline.stage.processor.aggregation.aggregator.ApproxPercentile95Aggregator;
+import com.streamsets.pipeline.stage.processor.aggregation.aggregator.ApproxPercentile99Aggregator;
 import com.streamsets.pipeline.stage.processor.aggregation.aggregator.CountAggregator;
 import com.streamsets.pipeline.stage.processor.aggregation.aggregator.DoubleAvgAggregator;
 import com.streamsets.pipeline.stage.processor.aggregation.aggregator.DoubleMaxAggregator;
@@ -39,6 +43,10 @@ public enum AggregationFunction implements Label {
   MAX_INTEGER("MAX (int)", LongMaxAggregator.class),
   SUM_DOUBLE("SUM (double)", DoubleSumAggregator.class),
   SUM_INTEGER("SUM (int)", LongSumAggregator.class),
+  APPROX_COUNT_DISTINCT("Approx. COUNT DISTINCT", ApproxCountDistinctAggregator.class),
+  APPROX_MEDIAN("Approx. MEDIAN (double)", ApproxMedianAggregator.class),
+  APPROX_PERCENTILE_95("Approx. 95th PERCENTILE (double)", ApproxPercentile95Aggregator.class),
+  APPROX_PERCENTILE_99("Approx. 99th PERCENTILE (double)", ApproxPercentile99Aggregator.class),
   ;
 
   private final String label;
@@ -71,6 +71,17 @@ public abstract class Aggregator<A extends Aggregator, T> {
     return valueType;
   }
 
+  /**
+   * Returns the type values must have to be processed by this aggregator, by default the aggregated value type.
+   * <p/>
+   * Aggregators such as the approximate distinct count accept values of any type.
+   *
+   * @return the type values must have to be processed by this aggregator.
+   */
+  public Class<?> getInputType() {
+    return getValueType();
+  }
+
   /**
    * Returns the name of the aggregator.
    * @return the name of the aggregator.
@@ -41,7 +41,11 @@ public class Aggregators {
       LongMaxAggregator.class,
       DoubleStdDevAggregator.class,
       DoubleSumAggregator.class,
-      LongSumAggregator.class
+      LongSumAggregator.class,
+      ApproxCountDistinctAggregator.class,
+      ApproxMedianAggregator.class,
+      ApproxPercentile95Aggregator.class,
+      ApproxPercentile99Aggregator.class
   );
 
   private static final Map<Class<? extends SimpleAggregator>, Constructor<? extends SimpleAggregator>> CONSTRUCTORS =
@@ -118,6 +122,36 @@ public class Aggregators {
     }
   }
 
+  /**
+   * Returns the type values must have to be processed by an aggregator.
+   *
+   * @param klass the aggregator class.
+   * @return the type values must have to be processed by an aggregator.
+   */
+  <A extends SimpleAggregator> Class<?> getAggregatorInputType(Class<A> klass) {
+    try {
+      A aggregator = (A) CONSTRUCTORS.get(klass).newInstance("forAggregatorTypeDiscoveryOnly");
+      return aggregator.getInputType();
+    } catch (Exception ex) {
+      throw new RuntimeException(ex);
+    }
+  }
+
+  /**
+   * Creates a GroupAccumulator to hold the data of all group-by elements of a group-by aggregator.
+   *
+   * @param klass aggregator type of the group-by elements.
+   * @return the new GroupAccumulator instance.
+   */
+  <A extends SimpleAggregator> GroupAccumulator createGroupAccumulator(Class<A> klass) {
+    try {
+      A aggregator = (A) CONSTRUCTORS.get(klass).newInstance("forGroupAccumulatorOnly");
+      return aggregator.createGroupAccumulator();
+    } catch (Exception ex) {
+      throw new RuntimeException(ex);
+    }
+  }
+
   /**
    * Creates an AggregatorData.
    *
@@ -0,0 +1,210 @@
+/*
+ * Copyright 2018 StreamSets Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.streamsets.pipeline.stage.processor.aggregation.aggregator;
+
+import com.streamsets.pipeline.api.impl.Utils;
+
+import java.util.Arrays;
+
+/**
+ * Approximate Count Distinct Aggregator, backed by a {@link HyperLogLog} sketch.
+ * <p/>
+ * It accepts values of any type, values are distinct if their String representations are. The aggregated value is a
+ * Long.
+ * <p/>
+ * The aggregatable carries the sparse entries of the sketch while it is sparse and its dense registers otherwise, so
+ * low cardinality group-by elements do not cost 2KB each when data windows are aggregated.
+ */
+public class ApproxCountDistinctAggregator extends SimpleAggregator<ApproxCountDistinctAggregator, Object> {
+
+  public static class ApproxCountDistinctAggregatable implements Aggregatable<ApproxCountDistinctAggregator> {
+    private String name;
+    private long count;
+    private int precision;
+    private byte[] registers;
+    private int[] sparseEntries;
+
+    @Override
+    public String getName() {
+      return name;
+    }
+
+    public ApproxCountDistinctAggregatable setName(String name) {
+      this.name = name;
+      return this;
+    }
+
+    public long getCount() {
+      return count;
+    }
+
+    public ApproxCountDistinctAggregatable setCount(long count) {
+      this.count = count;
+      return this;
+    }
+
+    public int getPrecision() {
+      return precision;
+    }
+
+    public ApproxCountDistinctAggregatable setPrecision(int precision) {
+      this.precision = precision;
+      return this;
+    }
+
+    public byte[] getRegisters() {
+      return registers;
+    }
+
+    public ApproxCountDistinctAggregatable setRegisters(byte[] registers) {
+      this.registers = registers;
+      return this;
+    }
+
+    public int[] getSparseEntries() {
+      return sparseEntries;
+    }
+
+    public ApproxCountDistinctAggregatable setSparseEntries(int[] sparseEntries) {
+      this.sparseEntries = sparseEntries;
+      return this;
+    }
+  }
+
+  static ApproxCountDistinctAggregatable createAggregatable(String name, HyperLogLog hll) {
+    return new ApproxCountDistinctAggregatable()
+        .setName(name)
+        .setCount(hll.cardinality())
+        .setPrecision(hll.getPrecision())
+        .setRegisters(hll.isSparse() ? null : hll.getRegisters())
+        .setSparseEntries(hll.getSparseEntries());
+  }
+
+  static void merge(HyperLogLog hll, ApproxCountDistinctAggregatable aggregatable) {
+    if (aggregatable.getRegisters() != null) {
+      hll.mergeRegisters(aggregatable.getRegisters());
+    } else if (aggregatable.getSparseEntries() != null) {
+      hll.mergeSparseEntries(aggregatable.getPrecision(), aggregatable.getSparseEntries());
+    }
+  }
+
+  private class Data extends AggregatorData<ApproxCountDistinctAggregator, Object> {
+    private final HyperLogLog hll;
+
+    public Data(String name, long time) {
+      super(name, time);
+      hll = new HyperLogLog();
+    }
+
+    @Override
+    public String getName() {
+      return ApproxCountDistinctAggregator.this.getName();
+    }
+
+    @Override
+    public void process(Object value) {
+      if (value != null) {
+        synchronized (this) {
+          hll.offer(value);
+        }
+      }
+    }
+
+    @Override
+    public synchronized Object get() {
+      return hll.cardinality();
+    }
+
+    @Override
+    public synchronized Aggregatable<ApproxCountDistinctAggregator> getAggregatable() {
+      return createAggregatable(getName(), hll);
+    }
+
+    @Override
+    public void aggregate(Aggregatable<ApproxCountDistinctAggregator> aggregatable) {
+      Utils.checkNotNull(aggregatable, "aggregatable");
+      Utils.checkArgument(
+          getName().equals(aggregatable.getName()),
+          Utils.formatL("Aggregable '{}' does not match this aggregation '{}", aggregatable.getName(), getName())
+      );
+      Utils.checkArgument(aggregatable instanceof ApproxCountDistinctAggregatable, Utils.formatL(
+          "Aggregatable '{}' is a '{}' it should be '{}'",
+          getName(),
+          aggregatable.getClass().getSimpleName(),
+          ApproxCountDistinctAggregatable.class.getSimpleName()
+      ));
+      synchronized (this) {
+        merge(hll, (ApproxCountDistinctAggregatable) aggregatable);
+      }
+    }
+  }
+
+  private static class GroupData extends GroupAccumulator {
+    private HyperLogLog[] sketches = new HyperLogLog[0];
+
+    @Override
+    protected void resize(int capacity) {
+      sketches = Arrays.copyOf(sketches, capacity);
+    }
+
+    private HyperLogLog getSketch(int group) {
+      if (sketches[group] == null) {
+        sketches[group] = new HyperLogLog();
+      }
+      return sketches[group];
+    }
+
+    @Override
+    protected void processValue(int group, Object value) {
+      getSketch(group).offer(value);
+    }
+
+    @Override
+    Object get(int group) {
+      return (sketches[group] == null) ? 0L : sketches[group].cardinality();
+    }
+
+    @Override
+    Aggregatable getAggregatable(String name, int group) {
+      return createAggregatable(name, getSketch(group));
+    }
+
+    @Override
+    protected void aggregateValue(int group, Aggregatable aggregatable) {
+      merge(getSketch(group), checkAggregatable(aggregatable, ApproxCountDistinctAggregatable.class));
+    }
+  }
+
+  public ApproxCountDistinctAggregator(String name) {
+    super(Long.class, name);
+  }
+
+  @Override
+  public Class<?> getInputType() {
+    return Object.class;
+  }
+
+  @Override
+  public AggregatorData createAggregatorData(long timeWindowMillis) {
+    return new Data(getName(), timeWindowMillis);
+  }
+
+  @Override
+  GroupAccumulator createGroupAccumulator() {
+    return new GroupData();
+  }
+
+}
@@ -0,0 +1,236 @@
+/*
+ * Copyright 2018 StreamSets Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.streamsets.pipeline.stage.processor.aggregation.aggregator;
+
+import com.streamsets.pipeline.api.impl.Utils;
+
+import java.util.Arrays;
+
+/**
+ * Base class for Approximate Percentile Aggregators, backed by a {@link TDigest}.
+ */
+public abstract class ApproxPercentileAggregator<A extends ApproxPercentileAggregator>
+    extends SimpleAggregator<A, Double> {
+
+  public static class ApproxPercentileAggregatable implements Aggregatable<ApproxPercentileAggregator> {
+    private String name;
+    private Double percentile;
+    private double min;
+    private double max;
+    private double[] means;
+    private double[] weights;
+
+    @Override
+    public String getName() {
+      return name;
+    }
+
+    public ApproxPercentileAggregatable setName(String name) {
+      this.name = name;
+      return this;
+    }
+
+    public Double getPercentile() {
+      return percentile;
+    }
+
+    public ApproxPercentileAggregatable setPercentile(Double percentile) {
+      this.percentile = percentile;
+      return this;
+    }
+
+    public double getMin() {
+      return min;
+    }
+
+    public ApproxPercentileAggregatable setMin(double min) {
+      this.min = min;
+      return this;
+    }
+
+    public double getMax() {
+      return max;
+    }
+
+    public ApproxPercentileAggregatable setMax(double max) {
+      this.max = max;
+      return this;
+    }
+
+    public double[] getMeans() {
+      return means;
+    }
+
+    public ApproxPercentileAggregatable setMeans(double[] means) {
+      this.means = means;
+      return this;
+    }
+
+    public double[] getWeights() {
+      return weights;
+    }
+
+    public ApproxPercentileAggregatable setWeights(double[] weights) {
+      this.weights = weights;
+      return this;
+    }
+  }
+
+  private class Data extends AggregatorData<A, Double> {
+    private final TDigest digest;
+
+    public Data(String name, long time) {
+      super(name, time);
+      digest = new TDigest();
+    }
+
+    @Override
+    public String getName() {
+      return ApproxPercentileAggregator.this.getName();
+    }
+
+    @Override
+    public void process(Double value) {
+      if (value != null) {
+        synchronized (this) {
+          digest.add(value);
+        }
+      }
+    }
+
+    @Override
+    public synchronized Double get() {
+      return getPercentile(digest);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public synchronized Aggregatable<A> getAggregatable() {
+      return (Aggregatable) createAggregatable(getName(), digest);
+    }
+
+    @Override
+    public void aggregate(Aggregatable<A> aggregatable) {
+      Utils.checkNotNull(aggregatable, "aggregatable");
+      Utils.checkArgument(
+          getName().equals(aggregatable.getName()),
+          Utils.formatL("Aggregable '{}' does not match this aggregation '{}", aggregatable.getName(), getName())
+      );
+      Utils.checkArgument(aggregatable instanceof ApproxPercentileAggregatable, Utils.formatL(
+          "Aggregatable '{}' is a '{}' it should be '{}'",
+          getName(),
+          aggregatable.getClass().getSimpleName(),
+          ApproxPercentileAggregatable.class.getSimpleName()
+      ));
+      TDigest other = toDigest((ApproxPercentileAggregatable) aggregatable);
+      synchronized (this) {
+        digest.merge(other);
+      }
+    }
+  }
+
+  private class GroupData extends GroupAccumulator {
+    private TDigest[] digests = new TDigest[0];
+
+    @Override
+    protected void resize(int capacity) {
+      digests = Arrays.copyOf(digests, capacity);
+    }
+
+    private TDigest getDigest(int group) {
+      if (digests[group] == null) {
+        digests[group] = new TDigest();
+      }
+      return digests[group];
+    }
+
+    @Override
+    protected void processValue(int group, Object value) {
+      getDigest(group).add(((Number) value).doubleValue());
+    }
+
+    @Override
+    Object get(int group) {
+      return (digests[group] == null) ? null : getPercentile(digests[group]);
+    }
+
+    @Override
+    Aggregatable getAggregatable(String name, int group) {
+      return createAggregatable(name, getDigest(group));
+    }
+
+    @Override
+    protected void aggregateValue(int group, Aggregatable aggregatable) {
+      getDigest(group).merge(toDigest(checkAggregatable(aggregatable, ApproxPercentileAggregatable.class)));
+    }
+  }
+
+  private final double quantile;
+
+  /**
+   * Constructor
+   *
+   * @param name name of the aggregator.
+   * @param quantile the quantile to estimate, between 0 and 1.
+   */
+  protected ApproxPercentileAggregator(String name, double quantile) {
+    super(Double.class, name);
+    this.quantile = quantile;
+  }
+
+  /**
+   * Returns the quantile the aggregator estimates.
+   *
+   * @return the quantile the aggregator estimates.
+   */
+  public double getQuantile() {
+    return quantile;
+  }
+
+  private Double getPercentile(TDigest digest) {
+    return (digest.size() == 0) ? null : digest.quantile(quantile);
+  }
+
+  private ApproxPercentileAggregatable createAggregatable(String name, TDigest digest) {
+    return new ApproxPercentileAggregatable()
+        .setName(name)
+        .setPercentile(getPercentile(digest))
+        .setMin(digest.getMin())
+        .setMax(digest.getMax())
+        .setMeans(digest.getMeans())
+        .setWeights(digest.getWeights());
+  }
+
+  private static TDigest toDigest(ApproxPercentileAggregatable aggregatable) {
+    return TDigest.fromCentroids(
+        aggregatable.getMeans(),
+        aggregatable.getWeights(),
+        aggregatable.getMin(),
+        aggregatable.getMax()
+    );
+  }
+
+  @Override
+  public AggregatorData createAggregatorData(long timeWindowMillis) {
+    return new Data(getName(), timeWindowMillis);
+  }
+
+  @Override
+  GroupAccumulator createGroupAccumulator() {
+    return new GroupData();
+  }
+
+}
@@ -17,6 +17,8 @@ package com.streamsets.pipeline.stage.processor.aggregation.aggregator;
 
 import com.streamsets.pipeline.api.impl.Utils;
 
+import java.util.Arrays;
+
 /**
  * Count Aggregator.
  */
@@ -88,6 +90,38 @@ public class CountAggregator extends SimpleAggregator<CountAggregator, Long> {
     }
   }
 
+  private static class GroupData extends GroupAccumulator {
+    private long[] counts = new long[0];
+
+    @Override
+    protected void resize(int capacity) {
+      counts = Arrays.copyOf(counts, capacity);
+    }
+
+    @Override
+    protected void processValue(int group, Object value) {
+      counts[group] += ((Number) value).longValue();
+    }
+
+    @Override
+    Object get(int group) {
+      return counts[group];
+    }
+
+    @Override
+    Aggregatable getAggregatable(String name, int group) {
+      return new CounterAggregatable().setName(name).setCount(counts[group]);
+    }
+
+    @Override
+    protected void aggregateValue(int group, Aggregatable aggregatable) {
+      Long count = checkAggregatable(aggregatable, CounterAggregatable.class).getCount();
+      if (count != null) {
+        counts[group] += count;
+      }
+    }
+  }
+
   public CountAggregator(String name) {
     super(Long.class, name);
   }
@@ -97,4 +131,9 @@ public class CountAggregator extends SimpleAggregator<CountAggregator, Long> {
     return new Data(getName(), timeWindowMillis);
   }
 
+  @Override
+  GroupAccumulator createGroupAccumulator() {
+    return new GroupData();
+  }
+
 }
@@ -17,6 +17,8 @@ package com.streamsets.pipeline.stage.processor.aggregation.aggregator;
 
 import com.streamsets.pipeline.api.impl.Utils;
 
+import java.util.Arrays;
+
 /**
  * Double Average Aggregator.
  */
@@ -123,6 +125,40 @@ public class DoubleAvgAggregator extends SimpleAggregator<DoubleAvgAggregator, D
     }
   }
 
+  private static class GroupData extends GroupAccumulator {
+    private double[] sums = new double[0];
+    private long[] counts = new long[0];
+
+    @Override
+    protected void resize(int capacity) {
+      sums = Arrays.copyOf(sums, capacity);
+      counts = Arrays.copyOf(counts, capacity);
+    }
+
+    @Override
+    protected void processValue(int group, Object value) {
+      sums[group] += ((Number) value).doubleValue();
+      counts[group]++;
+    }
+
+    @Override
+    Object get(int group) {
+      return (counts[group] == 0) ? null : sums[group] / counts[group];
+    }
+
+    @Override
+    Aggregatable getAggregatable(String name, int group) {
+      return new DoubleAvgAggregatable().setName(name).setCount(counts[group]).setTotal(sums[group]).setAverage((Double) get(group));
+    }
+
+    @Override
+    protected void aggregateValue(int group, Aggregatable aggregatable) {
+      DoubleAvgAggregatable other = checkAggregatable(aggregatable, DoubleAvgAggregatable.class);
+      sums[group] += other.getTotal();
+      counts[group] += other.getCount();
+    }
+  }
+
   public DoubleAvgAggregator(String name) {
     super(Double.class, name);
   }
@@ -132,4 +168,9 @@ public class DoubleAvgAggregator extends SimpleAggregator<DoubleAvgAggregator, D
     return new Data(getName(), timeWindowMillis);
   }
 
+  @Override
+  GroupAccumulator createGroupAccumulator() {
+    return new GroupData();
+  }
+
 }
@@ -17,6 +17,8 @@ package com.streamsets.pipeline.stage.processor.aggregation.aggregator;
 
 import com.streamsets.pipeline.api.impl.Utils;
 
+import java.util.Arrays;
+
 /**
  * Double Maximum Aggregator.
  */
@@ -98,6 +100,37 @@ public class DoubleMaxAggregator extends SimpleAggregator<DoubleMaxAggregator, D
     }
   }
 
+  private static class GroupData extends GroupAccumulator {
+    private double[] values = new double[0];
+
+    @Override
+    protected void resize(int capacity) {
+      int size = values.length;
+      values = Arrays.copyOf(values, capacity);
+      Arrays.fill(values, size, capacity, Double.NEGATIVE_INFINITY);
+    }
+
+    @Override
+    protected void processValue(int group, Object value) {
+      values[group] = Math.max(values[group], ((Number) value).doubleValue());
+    }
+
+    @Override
+    Object get(int group) {
+      return hasValue(group) ? values[group] : null;
+    }
+
+    @Override
+    Aggregatable getAggregatable(String name, int group) {
+      return new DoubleMaxAggregatable().setName(name).setMax(values[group]);
+    }
+
+    @Override
+    protected void aggregateValue(int group, Aggregatable aggregatable) {
+      values[group] = Math.max(values[group], checkAggregatable(aggregatable, DoubleMaxAggregatable.class).getMax());
+    }
+  }
+
   public DoubleMaxAggregator(String name) {
     super(Double.class, name);
   }
@@ -106,4 +139,9 @@ public class DoubleMaxAggregator extends SimpleAggregator<DoubleMaxAggregator, D
     return new Data(getName(), timeWindowMillis);
   }
 
+  @Override
+  GroupAccumulator createGroupAccumulator() {
+    return new GroupData();
+  }
+
 }
@@ -17,6 +17,8 @@ package com.streamsets.pipeline.stage.processor.aggregation.aggregator;
 
 import com.streamsets.pipeline.api.impl.Utils;
 
+import java.util.Arrays;
+
 /**
  * Double Standard Deviation Aggregator.
  */
@@ -136,6 +138,52 @@ public class DoubleStdDevAggregator extends SimpleAggregator<DoubleStdDevAggrega
     }
   }
 
+  private static class GroupData extends GroupAccumulator {
+    private long[] counts = new long[0];
+    private double[] totals = new double[0];
+    private double[] totalSquares = new double[0];
+
+    @Override
+    protected void resize(int capacity) {
+      counts = Arrays.copyOf(counts, capacity);
+      totals = Arrays.copyOf(totals, capacity);
+      totalSquares = Arrays.copyOf(totalSquares, capacity);
+    }
+
+    @Override
+    protected void processValue(int group, Object value) {
+      double v = ((Number) value).doubleValue();
+      counts[group]++;
+      totals[group] += v;
+      totalSquares[group] += v * v;
+    }
+
+    @Override
+    Object get(int group) {
+      long count = counts[group];
+      double total = totals[group];
+      return (count < 2) ? -1d : Math.sqrt((count * totalSquares[group] - total * total) / (count * (count - 1)));
+    }
+
+    @Override
+    Aggregatable getAggregatable(String name, int group) {
+      return new DoubleStdDevAggregatable()
+          .setName(name)
+          .setCount(counts[group])
+          .setTotal(totals[group])
+          .setTotalSquare(totalSquares[group])
+          .setStdDev((Double) get(group));
+    }
+
+    @Override
+    protected void aggregateValue(int group, Aggregatable aggregatable) {
+      DoubleStdDevAggregatable other = checkAggregatable(aggregatable, DoubleStdDevAggregatable.class);
+      counts[group] += other.getCount();
+      totals[group] += other.getTotal();
+      totalSquares[group] += other.getTotalSquare();
+    }
+  }
+
   public DoubleStdDevAggregator(String name) {
     super(Double.class, name);
   }
@@ -144,4 +192,9 @@ public class DoubleStdDevAggregator extends SimpleAggregator<DoubleStdDevAggrega
     return new Data(getName(), timeWindowMillis);
   }
 
+  @Override
+  GroupAccumulator createGroupAccumulator() {
+    return new GroupData();
+  }
+
 }
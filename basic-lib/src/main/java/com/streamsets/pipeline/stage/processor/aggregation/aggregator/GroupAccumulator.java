@@ -0,0 +1,129 @@
+/*
+ * Copyright 2018 StreamSets Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.streamsets.pipeline.stage.processor.aggregation.aggregator;
+
+import com.streamsets.pipeline.api.impl.Utils;
+
+import java.util.Arrays;
+
+/**
+ * Holds the data of a simple aggregator for all the elements of a group-by aggregator in a data window.
+ * <p/>
+ * Instead of an {@link AggregatorData} instance per group-by element, implementations keep the aggregated values in
+ * primitive arrays indexed by the element ordinal assigned by {@link GroupKeyIndex}. Each simple aggregator provides
+ * its implementation via {@link SimpleAggregator#createGroupAccumulator()}, mirroring the semantics of its
+ * {@link AggregatorData}.
+ * <p/>
+ * Implementations are not thread safe, the {@link GroupByAggregator} serializes the access to each element, and to
+ * blocks of 64 consecutive elements as they share a word of the processed bit set.
+ */
+abstract class GroupAccumulator {
+  // one bit per group-by element, set once a value has been processed or aggregated
+  private long[] processed = new long[0];
+  private int capacity;
+
+  /**
+   * Ensures the accumulator can hold the given number of group-by elements.
+   *
+   * @param groups number of group-by elements.
+   */
+  void ensureCapacity(int groups) {
+    if (groups > capacity) {
+      capacity = Math.max(groups, capacity + (capacity >> 1) + 16);
+      processed = Arrays.copyOf(processed, (capacity + 63) >>> 6);
+      resize(capacity);
+    }
+  }
+
+  /**
+   * Grows the primitive arrays of the accumulator to the given capacity.
+   *
+   * @param capacity new capacity.
+   */
+  protected abstract void resize(int capacity);
+
+  /**
+   * Returns if any value has been processed or aggregated for the group-by element.
+   *
+   * @param group ordinal of the group-by element.
+   * @return if any value has been processed or aggregated for the group-by element.
+   */
+  boolean hasValue(int group) {
+    return (processed[group >>> 6] & (1L << group)) != 0;
+  }
+
+  /**
+   * Processes the given value into the given group-by element. NULL values are ignored.
+   *
+   * @param group ordinal of the group-by element.
+   * @param value the value to process.
+   */
+  void process(int group, Object value) {
+    if (value != null) {
+      processed[group >>> 6] |= 1L << group;
+      processValue(group, value);
+    }
+  }
+
+  protected abstract void processValue(int group, Object value);
+
+  /**
+   * Returns the current aggregation value of the group-by element, as {@link AggregatorData#get()} would.
+   *
+   * @param group ordinal of the group-by element.
+   * @return the current aggregation value of the group-by element.
+   */
+  abstract Object get(int group);
+
+  /**
+   * Returns the aggregatable value of the group-by element, as {@link AggregatorData#getAggregatable()} would.
+   * <p/>
+   * It is only called for group-by elements that have a value.
+   *
+   * @param name name of the group-by element.
+   * @param group ordinal of the group-by element.
+   * @return the aggregatable value of the group-by element.
+   */
+  abstract Aggregator.Aggregatable getAggregatable(String name, int group);
+
+  /**
+   * Aggregates an aggregatable value into the given group-by element.
+   *
+   * @param group ordinal of the group-by element.
+   * @param aggregatable the aggregatable value to aggregate.
+   */
+  void aggregate(int group, Aggregator.Aggregatable aggregatable) {
+    processed[group >>> 6] |= 1L << group;
+    aggregateValue(group, aggregatable);
+  }
+
+  protected abstract void aggregateValue(int group, Aggregator.Aggregatable aggregatable);
+
+  static <T extends Aggregator.Aggregatable> T checkAggregatable(
+      Aggregator.Aggregatable aggregatable,
+      Class<T> klass
+  ) {
+    Utils.checkNotNull(aggregatable, "aggregatable");
+    Utils.checkArgument(klass.isInstance(aggregatable), Utils.formatL(
+        "Aggregatable '{}' is a '{}' it should be '{}'",
+        aggregatable.getName(),
+        aggregatable.getClass().getSimpleName(),
+        klass.getSimpleName()
+    ));
+    return klass.cast(aggregatable);
+  }
+
+}
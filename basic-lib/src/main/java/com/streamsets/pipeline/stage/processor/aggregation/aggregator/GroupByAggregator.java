@@ -28,6 +28,7 @@ import java.util.concurrent.locks.ReentrantReadWriteLock;
  * Group-by Aggregator supporting all Simple Aggregators as group-by element.
  */
 public class GroupByAggregator<A extends SimpleAggregator, T> extends Aggregator<GroupByAggregator, Map<String, T>> {
+  private static final int LOCK_STRIPES = 64;
 
   public static class GroupByAggregatable implements Aggregatable<GroupByAggregator> {
     private String name;
@@ -53,14 +54,36 @@ public class GroupByAggregator<A extends SimpleAggregator, T> extends Aggregator
     }
   }
 
+  /**
+   * Group-by data of a data window.
+   * <p/>
+   * Group-by element names are interned into ordinals by a {@link GroupKeyIndex} and the element values are kept in
+   * the primitive arrays of a {@link GroupAccumulator}, instead of an {@link AggregatorData} instance per element.
+   * AggregatorData instances are only created on demand, by {@link #getGroupByElementData(String)}.
+   * <p/>
+   * Adding an element takes the write lock, processing values of existing elements takes the read lock and a lock
+   * striped by blocks of element ordinals.
+   */
   class Data extends AggregatorData<GroupByAggregator<A, T>, Map<String, T>> {
-    private final Map<String, AggregatorData<SimpleAggregator, Number>> groups;
+    private final GroupKeyIndex index;
+    private final GroupAccumulator accumulator;
     private final ReentrantReadWriteLock rwLock;
+    private final Object[] stripes;
 
     public Data(String name, long time) {
       super(name, time);
-      groups = new HashMap<>();
+      index = new GroupKeyIndex();
+      accumulator = aggregators.createGroupAccumulator(getAggregatorClass());
       rwLock = new ReentrantReadWriteLock(true);
+      stripes = new Object[LOCK_STRIPES];
+      for (int i = 0; i < LOCK_STRIPES; i++) {
+        stripes[i] = new Object();
+      }
+    }
+
+    // consecutive ordinals share a stripe as the accumulator keeps a bit per ordinal
+    private Object getStripe(int ordinal) {
+      return stripes[(ordinal >>> 6) & (LOCK_STRIPES - 1)];
     }
 
     @Override
@@ -75,29 +98,39 @@ public class GroupByAggregator<A extends SimpleAggregator, T> extends Aggregator
       }
     }
 
-    @SuppressWarnings("unchecked")
     protected void process(String group, T value) {
-      AggregatorData aggregatorData;
+      rwLock.readLock().lock();
+      try {
+        int ordinal = index.get(group);
+        if (ordinal >= 0) {
+          synchronized (getStripe(ordinal)) {
+            accumulator.process(ordinal, value);
+          }
+          return;
+        }
+      } finally {
+        rwLock.readLock().unlock();
+      }
       rwLock.writeLock().lock();
       try {
-        aggregatorData = groups.computeIfAbsent(group,
-            k -> GroupByAggregator.this.createElementAggregatorData(group, getTime())
-        );
+        int ordinal = index.getOrAdd(group);
+        accumulator.ensureCapacity(index.size());
+        accumulator.process(ordinal, value);
       } finally {
         rwLock.writeLock().unlock();
       }
-      aggregatorData.process(value);
     }
 
-
     @Override
     @SuppressWarnings("unchecked")
     public Map<String, T> get() {
       rwLock.readLock().lock();
       try {
         Map<String, T> map = new HashMap<>();
-        for (Map.Entry<String, AggregatorData<SimpleAggregator, Number>> group : groups.entrySet()) {
-          map.put(group.getKey(), (T) group.getValue().get());
+        for (int ordinal = 0; ordinal < index.size(); ordinal++) {
+          synchronized (getStripe(ordinal)) {
+            map.put(index.getKey(ordinal), (T) accumulator.get(ordinal));
+          }
         }
         return map;
       } finally {
@@ -109,7 +142,17 @@ public class GroupByAggregator<A extends SimpleAggregator, T> extends Aggregator
     public AggregatorData<SimpleAggregator, Number> getGroupByElementData(String groupName) {
       rwLock.readLock().lock();
       try {
-        return groups.get(groupName);
+        int ordinal = index.get(groupName);
+        if (ordinal < 0) {
+          return null;
+        }
+        AggregatorData data = createElementAggregatorData(groupName, getTime());
+        synchronized (getStripe(ordinal)) {
+          if (accumulator.hasValue(ordinal)) {
+            data.aggregate(accumulator.getAggregatable(groupName, ordinal));
+          }
+        }
+        return data;
       } finally {
         rwLock.readLock().unlock();
       }
@@ -118,7 +161,11 @@ public class GroupByAggregator<A extends SimpleAggregator, T> extends Aggregator
     public Set<String> getGroupByElements() {
       rwLock.readLock().lock();
       try {
-        return new HashSet<>(groups.keySet());
+        Set<String> elements = new HashSet<>();
+        for (int ordinal = 0; ordinal < index.size(); ordinal++) {
+          elements.add(index.getKey(ordinal));
+        }
+        return elements;
       } finally {
         rwLock.readLock().unlock();
       }
@@ -131,8 +178,14 @@ public class GroupByAggregator<A extends SimpleAggregator, T> extends Aggregator
       rwLock.readLock().lock();
       try {
         Map<String, Aggregatable> aggregatableGroups = new HashMap<>();
-        for (Map.Entry<String, AggregatorData<SimpleAggregator, Number>> group : groups.entrySet()) {
-          aggregatableGroups.put(group.getKey(), group.getValue().getAggregatable());
+        for (int ordinal = 0; ordinal < index.size(); ordinal++) {
+          String group = index.getKey(ordinal);
+          synchronized (getStripe(ordinal)) {
+            aggregatableGroups.put(group, accumulator.hasValue(ordinal)
+                ? accumulator.getAggregatable(group, ordinal)
+                : createElementAggregatorData(group, getTime()).getAggregatable()
+            );
+          }
         }
         aggregatable.setGroups(aggregatableGroups);
       } finally {
@@ -157,10 +210,9 @@ public class GroupByAggregator<A extends SimpleAggregator, T> extends Aggregator
       rwLock.writeLock().lock();
       try {
         for (Map.Entry<String, Aggregatable> entry : ((GroupByAggregatable) aggregatable).getGroups().entrySet()) {
-          AggregatorData aggregatorData = groups.computeIfAbsent(entry.getKey(),
-              groupByElementName -> GroupByAggregator.this.createElementAggregatorData(groupByElementName, getTime())
-          );
-          aggregatorData.aggregate(entry.getValue());
+          int ordinal = index.getOrAdd(entry.getKey());
+          accumulator.ensureCapacity(index.size());
+          accumulator.aggregate(ordinal, entry.getValue());
         }
       } finally {
         rwLock.writeLock().unlock();
@@ -169,6 +221,7 @@ public class GroupByAggregator<A extends SimpleAggregator, T> extends Aggregator
   }
 
   private final Class<A> aggregatorKlass;
+  private final Class<?> inputType;
   private final Aggregators aggregators;
 
   /**
@@ -184,6 +237,17 @@ public class GroupByAggregator<A extends SimpleAggregator, T> extends Aggregator
     super(aggregators.getAggregatorUnit(aggregatorKlass), name);
     this.aggregators = aggregators;
     this.aggregatorKlass = aggregatorKlass;
+    this.inputType = aggregators.getAggregatorInputType(aggregatorKlass);
+  }
+
+  /**
+   * Returns the type values must have to be processed by the Aggregator type of the group-by elements.
+   *
+   * @return the type values must have to be processed by the Aggregator type of the group-by elements.
+   */
+  @Override
+  public Class<?> getInputType() {
+    return inputType;
   }
 
   /**
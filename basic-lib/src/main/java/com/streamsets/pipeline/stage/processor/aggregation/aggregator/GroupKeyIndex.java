@@ -0,0 +1,131 @@
+/*
+ * Copyright 2018 StreamSets Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.streamsets.pipeline.stage.processor.aggregation.aggregator;
+
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * Interns group-by element names into dense ordinals (0, 1, 2, ...) so that the data of each group can be kept in
+ * primitive arrays indexed by ordinal.
+ * <p/>
+ * It is an open addressing hash table that holds only the keys and two int arrays, avoiding the entry and boxed value
+ * objects a HashMap would allocate per group.
+ * <p/>
+ * It is not thread safe.
+ */
+class GroupKeyIndex {
+  private static final int INITIAL_CAPACITY = 16;
+
+  private String[] keys;
+  private int[] hashes;
+  // slot -> ordinal + 1, 0 marks an empty slot
+  private int[] table;
+  private int size;
+
+  GroupKeyIndex() {
+    keys = new String[INITIAL_CAPACITY];
+    hashes = new int[INITIAL_CAPACITY];
+    table = new int[INITIAL_CAPACITY * 2];
+  }
+
+  private static int hash(String key) {
+    int h = Objects.hashCode(key);
+    return h ^ (h >>> 16);
+  }
+
+  /**
+   * Returns the number of keys in the index.
+   *
+   * @return the number of keys in the index.
+   */
+  int size() {
+    return size;
+  }
+
+  /**
+   * Returns the ordinal of the given key.
+   *
+   * @param key the key to look up, it may be NULL.
+   * @return the ordinal of the key, or -1 if the key is not in the index.
+   */
+  int get(String key) {
+    int hash = hash(key);
+    int mask = table.length - 1;
+    for (int slot = hash & mask; table[slot] != 0; slot = (slot + 1) & mask) {
+      int ordinal = table[slot] - 1;
+      if (hashes[ordinal] == hash && Objects.equals(keys[ordinal], key)) {
+        return ordinal;
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * Returns the ordinal of the given key, adding the key to the index with the next ordinal if not there.
+   *
+   * @param key the key to look up, it may be NULL.
+   * @return the ordinal of the key.
+   */
+  int getOrAdd(String key) {
+    int hash = hash(key);
+    int mask = table.length - 1;
+    int slot = hash & mask;
+    for (; table[slot] != 0; slot = (slot + 1) & mask) {
+      int ordinal = table[slot] - 1;
+      if (hashes[ordinal] == hash && Objects.equals(keys[ordinal], key)) {
+        return ordinal;
+      }
+    }
+    int ordinal = size++;
+    if (ordinal == keys.length) {
+      keys = Arrays.copyOf(keys, keys.length * 2);
+      hashes = Arrays.copyOf(hashes, hashes.length * 2);
+    }
+    keys[ordinal] = key;
+    hashes[ordinal] = hash;
+    table[slot] = ordinal + 1;
+    // keep the load factor at or below 0.5
+    if (size * 2 > table.length) {
+      rehash(table.length * 2);
+    }
+    return ordinal;
+  }
+
+  private void rehash(int capacity) {
+    int[] newTable = new int[capacity];
+    int mask = capacity - 1;
+    for (int ordinal = 0; ordinal < size; ordinal++) {
+      int slot = hashes[ordinal] & mask;
+      while (newTable[slot] != 0) {
+        slot = (slot + 1) & mask;
+      }
+      newTable[slot] = ordinal + 1;
+    }
+    table = newTable;
+  }
+
+  /**
+   * Returns the key of the given ordinal.
+   *
+   * @param ordinal the ordinal, it must be lower than {@link #size()}.
+   * @return the key of the ordinal.
+   */
+  String getKey(int ordinal) {
+    return keys[ordinal];
+  }
+
+}
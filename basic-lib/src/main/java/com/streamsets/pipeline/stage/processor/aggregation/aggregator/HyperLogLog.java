@@ -0,0 +1,270 @@
+/*
+ * Copyright 2018 StreamSets Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.streamsets.pipeline.stage.processor.aggregation.aggregator;
+
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
+import com.streamsets.pipeline.api.impl.Utils;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * HyperLogLog sketch to estimate the number of distinct values, using a 64 bit hash.
+ * <p/>
+ * The sketch starts with a sparse representation, a small hash table of (register, value) pairs, and switches to the
+ * dense array of registers once the sparse one would be larger, so sketches of low cardinality group-by elements stay
+ * small. With the default precision the dense sketch is 2KB and the standard error is about 2.3%.
+ * <p/>
+ * Sketches with the same precision can be merged, the result is the sketch of the union of the values.
+ * <p/>
+ * It is not thread safe.
+ */
+public class HyperLogLog {
+  public static final int DEFAULT_PRECISION = 11;
+
+  private static final HashFunction HASH_FUNCTION = Hashing.murmur3_128();
+
+  private final int precision;
+  private final int registerCount;
+  private byte[] registers;
+  // sparse entries, (register << 8 | value), 0 marks an empty slot
+  private int[] sparse;
+  private int sparseSize;
+
+  public HyperLogLog() {
+    this(DEFAULT_PRECISION);
+  }
+
+  public HyperLogLog(int precision) {
+    Utils.checkArgument(precision >= 4 && precision <= 16, Utils.formatL("Invalid precision '{}'", precision));
+    this.precision = precision;
+    this.registerCount = 1 << precision;
+    this.sparse = new int[4];
+  }
+
+  /**
+   * Creates a HyperLogLog from the dense registers of another one.
+   *
+   * @param registers the dense registers, as returned by {@link #getRegisters()}.
+   * @return the HyperLogLog.
+   */
+  public static HyperLogLog fromRegisters(byte[] registers) {
+    Utils.checkArgument(Integer.bitCount(registers.length) == 1, "Number of registers must be a power of 2");
+    HyperLogLog hll = new HyperLogLog(Integer.numberOfTrailingZeros(registers.length));
+    hll.sparse = null;
+    hll.registers = registers.clone();
+    return hll;
+  }
+
+  public int getPrecision() {
+    return precision;
+  }
+
+  /**
+   * Adds a value to the sketch, values are hashed using their String representation.
+   *
+   * @param value the value to add, NULL values are ignored.
+   */
+  public void offer(Object value) {
+    if (value != null) {
+      offerHash(HASH_FUNCTION.hashString(value.toString(), StandardCharsets.UTF_8).asLong());
+    }
+  }
+
+  void offerHash(long hash) {
+    int register = (int) (hash >>> (64 - precision));
+    // the guard bit caps the value at 64 - precision + 1
+    int value = Long.numberOfLeadingZeros((hash << precision) | (1L << (precision - 1))) + 1;
+    set(register, value);
+  }
+
+  private void set(int register, int value) {
+    if (registers != null) {
+      if (value > registers[register]) {
+        registers[register] = (byte) value;
+      }
+    } else {
+      int mask = sparse.length - 1;
+      int slot = (register * 0x9E3779B9) >>> 16 & mask;
+      for (; sparse[slot] != 0; slot = (slot + 1) & mask) {
+        if (sparse[slot] >>> 8 == register) {
+          if (value > (sparse[slot] & 0xFF)) {
+            sparse[slot] = register << 8 | value;
+          }
+          return;
+        }
+      }
+      sparse[slot] = register << 8 | value;
+      sparseSize++;
+      if (sparseSize * 2 > sparse.length) {
+        growSparse();
+      }
+    }
+  }
+
+  private void growSparse() {
+    int[] entries = sparse;
+    // an int per sparse entry, switch to dense registers once the sparse table would be larger than them
+    if (entries.length * 2 > registerCount / 4) {
+      registers = new byte[registerCount];
+      sparse = null;
+    } else {
+      sparse = new int[entries.length * 2];
+      sparseSize = 0;
+    }
+    for (int entry : entries) {
+      if (entry != 0) {
+        set(entry >>> 8, entry & 0xFF);
+      }
+    }
+  }
+
+  /**
+   * Merges another sketch into this one.
+   *
+   * @param other the sketch to merge, it must have the same precision.
+   */
+  public void merge(HyperLogLog other) {
+    if (other.registers != null) {
+      mergeRegisters(other.registers);
+    } else {
+      mergeSparseEntries(other.precision, other.sparse);
+    }
+  }
+
+  /**
+   * Merges the dense registers of another sketch into this one, without creating a sketch for them.
+   *
+   * @param registers the dense registers, as returned by {@link #getRegisters()}, of a sketch with the same precision.
+   */
+  public void mergeRegisters(byte[] registers) {
+    Utils.checkArgument(registers.length == registerCount, Utils.formatL(
+        "Cannot merge '{}' registers into HyperLogLog with '{}' registers",
+        registers.length,
+        registerCount
+    ));
+    for (int register = 0; register < registerCount; register++) {
+      if (registers[register] > 0) {
+        set(register, registers[register]);
+      }
+    }
+  }
+
+  /**
+   * Merges the sparse entries of another sketch into this one, without creating a sketch for them.
+   *
+   * @param precision the precision of the other sketch, it must be the same.
+   * @param entries the sparse entries, as returned by {@link #getSparseEntries()}.
+   */
+  public void mergeSparseEntries(int precision, int[] entries) {
+    Utils.checkArgument(this.precision == precision, Utils.formatL(
+        "Cannot merge HyperLogLog with precision '{}' into one with precision '{}'",
+        precision,
+        this.precision
+    ));
+    for (int entry : entries) {
+      if (entry != 0) {
+        set(entry >>> 8, entry & 0xFF);
+      }
+    }
+  }
+
+  /**
+   * Returns if the sketch still uses the sparse representation.
+   *
+   * @return if the sketch still uses the sparse representation.
+   */
+  public boolean isSparse() {
+    return registers == null;
+  }
+
+  /**
+   * Returns the estimated number of distinct values added to the sketch.
+   *
+   * @return the estimated number of distinct values added to the sketch.
+   */
+  public long cardinality() {
+    double sum = 0;
+    int zeros = 0;
+    if (registers != null) {
+      for (byte value : registers) {
+        sum += 1d / (1L << value);
+        if (value == 0) {
+          zeros++;
+        }
+      }
+    } else {
+      zeros = registerCount - sparseSize;
+      sum = zeros;
+      for (int entry : sparse) {
+        if (entry != 0) {
+          sum += 1d / (1L << (entry & 0xFF));
+        }
+      }
+    }
+    double alpha = 0.7213 / (1 + 1.079 / registerCount);
+    double estimate = alpha * registerCount * registerCount / sum;
+    if (estimate <= 2.5 * registerCount && zeros > 0) {
+      // small range correction, linear counting
+      estimate = registerCount * Math.log((double) registerCount / zeros);
+    }
+    return Math.round(estimate);
+  }
+
+  /**
+   * Returns a copy of the dense registers of the sketch.
+   *
+   * @return a copy of the dense registers of the sketch.
+   */
+  public byte[] getRegisters() {
+    if (registers != null) {
+      return registers.clone();
+    }
+    byte[] dense = new byte[registerCount];
+    for (int entry : sparse) {
+      if (entry != 0) {
+        dense[entry >>> 8] = (byte) (entry & 0xFF);
+      }
+    }
+    return dense;
+  }
+
+  /**
+   * Returns a copy of the sparse entries of the sketch, one int per non empty register, or NULL if the sketch is dense.
+   *
+   * @return a copy of the sparse entries of the sketch, or NULL if the sketch is dense.
+   */
+  public int[] getSparseEntries() {
+    if (registers != null) {
+      return null;
+    }
+    int[] entries = new int[sparseSize];
+    int i = 0;
+    for (int entry : sparse) {
+      if (entry != 0) {
+        entries[i++] = entry;
+      }
+    }
+    return entries;
+  }
+
+  @Override
+  public String toString() {
+    return "HyperLogLog{precision=" + precision + ", sparse=" + isSparse() + ", cardinality=" + cardinality() +
+        '}';
+  }
+
+}
@@ -17,6 +17,8 @@ package com.streamsets.pipeline.stage.processor.aggregation.aggregator;
 
 import com.streamsets.pipeline.api.impl.Utils;
 
+import java.util.Arrays;
+
 /**
  * Long Average Aggregator.
  */
@@ -117,6 +119,40 @@ public class LongAvgAggregator extends SimpleAggregator<LongAvgAggregator, Long>
     }
   }
 
+  private static class GroupData extends GroupAccumulator {
+    private long[] sums = new long[0];
+    private long[] counts = new long[0];
+
+    @Override
+    protected void resize(int capacity) {
+      sums = Arrays.copyOf(sums, capacity);
+      counts = Arrays.copyOf(counts, capacity);
+    }
+
+    @Override
+    protected void processValue(int group, Object value) {
+      sums[group] += ((Number) value).longValue();
+      counts[group]++;
+    }
+
+    @Override
+    Object get(int group) {
+      return (counts[group] == 0) ? null : (long) Math.rint((double) sums[group] / counts[group]);
+    }
+
+    @Override
+    Aggregatable getAggregatable(String name, int group) {
+      return new LongAvgAggregatable().setName(name).setCount(counts[group]).setTotal(sums[group]).setAverage((Long) get(group));
+    }
+
+    @Override
+    protected void aggregateValue(int group, Aggregatable aggregatable) {
+      LongAvgAggregatable other = checkAggregatable(aggregatable, LongAvgAggregatable.class);
+      sums[group] += other.getTotal();
+      counts[group] += other.getCount();
+    }
+  }
+
   public LongAvgAggregator(String name) {
     super(Long.class, name);
   }
@@ -126,4 +162,9 @@ public class LongAvgAggregator extends SimpleAggregator<LongAvgAggregator, Long>
     return new LongAvgAggregator.Data(getName(), timeWindowMillis);
   }
 
+  @Override
+  GroupAccumulator createGroupAccumulator() {
+    return new GroupData();
+  }
+
 }
@@ -17,6 +17,8 @@ package com.streamsets.pipeline.stage.processor.aggregation.aggregator;
 
 import com.streamsets.pipeline.api.impl.Utils;
 
+import java.util.Arrays;
+
 /**
  * Long Maximum Aggregator.
  */
@@ -98,6 +100,37 @@ public class LongMaxAggregator extends SimpleAggregator<LongMaxAggregator, Long>
     }
   }
 
+  private static class GroupData extends GroupAccumulator {
+    private long[] values = new long[0];
+
+    @Override
+    protected void resize(int capacity) {
+      int size = values.length;
+      values = Arrays.copyOf(values, capacity);
+      Arrays.fill(values, size, capacity, Long.MIN_VALUE);
+    }
+
+    @Override
+    protected void processValue(int group, Object value) {
+      values[group] = Math.max(values[group], ((Number) value).longValue());
+    }
+
+    @Override
+    Object get(int group) {
+      return hasValue(group) ? values[group] : null;
+    }
+
+    @Override
+    Aggregatable getAggregatable(String name, int group) {
+      return new LongMaxAggregatable().setName(name).setMax(values[group]);
+    }
+
+    @Override
+    protected void aggregateValue(int group, Aggregatable aggregatable) {
+      values[group] = Math.max(values[group], checkAggregatable(aggregatable, LongMaxAggregatable.class).getMax());
+    }
+  }
+
   public LongMaxAggregator(String name) {
     super(Long.class, name);
   }
@@ -105,4 +138,9 @@ public class LongMaxAggregator extends SimpleAggregator<LongMaxAggregator, Long>
   public AggregatorData createAggregatorData(long timeWindowMillis) {
     return new Data(getName(), timeWindowMillis);
   }
+
+  @Override
+  GroupAccumulator createGroupAccumulator() {
+    return new GroupData();
+  }
 }
@@ -17,6 +17,8 @@ package com.streamsets.pipeline.stage.processor.aggregation.aggregator;
 
 import com.streamsets.pipeline.api.impl.Utils;
 
+import java.util.Arrays;
+
 /**
  * Long Minimum Aggregator.
  */
@@ -98,6 +100,37 @@ public class LongMinAggregator extends SimpleAggregator<LongMinAggregator, Long>
     }
   }
 
+  private static class GroupData extends GroupAccumulator {
+    private long[] values = new long[0];
+
+    @Override
+    protected void resize(int capacity) {
+      int size = values.length;
+      values = Arrays.copyOf(values, capacity);
+      Arrays.fill(values, size, capacity, Long.MAX_VALUE);
+    }
+
+    @Override
+    protected void processValue(int group, Object value) {
+      values[group] = Math.min(values[group], ((Number) value).longValue());
+    }
+
+    @Override
+    Object get(int group) {
+      return hasValue(group) ? values[group] : null;
+    }
+
+    @Override
+    Aggregatable getAggregatable(String name, int group) {
+      return new LongMinAggregatable().setName(name).setMin(values[group]);
+    }
+
+    @Override
+    protected void aggregateValue(int group, Aggregatable aggregatable) {
+      values[group] = Math.min(values[group], checkAggregatable(aggregatable, LongMinAggregatable.class).getMin());
+    }
+  }
+
   public LongMinAggregator(String name) {
     super(Long.class, name);
   }
@@ -106,4 +139,9 @@ public class LongMinAggregator extends SimpleAggregator<LongMinAggregator, Long>
     return new Data(getName(), timeWindowMillis);
   }
 
+  @Override
+  GroupAccumulator createGroupAccumulator() {
+    return new GroupData();
+  }
+
 }
@@ -17,6 +17,8 @@ package com.streamsets.pipeline.stage.processor.aggregation.aggregator;
 
 import com.streamsets.pipeline.api.impl.Utils;
 
+import java.util.Arrays;
+
 /**
  * Long Average Aggregator.
  */
@@ -113,6 +115,40 @@ public class LongSumAggregator extends SimpleAggregator<LongSumAggregator, Long>
     }
   }
 
+  private static class GroupData extends GroupAccumulator {
+    private long[] sums = new long[0];
+    private long[] counts = new long[0];
+
+    @Override
+    protected void resize(int capacity) {
+      sums = Arrays.copyOf(sums, capacity);
+      counts = Arrays.copyOf(counts, capacity);
+    }
+
+    @Override
+    protected void processValue(int group, Object value) {
+      sums[group] += ((Number) value).longValue();
+      counts[group]++;
+    }
+
+    @Override
+    Object get(int group) {
+      return (counts[group] == 0) ? null : sums[group];
+    }
+
+    @Override
+    Aggregatable getAggregatable(String name, int group) {
+      return new LongSumAggregatable().setName(name).setCount(counts[group]).setSum(sums[group]);
+    }
+
+    @Override
+    protected void aggregateValue(int group, Aggregatable aggregatable) {
+      LongSumAggregatable other = checkAggregatable(aggregatable, LongSumAggregatable.class);
+      sums[group] += other.getSum();
+      counts[group] += other.getCount();
+    }
+  }
+
   public LongSumAggregator(String name) {
     super(Long.class, name);
   }
@@ -122,4 +158,9 @@ public class LongSumAggregator extends SimpleAggregator<LongSumAggregator, Long>
     return new Data(getName(), timeWindowMillis);
   }
 
+  @Override
+  GroupAccumulator createGroupAccumulator() {
+    return new GroupData();
+  }
+
 }
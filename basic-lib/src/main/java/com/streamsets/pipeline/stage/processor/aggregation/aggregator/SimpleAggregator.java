@@ -38,4 +38,11 @@ public abstract class SimpleAggregator<A extends SimpleAggregator, T> extends Ag
     getData().process(value);
   }
 
+  /**
+   * Creates the accumulator holding the data of this aggregator for all the elements of a group-by aggregator.
+   *
+   * @return a new GroupAccumulator for this aggregator.
+   */
+  abstract GroupAccumulator createGroupAccumulator();
+
 }
@@ -0,0 +1,281 @@
+/*
+ * Copyright 2018 StreamSets Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.streamsets.pipeline.stage.processor.aggregation.aggregator;
+
+import com.streamsets.pipeline.api.impl.Utils;
+
+import java.util.Arrays;
+
+/**
+ * Merging t-digest to estimate quantiles of a stream of values in bounded memory.
+ * <p/>
+ * Values are buffered and periodically merged into a sorted list of centroids (mean, weight). A centroid may only
+ * absorb values while it spans at most one unit of the arcsine scale function {@code k(q)}, which is steep near the
+ * 0 and 1 quantiles, so centroids are small, and estimates accurate, at the tails. The number of centroids is bounded
+ * by about {@code compression / 2}, regardless of the number of values.
+ * <p/>
+ * Digests can be merged, the result is the digest of the union of the values.
+ * <p/>
+ * It is not thread safe.
+ */
+public class TDigest {
+  public static final double DEFAULT_COMPRESSION = 100;
+
+  private final double compression;
+  private final int maxBuffered;
+
+  private double[] means;
+  private double[] weights;
+  private int centroids;
+
+  private double[] bufferMeans;
+  private double[] bufferWeights;
+  private int buffered;
+
+  private double totalWeight;
+  private double min = Double.POSITIVE_INFINITY;
+  private double max = Double.NEGATIVE_INFINITY;
+
+  public TDigest() {
+    this(DEFAULT_COMPRESSION);
+  }
+
+  public TDigest(double compression) {
+    Utils.checkArgument(compression >= 10, Utils.formatL("Invalid compression '{}'", compression));
+    this.compression = compression;
+    this.maxBuffered = (int) (5 * compression);
+    means = new double[0];
+    weights = new double[0];
+    bufferMeans = new double[4];
+    bufferWeights = new double[4];
+  }
+
+  /**
+   * Creates a TDigest from the centroids of another one.
+   *
+   * @param means means of the centroids, in ascending order.
+   * @param weights weights of the centroids.
+   * @param min minimum value added to the digest.
+   * @param max maximum value added to the digest.
+   * @return the TDigest.
+   */
+  public static TDigest fromCentroids(double[] means, double[] weights, double min, double max) {
+    Utils.checkArgument(means.length == weights.length, "Means and weights must have the same length");
+    TDigest digest = new TDigest();
+    for (int i = 0; i < means.length; i++) {
+      digest.add(means[i], weights[i]);
+    }
+    digest.min = Math.min(digest.min, min);
+    digest.max = Math.max(digest.max, max);
+    return digest;
+  }
+
+  /**
+   * Adds a value to the digest.
+   *
+   * @param value the value to add, NaN values are ignored.
+   */
+  public void add(double value) {
+    add(value, 1);
+  }
+
+  private void add(double mean, double weight) {
+    if (Double.isNaN(mean) || weight <= 0) {
+      return;
+    }
+    if (buffered == maxBuffered) {
+      compress();
+    }
+    if (buffered == bufferMeans.length) {
+      int capacity = Math.min(maxBuffered, bufferMeans.length * 2);
+      bufferMeans = Arrays.copyOf(bufferMeans, capacity);
+      bufferWeights = Arrays.copyOf(bufferWeights, capacity);
+    }
+    bufferMeans[buffered] = mean;
+    bufferWeights[buffered] = weight;
+    buffered++;
+    totalWeight += weight;
+    min = Math.min(min, mean);
+    max = Math.max(max, mean);
+  }
+
+  /**
+   * Merges another digest into this one.
+   *
+   * @param other the digest to merge.
+   */
+  public void merge(TDigest other) {
+    other.compress();
+    for (int i = 0; i < other.centroids; i++) {
+      add(other.means[i], other.weights[i]);
+    }
+    min = Math.min(min, other.min);
+    max = Math.max(max, other.max);
+  }
+
+  /**
+   * Merges the buffered values into the centroids.
+   */
+  void compress() {
+    if (buffered == 0) {
+      return;
+    }
+    int count = centroids + buffered;
+    double[] allMeans = Arrays.copyOf(means, count);
+    double[] allWeights = Arrays.copyOf(weights, count);
+    System.arraycopy(bufferMeans, 0, allMeans, centroids, buffered);
+    System.arraycopy(bufferWeights, 0, allWeights, centroids, buffered);
+    sort(allMeans, allWeights, 0, count - 1);
+    buffered = 0;
+
+    int merged = 0;
+    double weightSoFar = 0;
+    double kLeft = scale(0);
+    for (int i = 1; i < count; i++) {
+      double proposed = allWeights[merged] + allWeights[i];
+      if (scale((weightSoFar + proposed) / totalWeight) - kLeft <= 1) {
+        allMeans[merged] += (allMeans[i] - allMeans[merged]) * allWeights[i] / proposed;
+        allWeights[merged] = proposed;
+      } else {
+        weightSoFar += allWeights[merged];
+        kLeft = scale(weightSoFar / totalWeight);
+        merged++;
+        allMeans[merged] = allMeans[i];
+        allWeights[merged] = allWeights[i];
+      }
+    }
+    centroids = merged + 1;
+    means = Arrays.copyOf(allMeans, centroids);
+    weights = Arrays.copyOf(allWeights, centroids);
+  }
+
+  // k1 scale function, maps quantiles to [-compression / 4, compression / 4] stretching the tails
+  private double scale(double q) {
+    return compression / (2 * Math.PI) * Math.asin(2 * Math.min(1, q) - 1);
+  }
+
+  // sorts the means, and the weights along with them, with quicksort
+  private static void sort(double[] keys, double[] values, int from, int to) {
+    while (to - from > 16) {
+      double pivot = keys[(from + to) >>> 1];
+      int i = from;
+      int j = to;
+      while (i <= j) {
+        while (keys[i] < pivot) {
+          i++;
+        }
+        while (keys[j] > pivot) {
+          j--;
+        }
+        if (i <= j) {
+          swap(keys, values, i++, j--);
+        }
+      }
+      // recurse into the smaller partition to bound the stack depth
+      if (j - from < to - i) {
+        sort(keys, values, from, j);
+        from = i;
+      } else {
+        sort(keys, values, i, to);
+        to = j;
+      }
+    }
+    for (int i = from + 1; i <= to; i++) {
+      for (int j = i; j > from && keys[j - 1] > keys[j]; j--) {
+        swap(keys, values, j - 1, j);
+      }
+    }
+  }
+
+  private static void swap(double[] keys, double[] values, int i, int j) {
+    double key = keys[i];
+    keys[i] = keys[j];
+    keys[j] = key;
+    double value = values[i];
+    values[i] = values[j];
+    values[j] = value;
+  }
+
+  /**
+   * Returns the number of values added to the digest.
+   *
+   * @return the number of values added to the digest.
+   */
+  public long size() {
+    return (long) totalWeight;
+  }
+
+  /**
+   * Returns the estimated value at the given quantile.
+   *
+   * @param q the quantile, between 0 and 1.
+   * @return the estimated value at the given quantile, NaN if the digest is empty.
+   */
+  public double quantile(double q) {
+    Utils.checkArgument(q >= 0 && q <= 1, Utils.formatL("Invalid quantile '{}'", q));
+    compress();
+    if (centroids == 0) {
+      return Double.NaN;
+    }
+    if (centroids == 1) {
+      return means[0];
+    }
+    double index = q * totalWeight;
+    // centroids are assumed to be centered on their mean, values between the centers are interpolated
+    double center = weights[0] / 2;
+    if (index < center) {
+      return min + (means[0] - min) * index / center;
+    }
+    for (int i = 0; i < centroids - 1; i++) {
+      double gap = (weights[i] + weights[i + 1]) / 2;
+      if (center + gap >= index) {
+        return means[i] + (means[i + 1] - means[i]) * (index - center) / gap;
+      }
+      center += gap;
+    }
+    double lastHalf = weights[centroids - 1] / 2;
+    return means[centroids - 1] + (max - means[centroids - 1]) * Math.min(1, (index - center) / lastHalf);
+  }
+
+  public double getMin() {
+    return min;
+  }
+
+  public double getMax() {
+    return max;
+  }
+
+  /**
+   * Returns the means of the centroids, in ascending order.
+   *
+   * @return the means of the centroids.
+   */
+  public double[] getMeans() {
+    compress();
+    return Arrays.copyOf(means, centroids);
+  }
+
+  /**
+   * Returns the weights of the centroids, in the same order as {@link #getMeans()}.
+   *
+   * @return the weights of the centroids.
+   */
+  public double[] getWeights() {
+    compress();
+    return Arrays.copyOf(weights, centroids);
+  }
+
+}
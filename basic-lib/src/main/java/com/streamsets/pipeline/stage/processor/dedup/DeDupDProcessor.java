@@ -29,13 +29,14 @@ import com.streamsets.pipeline.api.base.configurablestage.DProcessor;
 import java.util.List;
 
 @StageDef(
-    version = 1,
+    version = 2,
     label = "Record Deduplicator",
     description = "Separates unique and duplicate records based on field comparison",
     icon="dedup.png",
     outputStreams = OutputStreams.class,
     execution = ExecutionMode.STANDALONE,
-    onlineHelpRefUrl ="index.html?contextID=task_ikr_c2f_zq"
+    onlineHelpRefUrl ="index.html?contextID=task_ikr_c2f_zq",
+    upgrader = DeDupProcessorUpgrader.class
 )
 @ConfigGroups(Groups.class)
 @HideConfigs(onErrorRecord = true)
@@ -90,9 +91,44 @@ public class DeDupDProcessor extends DProcessor {
   @FieldSelectorModel
   public List<String> fieldsToCompare;
 
+  @ConfigDef(
+      required = true,
+      type = ConfigDef.Type.MODEL,
+      defaultValue = "HEAP",
+      label = "Hash Storage",
+      description = "Where the hashes of the compared records are kept. Off-heap storage takes about 21 bytes per " +
+          "record (25 with a time window) outside of the pipeline memory and is limited by the JVM max direct " +
+          "memory. Memory-mapped storage also keeps the hashes across pipeline restarts.",
+      displayPosition = 50,
+      group = "DE_DUP"
+  )
+  @ValueChooserModel(HashStorageChooserValues.class)
+  public HashStorage hashStorage;
+
+  @ConfigDef(
+      required = true,
+      type = ConfigDef.Type.STRING,
+      defaultValue = "",
+      label = "Window Directory",
+      description = "Directory for the hash window files, one per pipeline and stage. Delete the file of a stage " +
+          "to start over with an empty window.",
+      displayPosition = 60,
+      group = "DE_DUP",
+      dependsOn = "hashStorage",
+      triggeredByValue = "MEMORY_MAPPED"
+  )
+  public String windowDirectory;
+
   @Override
   protected Processor createProcessor() {
-    return new DeDupProcessor(recordCountWindow, timeWindowSecs, compareFields, fieldsToCompare);
+    return new DeDupProcessor(
+        recordCountWindow,
+        timeWindowSecs,
+        compareFields,
+        fieldsToCompare,
+        hashStorage,
+        windowDirectory
+    );
   }
 
 }
@@ -31,6 +31,9 @@ import com.streamsets.pipeline.lib.queue.XEvictingQueue;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
@@ -40,20 +43,30 @@ import java.util.concurrent.TimeUnit;
 public class DeDupProcessor extends RecordProcessor {
   private static final long MEMORY_USAGE_PER_HASH = 85;
   private static final String CACHE_KEY = "cache";
+  private static final String WINDOW_KEY = "window";
   private static final Logger LOG = LoggerFactory.getLogger(DeDupProcessor.class);
 
   private final  int recordCountWindow;
   private final  int timeWindowSecs;
   private final  SelectFields compareFields;
   private final  List<String> fieldsToCompare;
+  private final  HashStorage hashStorage;
+  private final  String windowDirectory;
   private CacheCleaner cacheCleaner;
 
   public DeDupProcessor(int recordCountWindow, int timeWindowSecs,
       SelectFields compareFields, List<String> fieldsToCompare) {
+    this(recordCountWindow, timeWindowSecs, compareFields, fieldsToCompare, HashStorage.HEAP, null);
+  }
+
+  public DeDupProcessor(int recordCountWindow, int timeWindowSecs,
+      SelectFields compareFields, List<String> fieldsToCompare, HashStorage hashStorage, String windowDirectory) {
     this.recordCountWindow = recordCountWindow;
     this.timeWindowSecs = timeWindowSecs;
     this.compareFields = compareFields;
     this.fieldsToCompare = fieldsToCompare;
+    this.hashStorage = hashStorage;
+    this.windowDirectory = windowDirectory;
   }
 
   private static final Object VOID = new Object();
@@ -62,6 +75,7 @@ public class DeDupProcessor extends RecordProcessor {
   private HashingUtil.RecordFunnel funnel;
   private Cache<HashCode, HashCode> hashCache;
   private XEvictingQueue<HashCode> hashBuffer;
+  private OffHeapHashWindow hashWindow;
   private String uniqueLane;
   private String duplicateLane;
 
@@ -83,13 +97,44 @@ public class DeDupProcessor extends RecordProcessor {
       issues.add(getContext().createConfigIssue(Groups.DE_DUP.name(), "compareFields", Errors.DEDUP_02));
     }
 
+    // The off-heap window doesn't count against the pipeline (heap) memory
     long estimatedMemory = MEMORY_USAGE_PER_HASH * recordCountWindow;
     long maxPipelineMemoryBytes = getContext().getPipelineMaxMemory() * 1000 * 1000;
-    if (estimatedMemory > maxPipelineMemoryBytes) {
+    if (hashStorage == HashStorage.HEAP && estimatedMemory > maxPipelineMemoryBytes) {
       issues.add(getContext().createConfigIssue(Groups.DE_DUP.name(), "recordCountWindow", Errors.DEDUP_03,
         recordCountWindow, estimatedMemory / (1000 * 1000), getContext().getPipelineMaxMemory()));
         //MiB to bytes conversion, use  1000 * 1000 instead of 1024 * 1024
     }
+    File windowFile = null;
+    if (hashStorage == HashStorage.MEMORY_MAPPED) {
+      if (windowDirectory == null || windowDirectory.trim().isEmpty()) {
+        issues.add(getContext().createConfigIssue(Groups.DE_DUP.name(), "windowDirectory", Errors.DEDUP_05));
+      } else {
+        windowFile = getWindowFile();
+      }
+    }
+    if (issues.isEmpty() && hashStorage != HashStorage.HEAP) {
+      Map<String, Object> runnerSharedMap = getContext().getStageRunnerSharedMap();
+      synchronized (runnerSharedMap) {
+        hashWindow = (OffHeapHashWindow) runnerSharedMap.get(WINDOW_KEY);
+        if (hashWindow == null) {
+          try {
+            File directory = (windowFile != null) ? windowFile.getParentFile() : null;
+            if (directory != null && !directory.isDirectory() && !directory.mkdirs()) {
+              throw new IOException("Can't create directory " + directory);
+            }
+            hashWindow = new OffHeapHashWindow(recordCountWindow, timeWindowSecs, windowFile);
+            runnerSharedMap.put(WINDOW_KEY, hashWindow);
+          } catch (IOException | OutOfMemoryError e) {
+            LOG.error("Can't create hash window", e);
+            issues.add(getContext().createConfigIssue(Groups.DE_DUP.name(), "hashStorage", Errors.DEDUP_06,
+                OffHeapHashWindow.getSize(recordCountWindow, timeWindowSecs) / (1000 * 1000), e.toString()));
+          }
+        } else {
+          hashWindow.retain();
+        }
+      }
+    }
     if (issues.isEmpty()) {
       hasher = HashingUtil.getHasher(HashingUtil.HashType.MURMUR3_128);
 
@@ -100,26 +145,28 @@ public class DeDupProcessor extends RecordProcessor {
           '\u0000'
       ) : HashingUtil.getRecordFunnel(fieldsToCompare, false, true, '\u0000');
 
-      Map<String, Object> runnerSharedMap = getContext().getStageRunnerSharedMap();
-      synchronized (runnerSharedMap) {
-        if(!runnerSharedMap.containsKey(CACHE_KEY)) {
-          CacheBuilder cacheBuilder = CacheBuilder.newBuilder();
-          if (timeWindowSecs > 0) {
-            cacheBuilder.expireAfterWrite(timeWindowSecs, TimeUnit.SECONDS);
-          }
-          if(LOG.isDebugEnabled()) {
-            cacheBuilder.recordStats();
+      if (hashWindow == null) {
+        Map<String, Object> runnerSharedMap = getContext().getStageRunnerSharedMap();
+        synchronized (runnerSharedMap) {
+          if(!runnerSharedMap.containsKey(CACHE_KEY)) {
+            CacheBuilder cacheBuilder = CacheBuilder.newBuilder();
+            if (timeWindowSecs > 0) {
+              cacheBuilder.expireAfterWrite(timeWindowSecs, TimeUnit.SECONDS);
+            }
+            if(LOG.isDebugEnabled()) {
+              cacheBuilder.recordStats();
+            }
+            hashCache = cacheBuilder.build();
+
+            runnerSharedMap.put(CACHE_KEY, hashCache);
+          } else {
+            hashCache = (Cache<HashCode, HashCode>) runnerSharedMap.get(CACHE_KEY);
           }
-          hashCache = cacheBuilder.build();
-
-          runnerSharedMap.put(CACHE_KEY, hashCache);
-        } else {
-          hashCache = (Cache<HashCode, HashCode>) runnerSharedMap.get(CACHE_KEY);
         }
-      }
-      cacheCleaner = new CacheCleaner(hashCache, "DeDupProcessor", 10 * 60 * 1000);
+        cacheCleaner = new CacheCleaner(hashCache, "DeDupProcessor", 10 * 60 * 1000);
 
-      hashBuffer = XEvictingQueue.create(recordCountWindow);
+        hashBuffer = XEvictingQueue.create(recordCountWindow);
+      }
       hashAttrName = getInfo() + ".hash";
       uniqueLane = getContext().getOutputLanes().get(OutputStreams.UNIQUE.ordinal());
       duplicateLane = getContext().getOutputLanes().get(OutputStreams.DUPLICATE.ordinal());
@@ -131,6 +178,11 @@ public class DeDupProcessor extends RecordProcessor {
     HashCode hash = hasher.hashObject(record, funnel);
     record.getHeader().setAttribute(hashAttrName, hash.toString());
 
+    if (hashWindow != null) {
+      ByteBuffer bytes = ByteBuffer.wrap(hash.asBytes());
+      return !hashWindow.add(bytes.getLong(), bytes.getLong(), System.currentTimeMillis());
+    }
+
     HashCode hashInstance = hashCache.get(hash, () -> hash);
     // We are riding on the fact that if the instance is the same we just added and it is not a dup
     boolean dup = hashInstance != hash;
@@ -149,7 +201,7 @@ public class DeDupProcessor extends RecordProcessor {
 
   @Override
   public void process(Batch batch, BatchMaker batchMaker) throws StageException {
-    if (!batch.getRecords().hasNext()) {
+    if (cacheCleaner != null && !batch.getRecords().hasNext()) {
       // No records - take the opportunity to clean up the cache so that we don't hold on to memory indefinitely
       cacheCleaner.periodicCleanUp();
     }
@@ -170,4 +222,22 @@ public class DeDupProcessor extends RecordProcessor {
     }
   }
 
+  @Override
+  public void destroy() {
+    if (hashWindow != null) {
+      hashWindow.release();
+      hashWindow = null;
+    }
+    super.destroy();
+  }
+
+  /**
+   * Window file of this stage in the window directory, named after the pipeline and the stage instance as the
+   * directory may be shared by several pipelines.
+   */
+  private File getWindowFile() {
+    String fileName = getContext().getPipelineId() + "-" + getInfo().getInstanceName() + ".window";
+    return new File(windowDirectory.trim(), fileName);
+  }
+
 }
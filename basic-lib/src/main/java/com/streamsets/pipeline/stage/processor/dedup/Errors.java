@@ -31,6 +31,8 @@ public enum Errors implements ErrorCode {
   DEDUP_03("The estimated required memory for '{}' records is '{}'. The current maximum heap is '{}'. The " +
            "required memory must not exceed the maximum heap."),
   DEDUP_04("Error processing record. Reason: {}"),
+  DEDUP_05("Specify the window directory for the memory-mapped hash storage"),
+  DEDUP_06("Can't create the hash window of '{}' MB: {}"),
   ;
 
 
@@ -0,0 +1,376 @@
+/*
+ * Copyright 2018 StreamSets Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.streamsets.pipeline.stage.processor.dedup;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Window of the most recent 128 bit record hashes, kept outside of the Java heap.
+ *
+ * Hashes are stored in a ring buffer in arrival order (16 bytes each, plus 4 bytes of arrival time when there is a
+ * time window), and the ring buffer is indexed by an open addressing hash table with linear probing that holds 4 byte
+ * ring positions at a load factor of at most 0.8. That's 21 bytes per hash (25 with a time window), none of it
+ * visible to the garbage collector. The oldest hash is evicted once the window is full or the hash is too old.
+ *
+ * When given a file the window is memory-mapped to it and picked up again by the next run with the same window size.
+ * The hash table is rebuilt from the ring buffer if the previous run didn't close the window properly.
+ */
+class OffHeapHashWindow {
+  private static final Logger LOG = LoggerFactory.getLogger(OffHeapHashWindow.class);
+
+  private static final long MAGIC = 0x5344434445445550L;
+  private static final int VERSION = 1;
+
+  // Header of the mapped file
+  private static final int HEADER_SIZE = 64;
+  private static final int MAGIC_POS = 0;
+  private static final int VERSION_POS = 8;
+  private static final int CAPACITY_POS = 12;
+  private static final int ENTRY_SIZE_POS = 16;
+  private static final int CLEAN_POS = 20;
+  private static final int HEAD_POS = 24;
+  private static final int COUNT_POS = 28;
+
+  private static final int HASH_SIZE = 16;
+  private static final int TIME_SIZE = 4;
+  private static final int SLOT_SIZE = 4;
+  private static final double MAX_LOAD_FACTOR = 0.8;
+  private static final int MAX_SEGMENT_SIZE = 1 << 30;
+
+  private final int capacity;
+  private final int timeWindowSecs;
+  private final int entrySize;
+  private final long slots;
+  private final File file;
+  private final FileChannel channel;
+  private final ByteBuffer header;
+  private final Region ring;
+  private final Region table;
+
+  private int head;
+  private int count;
+  private int references = 1;
+
+  /**
+   * Creates a window for given number of hashes, mapped to given file or in direct memory if the file is null.
+   */
+  OffHeapHashWindow(int capacity, int timeWindowSecs, File file) throws IOException {
+    this.capacity = capacity;
+    this.timeWindowSecs = timeWindowSecs;
+    this.entrySize = getEntrySize(timeWindowSecs);
+    this.slots = getSlots(capacity);
+    this.file = file;
+    long ringSize = (long) capacity * entrySize;
+    if (file == null) {
+      channel = null;
+      header = null;
+      ring = Region.allocate(capacity, entrySize);
+      table = Region.allocate(slots, SLOT_SIZE);
+    } else {
+      channel = FileChannel.open(
+          file.toPath(),
+          StandardOpenOption.CREATE,
+          StandardOpenOption.READ,
+          StandardOpenOption.WRITE
+      );
+      try {
+        boolean reusable = isReusable();
+        if (!reusable && channel.size() > 0) {
+          LOG.warn("Discarding hash window '{}', it was created for a different window size", file);
+          channel.truncate(0);
+        }
+        header = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE);
+        ring = Region.map(channel, HEADER_SIZE, capacity, entrySize);
+        table = Region.map(channel, HEADER_SIZE + ringSize, slots, SLOT_SIZE);
+        if (reusable) {
+          head = header.getInt(HEAD_POS);
+          count = header.getInt(COUNT_POS);
+          if (header.getInt(CLEAN_POS) == 0) {
+            LOG.warn("Hash window '{}' was not closed properly, rebuilding its index", file);
+            rebuildTable();
+          }
+          LOG.info("Reusing hash window '{}' with '{}' hashes", file, count);
+        }
+        header.putLong(MAGIC_POS, MAGIC);
+        header.putInt(VERSION_POS, VERSION);
+        header.putInt(CAPACITY_POS, capacity);
+        header.putInt(ENTRY_SIZE_POS, entrySize);
+        header.putInt(CLEAN_POS, 0);
+        saveState();
+      } catch (IOException | RuntimeException ex) {
+        channel.close();
+        throw ex;
+      }
+    }
+  }
+
+  static long getSlots(int capacity) {
+    return Math.max(capacity + 1L, (long) Math.ceil(capacity / MAX_LOAD_FACTOR));
+  }
+
+  private static int getEntrySize(int timeWindowSecs) {
+    return HASH_SIZE + ((timeWindowSecs > 0) ? TIME_SIZE : 0);
+  }
+
+  /**
+   * Returns the memory (or file size) needed for a window of given number of hashes.
+   */
+  static long getSize(int capacity, int timeWindowSecs) {
+    return HEADER_SIZE + (long) capacity * getEntrySize(timeWindowSecs) + getSlots(capacity) * SLOT_SIZE;
+  }
+
+  private boolean isReusable() throws IOException {
+    if (channel.size() != getSize(capacity, timeWindowSecs)) {
+      return false;
+    }
+    ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE);
+    while (buffer.hasRemaining() && channel.read(buffer, buffer.position()) >= 0) {
+      // read the whole header
+    }
+    return buffer.getLong(MAGIC_POS) == MAGIC
+        && buffer.getInt(VERSION_POS) == VERSION
+        && buffer.getInt(CAPACITY_POS) == capacity
+        && buffer.getInt(ENTRY_SIZE_POS) == entrySize;
+  }
+
+  /**
+   * Adds given hash to the window unless it's already there, returns true if it was added (not a duplicate).
+   */
+  synchronized boolean add(long high, long low, long timeMillis) {
+    int time = (int) (timeMillis / 1000);
+    if (timeWindowSecs > 0) {
+      expire(time);
+    }
+    long slot = find(high, low);
+    if (slot >= 0) {
+      return false;
+    }
+    if (count == capacity) {
+      evictOldest();
+      slot = find(high, low);
+    }
+    int position = (int) (((long) head + count) % capacity);
+    ring.putLong(position, 0, high);
+    ring.putLong(position, 8, low);
+    if (timeWindowSecs > 0) {
+      ring.putInt(position, HASH_SIZE, time);
+    }
+    table.putInt(-slot - 1, position + 1);
+    count++;
+    saveState();
+    return true;
+  }
+
+  synchronized int size() {
+    return count;
+  }
+
+  synchronized void retain() {
+    references++;
+  }
+
+  /**
+   * Releases one reference to the window, the window is closed once all the references are released.
+   */
+  synchronized void release() {
+    if (--references == 0) {
+      close();
+    }
+  }
+
+  private void close() {
+    if (channel != null) {
+      try {
+        ring.force();
+        table.force();
+        header.putInt(CLEAN_POS, 1);
+        ((MappedByteBuffer) header).force();
+        channel.close();
+      } catch (IOException ex) {
+        LOG.warn("Could not close hash window '{}': {}", file, ex.toString(), ex);
+      }
+    }
+  }
+
+  private void saveState() {
+    if (header != null) {
+      header.putInt(HEAD_POS, head);
+      header.putInt(COUNT_POS, count);
+    }
+  }
+
+  private void expire(int time) {
+    // times are unsigned seconds, good until 2106
+    while (count > 0 && Integer.toUnsignedLong(time) - Integer.toUnsignedLong(ring.getInt(head, HASH_SIZE))
+        >= timeWindowSecs) {
+      evictOldest();
+    }
+  }
+
+  private void evictOldest() {
+    long slot = getHome(ring.getLong(head, 0));
+    while (table.getInt(slot) != head + 1) {
+      slot = next(slot);
+    }
+    remove(slot);
+    head = (head + 1 == capacity) ? 0 : head + 1;
+    count--;
+  }
+
+  // Returns the slot of given hash, or -(slot + 1) of the empty slot where it would go if it's not in the window
+  private long find(long high, long low) {
+    long slot = getHome(high);
+    int value;
+    while ((value = table.getInt(slot)) != 0) {
+      int position = value - 1;
+      if (ring.getLong(position, 0) == high && ring.getLong(position, 8) == low) {
+        return slot;
+      }
+      slot = next(slot);
+    }
+    return -slot - 1;
+  }
+
+  // Backward shift deletion, keeps every entry reachable from its home slot without leaving tombstones behind
+  private void remove(long slot) {
+    long hole = slot;
+    long current = slot;
+    while (true) {
+      current = next(current);
+      int value = table.getInt(current);
+      if (value == 0) {
+        break;
+      }
+      long home = getHome(ring.getLong(value - 1, 0));
+      boolean stays = (hole <= current) ? (hole < home && home <= current) : (hole < home || home <= current);
+      if (!stays) {
+        table.putInt(hole, value);
+        hole = current;
+      }
+    }
+    table.putInt(hole, 0);
+  }
+
+  private void rebuildTable() {
+    table.clear();
+    for (int i = 0; i < count; i++) {
+      int position = (int) (((long) head + i) % capacity);
+      long slot = getHome(ring.getLong(position, 0));
+      while (table.getInt(slot) != 0) {
+        slot = next(slot);
+      }
+      table.putInt(slot, position + 1);
+    }
+  }
+
+  private long getHome(long high) {
+    return (high & Long.MAX_VALUE) % slots;
+  }
+
+  private long next(long slot) {
+    return (slot + 1 == slots) ? 0 : slot + 1;
+  }
+
+  /**
+   * Array of fixed size elements spread over as many buffers as needed, a single buffer can't go beyond 2GB.
+   */
+  private static final class Region {
+
+    private interface BufferFactory {
+      ByteBuffer create(long position, int size) throws IOException;
+    }
+
+    private final ByteBuffer[] segments;
+    private final int elementSize;
+    private final long elementsPerSegment;
+
+    private Region(long elements, int elementSize, BufferFactory factory) throws IOException {
+      this.elementSize = elementSize;
+      elementsPerSegment = MAX_SEGMENT_SIZE / elementSize;
+      segments = new ByteBuffer[(int) ((elements + elementsPerSegment - 1) / elementsPerSegment)];
+      for (int i = 0; i < segments.length; i++) {
+        long segmentElements = Math.min(elementsPerSegment, elements - i * elementsPerSegment);
+        segments[i] = factory.create(i * elementsPerSegment * elementSize, (int) (segmentElements * elementSize));
+      }
+    }
+
+    static Region allocate(long elements, int elementSize) throws IOException {
+      return new Region(elements, elementSize, (position, size) -> ByteBuffer.allocateDirect(size));
+    }
+
+    static Region map(FileChannel channel, long offset, long elements, int elementSize) throws IOException {
+      return new Region(
+          elements,
+          elementSize,
+          (position, size) -> channel.map(FileChannel.MapMode.READ_WRITE, offset + position, size)
+      );
+    }
+
+    long getLong(long index, int offset) {
+      return segments[(int) (index / elementsPerSegment)].getLong(getOffset(index, offset));
+    }
+
+    void putLong(long index, int offset, long value) {
+      segments[(int) (index / elementsPerSegment)].putLong(getOffset(index, offset), value);
+    }
+
+    int getInt(long index) {
+      return getInt(index, 0);
+    }
+
+    int getInt(long index, int offset) {
+      return segments[(int) (index / elementsPerSegment)].getInt(getOffset(index, offset));
+    }
+
+    void putInt(long index, int value) {
+      putInt(index, 0, value);
+    }
+
+    void putInt(long index, int offset, int value) {
+      segments[(int) (index / elementsPerSegment)].putInt(getOffset(index, offset), value);
+    }
+
+    private int getOffset(long index, int offset) {
+      return (int) (index % elementsPerSegment) * elementSize + offset;
+    }
+
+    void clear() {
+      for (ByteBuffer segment : segments) {
+        for (int i = 0; i + 8 <= segment.capacity(); i += 8) {
+          segment.putLong(i, 0);
+        }
+        for (int i = segment.capacity() & ~7; i < segment.capacity(); i++) {
+          segment.put(i, (byte) 0);
+        }
+      }
+    }
+
+    void force() {
+      for (ByteBuffer segment : segments) {
+        ((MappedByteBuffer) segment).force();
+      }
+    }
+  }
+
+}
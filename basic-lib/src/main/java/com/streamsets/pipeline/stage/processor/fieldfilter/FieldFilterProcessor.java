@@ -55,8 +55,6 @@ public class FieldFilterProcessor extends SingleLaneRecordProcessor {
 
   @Override
   protected void process(Record record, SingleLaneBatchMaker batchMaker) throws StageException {
-    // use List to preserve the order of list fieldPaths - need to watch out for duplicates though
-    List<String> allFieldPaths = record.getEscapedFieldPathsOrdered();
     // use LinkedHashSet to preserve order and dedupe as we go
     LinkedHashSet<String> fieldsToRemove;
     switch(filterOperation) {
@@ -67,8 +65,7 @@ public class FieldFilterProcessor extends SingleLaneRecordProcessor {
               field,
               fieldPathEval,
               fieldPathVars,
-              record,
-              allFieldPaths
+              record
           );
           fieldsToRemove.addAll(matchingFieldPaths);
         }
@@ -80,8 +77,7 @@ public class FieldFilterProcessor extends SingleLaneRecordProcessor {
               field,
               fieldPathEval,
               fieldPathVars,
-              record,
-              allFieldPaths
+              record
           );
           for (String fieldPath : matchingFieldPaths) {
             if (record.has(fieldPath) && record.get(fieldPath).getValue() == null) fieldsToRemove.add(fieldPath);
@@ -98,6 +94,8 @@ public class FieldFilterProcessor extends SingleLaneRecordProcessor {
         //
         // - Keep fieldsToRemove in order - sorting is too costly
         //List all the possible field paths in this record
+        // use List to preserve the order of list fieldPaths - need to watch out for duplicates though
+        List<String> allFieldPaths = record.getEscapedFieldPathsOrdered();
         fieldsToRemove = new LinkedHashSet<>(allFieldPaths);
         for(String field : fields) {
           //Keep parent fields
@@ -117,8 +115,7 @@ public class FieldFilterProcessor extends SingleLaneRecordProcessor {
               field,
               fieldPathEval,
               fieldPathVars,
-              record,
-              allFieldPaths
+              record
           );
           fieldsToRemove.removeAll(matchingFieldPaths);
 
@@ -23,6 +23,7 @@ import com.streamsets.pipeline.api.base.SingleLaneRecordProcessor;
 import com.streamsets.pipeline.api.el.ELEval;
 import com.streamsets.pipeline.api.el.ELVars;
 import com.streamsets.pipeline.config.OnStagePreConditionFailure;
+import com.streamsets.pipeline.container.el.ResettableELVars;
 import com.streamsets.pipeline.lib.el.FieldEL;
 import com.streamsets.pipeline.lib.el.RecordEL;
 import com.streamsets.pipeline.lib.util.FieldPathExpressionUtil;
@@ -37,6 +38,7 @@ public class FieldReplacerProcessor extends SingleLaneRecordProcessor {
   private final ReplacerConfigBean conf;
   private ELEval pathEval;
   private ELEval replacementEval;
+  private ELVars vars;
 
   public FieldReplacerProcessor(ReplacerConfigBean conf) {
     this.conf = conf;
@@ -48,46 +50,50 @@ public class FieldReplacerProcessor extends SingleLaneRecordProcessor {
 
     pathEval = getContext().createELEval("fields");
     replacementEval = getContext().createELEval("replacement");
+    vars = getContext().createELVars();
 
     return issues;
   }
 
   @Override
   protected void process(Record record, SingleLaneBatchMaker batchMaker) throws StageException {
-    ELVars vars = getContext().createELVars();
     RecordEL.setRecordInContext(vars, record);
 
-    for(ReplaceRule rule : conf.rules) {
-      // Generate list of applicable paths to given expression
-      List<String> fieldPaths = FieldPathExpressionUtil.evaluateMatchingFieldPaths(
-        rule.fields,
-        pathEval,
-        vars,
-        record,
-        record.getEscapedFieldPaths()
-      );
-
-      if(fieldPaths.isEmpty() && conf.onStagePreConditionFailure == OnStagePreConditionFailure.TO_ERROR) {
-        throw new OnRecordErrorException(record, Errors.FIELD_REPLACER_00, rule.fields);
-      }
-
-      // Perform the replacement
-      for(String path : fieldPaths) {
-        if(!record.has(path) && conf.onStagePreConditionFailure == OnStagePreConditionFailure.TO_ERROR) {
+    try {
+      for(ReplaceRule rule : conf.rules) {
+        // Generate list of applicable paths to given expression
+        List<String> fieldPaths = FieldPathExpressionUtil.evaluateMatchingFieldPaths(
+          rule.fields,
+          pathEval,
+          vars,
+          record
+        );
+
+        if(fieldPaths.isEmpty() && conf.onStagePreConditionFailure == OnStagePreConditionFailure.TO_ERROR) {
           throw new OnRecordErrorException(record, Errors.FIELD_REPLACER_00, rule.fields);
         }
 
-        Field field = record.get(path);
-        FieldEL.setFieldInContext(vars, path, field);
+        // Perform the replacement
+        for(String path : fieldPaths) {
+          if(!record.has(path) && conf.onStagePreConditionFailure == OnStagePreConditionFailure.TO_ERROR) {
+            throw new OnRecordErrorException(record, Errors.FIELD_REPLACER_00, rule.fields);
+          }
 
-        if(rule.setToNull) {
-          record.set(path, Field.create(field.getType(), null));
-        } else {
-          Object result = replacementEval.eval(vars, rule.replacement, Object.class);
-          record.set(path, Field.create(ExpressionProcessor.getTypeFromObject(result), result));
-        }
+          Field field = record.get(path);
+          FieldEL.setFieldInContext(vars, path, field);
 
+          if(rule.setToNull) {
+            record.set(path, Field.create(field.getType(), null));
+          } else {
+            Object result = replacementEval.eval(vars, rule.replacement, Object.class);
+            record.set(path, Field.create(ExpressionProcessor.getTypeFromObject(result), result));
+          }
+
+        }
       }
+    } finally {
+      // The variables are reused for all records, don't let this record or its last field leak into the next one
+      ResettableELVars.reset(vars);
     }
 
     batchMaker.addRecord(record);
@@ -82,13 +82,12 @@ public class FieldValueReplacerProcessor extends SingleLaneRecordProcessor {
 
   @Override
   protected void process(Record record, SingleLaneBatchMaker batchMaker) throws StageException {
-    Set<String> fieldPaths = record.getEscapedFieldPaths();
     Set<String> fieldsThatDoNotExist = new HashSet<>();
 
     RecordEL.setRecordInContext(nullConditionELVars, record);
 
     if(nullReplacerConditionalConfigs != null && !nullReplacerConditionalConfigs.isEmpty()) {
-      for (String fieldToNull : getFieldsToNull(nullReplacerConditionalConfigs, fieldsThatDoNotExist, fieldPaths, record)) {
+      for (String fieldToNull : getFieldsToNull(nullReplacerConditionalConfigs, fieldsThatDoNotExist, record)) {
         Field field = record.get(fieldToNull);
         record.set(fieldToNull, Field.create(field.getType(), null));
       }
@@ -100,8 +99,7 @@ public class FieldValueReplacerProcessor extends SingleLaneRecordProcessor {
           final List<String> matchingPaths = FieldPathExpressionUtil.evaluateMatchingFieldPaths(fieldToReplace,
               fieldPathEval,
               fieldPathVars,
-              record,
-              fieldPaths
+              record
           );
           if (matchingPaths.isEmpty()) {
             fieldsThatDoNotExist.add(fieldToReplace);
@@ -137,8 +135,7 @@ public class FieldValueReplacerProcessor extends SingleLaneRecordProcessor {
               fieldToReplace,
               fieldPathEval,
               fieldPathVars,
-              record,
-              fieldPaths
+              record
           )) {
             if (record.has(matchingField)) {
 
@@ -212,7 +209,7 @@ public class FieldValueReplacerProcessor extends SingleLaneRecordProcessor {
 
   //This function simply evaluates the condition in each nullReplacerConditionalConfig and gather all fields that
   //should be replaced by null.
-  private List<String> getFieldsToNull(List<NullReplacerConditionalConfig> nullReplacerConditionalConfigs, Set<String> fieldsThatDoNotExist, Set<String> fieldPaths, Record record) throws OnRecordErrorException {
+  private List<String> getFieldsToNull(List<NullReplacerConditionalConfig> nullReplacerConditionalConfigs, Set<String> fieldsThatDoNotExist, Record record) throws OnRecordErrorException {
     //Gather in this all fields to null
     List<String> fieldsToNull = new ArrayList<>();
 
@@ -228,8 +225,7 @@ public class FieldValueReplacerProcessor extends SingleLaneRecordProcessor {
               fieldNameToNull,
               fieldPathEval,
               fieldPathVars,
-              record,
-              fieldPaths
+              record
           );
           if (matchingPaths.isEmpty()) {
             // FieldPathExpressionUtil.evaluateMatchingFieldPaths does NOT return the supplied param in its result
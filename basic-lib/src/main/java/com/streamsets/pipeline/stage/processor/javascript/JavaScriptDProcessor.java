@@ -27,7 +27,7 @@ import com.streamsets.pipeline.stage.processor.scripting.ProcessingMode;
 import com.streamsets.pipeline.stage.processor.scripting.ProcessingModeChooserValues;
 
 @StageDef(
-    version = 2,
+    version = 3,
     label = "JavaScript Evaluator",
     description = "Processes records using JavaScript",
     icon = "javascript.png",
@@ -247,9 +247,21 @@ public class JavaScriptDProcessor extends DProcessor {
   )
   public String destroyScript = "";
 
+  @ConfigDef(
+      required = true,
+      type = ConfigDef.Type.BOOLEAN,
+      defaultValue = "false",
+      label = "Lazy Record View",
+      description = "Record fields are converted only when the script reads them and only the changed ones are " +
+          "converted back. Maps and lists are Java collections instead of JavaScript objects and arrays.",
+      displayPosition = 50,
+      group = "JAVASCRIPT"
+  )
+  public boolean lazyRecordView = false;
+
   @Override
   protected Processor createProcessor() {
-    return new JavaScriptProcessor(processingMode, script, initScript, destroyScript);
+    return new JavaScriptProcessor(processingMode, script, initScript, destroyScript, lazyRecordView);
   }
 
 }
@@ -27,8 +27,27 @@ public class JavaScriptProcessor extends AbstractScriptingProcessor {
 
   public static final String JAVASCRIPT_ENGINE = "javascript";
 
+  public JavaScriptProcessor(
+      ProcessingMode processingMode,
+      String script,
+      String initScript,
+      String destroyScript,
+      boolean lazyRecordView
+  ) {
+    super(
+        LOG,
+        JAVASCRIPT_ENGINE,
+        Groups.JAVASCRIPT.name(),
+        processingMode,
+        script,
+        initScript,
+        destroyScript,
+        lazyRecordView
+    );
+  }
+
   public JavaScriptProcessor(ProcessingMode processingMode, String script, String initScript, String destroyScript) {
-    super(LOG, JAVASCRIPT_ENGINE, Groups.JAVASCRIPT.name(), processingMode, script, initScript, destroyScript);
+    this(processingMode, script, initScript, destroyScript, false);
   }
 
   public JavaScriptProcessor(ProcessingMode processingMode, String script) {
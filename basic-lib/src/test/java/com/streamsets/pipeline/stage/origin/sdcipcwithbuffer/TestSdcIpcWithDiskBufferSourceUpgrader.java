@@ -15,10 +15,15 @@
  */
 package com.streamsets.pipeline.stage.origin.sdcipcwithbuffer;
 
+import com.streamsets.pipeline.api.Config;
+import com.streamsets.pipeline.config.upgrade.UpgraderTestUtils;
 import com.streamsets.pipeline.stage.origin.sdcipcwithbuffer.SdcIpcWithDiskBufferSourceUpgrader;
 import com.streamsets.pipeline.stage.util.tls.TlsConfigBeanUpgraderTestUtil;
 import org.junit.Test;
 
+import java.util.ArrayList;
+import java.util.List;
+
 public class TestSdcIpcWithDiskBufferSourceUpgrader {
 
   @Test
@@ -29,4 +34,11 @@ public class TestSdcIpcWithDiskBufferSourceUpgrader {
         3
     );
   }
+
+  @Test
+  public void testV3ToV4() throws Exception {
+    List<Config> configs = new ArrayList<>();
+    configs = new SdcIpcWithDiskBufferSourceUpgrader().upgrade("l", "s", "i", 3, 4, configs);
+    UpgraderTestUtils.assertAllExist(configs, "persistentDiskBuffer", "diskBufferDirectory");
+  }
 }
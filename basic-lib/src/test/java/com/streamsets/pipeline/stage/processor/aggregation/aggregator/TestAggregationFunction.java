@@ -80,4 +80,16 @@ public class TestAggregationFunction {
     Assert.assertEquals("SUM (int)", AggregationFunction.SUM_INTEGER.getLabel());
     Assert.assertEquals(LongSumAggregator.class, AggregationFunction.SUM_INTEGER.getAggregatorClass());
   }
+
+  @Test
+  public void testApproximate() {
+    Assert.assertEquals("Approx. COUNT DISTINCT", AggregationFunction.APPROX_COUNT_DISTINCT.getLabel());
+    Assert.assertEquals(
+        ApproxCountDistinctAggregator.class,
+        AggregationFunction.APPROX_COUNT_DISTINCT.getAggregatorClass()
+    );
+    Assert.assertEquals(ApproxMedianAggregator.class, AggregationFunction.APPROX_MEDIAN.getAggregatorClass());
+    Assert.assertEquals(ApproxPercentile95Aggregator.class, AggregationFunction.APPROX_PERCENTILE_95.getAggregatorClass());
+    Assert.assertEquals(ApproxPercentile99Aggregator.class, AggregationFunction.APPROX_PERCENTILE_99.getAggregatorClass());
+  }
 }
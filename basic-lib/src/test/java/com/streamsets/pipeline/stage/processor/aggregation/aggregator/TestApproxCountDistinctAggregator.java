@@ -0,0 +1,169 @@
+/*
+ * Copyright 2018 StreamSets Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.streamsets.pipeline.stage.processor.aggregation.aggregator;
+
+import com.streamsets.pipeline.stage.processor.aggregation.WindowType;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Map;
+
+public class TestApproxCountDistinctAggregator {
+
+  private static void assertApproximately(long expected, long actual) {
+    Assert.assertTrue("Expected ~" + expected + " got " + actual, Math.abs(expected - actual) <= expected * 0.05);
+  }
+
+  @Test
+  public void testAggregator() {
+    Aggregators aggregators = new Aggregators(2, WindowType.ROLLING);
+    ApproxCountDistinctAggregator aggregator = aggregators.createSimple("a", ApproxCountDistinctAggregator.class);
+    aggregators.start(1);
+
+    Aggregators aggregatorsA = new Aggregators(2, WindowType.ROLLING);
+    ApproxCountDistinctAggregator aggregatorA = aggregatorsA.createSimple("a", ApproxCountDistinctAggregator.class);
+    aggregatorsA.start(1);
+
+    Assert.assertEquals("a", aggregator.getName());
+    Assert.assertEquals(Object.class, aggregator.getInputType());
+    Assert.assertEquals(0L, aggregator.get());
+
+    aggregator.process("x");
+    aggregator.process("x");
+    aggregator.process(1L);
+    aggregator.process(null);
+    Assert.assertEquals(2L, aggregator.get());
+
+    for (int i = 0; i < 20000; i++) {
+      aggregator.process("v" + i);
+      aggregator.process("v" + (i / 2));
+    }
+    assertApproximately(20002, (Long) aggregator.get());
+
+    Assert.assertEquals("a", aggregator.getAggregatable().getName());
+    Assert.assertEquals(
+        ApproxCountDistinctAggregator.ApproxCountDistinctAggregatable.class.getSimpleName(),
+        aggregator.getAggregatable().getType()
+    );
+
+    // overlaps with half of the values of the other aggregator
+    for (int i = 10000; i < 30000; i++) {
+      aggregatorA.process("v" + i);
+    }
+    aggregatorA.aggregate(aggregator.getAggregatable());
+    assertApproximately(30002, (Long) aggregatorA.get());
+
+    aggregatorsA.stop();
+
+    aggregators.stop();
+  }
+
+  @Test
+  public void testSparseToDense() {
+    HyperLogLog hll = new HyperLogLog();
+    HyperLogLog other = new HyperLogLog();
+    for (int i = 0; i < 100; i++) {
+      hll.offer(i);
+    }
+    assertApproximately(100, hll.cardinality());
+    for (int i = 0; i < 5000; i++) {
+      other.offer(i);
+    }
+    assertApproximately(5000, other.cardinality());
+
+    hll.merge(other);
+    Assert.assertEquals(other.cardinality(), hll.cardinality());
+    Assert.assertArrayEquals(other.getRegisters(), hll.getRegisters());
+    Assert.assertEquals(other.cardinality(), HyperLogLog.fromRegisters(other.getRegisters()).cardinality());
+  }
+
+  @Test
+  public void testSparseAggregatable() {
+    HyperLogLog hll = new HyperLogLog();
+    hll.offer("a");
+    hll.offer("b");
+    ApproxCountDistinctAggregator.ApproxCountDistinctAggregatable aggregatable =
+        ApproxCountDistinctAggregator.createAggregatable("a", hll);
+    Assert.assertNull(aggregatable.getRegisters());
+    Assert.assertEquals(2, aggregatable.getSparseEntries().length);
+    Assert.assertEquals(HyperLogLog.DEFAULT_PRECISION, aggregatable.getPrecision());
+
+    HyperLogLog merged = new HyperLogLog();
+    ApproxCountDistinctAggregator.merge(merged, aggregatable);
+    Assert.assertTrue(merged.isSparse());
+    Assert.assertEquals(2L, merged.cardinality());
+
+    for (int i = 0; i < 5000; i++) {
+      hll.offer(i);
+    }
+    aggregatable = ApproxCountDistinctAggregator.createAggregatable("a", hll);
+    Assert.assertNull(aggregatable.getSparseEntries());
+    Assert.assertEquals(1 << HyperLogLog.DEFAULT_PRECISION, aggregatable.getRegisters().length);
+    ApproxCountDistinctAggregator.merge(merged, aggregatable);
+    Assert.assertFalse(merged.isSparse());
+    Assert.assertEquals(hll.cardinality(), merged.cardinality());
+
+    try {
+      new HyperLogLog(10).mergeSparseEntries(HyperLogLog.DEFAULT_PRECISION, new int[0]);
+      Assert.fail();
+    } catch (IllegalArgumentException ex) {
+      // expected
+    }
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  public void testHighCardinalitySlidingWindow() {
+    Aggregators aggregators = new Aggregators(3, WindowType.SLIDING);
+    GroupByAggregator aggregator = aggregators.createGroupBy("g", ApproxCountDistinctAggregator.class);
+    aggregators.start(1);
+
+    int keys = 50000;
+    Map<Aggregator, AggregatorData> result = null;
+    for (int window = 0; window < 3; window++) {
+      for (int i = 0; i < keys; i++) {
+        aggregator.process("k" + i, "v" + window);
+      }
+      for (int i = 0; i < 5000; i++) {
+        aggregator.process("hot", window * 5000 + i);
+      }
+      result = aggregators.roll(window + 2);
+    }
+
+    GroupByAggregator.GroupByAggregatable aggregatable =
+        (GroupByAggregator.GroupByAggregatable) result.get(aggregator).getAggregatable();
+    Assert.assertEquals(keys + 1, aggregatable.getGroups().size());
+
+    // low cardinality elements stay sparse across the aggregated data windows
+    long sparseSize = 0;
+    for (int i = 0; i < keys; i++) {
+      ApproxCountDistinctAggregator.ApproxCountDistinctAggregatable group =
+          (ApproxCountDistinctAggregator.ApproxCountDistinctAggregatable) aggregatable.getGroups().get("k" + i);
+      Assert.assertNull(group.getRegisters());
+      Assert.assertTrue(group.getCount() >= 1 && group.getCount() <= 3);
+      sparseSize += group.getSparseEntries().length;
+    }
+    Assert.assertTrue(sparseSize <= keys * 3);
+
+    ApproxCountDistinctAggregator.ApproxCountDistinctAggregatable hot =
+        (ApproxCountDistinctAggregator.ApproxCountDistinctAggregatable) aggregatable.getGroups().get("hot");
+    Assert.assertNull(hot.getSparseEntries());
+    assertApproximately(10000, hot.getCount());
+
+    aggregators.stop();
+  }
+
+}
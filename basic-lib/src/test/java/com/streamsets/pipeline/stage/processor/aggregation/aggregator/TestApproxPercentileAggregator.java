@@ -0,0 +1,103 @@
+/*
+ * Copyright 2018 StreamSets Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.streamsets.pipeline.stage.processor.aggregation.aggregator;
+
+import com.streamsets.pipeline.stage.processor.aggregation.WindowType;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+public class TestApproxPercentileAggregator {
+
+  private static List<Double> shuffled(int from, int to) {
+    List<Double> values = new ArrayList<>();
+    for (int i = from; i < to; i++) {
+      values.add((double) i);
+    }
+    Collections.shuffle(values, new Random(0));
+    return values;
+  }
+
+  @Test
+  public void testAggregator() {
+    Aggregators aggregators = new Aggregators(2, WindowType.ROLLING);
+    ApproxMedianAggregator aggregator = aggregators.createSimple("a", ApproxMedianAggregator.class);
+    aggregators.start(1);
+
+    Aggregators aggregatorsA = new Aggregators(2, WindowType.ROLLING);
+    ApproxMedianAggregator aggregatorA = aggregatorsA.createSimple("a", ApproxMedianAggregator.class);
+    aggregatorsA.start(1);
+
+    Assert.assertEquals("a", aggregator.getName());
+    Assert.assertEquals(0.5, aggregator.getQuantile(), 0);
+    Assert.assertNull(aggregator.get());
+
+    aggregator.process(7d);
+    Assert.assertEquals(7d, aggregator.get(), 0);
+
+    for (Double value : shuffled(0, 10000)) {
+      aggregator.process(value);
+    }
+    Assert.assertEquals(5000, aggregator.get(), 50);
+
+    Assert.assertEquals("a", aggregator.getAggregatable().getName());
+    Assert.assertEquals(
+        ApproxPercentileAggregator.ApproxPercentileAggregatable.class.getSimpleName(),
+        aggregator.getAggregatable().getType()
+    );
+
+    for (Double value : shuffled(10000, 30000)) {
+      aggregatorA.process(value);
+    }
+    aggregatorA.aggregate(aggregator.getAggregatable());
+    Assert.assertEquals(15000, aggregatorA.get(), 150);
+
+    aggregatorsA.stop();
+
+    aggregators.stop();
+  }
+
+  @Test
+  public void testTails() {
+    Aggregators aggregators = new Aggregators(2, WindowType.ROLLING);
+    ApproxPercentile95Aggregator p95 = aggregators.createSimple("p95", ApproxPercentile95Aggregator.class);
+    ApproxPercentile99Aggregator p99 = aggregators.createSimple("p99", ApproxPercentile99Aggregator.class);
+    aggregators.start(1);
+
+    for (Double value : shuffled(0, 100000)) {
+      p95.process(value);
+      p99.process(value);
+    }
+    Assert.assertEquals(95000, p95.get(), 200);
+    Assert.assertEquals(99000, p99.get(), 100);
+
+    TDigest digest = new TDigest();
+    for (Double value : shuffled(0, 100000)) {
+      digest.add(value);
+    }
+    Assert.assertEquals(100000, digest.size());
+    Assert.assertEquals(0, digest.quantile(0), 0);
+    Assert.assertEquals(99999, digest.quantile(1), 0);
+    Assert.assertTrue(digest.getMeans().length <= TDigest.DEFAULT_COMPRESSION);
+
+    aggregators.stop();
+  }
+
+}
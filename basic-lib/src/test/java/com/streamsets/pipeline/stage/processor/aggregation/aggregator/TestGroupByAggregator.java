@@ -20,7 +20,10 @@ import com.streamsets.pipeline.stage.processor.aggregation.WindowType;
 import org.junit.Assert;
 import org.junit.Test;
 
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.List;
+import java.util.Map;
 
 public class TestGroupByAggregator {
 
@@ -70,4 +73,96 @@ public class TestGroupByAggregator {
     aggregators.stop();
   }
 
+  @Test
+  @SuppressWarnings("unchecked")
+  public void testManyGroups() {
+    Aggregators aggregators = new Aggregators(2, WindowType.ROLLING);
+    GroupByAggregator aggregator = aggregators.createGroupBy("g", LongSumAggregator.class);
+    aggregators.start(1);
+
+    for (int i = 0; i < 200000; i++) {
+      aggregator.process("k" + (i % 100000), (long) i);
+    }
+    GroupByAggregator.Data data = (GroupByAggregator.Data) aggregator.getData();
+    data.process("empty", null);
+
+    Map<String, Long> values = (Map<String, Long>) aggregator.get();
+    Assert.assertEquals(100001, values.size());
+    Assert.assertEquals((Long) 100000L, values.get("k0"));
+    Assert.assertEquals((Long) (99999L + 199999L), values.get("k99999"));
+    Assert.assertTrue(values.containsKey("empty"));
+    Assert.assertNull(values.get("empty"));
+
+    Assert.assertEquals(100001, data.getGroupByElements().size());
+    Assert.assertEquals(100000L, data.getGroupByElementData("k0").get());
+    Assert.assertNull(data.getGroupByElementData("empty").get());
+    Assert.assertNull(data.getGroupByElementData("missing"));
+
+    aggregators.stop();
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  public void testGroupValuesMatchSimpleAggregators() {
+    List<Class<? extends SimpleAggregator>> klasses = Arrays.asList(
+        CountAggregator.class,
+        DoubleAvgAggregator.class,
+        LongAvgAggregator.class,
+        DoubleMinAggregator.class,
+        LongMinAggregator.class,
+        DoubleMaxAggregator.class,
+        LongMaxAggregator.class,
+        DoubleStdDevAggregator.class,
+        DoubleSumAggregator.class,
+        LongSumAggregator.class,
+        ApproxCountDistinctAggregator.class,
+        ApproxMedianAggregator.class
+    );
+    for (Class<? extends SimpleAggregator> klass : klasses) {
+      Aggregators aggregators = new Aggregators(2, WindowType.ROLLING);
+      GroupByAggregator groupBy = aggregators.createGroupBy("g", klass);
+      SimpleAggregator simpleA = aggregators.createSimple("a", klass);
+      SimpleAggregator simpleB = aggregators.createSimple("b", klass);
+      aggregators.start(1);
+
+      Aggregators aggregatorsA = new Aggregators(2, WindowType.ROLLING);
+      GroupByAggregator groupByA = aggregatorsA.createGroupBy("g", klass);
+      aggregatorsA.start(1);
+
+      boolean isLong = aggregators.getAggregatorUnit(klass) == Long.class;
+      for (int i = 1; i <= 100; i++) {
+        Number value = isLong ? (Number) (long) i : (Number) (double) i;
+        if (klass == CountAggregator.class) {
+          value = 1L;
+        }
+        groupBy.process((i % 2 == 0) ? "a" : "b", value);
+        ((i % 2 == 0) ? simpleA : simpleB).process(value);
+        if (i % 2 != 0) {
+          groupByA.process("b", value);
+        }
+      }
+
+      Map<String, Object> values = (Map<String, Object>) groupBy.get();
+      Assert.assertEquals(klass.getSimpleName(), simpleA.get(), values.get("a"));
+      Assert.assertEquals(klass.getSimpleName(), simpleB.get(), values.get("b"));
+
+      // aggregatables of groups are compatible with the simple aggregators ones
+      GroupByAggregator.GroupByAggregatable aggregatable =
+          (GroupByAggregator.GroupByAggregatable) groupBy.getAggregatable();
+      Assert.assertEquals(simpleA.getAggregatable().getType(), aggregatable.getGroups().get("a").getType());
+
+      // merging across runners
+      groupByA.aggregate(aggregatable);
+      simpleB.aggregate(aggregatable.getGroups().get("b"));
+      Assert.assertEquals(
+          klass.getSimpleName(),
+          simpleB.get(),
+          ((Map<String, Object>) groupByA.get()).get("b")
+      );
+
+      aggregatorsA.stop();
+      aggregators.stop();
+    }
+  }
+
 }
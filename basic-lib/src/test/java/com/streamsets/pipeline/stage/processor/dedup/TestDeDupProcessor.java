@@ -20,12 +20,15 @@ import com.streamsets.pipeline.api.Field;
 import com.streamsets.pipeline.api.OnRecordError;
 import com.streamsets.pipeline.api.Processor;
 import com.streamsets.pipeline.api.Record;
+import com.streamsets.pipeline.api.Stage;
 import com.streamsets.pipeline.api.StageException;
 import com.streamsets.pipeline.sdk.ProcessorRunner;
 import com.streamsets.pipeline.sdk.RecordCreator;
 import com.streamsets.pipeline.sdk.StageRunner;
 import org.junit.Assert;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 
 import java.util.Arrays;
 import java.util.Collections;
@@ -36,6 +39,9 @@ import java.util.Map;
 
 public class TestDeDupProcessor {
 
+  @Rule
+  public TemporaryFolder tempFolder = new TemporaryFolder();
+
   private Record createRecordWithValue(String value) {
     Record record = RecordCreator.create();
     Map<String, Field> map = new HashMap<>();
@@ -493,6 +499,90 @@ public class TestDeDupProcessor {
     return record;
   }
 
+  @Test
+  public void testOffHeapDupWithinRecordTail() throws Exception {
+    Processor processor = new DeDupProcessor(3, 0, SelectFields.ALL_FIELDS, Collections.EMPTY_LIST,
+        HashStorage.OFF_HEAP, null);
+    ProcessorRunner runner = new ProcessorRunner.Builder(DeDupDProcessor.class, processor)
+        .addOutputLane("unique")
+        .addOutputLane("duplicate")
+        .build();
+    runner.runInit();
+    try {
+      List<Record> input = ImmutableList.of(
+          createRecordWithValue("a"),
+          createRecordWithValue("b"),
+          createRecordWithValue("a")
+      );
+      StageRunner.Output output = runner.runProcess(input);
+      Assert.assertEquals(2, output.getRecords().get("unique").size());
+      Assert.assertEquals(1, output.getRecords().get("duplicate").size());
+
+      // "a" is pushed out of the window by "c" and "d"
+      input = ImmutableList.of(
+          createRecordWithValue("c"),
+          createRecordWithValue("d"),
+          createRecordWithValue("a")
+      );
+      output = runner.runProcess(input);
+      Assert.assertEquals(3, output.getRecords().get("unique").size());
+      Assert.assertEquals(0, output.getRecords().get("duplicate").size());
+    } finally {
+      runner.runDestroy();
+    }
+  }
+
+  @Test
+  public void testMemoryMappedWindowSurvivesRestart() throws Exception {
+    String windowDirectory = tempFolder.newFolder().getAbsolutePath();
+    Processor processor = new DeDupProcessor(10, 0, SelectFields.ALL_FIELDS, Collections.EMPTY_LIST,
+        HashStorage.MEMORY_MAPPED, windowDirectory);
+    ProcessorRunner runner = new ProcessorRunner.Builder(DeDupDProcessor.class, processor)
+        .addOutputLane("unique")
+        .addOutputLane("duplicate")
+        .build();
+    runner.runInit();
+    try {
+      StageRunner.Output output = runner.runProcess(ImmutableList.of(createRecordWithValue("a")));
+      Assert.assertEquals(1, output.getRecords().get("unique").size());
+    } finally {
+      runner.runDestroy();
+    }
+
+    processor = new DeDupProcessor(10, 0, SelectFields.ALL_FIELDS, Collections.EMPTY_LIST,
+        HashStorage.MEMORY_MAPPED, windowDirectory);
+    runner = new ProcessorRunner.Builder(DeDupDProcessor.class, processor)
+        .addOutputLane("unique")
+        .addOutputLane("duplicate")
+        .build();
+    runner.runInit();
+    try {
+      StageRunner.Output output = runner.runProcess(ImmutableList.of(
+          createRecordWithValue("a"),
+          createRecordWithValue("b")
+      ));
+      Assert.assertEquals(1, output.getRecords().get("unique").size());
+      Assert.assertEquals(1, output.getRecords().get("duplicate").size());
+    } finally {
+      runner.runDestroy();
+    }
+  }
+
+  @Test
+  public void testMemoryMappedRequiresWindowDirectory() throws Exception {
+    for (String windowDirectory : Arrays.asList(null, "", " ")) {
+      Processor processor = new DeDupProcessor(10, 0, SelectFields.ALL_FIELDS, Collections.EMPTY_LIST,
+          HashStorage.MEMORY_MAPPED, windowDirectory);
+      ProcessorRunner runner = new ProcessorRunner.Builder(DeDupDProcessor.class, processor)
+          .addOutputLane("unique")
+          .addOutputLane("duplicate")
+          .build();
+      List<Stage.ConfigIssue> issues = runner.runValidateConfigs();
+      Assert.assertEquals(1, issues.size());
+      Assert.assertTrue(issues.get(0).toString().contains(Errors.DEDUP_05.name()));
+    }
+  }
+
   private long getDefaultMemoryLimitMiB() {
     long maxMemoryMiB = Runtime.getRuntime().maxMemory() / 1000 / 1000;
     return (long)(maxMemoryMiB * 0.65);
@@ -0,0 +1,130 @@
+/*
+ * Copyright 2018 StreamSets Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.streamsets.pipeline.stage.processor.dedup;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+public class TestOffHeapHashWindow {
+
+  @Rule
+  public TemporaryFolder tempFolder = new TemporaryFolder();
+
+  @Test
+  public void testRecordCountWindow() throws Exception {
+    OffHeapHashWindow window = new OffHeapHashWindow(3, 0, null);
+    Assert.assertTrue(window.add(1, 1, 0));
+    Assert.assertTrue(window.add(2, 2, 0));
+    Assert.assertTrue(window.add(1, 2, 0));
+    Assert.assertFalse(window.add(1, 1, 0));
+    Assert.assertEquals(3, window.size());
+
+    // evicts (1, 1)
+    Assert.assertTrue(window.add(3, 3, 0));
+    Assert.assertEquals(3, window.size());
+    Assert.assertTrue(window.add(1, 1, 0));
+    Assert.assertFalse(window.add(3, 3, 0));
+    window.release();
+  }
+
+  @Test
+  public void testTimeWindow() throws Exception {
+    OffHeapHashWindow window = new OffHeapHashWindow(10, 10, null);
+    Assert.assertTrue(window.add(1, 1, 0));
+    Assert.assertTrue(window.add(2, 2, 5000));
+    Assert.assertFalse(window.add(1, 1, 9000));
+    Assert.assertTrue(window.add(1, 1, 10000));
+    Assert.assertEquals(2, window.size());
+    Assert.assertFalse(window.add(2, 2, 14000));
+    Assert.assertTrue(window.add(2, 2, 15000));
+    window.release();
+  }
+
+  @Test
+  public void testMatchesReferenceImplementation() throws Exception {
+    int capacity = 1000;
+    OffHeapHashWindow window = new OffHeapHashWindow(capacity, 0, null);
+    Deque<Long> queue = new ArrayDeque<>();
+    Set<Long> set = new HashSet<>();
+    Random random = new Random(0);
+    for (int i = 0; i < 100000; i++) {
+      // few distinct values, lots of duplicates, collisions and evictions
+      long value = random.nextInt(3000);
+      boolean unique = set.add(value);
+      if (unique) {
+        queue.add(value);
+        if (queue.size() > capacity) {
+          set.remove(queue.remove());
+        }
+      }
+      Assert.assertEquals(unique, window.add(value * 31, value, 0));
+    }
+    Assert.assertEquals(capacity, window.size());
+    window.release();
+  }
+
+  @Test
+  public void testMemoryMapped() throws Exception {
+    File file = new File(tempFolder.getRoot(), "dedup.window");
+    OffHeapHashWindow window = new OffHeapHashWindow(100, 0, file);
+    for (int i = 0; i < 150; i++) {
+      Assert.assertTrue(window.add(i, i, 0));
+    }
+    window.release();
+    Assert.assertEquals(OffHeapHashWindow.getSize(100, 0), file.length());
+
+    // the window survives
+    window = new OffHeapHashWindow(100, 0, file);
+    Assert.assertEquals(100, window.size());
+    Assert.assertFalse(window.add(149, 149, 0));
+    Assert.assertTrue(window.add(0, 0, 0));
+    window.release();
+
+    // not for a different window size
+    window = new OffHeapHashWindow(50, 0, file);
+    Assert.assertEquals(0, window.size());
+    Assert.assertTrue(window.add(149, 149, 0));
+    window.release();
+  }
+
+  @Test
+  public void testMemoryMappedNotClosed() throws Exception {
+    File file = new File(tempFolder.getRoot(), "dedup.window");
+    OffHeapHashWindow window = new OffHeapHashWindow(100, 0, file);
+    for (int i = 0; i < 10; i++) {
+      Assert.assertTrue(window.add(i, i, 0));
+    }
+
+    // as if the previous run died without releasing the window
+    OffHeapHashWindow reopened = new OffHeapHashWindow(100, 0, file);
+    Assert.assertEquals(10, reopened.size());
+    for (int i = 0; i < 10; i++) {
+      Assert.assertFalse(reopened.add(i, i, 0));
+    }
+    Assert.assertTrue(reopened.add(10, 10, 0));
+    reopened.release();
+  }
+
+}
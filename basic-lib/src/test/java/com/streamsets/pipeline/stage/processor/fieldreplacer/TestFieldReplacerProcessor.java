@@ -20,6 +20,7 @@ import com.streamsets.pipeline.api.Field;
 import com.streamsets.pipeline.api.OnRecordError;
 import com.streamsets.pipeline.api.Record;
 import com.streamsets.pipeline.api.StageException;
+import com.streamsets.pipeline.api.el.ELVars;
 import com.streamsets.pipeline.config.OnStagePreConditionFailure;
 import com.streamsets.pipeline.sdk.ProcessorRunner;
 import com.streamsets.pipeline.sdk.RecordCreator;
@@ -27,11 +28,13 @@ import com.streamsets.pipeline.sdk.StageRunner;
 import com.streamsets.pipeline.stage.processor.fieldreplacer.config.ReplaceRule;
 import com.streamsets.pipeline.stage.processor.fieldreplacer.config.ReplacerConfigBean;
 import org.junit.Test;
+import org.powermock.reflect.Whitebox;
 
 import java.util.LinkedHashMap;
 import java.util.Map;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
 
 public class TestFieldReplacerProcessor {
 
@@ -176,6 +179,48 @@ public class TestFieldReplacerProcessor {
     }
   }
 
+  @Test
+  public void varsClearedAfterEachRecord() throws Exception {
+    ReplaceRule rule = new ReplaceRule();
+    rule.fields = "/*[${f:type() == 'STRING'}]";
+    rule.replacement = "${record:value('/id')}_${f:value()}";
+    rule.setToNull = false;
+
+    ReplacerConfigBean config = new ReplacerConfigBean();
+    config.rules = ImmutableList.of(rule);
+    config.onStagePreConditionFailure = OnStagePreConditionFailure.CONTINUE;
+
+    FieldReplacerProcessor processor = new FieldReplacerProcessor(config);
+    ProcessorRunner runner = getRunner(processor);
+
+    try {
+      Map<String, Field> first = new LinkedHashMap<>();
+      first.put("id", Field.create(Field.Type.INTEGER, 1));
+      first.put("a", Field.create(Field.Type.STRING, "a"));
+      Record firstRecord = RecordCreator.create();
+      firstRecord.set(Field.create(Field.Type.MAP, first));
+
+      Map<String, Field> second = new LinkedHashMap<>();
+      second.put("id", Field.create(Field.Type.INTEGER, 2));
+      second.put("b", Field.create(Field.Type.STRING, "b"));
+      Record secondRecord = RecordCreator.create();
+      secondRecord.set(Field.create(Field.Type.MAP, second));
+
+      StageRunner.Output output = runner.runProcess(ImmutableList.of(firstRecord, secondRecord));
+      assertEquals(2, output.getRecords().get("lane").size());
+      assertEquals("1_a", output.getRecords().get("lane").get(0).get("/a").getValueAsString());
+      assertEquals("2_b", output.getRecords().get("lane").get(1).get("/b").getValueAsString());
+
+      // Nothing of the last record may stay behind in the reused variables
+      ELVars vars = Whitebox.getInternalState(processor, "vars");
+      assertNull(vars.getContextVariable("record"));
+      assertNull(vars.getContextVariable("field"));
+      assertNull(vars.getContextVariable("fieldPath"));
+    } finally {
+      runner.runDestroy();
+    }
+  }
+
   private static ProcessorRunner getRunner(ReplaceRule ...rules) throws StageException {
     return getRunner(OnStagePreConditionFailure.CONTINUE, rules);
   }
@@ -185,7 +230,11 @@ public class TestFieldReplacerProcessor {
     config.rules = ImmutableList.copyOf(rules);
     config.onStagePreConditionFailure = missingField;
 
-    ProcessorRunner runner = new ProcessorRunner.Builder(FieldReplacerDProcessor.class, new FieldReplacerProcessor(config))
+    return getRunner(new FieldReplacerProcessor(config));
+  }
+
+  private static ProcessorRunner getRunner(FieldReplacerProcessor processor) throws StageException {
+    ProcessorRunner runner = new ProcessorRunner.Builder(FieldReplacerDProcessor.class, processor)
       .addOutputLane("lane")
       .setOnRecordError(OnRecordError.TO_ERROR)
       .build();
@@ -260,6 +260,24 @@ public class TestJavaScriptProcessor {
     ScriptingProcessorTestUtil.verifyPrimitiveTypesFromScriptingJavaScript(JavaScriptDProcessor.class, processor);
   }
 
+  @Test
+  public void testLazyRecordView() throws Exception {
+    Processor processor = new JavaScriptProcessor(
+        ProcessingMode.RECORD,
+        "for (var i = 0; i < records.length; i++) {\n" +
+        "  records[i].value['a']['x'] = 2;\n" +
+        "  records[i].value['b'].add(3);\n" +
+        "  records[i].value.remove('d');\n" +
+        "  records[i].value['e'] = 'new';\n" +
+        "  output.write(records[i]);\n" +
+        "}",
+        "",
+        "",
+        true
+    );
+    ScriptingProcessorTestUtil.verifyLazyRecordView(JavaScriptDProcessor.class, processor);
+  }
+
   @Test
   public void testStateObject() throws Exception {
     Processor processor = new JavaScriptProcessor(ProcessingMode.RECORD,
@@ -274,6 +292,19 @@ public class TestJavaScriptProcessor {
     ScriptingProcessorTestUtil.verifyStateObjectJavaScript(JavaScriptDProcessor.class, processor);
   }
 
+  @Test
+  public void testGlobalsNotSharedAcrossRecords() throws Exception {
+    Processor processor = new JavaScriptProcessor(
+        ProcessingMode.RECORD,
+        "for (var i = 0; i < records.length; i++) {\n" +
+        "  records[i].value['leaked'] = (typeof seen !== 'undefined');\n" +
+        "  seen = true;\n" +
+        "  output.write(records[i]);\n" +
+        "}"
+    );
+    ScriptingProcessorTestUtil.verifyGlobalsNotSharedAcrossRecords(JavaScriptDProcessor.class, processor);
+  }
+
   @Test
   public void testListMap() throws Exception {
     Processor processor = new JavaScriptProcessor(
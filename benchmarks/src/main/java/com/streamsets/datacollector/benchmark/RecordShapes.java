@@ -0,0 +1,94 @@
+/*
+ * Copyright 2018 StreamSets Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.streamsets.datacollector.benchmark;
+
+import com.streamsets.datacollector.record.RecordImpl;
+import com.streamsets.pipeline.api.Field;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+
+/**
+ * Records shaped like the ones produced by the Dev Data Generator origin (RandomDataGeneratorSource in dev-lib)
+ * configured with one field of each of its basic types under a LIST_MAP root, optionally with a nested address map
+ * and a list of tags like most JSON sources produce.
+ *
+ * Values come from a fixed seed so that all runs (and all releases) measure the very same data.
+ */
+public final class RecordShapes {
+
+  private RecordShapes() {}
+
+  private static final byte[] PAYLOAD = "StreamSets Inc, San Francisco".getBytes(StandardCharsets.UTF_8);
+
+  public static Random random() {
+    return new Random(42);
+  }
+
+  /**
+   * Flat record with one field of each generated type.
+   */
+  public static RecordImpl flat(Random random, long sequence) {
+    LinkedHashMap<String, Field> root = new LinkedHashMap<>();
+    root.put("id", Field.create(Field.Type.LONG, sequence));
+    root.put("uuid", Field.create(Field.Type.STRING, new UUID(random.nextLong(), random.nextLong()).toString()));
+    root.put("name", Field.create(Field.Type.STRING, "name-" + random.nextInt(10000)));
+    root.put("count", Field.create(Field.Type.INTEGER, random.nextInt()));
+    root.put("amount", Field.create(Field.Type.DOUBLE, random.nextDouble()));
+    root.put("ratio", Field.create(Field.Type.FLOAT, random.nextFloat()));
+    root.put("active", Field.create(Field.Type.BOOLEAN, random.nextBoolean()));
+    root.put("created", Field.create(Field.Type.DATE, new Date(1500000000000L + random.nextInt(1000000000))));
+    root.put("updated", Field.create(Field.Type.DATETIME, new Date(1500000000000L + random.nextInt(1000000000))));
+    root.put("price", Field.create(Field.Type.DECIMAL, BigDecimal.valueOf(random.nextInt(1000000), 2)));
+    root.put("payload", Field.create(Field.Type.BYTE_ARRAY, PAYLOAD));
+    RecordImpl record = new RecordImpl("benchmark", "benchmark::" + sequence, null, null);
+    record.set(Field.createListMap(root));
+    return record;
+  }
+
+  /**
+   * Flat record plus a nested map and a list, the usual shape of records parsed from JSON.
+   */
+  public static RecordImpl nested(Random random, long sequence) {
+    RecordImpl record = flat(random, sequence);
+    LinkedHashMap<String, Field> address = new LinkedHashMap<>();
+    address.put("street", Field.create(random.nextInt(1000) + " Main Street"));
+    address.put("city", Field.create("city-" + random.nextInt(100)));
+    address.put("zip", Field.create(String.valueOf(10000 + random.nextInt(89999))));
+    record.set("/address", Field.createListMap(address));
+    List<Field> tags = new ArrayList<>();
+    for (int i = 0; i < 5; i++) {
+      tags.add(Field.create("tag-" + random.nextInt(50)));
+    }
+    record.set("/tags", Field.create(tags));
+    return record;
+  }
+
+  public static List<RecordImpl> batch(int size, boolean nested) {
+    Random random = random();
+    List<RecordImpl> records = new ArrayList<>(size);
+    for (int i = 0; i < size; i++) {
+      records.add(nested ? nested(random, i) : flat(random, i));
+    }
+    return records;
+  }
+}
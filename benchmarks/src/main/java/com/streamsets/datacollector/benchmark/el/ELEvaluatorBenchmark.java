@@ -0,0 +1,99 @@
+/*
+ * Copyright 2018 StreamSets Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.streamsets.datacollector.benchmark.el;
+
+import com.streamsets.datacollector.benchmark.RecordShapes;
+import com.streamsets.datacollector.definition.ConcreteELDefinitionExtractor;
+import com.streamsets.datacollector.el.ELEvaluator;
+import com.streamsets.datacollector.el.ELVariables;
+import com.streamsets.pipeline.api.Record;
+import com.streamsets.pipeline.lib.el.RecordEL;
+import com.streamsets.pipeline.lib.el.StringEL;
+import com.streamsets.pipeline.lib.el.TimeNowEL;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per record cost of evaluating the kind of expressions used by Expression Evaluator, Stream Selector and the
+ * record:value() based configs of destinations, the record being put in context for each evaluation like stages do.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ELEvaluatorBenchmark {
+
+  private ELEvaluator evaluator;
+  private ELVariables variables;
+  private Record record;
+
+  @Setup
+  public void setup() {
+    evaluator = new ELEvaluator(
+        "benchmark",
+        ConcreteELDefinitionExtractor.get(),
+        RecordEL.class,
+        StringEL.class,
+        TimeNowEL.class
+    );
+    variables = new ELVariables();
+    record = RecordShapes.nested(RecordShapes.random(), 0);
+  }
+
+  @Benchmark
+  public String constant() throws Exception {
+    RecordEL.setRecordInContext(variables, record);
+    return evaluator.eval(variables, "constant", String.class);
+  }
+
+  @Benchmark
+  public Object recordValue() throws Exception {
+    RecordEL.setRecordInContext(variables, record);
+    return evaluator.eval(variables, "${record:value('/address/city')}", Object.class);
+  }
+
+  @Benchmark
+  public Boolean condition() throws Exception {
+    RecordEL.setRecordInContext(variables, record);
+    return evaluator.eval(
+        variables,
+        "${record:value('/active') and record:value('/count') > 0 or str:startsWith(record:value('/name'), 'name-1')}",
+        Boolean.class
+    );
+  }
+
+  @Benchmark
+  public String concatenation() throws Exception {
+    RecordEL.setRecordInContext(variables, record);
+    return evaluator.eval(
+        variables,
+        "${str:toUpper(record:value('/name'))}-${record:value('/id')}-${record:attribute('sdc.operation.type')}",
+        String.class
+    );
+  }
+}
@@ -0,0 +1,91 @@
+/*
+ * Copyright 2018 StreamSets Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.streamsets.datacollector.benchmark.el;
+
+import com.streamsets.datacollector.el.ELVariables;
+import com.streamsets.pipeline.api.el.ELVars;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per record cost of populating ELVars the way processors do (record, field and time in context).
+ *
+ * Run with "-prof gc" and compare gc.alloc.rate.norm of the two benchmarks, reusing the same instance should not
+ * allocate anything per record.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ELVariablesBenchmark {
+
+  private Map<String, Object> constants;
+  private ELVariables reused;
+  private Object record;
+  private Object field;
+  private Date now;
+
+  @Setup
+  public void setup() {
+    constants = new HashMap<>();
+    for (int i = 0; i < 20; i++) {
+      constants.put("CONSTANT_" + i, i);
+    }
+    reused = new ELVariables(constants);
+    record = new Object();
+    field = new Object();
+    now = new Date();
+  }
+
+  @Benchmark
+  public Object newPerRecord() {
+    ELVars vars = new ELVariables(constants);
+    return populate(vars);
+  }
+
+  @Benchmark
+  public Object reusedPerRecord() {
+    reused.reset();
+    return populate(reused);
+  }
+
+  private Object populate(ELVars vars) {
+    vars.addContextVariable("record", record);
+    vars.addContextVariable("fieldPath", "/a/b");
+    vars.addContextVariable("field", field);
+    vars.addContextVariable("time_now", now);
+    vars.addVariable("x", 1);
+    if (vars.hasVariable("x") && vars.hasContextVariable("record")) {
+      return vars.getContextVariable("field");
+    }
+    return vars.getConstant("CONSTANT_1");
+  }
+}
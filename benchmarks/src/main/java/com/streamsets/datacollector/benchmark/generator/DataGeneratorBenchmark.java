@@ -0,0 +1,96 @@
+/*
+ * Copyright 2018 StreamSets Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.streamsets.datacollector.benchmark.generator;
+
+import com.streamsets.datacollector.benchmark.RecordShapes;
+import com.streamsets.datacollector.record.RecordImpl;
+import com.streamsets.pipeline.api.OnRecordError;
+import com.streamsets.pipeline.config.CsvHeader;
+import com.streamsets.pipeline.config.CsvMode;
+import com.streamsets.pipeline.lib.generator.DataGenerator;
+import com.streamsets.pipeline.lib.generator.DataGeneratorFactory;
+import com.streamsets.pipeline.lib.generator.DataGeneratorFactoryBuilder;
+import com.streamsets.pipeline.lib.generator.DataGeneratorFormat;
+import com.streamsets.pipeline.sdk.ContextInfoCreator;
+import org.apache.commons.io.output.NullOutputStream;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per record cost of the JSON and delimited generators used by destinations, writing a batch of records the way a
+ * destination writes a batch to a file or a message (new generator per batch, closed at the end).
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DataGeneratorBenchmark {
+
+  private static final int RECORDS = 1000;
+
+  @Param({"JSON", "DELIMITED"})
+  public String format;
+
+  private DataGeneratorFactory factory;
+  private List<RecordImpl> records;
+
+  @Setup
+  public void setup() {
+    DataGeneratorFactoryBuilder builder = new DataGeneratorFactoryBuilder(
+        ContextInfoCreator.createTargetContext("benchmark", false, OnRecordError.TO_ERROR),
+        DataGeneratorFormat.valueOf(format)
+    );
+    switch (format) {
+      case "JSON":
+        builder.setMode(com.streamsets.pipeline.api.ext.json.Mode.MULTIPLE_OBJECTS);
+        records = RecordShapes.batch(RECORDS, true);
+        break;
+      case "DELIMITED":
+        // Delimited data can't carry the nested fields
+        builder.setMode(CsvMode.CSV).setMode(CsvHeader.WITH_HEADER);
+        records = RecordShapes.batch(RECORDS, false);
+        break;
+      default:
+        throw new IllegalArgumentException("Unsupported format " + format);
+    }
+    factory = builder.build();
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(RECORDS)
+  public void generate() throws Exception {
+    try (DataGenerator generator = factory.getGenerator(new NullOutputStream())) {
+      for (RecordImpl record : records) {
+        generator.write(record);
+      }
+    }
+  }
+}
@@ -0,0 +1,135 @@
+/*
+ * Copyright 2018 StreamSets Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.streamsets.datacollector.benchmark.parser;
+
+import com.streamsets.pipeline.api.OnRecordError;
+import com.streamsets.pipeline.api.Record;
+import com.streamsets.pipeline.config.CsvHeader;
+import com.streamsets.pipeline.config.CsvMode;
+import com.streamsets.pipeline.config.CsvRecordType;
+import com.streamsets.pipeline.config.JsonMode;
+import com.streamsets.pipeline.config.LogMode;
+import com.streamsets.pipeline.lib.parser.DataParser;
+import com.streamsets.pipeline.lib.parser.DataParserFactory;
+import com.streamsets.pipeline.lib.parser.DataParserFactoryBuilder;
+import com.streamsets.pipeline.lib.parser.DataParserFormat;
+import com.streamsets.pipeline.sdk.ContextInfoCreator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Collections;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per record cost of the character based parsers (JsonCharDataParser, DelimitedCharDataParser and LogCharDataParser)
+ * as created by origins through DataParserFactoryBuilder, parsing a chunk of records from the beginning the way
+ * origins parse a file or a message.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DataParserBenchmark {
+
+  private static final int RECORDS = 1000;
+
+  @Param({"JSON", "DELIMITED", "LOG"})
+  public String format;
+
+  private DataParserFactory factory;
+  private String data;
+
+  @Setup
+  public void setup() {
+    DataParserFactoryBuilder builder = new DataParserFactoryBuilder(
+        ContextInfoCreator.createSourceContext("benchmark", false, OnRecordError.TO_ERROR, Collections.emptyList()),
+        DataParserFormat.valueOf(format)
+    ).setMaxDataLen(4096);
+    Random random = new Random(42);
+    StringBuilder sb = new StringBuilder();
+    switch (format) {
+      case "JSON":
+        builder.setMode(JsonMode.MULTIPLE_OBJECTS);
+        for (int i = 0; i < RECORDS; i++) {
+          sb.append("{\"id\":").append(i)
+              .append(",\"uuid\":\"").append(new UUID(random.nextLong(), random.nextLong())).append('"')
+              .append(",\"name\":\"name-").append(random.nextInt(10000)).append('"')
+              .append(",\"amount\":").append(random.nextDouble())
+              .append(",\"active\":").append(random.nextBoolean())
+              .append(",\"created\":").append(1500000000000L + random.nextInt(1000000000))
+              .append(",\"address\":{\"street\":\"").append(random.nextInt(1000)).append(" Main Street\"")
+              .append(",\"city\":\"city-").append(random.nextInt(100)).append("\"}")
+              .append(",\"tags\":[\"tag-1\",\"tag-2\",\"tag-3\"]}\n");
+        }
+        break;
+      case "DELIMITED":
+        builder.setMode(CsvMode.CSV).setMode(CsvHeader.WITH_HEADER).setMode(CsvRecordType.LIST_MAP);
+        sb.append("id,uuid,name,amount,active,created,city\n");
+        for (int i = 0; i < RECORDS; i++) {
+          sb.append(i)
+              .append(',').append(new UUID(random.nextLong(), random.nextLong()))
+              .append(",\"name, ").append(random.nextInt(10000)).append('"')
+              .append(',').append(random.nextDouble())
+              .append(',').append(random.nextBoolean())
+              .append(',').append(1500000000000L + random.nextInt(1000000000))
+              .append(",city-").append(random.nextInt(100))
+              .append('\n');
+        }
+        break;
+      case "LOG":
+        builder.setMode(LogMode.COMMON_LOG_FORMAT);
+        for (int i = 0; i < RECORDS; i++) {
+          sb.append("10.0.").append(random.nextInt(256)).append('.').append(random.nextInt(256))
+              .append(" - user").append(random.nextInt(100))
+              .append(" [10/Oct/2017:13:").append(10 + random.nextInt(50)).append(":36 -0700]")
+              .append(" \"GET /products/").append(random.nextInt(10000)).append(".html HTTP/1.1\" ")
+              .append(random.nextBoolean() ? 200 : 404).append(' ').append(random.nextInt(100000))
+              .append('\n');
+        }
+        break;
+      default:
+        throw new IllegalArgumentException("Unsupported format " + format);
+    }
+    factory = builder.build();
+    data = sb.toString();
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(RECORDS)
+  public void parse(Blackhole blackhole) throws Exception {
+    try (DataParser parser = factory.getParser("benchmark", data)) {
+      Record record;
+      while ((record = parser.parse()) != null) {
+        blackhole.consume(record);
+      }
+    }
+  }
+}
@@ -0,0 +1,136 @@
+/*
+ * Copyright 2018 StreamSets Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.streamsets.datacollector.benchmark.parser;
+
+import com.streamsets.pipeline.api.OnRecordError;
+import com.streamsets.pipeline.api.Record;
+import com.streamsets.pipeline.config.CsvHeader;
+import com.streamsets.pipeline.config.CsvMode;
+import com.streamsets.pipeline.config.CsvRecordType;
+import com.streamsets.pipeline.config.JsonMode;
+import com.streamsets.pipeline.lib.parser.DataParser;
+import com.streamsets.pipeline.lib.parser.DataParserFactory;
+import com.streamsets.pipeline.lib.parser.DataParserFactoryBuilder;
+import com.streamsets.pipeline.lib.parser.DataParserFormat;
+import com.streamsets.pipeline.sdk.ContextInfoCreator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per message cost of parsing small (about 200 bytes) message payloads the way message oriented origins (Kafka,
+ * Kinesis, MQTT...) do, with a new parser per message (getParser) and with the per thread message parser
+ * (getMessageParser). Run with -prof gc to compare the allocation rates.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MessageParserBenchmark {
+
+  private static final int MESSAGES = 64;
+
+  @Param({"JSON", "DELIMITED"})
+  public String format;
+
+  private DataParserFactory factory;
+  private byte[][] messages;
+  private int next;
+
+  @Setup
+  public void setup() {
+    DataParserFactoryBuilder builder = new DataParserFactoryBuilder(
+        ContextInfoCreator.createSourceContext("benchmark", false, OnRecordError.TO_ERROR, Collections.emptyList()),
+        DataParserFormat.valueOf(format)
+    ).setMaxDataLen(4096);
+    Random random = new Random(42);
+    messages = new byte[MESSAGES][];
+    for (int i = 0; i < MESSAGES; i++) {
+      StringBuilder sb = new StringBuilder();
+      switch (format) {
+        case "JSON":
+          builder.setMode(JsonMode.MULTIPLE_OBJECTS);
+          sb.append("{\"id\":").append(i)
+              .append(",\"uuid\":\"").append(new UUID(random.nextLong(), random.nextLong())).append('"')
+              .append(",\"name\":\"name-").append(random.nextInt(10000)).append('"')
+              .append(",\"amount\":").append(random.nextDouble())
+              .append(",\"active\":").append(random.nextBoolean())
+              .append(",\"created\":").append(1500000000000L + random.nextInt(1000000000))
+              .append(",\"city\":\"city-").append(random.nextInt(100)).append("\"}");
+          break;
+        case "DELIMITED":
+          builder.setMode(CsvMode.CSV).setMode(CsvHeader.WITH_HEADER).setMode(CsvRecordType.LIST_MAP);
+          sb.append("id,uuid,name,amount,active,created,city\n")
+              .append(i)
+              .append(',').append(new UUID(random.nextLong(), random.nextLong()))
+              .append(",\"name, ").append(random.nextInt(10000)).append('"')
+              .append(',').append(random.nextDouble())
+              .append(',').append(random.nextBoolean())
+              .append(',').append(1500000000000L + random.nextInt(1000000000))
+              .append(",city-").append(random.nextInt(100))
+              .append('\n');
+          break;
+        default:
+          throw new IllegalArgumentException("Unsupported format " + format);
+      }
+      messages[i] = sb.toString().getBytes(StandardCharsets.UTF_8);
+    }
+    factory = builder.build();
+  }
+
+  private byte[] nextMessage() {
+    next = (next + 1) % MESSAGES;
+    return messages[next];
+  }
+
+  private static void parse(DataParser parser, Blackhole blackhole) throws Exception {
+    try {
+      Record record;
+      while ((record = parser.parse()) != null) {
+        blackhole.consume(record);
+      }
+    } finally {
+      parser.close();
+    }
+  }
+
+  @Benchmark
+  public void newParser(Blackhole blackhole) throws Exception {
+    parse(factory.getParser("benchmark", nextMessage()), blackhole);
+  }
+
+  @Benchmark
+  public void messageParser(Blackhole blackhole) throws Exception {
+    parse(factory.getMessageParser("benchmark", nextMessage()), blackhole);
+  }
+}
@@ -0,0 +1,97 @@
+/*
+ * Copyright 2018 StreamSets Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.streamsets.datacollector.benchmark.record;
+
+import com.streamsets.datacollector.benchmark.RecordShapes;
+import com.streamsets.datacollector.record.RecordImpl;
+import com.streamsets.pipeline.api.Field;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per record cost of the RecordImpl operations every stage does: creating a record, reading and writing fields by
+ * path and listing the field paths, on a record shaped like the ones of the Dev Data Generator.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RecordBenchmark {
+
+  private RecordImpl record;
+  private LinkedHashMap<String, Field> fields;
+  private Field replacement;
+
+  @Setup
+  public void setup() {
+    record = RecordShapes.nested(RecordShapes.random(), 0);
+    fields = record.get().getValueAsListMap();
+    replacement = Field.create("replacement");
+  }
+
+  @Benchmark
+  public RecordImpl create() {
+    // What parsers do once they have the field values
+    RecordImpl created = new RecordImpl("benchmark", "benchmark::1", null, null);
+    created.set(Field.createListMap(new LinkedHashMap<>(fields)));
+    return created;
+  }
+
+  @Benchmark
+  public Field getTopLevel() {
+    return record.get("/name");
+  }
+
+  @Benchmark
+  public Field getNested() {
+    return record.get("/address/city");
+  }
+
+  @Benchmark
+  public Field getListElement() {
+    return record.get("/tags[3]");
+  }
+
+  @Benchmark
+  public Field setNested() {
+    return record.set("/address/street", replacement);
+  }
+
+  @Benchmark
+  public Set<String> getEscapedFieldPaths() {
+    return record.getEscapedFieldPaths();
+  }
+
+  @Benchmark
+  public List<String> getEscapedFieldPathsOrdered() {
+    return record.getEscapedFieldPathsOrdered();
+  }
+}
@@ -0,0 +1,105 @@
+/*
+ * Copyright 2018 StreamSets Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.streamsets.datacollector.benchmark.record;
+
+import com.streamsets.datacollector.record.RecordImpl;
+import com.streamsets.pipeline.api.Field;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of the record copies done when a record is routed to several streams, for a wide JSON like record
+ * (width top level fields, every tenth of them being a nested object with a list).
+ *
+ * Each benchmark makes the copy and then reads (or modifies) a single field of it the way most processors do.
+ * Run with "-prof gc" and compare gc.alloc.rate.norm of the deep clone and copy-on-write variants.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RecordCloneBenchmark {
+
+  @Param({"50", "500"})
+  public int width;
+
+  private RecordImpl record;
+  private Field replacement;
+
+  @Setup
+  public void setup() {
+    Map<String, Field> root = new LinkedHashMap<>();
+    for (int i = 0; i < width; i++) {
+      if (i % 10 == 0) {
+        Map<String, Field> nested = new LinkedHashMap<>();
+        nested.put("id", Field.create((long) i));
+        nested.put("name", Field.create("name-" + i));
+        List<Field> tags = new ArrayList<>();
+        for (int j = 0; j < 5; j++) {
+          tags.add(Field.create("tag-" + j));
+        }
+        nested.put("tags", Field.create(tags));
+        root.put("object" + i, Field.create(nested));
+      } else {
+        root.put("field" + i, Field.create("value-" + i));
+      }
+    }
+    record = new RecordImpl("stage", "source", null, null);
+    record.set(Field.createListMap(new LinkedHashMap<>(root)));
+    replacement = Field.create("replacement");
+  }
+
+  @Benchmark
+  public Field cloneAndRead() {
+    return record.clone().get("/field1");
+  }
+
+  @Benchmark
+  public Field copyOnWriteAndRead() {
+    return record.cloneCopyOnWrite().get("/field1");
+  }
+
+  @Benchmark
+  public Field cloneAndModify() {
+    RecordImpl copy = record.clone();
+    copy.set("/object0/name", replacement);
+    return copy.get("/object0/id");
+  }
+
+  @Benchmark
+  public Field copyOnWriteAndModify() {
+    RecordImpl copy = record.cloneCopyOnWrite();
+    copy.set("/object0/name", replacement);
+    return copy.get("/object0/id");
+  }
+}
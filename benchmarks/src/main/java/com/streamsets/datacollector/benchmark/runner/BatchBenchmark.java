@@ -0,0 +1,226 @@
+/*
+ * Copyright 2018 StreamSets Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.streamsets.datacollector.benchmark.runner;
+
+import com.codahale.metrics.MetricRegistry;
+import com.streamsets.datacollector.benchmark.RecordShapes;
+import com.streamsets.datacollector.config.StageConfiguration;
+import com.streamsets.datacollector.config.StageDefinition;
+import com.streamsets.datacollector.config.StageLibraryDefinition;
+import com.streamsets.datacollector.creation.StageBean;
+import com.streamsets.datacollector.email.EmailSender;
+import com.streamsets.datacollector.lineage.LineagePublisherDelegator;
+import com.streamsets.datacollector.main.RuntimeModule;
+import com.streamsets.datacollector.main.StandaloneRuntimeInfo;
+import com.streamsets.datacollector.record.RecordImpl;
+import com.streamsets.datacollector.runner.BatchImpl;
+import com.streamsets.datacollector.runner.BatchMakerImpl;
+import com.streamsets.datacollector.runner.FullPipeBatch;
+import com.streamsets.datacollector.runner.StageContext;
+import com.streamsets.datacollector.runner.StagePipe;
+import com.streamsets.datacollector.runner.StageRuntime;
+import com.streamsets.datacollector.util.Configuration;
+import com.streamsets.pipeline.api.DeliveryGuarantee;
+import com.streamsets.pipeline.api.ExecutionMode;
+import com.streamsets.pipeline.api.OnRecordError;
+import com.streamsets.pipeline.api.Record;
+import com.streamsets.pipeline.api.StageType;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per record cost of moving a batch through the framework: the origin adds its records through BatchMakerImpl, a
+ * processor gets them from FullPipeBatch and passes each of them on, a target finally receives them. The stages do
+ * nothing else, so this is the overhead (record copies, stage path and tracking id, lane bookkeeping) that every
+ * record pays for every stage.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BatchBenchmark {
+
+  private static final int BATCH_SIZE = 1000;
+
+  @Param({"false", "true"})
+  public boolean copyOnWrite;
+
+  private List<RecordImpl> records;
+  private StagePipe origin;
+  private StagePipe processor;
+  private StagePipe target;
+
+  @Setup
+  public void setup() {
+    records = RecordShapes.batch(BATCH_SIZE, true);
+    List<String> originOutput = Collections.singletonList("originOutput");
+    List<String> processorOutput = Collections.singletonList("processorOutput");
+    origin = createPipe("origin", StageType.SOURCE, Collections.emptyList(), originOutput);
+    processor = createPipe("processor", StageType.PROCESSOR, originOutput, processorOutput);
+    target = createPipe("target", StageType.TARGET, processorOutput, Collections.emptyList());
+  }
+
+  // Stage and pipe lanes have the same names, the batch only relies on them being in the same order
+  private StagePipe createPipe(String name, StageType type, List<String> inputLanes, List<String> outputLanes) {
+    StageLibraryDefinition library = new StageLibraryDefinition(
+        getClass().getClassLoader(),
+        "benchmark",
+        "Benchmark",
+        new Properties(),
+        null,
+        null,
+        null
+    );
+    StageDefinition definition = new StageDefinition(
+        library,
+        false,
+        null,
+        name,
+        1,
+        name,
+        name,
+        type,
+        false,
+        false,
+        false,
+        Collections.emptyList(),
+        null,
+        "",
+        null,
+        false,
+        outputLanes.size(),
+        null,
+        Collections.singletonList(ExecutionMode.STANDALONE),
+        false,
+        null,
+        Collections.emptyList(),
+        false,
+        "",
+        false,
+        false,
+        false,
+        false,
+        Collections.emptyList(),
+        Collections.emptyList()
+    );
+    StageConfiguration configuration = new StageConfiguration(
+        name,
+        "benchmark",
+        name,
+        1,
+        Collections.emptyList(),
+        null,
+        Collections.emptyList(),
+        inputLanes,
+        outputLanes,
+        Collections.emptyList()
+    );
+    StageBean bean = new StageBean(
+        definition,
+        configuration,
+        null,
+        null,
+        null,
+        Collections.emptyList(),
+        Collections.emptyList(),
+        Collections.emptyList()
+    );
+    StageRuntime runtime = new StageRuntime(
+        null,
+        bean,
+        Collections.emptyList(),
+        Collections.emptyList(),
+        Collections.emptyList()
+    );
+    Configuration sdcConfiguration = new Configuration();
+    StageContext context = new StageContext(
+        name,
+        type,
+        0,
+        false,
+        OnRecordError.TO_ERROR,
+        outputLanes,
+        Collections.emptyMap(),
+        Collections.emptyMap(),
+        ExecutionMode.STANDALONE,
+        DeliveryGuarantee.AT_LEAST_ONCE,
+        null,
+        new EmailSender(sdcConfiguration),
+        sdcConfiguration,
+        new LineagePublisherDelegator.NoopDelegator(),
+        new StandaloneRuntimeInfo(
+            RuntimeModule.SDC_PROPERTY_PREFIX,
+            new MetricRegistry(),
+            Collections.singletonList(getClass().getClassLoader())
+        ),
+        Collections.emptyMap()
+    );
+    context.setCopyOnWriteRecords(copyOnWrite);
+    runtime.setContext(context);
+    return new StagePipe(
+        "benchmark",
+        "0",
+        sdcConfiguration,
+        runtime,
+        inputLanes,
+        outputLanes,
+        Collections.emptyList(),
+        null,
+        null,
+        null
+    );
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(BATCH_SIZE)
+  public BatchImpl batch() throws Exception {
+    FullPipeBatch pipeBatch = new FullPipeBatch(null, null, BATCH_SIZE, false);
+
+    BatchMakerImpl originMaker = pipeBatch.startStage(origin);
+    for (Record record : records) {
+      originMaker.addRecord(record);
+    }
+    pipeBatch.completeStage(originMaker, Collections.emptyList());
+
+    BatchImpl batch = pipeBatch.getBatch(processor, Collections.emptyList());
+    BatchMakerImpl processorMaker = pipeBatch.startStage(processor);
+    Iterator<Record> iterator = batch.getRecords();
+    while (iterator.hasNext()) {
+      processorMaker.addRecord(iterator.next());
+    }
+    pipeBatch.completeStage(processorMaker, Collections.emptyList());
+
+    return pipeBatch.getBatch(target, Collections.emptyList());
+  }
+}
@@ -815,7 +815,7 @@ public class ClusterHdfsSource extends BaseSource implements OffsetCommitter, Er
   private List<Record> processMessage(String messageId, Object message) throws StageException {
     List<Record> records = new ArrayList<>();
     if (conf.dataFormat == DataFormat.AVRO) {
-      try (DataParser parser = parserFactory.getParser(messageId, (byte[]) message)) {
+      try (DataParser parser = parserFactory.getMessageParser(messageId, (byte[]) message)) {
         Record record = parser.parse();
         if (record != null) {
           setHeaders(record);
@@ -0,0 +1,58 @@
+/*
+ * Copyright 2018 StreamSets Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.streamsets.pipeline.lib.generator;
+
+import java.io.FilterWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+
+/**
+ * Base class of the factories of formats that write characters, all their generators write to a {@link Writer}
+ * created with {@link #createWriter(OutputStream)}.
+ */
+public abstract class CharDataGeneratorFactory extends DataGeneratorFactory {
+
+  protected CharDataGeneratorFactory(Settings settings) {
+    super(settings);
+  }
+
+  @Override
+  public DataGenerator getGenerator(OutputStream os) throws IOException {
+    return getGenerator(createWriter(os));
+  }
+
+  /**
+   * Returns a generator writing to given writer, the generator closes the writer when closed.
+   */
+  protected abstract DataGenerator getGenerator(Writer writer) throws IOException;
+
+  /**
+   * The writer, and so its encoder buffers, is shared by all the outputs of the returned generator.
+   */
+  @Override
+  public ResettableDataGenerator getResettableGenerator(OutputStream os) throws IOException {
+    Writer writer = createWriter(os);
+    Writer shield = new FilterWriter(writer) {
+      @Override
+      public void close() throws IOException {
+        flush();
+      }
+    };
+    return new RecreatingDataGenerator(() -> getGenerator(shield), writer);
+  }
+
+}
@@ -18,6 +18,7 @@ package com.streamsets.pipeline.lib.generator;
 
 import com.streamsets.pipeline.lib.data.DataFactory;
 import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.output.CloseShieldOutputStream;
 
 import java.io.File;
 import java.io.FileOutputStream;
@@ -53,6 +54,15 @@ public abstract class DataGeneratorFactory extends DataFactory {
 
   public abstract DataGenerator getGenerator(OutputStream os) throws IOException;
 
+  /**
+   * Returns a generator that can be reset to write several independent outputs to given stream, for example to
+   * serialize one record per message. By default a new generator is created for every output.
+   */
+  public ResettableDataGenerator getResettableGenerator(OutputStream os) throws IOException {
+    OutputStream shield = new CloseShieldOutputStream(os);
+    return new RecreatingDataGenerator(() -> getGenerator(shield), os);
+  }
+
   public Writer createWriter(OutputStream os) {
     return new OutputStreamWriter(os, getSettings().getCharset());
   }
@@ -0,0 +1,140 @@
+/*
+ * Copyright 2018 StreamSets Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.streamsets.pipeline.lib.generator;
+
+import com.streamsets.pipeline.api.Record;
+import org.apache.commons.io.IOUtils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+
+/**
+ * Serializes records one at a time (one message per record) with a single resettable generator and a byte buffer
+ * reused across records, so that a record costs no allocation other than the returned bytes.
+ *
+ * Not thread safe, meant to be owned by a stage instance.
+ */
+public class RecordSerializer implements Closeable {
+  private static final int INITIAL_SIZE = 1024;
+  // Buffers grown past this size for an unusually large record are released after it
+  private static final int MAX_RETAINED_SIZE = 1024 * 1024;
+
+  static class ReusableByteArrayOutputStream extends ByteArrayOutputStream {
+    ReusableByteArrayOutputStream() {
+      super(INITIAL_SIZE);
+    }
+
+    // Writes the content without leading and trailing line separators, expects an ASCII compatible charset
+    void writeTrimmedTo(OutputStream out) throws IOException {
+      int start = 0;
+      int end = count;
+      while (start < end && isLineSeparator(buf[start])) {
+        start++;
+      }
+      while (end > start && isLineSeparator(buf[end - 1])) {
+        end--;
+      }
+      out.write(buf, start, end - start);
+    }
+
+    private static boolean isLineSeparator(byte b) {
+      return b == '\n' || b == '\r';
+    }
+
+    void release() {
+      reset();
+      if (buf.length > MAX_RETAINED_SIZE) {
+        buf = new byte[INITIAL_SIZE];
+      }
+    }
+  }
+
+  private final DataGeneratorFactory factory;
+  private final ReusableByteArrayOutputStream buffer;
+  private ResettableDataGenerator generator;
+
+  public RecordSerializer(DataGeneratorFactory factory) {
+    this.factory = factory;
+    this.buffer = new ReusableByteArrayOutputStream();
+  }
+
+  /**
+   * Returns the serialized record.
+   */
+  public byte[] serialize(Record record) throws IOException, DataGeneratorException {
+    generate(record);
+    try {
+      return buffer.toByteArray();
+    } finally {
+      buffer.release();
+    }
+  }
+
+  /**
+   * Returns the serialized record decoded with given charset, for clients that send text.
+   */
+  public String serializeToString(Record record, Charset charset) throws IOException, DataGeneratorException {
+    generate(record);
+    try {
+      return buffer.toString(charset.name());
+    } finally {
+      buffer.release();
+    }
+  }
+
+  /**
+   * Writes the serialized record to given stream without the line separators around it (like the root value separator
+   * of multiple objects JSON), for clients that embed records in a larger document. Expects an ASCII compatible
+   * charset.
+   */
+  public void serializeTrimmed(Record record, OutputStream out) throws IOException, DataGeneratorException {
+    generate(record);
+    try {
+      buffer.writeTrimmedTo(out);
+    } finally {
+      buffer.release();
+    }
+  }
+
+  private void generate(Record record) throws IOException, DataGeneratorException {
+    buffer.reset();
+    try {
+      if (generator == null) {
+        generator = factory.getResettableGenerator(buffer);
+      }
+      generator.write(record);
+      generator.reset();
+    } catch (IOException | DataGeneratorException | RuntimeException e) {
+      // The generator may be left half way through the record, start over with a new one
+      IOUtils.closeQuietly(generator);
+      generator = null;
+      buffer.release();
+      throw e;
+    }
+  }
+
+  @Override
+  public void close() throws IOException {
+    if (generator != null) {
+      generator.close();
+      generator = null;
+    }
+  }
+
+}
@@ -0,0 +1,88 @@
+/*
+ * Copyright 2018 StreamSets Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.streamsets.pipeline.lib.generator;
+
+import com.streamsets.pipeline.api.Record;
+
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+
+/**
+ * Resettable generator that creates a format generator for every output, keeping the stream (or the writer and its
+ * encoding buffers for character formats) across outputs.
+ */
+public class RecreatingDataGenerator implements ResettableDataGenerator {
+
+  public interface Creator {
+    DataGenerator create() throws IOException;
+  }
+
+  private final Creator creator;
+  private final Closeable out;
+  private DataGenerator generator;
+
+  /**
+   * @param creator creates the generator of every output, those must not close the stream when closed.
+   * @param out the stream (or writer) the generators write to, flushed on reset and closed on close.
+   */
+  public RecreatingDataGenerator(Creator creator, Closeable out) {
+    this.creator = creator;
+    this.out = out;
+  }
+
+  @Override
+  public void write(Record record) throws IOException, DataGeneratorException {
+    if (generator == null) {
+      generator = creator.create();
+    }
+    generator.write(record);
+  }
+
+  @Override
+  public void flush() throws IOException {
+    if (generator != null) {
+      generator.flush();
+    }
+    if (out instanceof Flushable) {
+      ((Flushable) out).flush();
+    }
+  }
+
+  @Override
+  public void reset() throws IOException {
+    try {
+      if (generator != null) {
+        generator.close();
+      }
+    } finally {
+      generator = null;
+      if (out instanceof Flushable) {
+        ((Flushable) out).flush();
+      }
+    }
+  }
+
+  @Override
+  public void close() throws IOException {
+    try {
+      reset();
+    } finally {
+      out.close();
+    }
+  }
+
+}
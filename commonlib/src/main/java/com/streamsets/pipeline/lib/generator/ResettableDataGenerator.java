@@ -0,0 +1,32 @@
+/*
+ * Copyright 2018 StreamSets Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.streamsets.pipeline.lib.generator;
+
+import java.io.IOException;
+
+/**
+ * Generator that can produce several independent outputs on the same stream, for example one message per record,
+ * without being recreated for every output.
+ */
+public interface ResettableDataGenerator extends DataGenerator {
+
+  /**
+   * Completes the output written so far exactly like {@link #close()} would, but keeps the stream open. The next
+   * record written starts a new output (headers, array starts and the like are written again).
+   */
+  public void reset() throws IOException;
+
+}
@@ -18,19 +18,19 @@ package com.streamsets.pipeline.lib.generator.delimited;
 import com.google.common.collect.ImmutableSet;
 import com.streamsets.pipeline.config.CsvHeader;
 import com.streamsets.pipeline.config.CsvMode;
-import com.streamsets.pipeline.lib.generator.DataGeneratorFactory;
+import com.streamsets.pipeline.lib.generator.CharDataGeneratorFactory;
 import com.streamsets.pipeline.lib.generator.DataGenerator;
 import com.streamsets.pipeline.lib.util.DelimitedDataConstants;
 import org.apache.commons.csv.CSVFormat;
 
 import java.io.IOException;
-import java.io.OutputStream;
+import java.io.Writer;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Set;
 
-public class DelimitedDataGeneratorFactory extends DataGeneratorFactory {
+public class DelimitedDataGeneratorFactory extends CharDataGeneratorFactory {
   static final String KEY_PREFIX = "delimited.";
   public static final String HEADER_KEY = KEY_PREFIX + "header";
   static final String HEADER_DEFAULT = "header";
@@ -80,14 +80,14 @@ public class DelimitedDataGeneratorFactory extends DataGeneratorFactory {
   }
 
   @Override
-  public DataGenerator getGenerator(OutputStream os) throws IOException {
+  protected DataGenerator getGenerator(Writer writer) throws IOException {
     CSVFormat csvFormat = getSettings().getMode(CsvMode.class).getFormat();
     if (getSettings().getMode(CsvMode.class) == CsvMode.CUSTOM) {
       csvFormat = CSVFormat.DEFAULT.withDelimiter((char)getSettings().getConfig(DelimitedDataConstants.DELIMITER_CONFIG))
         .withEscape((char) getSettings().getConfig(DelimitedDataConstants.ESCAPE_CONFIG))
         .withQuote((char)getSettings().getConfig(DelimitedDataConstants.QUOTE_CONFIG));
     }
-    return new DelimitedCharDataGenerator(createWriter(os), csvFormat, header, headerKey, valueKey, replaceNewLines ? replaceNewLinesString : null);
+    return new DelimitedCharDataGenerator(writer, csvFormat, header, headerKey, valueKey, replaceNewLines ? replaceNewLinesString : null);
   }
 
 }
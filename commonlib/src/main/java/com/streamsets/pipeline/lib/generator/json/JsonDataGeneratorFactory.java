@@ -17,16 +17,16 @@ package com.streamsets.pipeline.lib.generator.json;
 
 import com.google.common.collect.ImmutableSet;
 import com.streamsets.pipeline.api.ext.json.Mode;
+import com.streamsets.pipeline.lib.generator.CharDataGeneratorFactory;
 import com.streamsets.pipeline.lib.generator.DataGenerator;
-import com.streamsets.pipeline.lib.generator.DataGeneratorFactory;
 
 import java.io.IOException;
-import java.io.OutputStream;
+import java.io.Writer;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Set;
 
-public class JsonDataGeneratorFactory extends DataGeneratorFactory {
+public class JsonDataGeneratorFactory extends CharDataGeneratorFactory {
 
   public static final Map<String, Object> CONFIGS = new HashMap<>();
 
@@ -41,8 +41,8 @@ public class JsonDataGeneratorFactory extends DataGeneratorFactory {
   }
 
   @Override
-  public DataGenerator getGenerator(OutputStream os) throws IOException {
-    return new JsonCharDataGenerator(getSettings().getContext(), createWriter(os), mode);
+  protected DataGenerator getGenerator(Writer writer) throws IOException {
+    return new JsonCharDataGenerator(getSettings().getContext(), writer, mode);
   }
 
 }
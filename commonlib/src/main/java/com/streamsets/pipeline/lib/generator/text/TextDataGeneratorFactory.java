@@ -17,18 +17,18 @@ package com.streamsets.pipeline.lib.generator.text;
 
 import com.google.common.collect.ImmutableSet;
 import com.streamsets.pipeline.config.TextFieldMissingAction;
-import com.streamsets.pipeline.lib.generator.DataGeneratorFactory;
+import com.streamsets.pipeline.lib.generator.CharDataGeneratorFactory;
 import com.streamsets.pipeline.lib.generator.DataGenerator;
 import org.apache.commons.lang.StringEscapeUtils;
 
 import java.io.IOException;
-import java.io.OutputStream;
+import java.io.Writer;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Set;
 
-public class TextDataGeneratorFactory extends DataGeneratorFactory {
+public class TextDataGeneratorFactory extends CharDataGeneratorFactory {
   static final String KEY_PREFIX = "text.";
   public static final String FIELD_PATH_KEY = KEY_PREFIX + "fieldPath";
   static final String FIELD_PATH_DEFAULT = "";
@@ -68,9 +68,9 @@ public class TextDataGeneratorFactory extends DataGeneratorFactory {
   }
 
   @Override
-  public DataGenerator getGenerator(OutputStream os) throws IOException {
+  protected DataGenerator getGenerator(Writer writer) throws IOException {
     return new TextCharDataGenerator(
-      createWriter(os),
+      writer,
       fieldPath,
       recordSeparatorIfNullDefault,
       recordSeparator,
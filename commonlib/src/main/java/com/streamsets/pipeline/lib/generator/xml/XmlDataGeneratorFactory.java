@@ -17,18 +17,18 @@ package com.streamsets.pipeline.lib.generator.xml;
 
 import com.google.common.collect.ImmutableSet;
 import com.streamsets.pipeline.api.impl.Utils;
+import com.streamsets.pipeline.lib.generator.CharDataGeneratorFactory;
 import com.streamsets.pipeline.lib.generator.DataGenerator;
-import com.streamsets.pipeline.lib.generator.DataGeneratorFactory;
 
 import java.io.IOException;
-import java.io.OutputStream;
+import java.io.Writer;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
-public class XmlDataGeneratorFactory extends DataGeneratorFactory {
+public class XmlDataGeneratorFactory extends CharDataGeneratorFactory {
 
   public static final Map<String, Object> CONFIGS;
 
@@ -63,8 +63,8 @@ public class XmlDataGeneratorFactory extends DataGeneratorFactory {
   }
 
   @Override
-  public DataGenerator getGenerator(OutputStream os) throws IOException {
-    return new XmlCharDataGenerator(createWriter(os), isSchemaValidation(), getSchemas(), isPrettyFormat());
+  protected DataGenerator getGenerator(Writer writer) throws IOException {
+    return new XmlCharDataGenerator(writer, isSchemaValidation(), getSchemas(), isPrettyFormat());
   }
 
   boolean isSchemaValidation() {
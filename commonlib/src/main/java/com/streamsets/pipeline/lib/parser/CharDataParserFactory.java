@@ -0,0 +1,48 @@
+/*
+ * Copyright 2018 StreamSets Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.streamsets.pipeline.lib.parser;
+
+/**
+ * Base class of the factories of character based parsers (the ones that parse whatever an OverrunReader returns).
+ *
+ * Message parsers decode the payload with a reader owned by the calling thread, instead of creating a decoding and a
+ * buffered reader for every message.
+ */
+public abstract class CharDataParserFactory extends DataParserFactory {
+  private final ThreadLocal<MessageReader> messageReaders;
+
+  protected CharDataParserFactory(Settings settings) {
+    super(settings);
+    messageReaders = ThreadLocal.withInitial(() -> new MessageReader(getSettings().getCharset()));
+  }
+
+  @Override
+  public DataParser getMessageParser(String id, byte[] data, int offset, int len) throws DataParserException {
+    MessageReader reader = messageReaders.get();
+    if (reader.isInUse()) {
+      // the parser of a previous message of this thread has not been closed
+      return getParser(id, data, offset, len);
+    }
+    reader.setMessage(data, offset, len);
+    try {
+      return getParser(id, reader, 0);
+    } catch (DataParserException | RuntimeException ex) {
+      reader.close();
+      throw ex;
+    }
+  }
+
+}
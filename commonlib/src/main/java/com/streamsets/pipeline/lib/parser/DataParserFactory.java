@@ -50,6 +50,20 @@ public abstract class DataParserFactory extends DataFactory {
     return getParser(id, data, 0, data.length);
   }
 
+  /**
+   * Returns a parser for given message payload, to be closed before the calling thread parses its next message.
+   *
+   * Factories can reuse buffers of the calling thread across messages, by default it is the same as
+   * {@link #getParser(String, byte[], int, int)}.
+   */
+  public DataParser getMessageParser(String id, byte[] data, int offset, int len) throws DataParserException {
+    return getParser(id, data, offset, len);
+  }
+
+  public DataParser getMessageParser(String id, byte[] data) throws DataParserException {
+    return getMessageParser(id, data, 0, data.length);
+  }
+
   public DataParser getParser(String id, String data) throws DataParserException {
     return getParser(id, new StringReader(data));
   }
@@ -98,7 +112,7 @@ public abstract class DataParserFactory extends DataFactory {
   }
 
   private Reader bufferReader(Reader reader) {
-    if (reader instanceof BufferedReader) {
+    if (reader instanceof BufferedReader || reader instanceof MessageReader) {
       return reader;
     }
     return new BufferedReader(reader);
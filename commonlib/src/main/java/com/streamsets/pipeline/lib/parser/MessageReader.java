@@ -0,0 +1,142 @@
+/*
+ * Copyright 2018 StreamSets Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.streamsets.pipeline.lib.parser;
+
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+
+/**
+ * Reader over the decoded characters of a message payload that can be pointed at a new payload, so that the decoder
+ * and the character buffer are reused across messages instead of building an InputStreamReader and a BufferedReader
+ * (and their 8KB buffers) for every message.
+ *
+ * Malformed and unmappable input is replaced, as InputStreamReader does. Not thread safe.
+ */
+class MessageReader extends Reader {
+  private static final int INITIAL_SIZE = 1024;
+  // Buffers grown past this size for an unusually large message are released on the next message
+  private static final int MAX_RETAINED_SIZE = 1024 * 1024;
+
+  private final CharsetDecoder decoder;
+  private CharBuffer buffer;
+  private int mark;
+  private boolean inUse;
+
+  MessageReader(Charset charset) {
+    decoder = charset.newDecoder()
+        .onMalformedInput(CodingErrorAction.REPLACE)
+        .onUnmappableCharacter(CodingErrorAction.REPLACE);
+    buffer = CharBuffer.allocate(INITIAL_SIZE);
+  }
+
+  /**
+   * Returns if the reader is pointed at a message that has not been closed yet.
+   */
+  boolean isInUse() {
+    return inUse;
+  }
+
+  /**
+   * Decodes given payload, the reader then returns its characters from the beginning.
+   */
+  void setMessage(byte[] data, int offset, int len) {
+    int size = (int) Math.ceil(len * (double) decoder.maxCharsPerByte());
+    if (buffer.capacity() < size || (buffer.capacity() > MAX_RETAINED_SIZE && size <= MAX_RETAINED_SIZE)) {
+      buffer = CharBuffer.allocate(Math.max(size, INITIAL_SIZE));
+    }
+    buffer.clear();
+    decoder.reset();
+    ByteBuffer in = ByteBuffer.wrap(data, offset, len);
+    // The buffer only overflows for charsets that don't honor maxCharsPerByte
+    CoderResult result = decoder.decode(in, buffer, true);
+    while (result.isOverflow()) {
+      grow();
+      result = decoder.decode(in, buffer, true);
+    }
+    while (decoder.flush(buffer).isOverflow()) {
+      grow();
+    }
+    buffer.flip();
+    mark = 0;
+    inUse = true;
+  }
+
+  private void grow() {
+    CharBuffer larger = CharBuffer.allocate(buffer.capacity() * 2);
+    buffer.flip();
+    larger.put(buffer);
+    buffer = larger;
+  }
+
+  @Override
+  public int read() {
+    return buffer.hasRemaining() ? buffer.get() : -1;
+  }
+
+  @Override
+  public int read(char[] cbuf, int off, int len) {
+    if (len == 0) {
+      return 0;
+    }
+    if (!buffer.hasRemaining()) {
+      return -1;
+    }
+    int count = Math.min(len, buffer.remaining());
+    buffer.get(cbuf, off, count);
+    return count;
+  }
+
+  @Override
+  public long skip(long n) {
+    int count = (int) Math.min(Math.max(n, 0), buffer.remaining());
+    buffer.position(buffer.position() + count);
+    return count;
+  }
+
+  @Override
+  public boolean ready() {
+    return true;
+  }
+
+  @Override
+  public boolean markSupported() {
+    return true;
+  }
+
+  @Override
+  public void mark(int readAheadLimit) {
+    mark = buffer.position();
+  }
+
+  @Override
+  public void reset() {
+    buffer.position(mark);
+  }
+
+  /**
+   * Releases the message, the reader remains usable for the next one.
+   */
+  @Override
+  public void close() {
+    inUse = false;
+  }
+
+}
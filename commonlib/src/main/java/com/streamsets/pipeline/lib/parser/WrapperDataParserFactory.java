@@ -46,6 +46,16 @@ public class WrapperDataParserFactory extends DataParserFactory {
     return new WrapperDataParser(factory.getParser(id, data));
   }
 
+  @Override
+  public DataParser getMessageParser(String id, byte[] data, int offset, int len) throws DataParserException {
+    return new WrapperDataParser(factory.getMessageParser(id, data, offset, len));
+  }
+
+  @Override
+  public DataParser getMessageParser(String id, byte[] data) throws DataParserException {
+    return new WrapperDataParser(factory.getMessageParser(id, data));
+  }
+
   @Override
   public DataParser getParser(String id, String data) throws DataParserException {
     return new WrapperDataParser(factory.getParser(id, data));
@@ -22,9 +22,9 @@ import com.streamsets.pipeline.api.impl.Utils;
 import com.streamsets.pipeline.config.CsvHeader;
 import com.streamsets.pipeline.config.CsvMode;
 import com.streamsets.pipeline.config.CsvRecordType;
+import com.streamsets.pipeline.lib.parser.CharDataParserFactory;
 import com.streamsets.pipeline.lib.parser.DataParser;
 import com.streamsets.pipeline.lib.parser.DataParserException;
-import com.streamsets.pipeline.lib.parser.DataParserFactory;
 import com.streamsets.pipeline.lib.util.DelimitedDataConstants;
 import org.apache.commons.csv.CSVFormat;
 
@@ -34,7 +34,7 @@ import java.io.Reader;
 import java.util.Map;
 import java.util.Set;
 
-public class DelimitedDataParserFactory extends DataParserFactory {
+public class DelimitedDataParserFactory extends CharDataParserFactory {
 
   public static final Map<String, Object> CONFIGS = ImmutableMap.<String, Object>builder()
       .put(DelimitedDataConstants.DELIMITER_CONFIG, '|')
@@ -58,7 +58,7 @@ public class JsonCharDataParser extends AbstractDataParser {
         readerOffset,
         maxObjectLen,
         mode,
-        Object.class
+        Field.class
     );
   }
 
@@ -83,7 +83,7 @@ public class JsonCharDataParser extends AbstractDataParser {
     long offset = parser.getReaderPosition();
     try {
       Object json = parser.read();
-      return (json != null) ? jsonToField(json,  offset) : null;
+      return (json != null) ? toField(json, offset) : null;
     } catch (ObjectLengthException ex) {
       throw new DataParserException(Errors.JSON_PARSER_02, readerId, offset, maxObjectLen);
     }
@@ -91,10 +91,15 @@ public class JsonCharDataParser extends AbstractDataParser {
 
   protected Record createRecord(long offset, Object json) throws DataParserException {
     Record record = context.createRecord(readerId + "::" + offset);
-    record.set(jsonToField(json,  offset));
+    record.set(toField(json, offset));
     return record;
   }
 
+  // The reader builds the Field straight from the JSON tokens, older readers still hand over maps and lists
+  private Field toField(Object json, long offset) throws DataParserException {
+    return (json instanceof Field) ? (Field) json : jsonToField(json, offset);
+  }
+
   @SuppressWarnings("unchecked")
   protected Field jsonToField(Object json, long offset) throws DataParserException {
     Field field;
@@ -19,9 +19,9 @@ import com.google.common.collect.ImmutableSet;
 import com.streamsets.pipeline.api.ext.io.OverrunReader;
 import com.streamsets.pipeline.api.impl.Utils;
 import com.streamsets.pipeline.config.JsonMode;
+import com.streamsets.pipeline.lib.parser.CharDataParserFactory;
 import com.streamsets.pipeline.lib.parser.DataParser;
 import com.streamsets.pipeline.lib.parser.DataParserException;
-import com.streamsets.pipeline.lib.parser.DataParserFactory;
 
 import java.io.IOException;
 import java.io.InputStream;
@@ -30,7 +30,7 @@ import java.util.Collections;
 import java.util.Map;
 import java.util.Set;
 
-public class JsonDataParserFactory extends DataParserFactory {
+public class JsonDataParserFactory extends CharDataParserFactory {
   public static final Map<String, Object> CONFIGS = Collections.emptyMap();
 
   @SuppressWarnings("umchecked")
@@ -18,9 +18,9 @@ package com.streamsets.pipeline.lib.parser.net.syslog;
 import com.google.common.collect.ImmutableSet;
 import com.streamsets.pipeline.api.ext.io.OverrunReader;
 import com.streamsets.pipeline.api.impl.Utils;
+import com.streamsets.pipeline.lib.parser.CharDataParserFactory;
 import com.streamsets.pipeline.lib.parser.DataParser;
 import com.streamsets.pipeline.lib.parser.DataParserException;
-import com.streamsets.pipeline.lib.parser.DataParserFactory;
 
 import java.io.InputStream;
 import java.io.Reader;
@@ -28,7 +28,7 @@ import java.util.Collections;
 import java.util.Map;
 import java.util.Set;
 
-public class SyslogDataParserFactory extends DataParserFactory {
+public class SyslogDataParserFactory extends CharDataParserFactory {
   public static final Map<String, Object> CONFIGS = Collections.emptyMap();
 
   public static final Set<Class<? extends Enum>> MODES = ImmutableSet.of();
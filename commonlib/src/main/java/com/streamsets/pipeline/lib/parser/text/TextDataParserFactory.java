@@ -18,9 +18,9 @@ package com.streamsets.pipeline.lib.parser.text;
 import com.google.common.annotations.VisibleForTesting;
 import com.streamsets.pipeline.api.impl.Utils;
 import com.streamsets.pipeline.api.ext.io.OverrunReader;
+import com.streamsets.pipeline.lib.parser.CharDataParserFactory;
 import com.streamsets.pipeline.lib.parser.DataParser;
 import com.streamsets.pipeline.lib.parser.DataParserException;
-import com.streamsets.pipeline.lib.parser.DataParserFactory;
 import org.apache.commons.lang.StringEscapeUtils;
 import org.apache.commons.pool2.impl.GenericObjectPool;
 
@@ -32,7 +32,7 @@ import java.util.HashMap;
 import java.util.Map;
 import java.util.Set;
 
-public class TextDataParserFactory extends DataParserFactory {
+public class TextDataParserFactory extends CharDataParserFactory {
   public static final String MULTI_LINE_KEY = "multiLines";
   public static final boolean MULTI_LINE_DEFAULT = false;
   public static final String USE_CUSTOM_DELIMITER_KEY = "useCustomDelimiter";
@@ -18,7 +18,7 @@ package com.streamsets.pipeline.lib.parser.xml;
 import com.google.common.collect.ImmutableMap;
 import com.streamsets.pipeline.api.impl.Utils;
 import com.streamsets.pipeline.api.ext.io.OverrunReader;
-import com.streamsets.pipeline.lib.parser.DataParserFactory;
+import com.streamsets.pipeline.lib.parser.CharDataParserFactory;
 import com.streamsets.pipeline.lib.parser.DataParser;
 import com.streamsets.pipeline.lib.parser.DataParserException;
 
@@ -30,7 +30,7 @@ import java.util.HashMap;
 import java.util.Map;
 import java.util.Set;
 
-public class XmlDataParserFactory extends DataParserFactory {
+public class XmlDataParserFactory extends CharDataParserFactory {
   static final String KEY_PREFIX = "xml.";
   public static final String RECORD_ELEMENT_KEY = KEY_PREFIX + "record.element";
   static final String RECORD_ELEMENT_DEFAULT = "";
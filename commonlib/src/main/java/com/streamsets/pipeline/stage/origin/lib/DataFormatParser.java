@@ -411,7 +411,7 @@ public class DataFormatParser {
 
   public <CT extends Stage.Context & ToErrorContext> List<Record> parse(CT context, String messageId, byte[] payload) throws StageException {
     List<Record> records = new ArrayList<>();
-    try (DataParser parser = parserFactory.getParser(messageId, payload)) {
+    try (DataParser parser = parserFactory.getMessageParser(messageId, payload)) {
       Record record = null;
       do {
         try {
@@ -0,0 +1,121 @@
+/*
+ * Copyright 2018 StreamSets Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.streamsets.pipeline.lib.generator;
+
+import com.google.common.collect.ImmutableList;
+import com.streamsets.pipeline.api.Field;
+import com.streamsets.pipeline.api.OnRecordError;
+import com.streamsets.pipeline.api.Record;
+import com.streamsets.pipeline.api.Stage;
+import com.streamsets.pipeline.api.ext.json.Mode;
+import com.streamsets.pipeline.config.CsvHeader;
+import com.streamsets.pipeline.config.CsvMode;
+import com.streamsets.pipeline.sdk.ContextInfoCreator;
+import com.streamsets.pipeline.sdk.RecordCreator;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+
+public class TestRecordSerializer {
+
+  private static Record createRecord(String value) {
+    LinkedHashMap<String, Field> map = new LinkedHashMap<>();
+    map.put("a", Field.create(value));
+    Record record = RecordCreator.create();
+    record.set(Field.createListMap(map));
+    return record;
+  }
+
+  private static DataGeneratorFactory createFactory(DataGeneratorFormat format, Enum... modes) {
+    Stage.Context context = ContextInfoCreator.createTargetContext("i", false, OnRecordError.TO_ERROR);
+    DataGeneratorFactoryBuilder builder = new DataGeneratorFactoryBuilder(context, format);
+    for (Enum mode : modes) {
+      builder.setMode(mode);
+    }
+    return builder.build();
+  }
+
+  @Test
+  public void testOneOutputPerRecord() throws Exception {
+    // Every record is a complete array, not an element of a single one
+    RecordSerializer serializer = new RecordSerializer(
+        createFactory(DataGeneratorFormat.JSON, Mode.ARRAY_OBJECTS)
+    );
+    Assert.assertEquals("[{\"a\":\"x\"}]", new String(serializer.serialize(createRecord("x")), StandardCharsets.UTF_8));
+    Assert.assertEquals("[{\"a\":\"y\"}]", serializer.serializeToString(createRecord("y"), StandardCharsets.UTF_8));
+    serializer.close();
+  }
+
+  @Test
+  public void testHeaderPerRecord() throws Exception {
+    RecordSerializer serializer = new RecordSerializer(
+        createFactory(DataGeneratorFormat.DELIMITED, CsvMode.CSV, CsvHeader.WITH_HEADER)
+    );
+    for (String value : ImmutableList.of("x", "y")) {
+      Assert.assertEquals("a\r\n" + value + "\r\n", serializer.serializeToString(createRecord(value), StandardCharsets.UTF_8));
+    }
+    serializer.close();
+  }
+
+  @Test
+  public void testSameAsNewGenerator() throws Exception {
+    DataGeneratorFactory factory = createFactory(DataGeneratorFormat.JSON, Mode.MULTIPLE_OBJECTS);
+    RecordSerializer serializer = new RecordSerializer(factory);
+    for (String value : ImmutableList.of("x", "y", "z")) {
+      Record record = createRecord(value);
+      ByteArrayOutputStream baos = new ByteArrayOutputStream();
+      try (DataGenerator generator = factory.getGenerator(baos)) {
+        generator.write(record);
+      }
+      Assert.assertArrayEquals(baos.toByteArray(), serializer.serialize(record));
+    }
+    serializer.close();
+  }
+
+  @Test
+  public void testSerializeTrimmed() throws Exception {
+    RecordSerializer serializer = new RecordSerializer(createFactory(DataGeneratorFormat.JSON, Mode.MULTIPLE_OBJECTS));
+    ByteArrayOutputStream baos = new ByteArrayOutputStream();
+    baos.write('[');
+    serializer.serializeTrimmed(createRecord("x\n"), baos);
+    baos.write(',');
+    serializer.serializeTrimmed(createRecord("y"), baos);
+    baos.write(']');
+    // Only the separators around the records are removed, the escaped one in the value is kept
+    Assert.assertEquals("[{\"a\":\"x\\n\"},{\"a\":\"y\"}]", new String(baos.toByteArray(), StandardCharsets.UTF_8));
+    serializer.close();
+  }
+
+  @Test
+  public void testRecoversFromFailedRecord() throws Exception {
+    RecordSerializer serializer = new RecordSerializer(
+        createFactory(DataGeneratorFormat.DELIMITED, CsvMode.CSV, CsvHeader.NO_HEADER)
+    );
+    Record invalid = RecordCreator.create();
+    invalid.set(Field.create("x"));
+    try {
+      serializer.serialize(invalid);
+      Assert.fail("Expected DataGeneratorException");
+    } catch (DataGeneratorException ex) {
+      // expected, delimited records must have a list or list-map root field
+    }
+    Assert.assertEquals("y\r\n", serializer.serializeToString(createRecord("y"), StandardCharsets.UTF_8));
+    serializer.close();
+  }
+}
@@ -0,0 +1,125 @@
+/*
+ * Copyright 2018 StreamSets Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.streamsets.pipeline.lib.parser;
+
+import com.google.common.collect.ImmutableList;
+import com.streamsets.pipeline.api.OnRecordError;
+import com.streamsets.pipeline.api.Record;
+import com.streamsets.pipeline.api.Stage;
+import com.streamsets.pipeline.config.CsvHeader;
+import com.streamsets.pipeline.config.CsvMode;
+import com.streamsets.pipeline.config.CsvRecordType;
+import com.streamsets.pipeline.config.JsonMode;
+import com.streamsets.pipeline.sdk.ContextInfoCreator;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+public class TestCharDataParserFactory {
+
+  private static Stage.Context getContext() {
+    return ContextInfoCreator.createSourceContext("i", false, OnRecordError.TO_ERROR, Collections.emptyList());
+  }
+
+  private static List<Record> parseAll(DataParser parser) throws Exception {
+    List<Record> records = new ArrayList<>();
+    try {
+      Record record;
+      while ((record = parser.parse()) != null) {
+        records.add(record);
+      }
+    } finally {
+      parser.close();
+    }
+    return records;
+  }
+
+  @Test
+  public void testJsonMessages() throws Exception {
+    DataParserFactory factory = new DataParserFactoryBuilder(getContext(), DataParserFormat.JSON)
+        .setMaxDataLen(1000)
+        .setMode(JsonMode.MULTIPLE_OBJECTS)
+        .build();
+    for (String message : ImmutableList.of("{\"a\":\"h\u00e9llo\"}\n{\"a\":2}", "{\"a\":3}", "")) {
+      byte[] payload = message.getBytes(StandardCharsets.UTF_8);
+      List<Record> expected = parseAll(factory.getParser("id", payload));
+      List<Record> records = parseAll(factory.getMessageParser("id", payload));
+      Assert.assertEquals(expected.size(), records.size());
+      for (int i = 0; i < expected.size(); i++) {
+        Assert.assertEquals(expected.get(i).getHeader().getSourceId(), records.get(i).getHeader().getSourceId());
+        Assert.assertEquals(expected.get(i).get(), records.get(i).get());
+      }
+    }
+  }
+
+  @Test
+  public void testDelimitedMessagesWithHeader() throws Exception {
+    DataParserFactory factory = new DataParserFactoryBuilder(getContext(), DataParserFormat.DELIMITED)
+        .setMaxDataLen(1000)
+        .setMode(CsvMode.CSV)
+        .setMode(CsvHeader.WITH_HEADER)
+        .setMode(CsvRecordType.LIST_MAP)
+        .build();
+    // every message carries its own header
+    byte[] payload = "a,b\n1,2\n".getBytes(StandardCharsets.UTF_8);
+    for (int i = 0; i < 2; i++) {
+      List<Record> records = parseAll(factory.getMessageParser("id", payload));
+      Assert.assertEquals(1, records.size());
+      Assert.assertEquals("1", records.get(0).get("/a").getValueAsString());
+      Assert.assertEquals("2", records.get(0).get("/b").getValueAsString());
+    }
+  }
+
+  @Test
+  public void testMessageParserNotClosed() throws Exception {
+    DataParserFactory factory = new DataParserFactoryBuilder(getContext(), DataParserFormat.JSON)
+        .setMaxDataLen(1000)
+        .setMode(JsonMode.MULTIPLE_OBJECTS)
+        .build();
+    DataParser first = factory.getMessageParser("first", "{\"a\":1}".getBytes(StandardCharsets.UTF_8));
+    // the thread's reader is still in use by the first parser, the second message must not clobber it
+    DataParser second = factory.getMessageParser("second", "{\"a\":2}".getBytes(StandardCharsets.UTF_8));
+    Assert.assertEquals(2, parseAll(second).get(0).get("/a").getValueAsInteger());
+    Assert.assertEquals(1, parseAll(first).get(0).get("/a").getValueAsInteger());
+  }
+
+  @Test
+  public void testMessageReaderGrowsAndShrinks() throws Exception {
+    MessageReader reader = new MessageReader(StandardCharsets.UTF_8);
+    char[] chars = new char[2 * 1024 * 1024];
+    Arrays.fill(chars, 'x');
+    for (String message : ImmutableList.of("h\u00e9llo", new String(chars), "bye")) {
+      byte[] payload = ("<" + message + ">").getBytes(StandardCharsets.UTF_8);
+      reader.setMessage(payload, 1, payload.length - 2);
+      Assert.assertTrue(reader.isInUse());
+      StringBuilder sb = new StringBuilder();
+      char[] buffer = new char[100];
+      int read;
+      while ((read = reader.read(buffer, 0, buffer.length)) != -1) {
+        sb.append(buffer, 0, read);
+      }
+      Assert.assertEquals(message, sb.toString());
+      reader.close();
+      Assert.assertFalse(reader.isInUse());
+    }
+  }
+
+}
@@ -0,0 +1,42 @@
+/*
+ * Copyright 2018 StreamSets Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.streamsets.pipeline.container.el;
+
+import com.streamsets.pipeline.api.el.ELVars;
+
+/**
+ * EL variables that can be reused across records.
+ *
+ * Stages that create their {@link ELVars} once and evaluate expressions for many records should call
+ * {@link #reset(ELVars)} when they are done with a record, so that neither the record nor anything else set for it
+ * (field, field path, ...) stays referenced or is seen while evaluating the next one.
+ */
+public interface ResettableELVars extends ELVars {
+
+  /**
+   * Removes all variables and context variables, constants are kept.
+   */
+  void reset();
+
+  /**
+   * Resets the given variables if they support it, does nothing otherwise.
+   */
+  static void reset(ELVars vars) {
+    if (vars instanceof ResettableELVars) {
+      ((ResettableELVars) vars).reset();
+    }
+  }
+}
@@ -0,0 +1,42 @@
+/*
+ * Copyright 2018 StreamSets Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.streamsets.pipeline.container.record;
+
+import com.streamsets.pipeline.api.Field;
+import com.streamsets.pipeline.api.Record;
+
+/**
+ * Record whose field tree can be read without side effects.
+ *
+ * {@link Record#get()} has to assume the caller is going to modify the returned tree, so a copy-on-write record copies
+ * whatever it still shares with other records. Code that only reads the tree (e.g. to find the field paths matching
+ * an expression) should use {@link #getReadOnly(Record)} instead.
+ */
+public interface ReadOnlyRecord {
+
+  /**
+   * Returns the root field without copying any shared part of the tree. The returned fields must not be modified nor
+   * handed out to code that might modify them.
+   */
+  Field getReadOnly();
+
+  /**
+   * Returns the root field of the given record for reading only, without copying it when the record supports it.
+   */
+  static Field getReadOnly(Record record) {
+    return (record instanceof ReadOnlyRecord) ? ((ReadOnlyRecord) record).getReadOnly() : record.get();
+  }
+}
@@ -163,8 +163,13 @@ public abstract class ELDefinitionExtractor {
                                               fName, fAnnotation.description(), fAnnotation.implicitOnly(), fArgDefs,
                                               method.getReturnType().getSimpleName(), method
               );
-              elFunctionsIdx.put(fDef.getIndex(), fDef);
-              elFunctions.put(method, fDef);
+              // stage libraries are loaded concurrently, the first definition of a shared EL class wins
+              ElFunctionDefinition existing = elFunctions.putIfAbsent(method, fDef);
+              if (existing == null) {
+                elFunctionsIdx.put(fDef.getIndex(), fDef);
+              } else {
+                fDef = existing;
+              }
             }
           }
           if (fDef != null) {
@@ -231,8 +236,12 @@ public abstract class ELDefinitionExtractor {
               }
               cDef = new ElConstantDefinition(Integer.toString(indexCounter.incrementAndGet()), cName,
                                               cAnnotation.description(), field.getType().getSimpleName(), value);
-              elConstantsIdx.put(cDef.getIndex(), cDef);
-              elConstants.put(field, cDef);
+              ElConstantDefinition existing = elConstants.putIfAbsent(field, cDef);
+              if (existing == null) {
+                elConstantsIdx.put(cDef.getIndex(), cDef);
+              } else {
+                cDef = existing;
+              }
             }
           }
           if (cDef != null) {
@@ -15,12 +15,14 @@
  */
 package com.streamsets.datacollector.el;
 
+import com.google.common.annotations.VisibleForTesting;
 import com.streamsets.datacollector.definition.ELDefinitionExtractor;
 import com.streamsets.datacollector.util.ContainerCommonError;
 import com.streamsets.pipeline.api.el.ELEval;
 import com.streamsets.pipeline.api.el.ELEvalException;
 import com.streamsets.pipeline.api.el.ELVars;
 import com.streamsets.pipeline.api.impl.Utils;
+import org.apache.commons.el.CompiledExpression;
 import org.apache.commons.el.LruExpressionEvaluatorImpl;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -33,9 +35,30 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 public class ELEvaluator extends ELEval {
   private static final Logger LOG = LoggerFactory.getLogger(ELEvaluator.class);
+
+  /**
+   * Whether expressions should be compiled (parsed once with functions bound to direct calls) rather than interpreted
+   * on each evaluation. Results are the same in both modes, the interpreter is used as a fallback.
+   */
+  static final String COMPILE_PROPERTY = "com.streamsets.datacollector.el.ELEvaluator.compile";
+  private static final boolean COMPILE_DEFAULT = Boolean.parseBoolean(System.getProperty(COMPILE_PROPERTY, "true"));
+
+  /**
+   * Max number of compiled expressions kept per evaluator, anything above that is simply interpreted. Evaluators
+   * are created per stage configuration so the number of distinct expressions is usually very low.
+   */
+  private static final int MAX_COMPILED_EXPRESSIONS = Integer.parseInt(
+      System.getProperty("com.streamsets.datacollector.el.ELEvaluator.compile_cache_max", "1000")
+  );
+
+  // Marker for expressions that failed to compile so that we don't try again on every evaluation
+  private static final Object NOT_COMPILABLE = new Object();
+
   private final String configName;
   private final Map<String, Object> constants;
   private final Map<String, Map<String,Method>> functionsByNamespace;
@@ -43,6 +66,9 @@ public class ELEvaluator extends ELEval {
   private final List<ElFunctionDefinition> elFunctionDefinitions;
   private final List<ElConstantDefinition> elConstantDefinitions;
   private final ELDefinitionExtractor elDefinitionExtractor;
+  private boolean compile;
+  // Values are either CompiledExpression or NOT_COMPILABLE
+  private final ConcurrentMap<String, Object> compiledExpressions;
 
   // ExpressionEvaluatorImpl can be used as a singleton
   private static final LruExpressionEvaluatorImpl EVALUATOR = new LruExpressionEvaluatorImpl();
@@ -60,6 +86,8 @@ public class ELEvaluator extends ELEval {
     this.elDefinitionExtractor = elDefinitionExtractor;
     populateConstantsAndFunctions(explicit, elFuncConstDefClasses);
     this.functionMapper = new FunctionMapperImpl();
+    this.compile = COMPILE_DEFAULT;
+    this.compiledExpressions = new ConcurrentHashMap<>();
   }
 
   public ELEvaluator(String configName, ELDefinitionExtractor elDefinitionExtractor, Class<?>... elFuncConstDefClasses) {
@@ -128,22 +156,12 @@ public class ELEvaluator extends ELEval {
   @Override
   @SuppressWarnings("unchecked")
   public <T> T evaluate (final ELVars vars, String expression, Class<T> returnType) throws ELEvalException {
-    VariableResolver variableResolver = new VariableResolver() {
-
-      @Override
-      public Object resolveVariable(String name) throws ELException {
-        Object value = constants.get(name);
-        if (!vars.hasVariable(name)) {
-          if (value == null && !constants.containsKey(name)) {
-            throw new ELException(Utils.format("Constants/Variable '{}' cannot be resolved", name));
-          }
-        } else {
-          value = vars.getVariable(name);
-        }
-        return value;
-      }
-    };
+    VariableResolver variableResolver = new VariableResolverImpl(vars);
     try {
+      CompiledExpression compiledExpression = compile ? getCompiledExpression(expression) : null;
+      if (compiledExpression != null) {
+        return (T) compiledExpression.evaluate(returnType, variableResolver, functionMapper);
+      }
       return (T) EVALUATOR.evaluate(expression, returnType, variableResolver, functionMapper);
     } catch (ELException e) {
       // Apache evaluator is not using the getCause exception chaining that is available in Java but rather a custom
@@ -161,6 +179,51 @@ public class ELEvaluator extends ELEval {
     }
   }
 
+  /**
+   * Returns compiled form of given expression or null if the expression should be interpreted instead.
+   */
+  private CompiledExpression getCompiledExpression(String expression) {
+    if (expression == null) {
+      return null;
+    }
+    Object compiled = compiledExpressions.get(expression);
+    if (compiled == null) {
+      if (compiledExpressions.size() >= MAX_COMPILED_EXPRESSIONS) {
+        return null;
+      }
+      try {
+        compiled = CompiledExpression.compile(expression, functionMapper);
+      } catch (ELException | RuntimeException e) {
+        // Let the interpreter report the problem the way it always did
+        LOG.debug("Can't compile EL '{}', it will be interpreted: {}", expression, e.toString(), e);
+        compiled = NOT_COMPILABLE;
+      }
+      compiledExpressions.putIfAbsent(expression, compiled);
+    }
+    return (compiled == NOT_COMPILABLE) ? null : (CompiledExpression) compiled;
+  }
+
+  private class VariableResolverImpl implements VariableResolver {
+    private final ELVars vars;
+
+    VariableResolverImpl(ELVars vars) {
+      this.vars = vars;
+    }
+
+    @Override
+    public Object resolveVariable(String name) throws ELException {
+      Object value = constants.get(name);
+      if (!vars.hasVariable(name)) {
+        if (value == null && !constants.containsKey(name)) {
+          throw new ELException(Utils.format("Constants/Variable '{}' cannot be resolved", name));
+        }
+      } else {
+        value = vars.getVariable(name);
+      }
+      return value;
+    }
+  }
+
   private class FunctionMapperImpl implements FunctionMapper {
 
     @Override
@@ -173,6 +236,11 @@ public class ELEvaluator extends ELEval {
     }
   }
 
+  @VisibleForTesting
+  void setCompile(boolean compile) {
+    this.compile = compile;
+  }
+
   public List<ElFunctionDefinition> getElFunctionDefinitions() {
     return elFunctionDefinitions;
   }
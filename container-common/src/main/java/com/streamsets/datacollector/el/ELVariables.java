@@ -15,19 +15,110 @@
  */
 package com.streamsets.datacollector.el;
 
-import com.streamsets.pipeline.api.el.ELVars;
 import com.streamsets.pipeline.api.impl.TextUtils;
 import com.streamsets.pipeline.api.impl.Utils;
+import com.streamsets.pipeline.container.el.ResettableELVars;
 
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
-public class ELVariables implements ELVars {
+/**
+ * ELVars implementation that is cheap to create and that can be reused (see {@link #reset()}) across records.
+ *
+ * Variable names are validated only once, when they are first seen, at which point they get assigned a global slot.
+ * Each instance only stores the variables actually set on it, as (slot, value) pairs in small arrays that are scanned
+ * linearly, so setting the record/field/time context for a new record doesn't allocate anything once the arrays
+ * have grown to the number of variables used. Constants are shared with the creator and never copied, the given map
+ * must not be modified afterwards.
+ */
+public class ELVariables implements ResettableELVars {
+
+  /**
+   * Context variables that are set for (almost) every evaluation, they always get the first slots.
+   */
+  private static final String[] WELL_KNOWN_NAMES = {
+    "record",
+    "field",
+    "fieldPath",
+    "pipeline",
+    "time",
+    "time_now",
+    "calender",
+  };
+
+  /**
+   * Upper bound on the number of registered names, anything above that is stored in a regular map and validated
+   * on each access the way it used to be.
+   */
+  private static final int MAX_SLOTS = 1024;
+
+  private static final ConcurrentMap<String, Integer> SLOTS = new ConcurrentHashMap<>();
+
+  static {
+    for (String name : WELL_KNOWN_NAMES) {
+      slotOf(name);
+    }
+  }
+
+  /**
+   * Values of the variables set on an instance, keyed by their global slot.
+   */
+  private static final class Values {
+    private int[] slots;
+    private Object[] values;
+    private int size;
+
+    private int indexOf(int slot) {
+      for (int i = 0; i < size; i++) {
+        if (slots[i] == slot) {
+          return i;
+        }
+      }
+      return -1;
+    }
+
+    void put(int slot, Object value) {
+      int index = indexOf(slot);
+      if (index < 0) {
+        if (slots == null) {
+          slots = new int[2];
+          values = new Object[2];
+        } else if (size == slots.length) {
+          slots = Arrays.copyOf(slots, size * 2);
+          values = Arrays.copyOf(values, size * 2);
+        }
+        index = size++;
+        slots[index] = slot;
+      }
+      values[index] = value;
+    }
+
+    Object get(int slot) {
+      int index = indexOf(slot);
+      return (index < 0) ? null : values[index];
+    }
+
+    boolean has(int slot) {
+      return indexOf(slot) >= 0;
+    }
+
+    void clear() {
+      if (size > 0) {
+        Arrays.fill(values, 0, size, null);
+        size = 0;
+      }
+    }
+  }
 
   private final Map<String, Object> constants;
-  private final Map<String, Object> variables;
-  private final Map<String, Object> contextVariables;
+  private final Values variables = new Values();
+  private final Values contextVariables = new Values();
+  private Map<String, Object> overflowVariables;
+  private Map<String, Object> overflowContextVariables;
 
   @SuppressWarnings("unchecked")
   public ELVariables() {
@@ -35,12 +126,47 @@ public class ELVariables implements ELVars {
   }
 
   public ELVariables(Map<String, Object> constants) {
-    this.constants = new HashMap<>(constants);
-    variables = new HashMap<>();
-    contextVariables = new HashMap<>();
+    this.constants = constants;
+  }
+
+  /**
+   * Removes all variables and context variables so that the instance can be used for another record.
+   */
+  @Override
+  public void reset() {
+    variables.clear();
+    contextVariables.clear();
+    if (overflowVariables != null) {
+      overflowVariables.clear();
+    }
+    if (overflowContextVariables != null) {
+      overflowContextVariables.clear();
+    }
+  }
+
+  /**
+   * Returns slot for given name, registering (and validating) the name on first use. Returns -1 if all slots
+   * have been used, validation is done in that case too.
+   */
+  private static int slotOf(String name) {
+    Integer slot = SLOTS.get(name);
+    if (slot == null) {
+      checkVariableName(name);
+      synchronized (SLOTS) {
+        slot = SLOTS.get(name);
+        if (slot == null) {
+          if (SLOTS.size() >= MAX_SLOTS) {
+            return -1;
+          }
+          slot = SLOTS.size();
+          SLOTS.put(name, slot);
+        }
+      }
+    }
+    return slot;
   }
 
-  private final void checkVariableName(String name) {
+  private static void checkVariableName(String name) {
     Utils.checkNotNull(name, "name");
     Utils.checkArgument(TextUtils.isValidName(name), Utils.formatL("Invalid name '{}', must be '{}'",
       name, TextUtils.VALID_NAME));
@@ -48,45 +174,71 @@ public class ELVariables implements ELVars {
 
   @Override
   public Object getConstant(String name) {
-    Utils.checkNotNull(name, "name");
-    Utils.checkArgument(TextUtils.isValidName(name), Utils.formatL("Invalid name '{}', must be '{}'",
-                                                                   name, TextUtils.VALID_NAME));
+    if (!SLOTS.containsKey(name)) {
+      checkVariableName(name);
+    }
     return constants.get(name);
   }
 
   @Override
   public void addVariable(String name, Object value) {
-    checkVariableName(name);
-    variables.put(name, value);
+    int slot = slotOf(name);
+    if (slot < 0) {
+      if (overflowVariables == null) {
+        overflowVariables = new HashMap<>();
+      }
+      overflowVariables.put(name, value);
+    } else {
+      variables.put(slot, value);
+    }
   }
 
   @Override
   public void addContextVariable(String name, Object value) {
-    checkVariableName(name);
-    contextVariables.put(name, value);
+    int slot = slotOf(name);
+    if (slot < 0) {
+      if (overflowContextVariables == null) {
+        overflowContextVariables = new HashMap<>();
+      }
+      overflowContextVariables.put(name, value);
+    } else {
+      contextVariables.put(slot, value);
+    }
   }
 
   @Override
   public Object getVariable(String name) {
-    checkVariableName(name);
-    return variables.get(name);
+    int slot = slotOf(name);
+    if (slot < 0) {
+      return (overflowVariables == null) ? null : overflowVariables.get(name);
+    }
+    return variables.get(slot);
   }
 
   @Override
   public boolean hasVariable(String name) {
-    checkVariableName(name);
-    return variables.containsKey(name);
+    int slot = slotOf(name);
+    if (slot < 0) {
+      return overflowVariables != null && overflowVariables.containsKey(name);
+    }
+    return variables.has(slot);
   }
 
   @Override
   public boolean hasContextVariable(String name) {
-    checkVariableName(name);
-    return contextVariables.containsKey(name);
+    int slot = slotOf(name);
+    if (slot < 0) {
+      return overflowContextVariables != null && overflowContextVariables.containsKey(name);
+    }
+    return contextVariables.has(slot);
   }
 
   @Override
   public Object getContextVariable(String name) {
-    checkVariableName(name);
-    return contextVariables.get(name);
+    int slot = slotOf(name);
+    if (slot < 0) {
+      return (overflowContextVariables == null) ? null : overflowContextVariables.get(name);
+    }
+    return contextVariables.get(slot);
   }
 }
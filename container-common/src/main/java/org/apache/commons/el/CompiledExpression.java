@@ -0,0 +1,239 @@
+/*
+ * Copyright 2018 StreamSets Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.el;
+
+import javax.servlet.jsp.el.ELException;
+import javax.servlet.jsp.el.FunctionMapper;
+import javax.servlet.jsp.el.VariableResolver;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.util.List;
+
+/**
+ * Expression that has been parsed once and had all its EL functions bound to direct {@link MethodHandle} calls.
+ *
+ * The parsed tree is private to this instance (it does not come from the shared parse cache) and all operators,
+ * coercions and variable lookups are still evaluated by the commons-el nodes themselves, so the result is exactly
+ * the same as the one of {@link ExpressionEvaluatorImpl#evaluate(String, Class, VariableResolver, FunctionMapper)}.
+ * Only the per evaluation cache lookup and the reflective function dispatch are removed. Functions that can't be
+ * bound (unknown function, wrong number of arguments, inaccessible method) are left untouched and will fail (or
+ * succeed) exactly as they do in the interpreter.
+ */
+@SuppressWarnings("unchecked")
+public class CompiledExpression {
+
+  /**
+   * Parser that is not using the static caches, every compilation gets its own tree that we're free to rewrite.
+   */
+  private static final ExpressionEvaluatorImpl PARSER = new ExpressionEvaluatorImpl(true);
+
+  private static final MethodType GENERIC_INVOKER = MethodType.methodType(Object.class, Object[].class);
+
+  private final String expressionString;
+  private final Object parsed;
+
+  private CompiledExpression(String expressionString, Object parsed) {
+    this.expressionString = expressionString;
+    this.parsed = parsed;
+  }
+
+  /**
+   * Parses given expression and binds all functions that can be resolved by given function mapper.
+   *
+   * @throws ELException if the expression can't be parsed
+   */
+  public static CompiledExpression compile(String expressionString, FunctionMapper functionMapper) throws ELException {
+    Object parsed = PARSER.parseExpressionString(expressionString);
+    if (parsed instanceof Expression) {
+      parsed = bind((Expression) parsed, functionMapper);
+    } else if (parsed instanceof ExpressionString) {
+      Object[] elements = ((ExpressionString) parsed).getElements();
+      for (int i = 0; i < elements.length; i++) {
+        if (elements[i] instanceof Expression) {
+          elements[i] = bind((Expression) elements[i], functionMapper);
+        }
+      }
+    }
+    return new CompiledExpression(expressionString, parsed);
+  }
+
+  public String getExpressionString() {
+    return expressionString;
+  }
+
+  /**
+   * Evaluates the expression, mirrors ExpressionEvaluatorImpl.evaluate() without the parse cache lookup.
+   */
+  public Object evaluate(Class expectedType, VariableResolver resolver, FunctionMapper functionMapper)
+      throws ELException {
+    Logger logger = ExpressionEvaluatorImpl.sLogger;
+    Object value;
+    if (parsed instanceof String) {
+      if (expectedType == String.class || expectedType == Object.class) {
+        return parsed;
+      }
+      value = parsed;
+    } else if (parsed instanceof Expression) {
+      value = ((Expression) parsed).evaluate(resolver, functionMapper, logger);
+    } else if (parsed instanceof ExpressionString) {
+      value = ((ExpressionString) parsed).evaluate(resolver, functionMapper, logger);
+    } else {
+      // Should never happen
+      throw new ELException("Illegal parsed value " + parsed + " for expression '" + expressionString + "'");
+    }
+    return Coercions.coerce(value, expectedType, logger);
+  }
+
+  // Walks the tree rewriting (in place) all function invocations that can be bound
+  private static Expression bind(Expression expression, FunctionMapper functionMapper) {
+    if (expression instanceof FunctionInvocation) {
+      FunctionInvocation invocation = (FunctionInvocation) expression;
+      bindAll(invocation.getArgumentList(), functionMapper);
+      Expression bound = BoundFunctionInvocation.create(invocation, functionMapper);
+      return (bound == null) ? invocation : bound;
+    } else if (expression instanceof BinaryOperatorExpression) {
+      BinaryOperatorExpression binary = (BinaryOperatorExpression) expression;
+      binary.setExpression(bind(binary.getExpression(), functionMapper));
+      bindAll(binary.getExpressions(), functionMapper);
+    } else if (expression instanceof UnaryOperatorExpression) {
+      UnaryOperatorExpression unary = (UnaryOperatorExpression) expression;
+      unary.setExpression(bind(unary.getExpression(), functionMapper));
+    } else if (expression instanceof ConditionalExpression) {
+      ConditionalExpression conditional = (ConditionalExpression) expression;
+      conditional.setCondition(bind(conditional.getCondition(), functionMapper));
+      conditional.setTrueBranch(bind(conditional.getTrueBranch(), functionMapper));
+      conditional.setFalseBranch(bind(conditional.getFalseBranch(), functionMapper));
+    } else if (expression instanceof ComplexValue) {
+      ComplexValue complex = (ComplexValue) expression;
+      complex.setPrefix(bind(complex.getPrefix(), functionMapper));
+      List suffixes = complex.getSuffixes();
+      if (suffixes != null) {
+        for (Object suffix : suffixes) {
+          // PropertySuffix is an ArraySuffix with a constant name and no index expression
+          if (suffix instanceof ArraySuffix && !(suffix instanceof PropertySuffix)) {
+            ArraySuffix arraySuffix = (ArraySuffix) suffix;
+            arraySuffix.setIndex(bind(arraySuffix.getIndex(), functionMapper));
+          }
+        }
+      }
+    }
+    // Literals and named values have no children
+    return expression;
+  }
+
+  private static void bindAll(List expressions, FunctionMapper functionMapper) {
+    if (expressions != null) {
+      for (int i = 0; i < expressions.size(); i++) {
+        expressions.set(i, bind((Expression) expressions.get(i), functionMapper));
+      }
+    }
+  }
+
+  /**
+   * Function invocation with the target resolved up front, the arguments are coerced the same way as in
+   * FunctionInvocation and the target is called through a spreading MethodHandle rather than Method.invoke().
+   */
+  static class BoundFunctionInvocation extends Expression {
+    private final String functionName;
+    private final Expression[] arguments;
+    private final Class[] parameterTypes;
+    private final MethodHandle handle;
+
+    private BoundFunctionInvocation(
+        String functionName,
+        Expression[] arguments,
+        Class[] parameterTypes,
+        MethodHandle handle
+    ) {
+      this.functionName = functionName;
+      this.arguments = arguments;
+      this.parameterTypes = parameterTypes;
+      this.handle = handle;
+    }
+
+    /**
+     * Returns bound invocation or null if the function can't be bound and interpreter should be used instead.
+     */
+    static BoundFunctionInvocation create(FunctionInvocation invocation, FunctionMapper functionMapper) {
+      if (functionMapper == null) {
+        return null;
+      }
+      String functionName = invocation.getFunctionName();
+      String prefix;
+      String localName;
+      int index = functionName.indexOf(':');
+      if (index == -1) {
+        prefix = "";
+        localName = functionName;
+      } else {
+        prefix = functionName.substring(0, index);
+        localName = functionName.substring(index + 1);
+      }
+      Method method = functionMapper.resolveFunction(prefix, localName);
+      List argumentList = invocation.getArgumentList();
+      if (method == null || method.getParameterTypes().length != argumentList.size()) {
+        return null;
+      }
+      MethodHandle handle;
+      try {
+        handle = MethodHandles.publicLookup()
+            .unreflect(method)
+            .asFixedArity()
+            .asSpreader(Object[].class, argumentList.size())
+            .asType(GENERIC_INVOKER);
+      } catch (IllegalAccessException | RuntimeException ex) {
+        return null;
+      }
+      return new BoundFunctionInvocation(
+          functionName,
+          (Expression[]) argumentList.toArray(new Expression[argumentList.size()]),
+          method.getParameterTypes(),
+          handle
+      );
+    }
+
+    @Override
+    public String getExpressionString() {
+      StringBuilder sb = new StringBuilder();
+      sb.append(functionName).append("(");
+      for (int i = 0; i < arguments.length; i++) {
+        if (i > 0) {
+          sb.append(", ");
+        }
+        sb.append(arguments[i].getExpressionString());
+      }
+      sb.append(")");
+      return sb.toString();
+    }
+
+    @Override
+    public Object evaluate(VariableResolver resolver, FunctionMapper functions, Logger logger) throws ELException {
+      Object[] values = new Object[arguments.length];
+      for (int i = 0; i < arguments.length; i++) {
+        values[i] = Coercions.coerce(arguments[i].evaluate(resolver, functions, logger), parameterTypes[i], logger);
+      }
+      try {
+        return (Object) handle.invokeExact(values);
+      } catch (Throwable ex) {
+        // Same reporting as FunctionInvocation does for an InvocationTargetException
+        logger.logError(Constants.FUNCTION_INVOCATION_ERROR, ex, functionName);
+        return null;
+      }
+    }
+  }
+}
@@ -62,7 +62,7 @@ import java.util.Map;
 @ConfigGroups(PipelineGroups.class)
 public class PipelineConfigBean implements Stage {
 
-  public static final int VERSION = 10;
+  public static final int VERSION = 13;
 
   public static final String STATS_AGGREGATOR_DEFAULT = "streamsets-datacollector-basic-lib" +
       "::com_streamsets_pipeline_stage_destination_devnull_StatsNullDTarget::1";
@@ -421,6 +421,49 @@ public class PipelineConfigBean implements Stage {
   )
   public long runnerIdleTIme = 60;
 
+  @ConfigDef(
+      required = false,
+      type = ConfigDef.Type.BOOLEAN,
+      defaultValue = "false",
+      label = "Copy-on-Write Records",
+      description = "When selected, copies of a record (multiple output streams, snapshots, cloned records) share " +
+          "its data and only copy the parts that are modified. Reduces memory usage and garbage collection for " +
+          "large records that are mostly read.",
+      displayPosition = 215
+  )
+  public boolean copyOnWriteRecords;
+
+  @ConfigDef(
+      required = false,
+      type = ConfigDef.Type.NUMBER,
+      defaultValue = "1",
+      label = "Parallel Branch Threads",
+      description = "Number of threads used to process independent branches of the pipeline (e.g. the outputs of a " +
+          "Stream Selector) at the same time within a batch. Use 1 to process all stages one after another.",
+      min = 1,
+      displayPosition = 216,
+      dependencies = @Dependency(
+          configName = "executionMode", triggeredByValues = "STANDALONE"
+      )
+  )
+  public int branchThreads = 1;
+
+  @ConfigDef(
+      required = false,
+      type = ConfigDef.Type.NUMBER,
+      defaultValue = "0",
+      label = "Origin Prefetch Batches",
+      description = "Number of batches the origin can read ahead on its own thread while the previous batches are " +
+          "processed by the rest of the pipeline. Offsets are still committed in order. Use 0 to disable prefetching. " +
+          "Applies only to origins that don't use multiple threads.",
+      min = 0,
+      displayPosition = 217,
+      dependencies = @Dependency(
+          configName = "executionMode", triggeredByValues = "STANDALONE"
+      )
+  )
+  public int prefetchBatches = 0;
+
   @ConfigDef(required = true,
       type = ConfigDef.Type.MODEL,
       defaultValue = "[]",
@@ -66,6 +66,15 @@ public class PipelineConfigUpgrader implements StageUpgrader {
         // fall through
       case 9:
         upgradeV9ToV10(configs);
+        // fall through
+      case 10:
+        upgradeV10ToV11(configs);
+        // fall through
+      case 11:
+        upgradeV11ToV12(configs);
+        // fall through
+      case 12:
+        upgradeV12ToV13(configs);
         break;
       default:
         throw new IllegalStateException(Utils.format("Unexpected fromVersion {}", context.getFromVersion()));
@@ -191,6 +200,18 @@ public class PipelineConfigUpgrader implements StageUpgrader {
     addAmazonEmrConfigs(configs);
   }
 
+  private void upgradeV10ToV11(List<Config> configs) {
+    configs.add(new Config("copyOnWriteRecords", false));
+  }
+
+  private void upgradeV11ToV12(List<Config> configs) {
+    configs.add(new Config("branchThreads", 1));
+  }
+
+  private void upgradeV12ToV13(List<Config> configs) {
+    configs.add(new Config("prefetchBatches", 0));
+  }
+
   private void addAmazonEmrConfigs(List<Config> configs) {
     String amazonEmrConfigPrefix = "amazonEMRConfig.";
     configs.add(new Config("logLevel", "INFO"));
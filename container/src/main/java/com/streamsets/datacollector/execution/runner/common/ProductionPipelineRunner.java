@@ -88,8 +88,10 @@ import com.streamsets.pipeline.api.StageException;
 import com.streamsets.pipeline.api.StageType;
 import com.streamsets.pipeline.api.impl.ErrorMessage;
 import com.streamsets.pipeline.api.impl.Utils;
+import com.streamsets.pipeline.lib.executor.SafeScheduledExecutorService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.slf4j.MDC;
 
 import javax.inject.Inject;
 import javax.inject.Named;
@@ -103,6 +105,9 @@ import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.locks.Lock;
@@ -132,6 +137,7 @@ public class ProductionPipelineRunner implements PipelineRunner, PushSourceConte
   private StatsAggregationHandler statsAggregationHandler;
 
   private final Timer batchProcessingTimer;
+  private final Timer offsetCommitTimer;
   private final Meter batchCountMeter;
   private final Counter batchCountCounter;
   private final Histogram batchInputRecordsHistogram;
@@ -153,6 +159,12 @@ public class ProductionPipelineRunner implements PipelineRunner, PushSourceConte
 
   private RateLimiter rateLimiter;
 
+  /* Pool processing independent branches of a batch concurrently, null if batches are processed sequentially */
+  private ExecutorService branchExecutor;
+
+  /* Number of batches a poll origin can produce ahead of the batch being processed, 0 disables prefetching */
+  private int prefetchBatches;
+
   /*indicates if the execution must be stopped after the current batch*/
   private volatile boolean stop = false;
   /*indicates an external stage (eg. PipelineFinisherExecutor) is finishing the pipeline. */
@@ -210,6 +222,7 @@ public class ProductionPipelineRunner implements PipelineRunner, PushSourceConte
 
     MetricsConfigurator.registerPipeline(pipelineName, revision);
     batchProcessingTimer = MetricsConfigurator.createTimer(metrics, "pipeline.batchProcessing", pipelineName, revision);
+    offsetCommitTimer = MetricsConfigurator.createTimer(metrics, "pipeline.offsetCommit", pipelineName, revision);
     batchCountMeter = MetricsConfigurator.createMeter(metrics, "pipeline.batchCount", pipelineName, revision);
     batchCountCounter = MetricsConfigurator.createCounter(metrics, "pipeline.batchCount", pipelineName, revision);
     batchInputRecordsHistogram = MetricsConfigurator.createHistogram5Min(metrics, "pipeline.inputRecordsPerBatch",
@@ -300,6 +313,24 @@ public class ProductionPipelineRunner implements PipelineRunner, PushSourceConte
     rateLimiter = RateLimiter.create(rateLimit.doubleValue());
   }
 
+  /**
+   * Number of threads used to process independent branches of the pipeline concurrently within each batch, value 1
+   * (or less) processes all stages sequentially on the runner thread.
+   */
+  public void setBranchThreads(int branchThreads) {
+    if (branchThreads > 1) {
+      branchExecutor = new SafeScheduledExecutorService(branchThreads, "BranchRunner");
+    }
+  }
+
+  /**
+   * Number of batches a poll origin can produce on its own thread while the previous batches are being processed by
+   * the rest of the pipeline, value 0 disables prefetching.
+   */
+  public void setPrefetchBatches(int prefetchBatches) {
+    this.prefetchBatches = prefetchBatches;
+  }
+
   public void setOffsetTracker(SourceOffsetTracker offsetTracker) {
     this.offsetTracker = offsetTracker;
   }
@@ -511,7 +542,13 @@ public class ProductionPipelineRunner implements PipelineRunner, PushSourceConte
 
   @Override
   public void commitOffset(String entity, String offset) {
-    offsetTracker.commitOffset(entity, offset);
+    commitOffsetTimed(entity, offset);
+  }
+
+  private void commitOffsetTimed(String entity, String offset) {
+    try (Timer.Context ignored = offsetCommitTimer.time()) {
+      offsetTracker.commitOffset(entity, offset);
+    }
   }
 
   @Override
@@ -527,6 +564,13 @@ public class ProductionPipelineRunner implements PipelineRunner, PushSourceConte
   }
 
   public void runPollSource() throws StageException, PipelineException {
+    // Offset commit triggers can decide not to commit, in which case the origin is expected to read from the last
+    // committed offset again, that can't be combined with batches that were read ahead.
+    if (prefetchBatches > 0 && !pipes.isEmpty() && pipes.get(0).getOffsetCommitTrigger() == null) {
+      runPollSourceWithPrefetch();
+      return;
+    }
+
     while (!offsetTracker.isFinished() && !stop && !finished) {
       if (threadHealthReporter != null) {
         threadHealthReporter.reportHealth(ProductionPipelineRunnable.RUNNABLE_NAME, -1, System.currentTimeMillis());
@@ -550,7 +594,7 @@ public class ProductionPipelineRunner implements PipelineRunner, PushSourceConte
       processPipe(
         originPipe,
         pipeBatch,
-        false,
+        new AtomicBoolean(false),
         null,
         null,
         memoryConsumedByStage,
@@ -585,6 +629,179 @@ public class ProductionPipelineRunner implements PipelineRunner, PushSourceConte
     }
   }
 
+  /**
+   * Batch produced by the origin ahead of time, or marker of the end of the origin's thread.
+   */
+  private static class PrefetchedBatch {
+    private static final PrefetchedBatch END = new PrefetchedBatch(0, null, null, null, null);
+
+    private final long start;
+    private final FullPipeBatch pipeBatch;
+    private final Map<String, Long> memoryConsumedByStage;
+    private final Map<String, Object> stageBatchMetrics;
+    private final Throwable failure;
+
+    private PrefetchedBatch(
+        long start,
+        FullPipeBatch pipeBatch,
+        Map<String, Long> memoryConsumedByStage,
+        Map<String, Object> stageBatchMetrics,
+        Throwable failure
+    ) {
+      this.start = start;
+      this.pipeBatch = pipeBatch;
+      this.memoryConsumedByStage = memoryConsumedByStage;
+      this.stageBatchMetrics = stageBatchMetrics;
+      this.failure = failure;
+    }
+  }
+
+  /**
+   * Same as runPollSource() except that the origin runs on its own thread, producing up to prefetchBatches batches
+   * while this thread runs the rest of the pipeline.
+   *
+   * Each batch is produced from the offset returned by the previous one. Batches are processed and their offsets
+   * committed strictly in the order in which they were produced. Batches that were produced but not processed when the
+   * pipeline stops or fails are dropped without committing their offsets, so they will be read again.
+   *
+   * Batch listeners and the observer stay on this thread. preBatch() and reconfigure() are called when a batch is
+   * taken from the queue, after the origin produced it but before any other stage processes it, and postBatch() once
+   * the batch has been processed, so the calls are still paired per batch.
+   */
+  private void runPollSourceWithPrefetch() throws StageException, PipelineException {
+    BlockingQueue<PrefetchedBatch> prefetched = new LinkedBlockingQueue<>();
+    Semaphore permits = new Semaphore(prefetchBatches);
+    AtomicBoolean done = new AtomicBoolean(false);
+    ExecutorService originExecutor = new SafeScheduledExecutorService(1, "OriginPrefetch");
+    String originName = originPipe.getStage().getInfo().getInstanceName();
+    try {
+      Map<String, String> mdc = MDC.getCopyOfContextMap();
+      originExecutor.submit(() -> {
+        if (mdc != null) {
+          MDC.setContextMap(mdc);
+        }
+        try {
+          prefetch(prefetched, permits, done);
+        } finally {
+          MDC.clear();
+        }
+      });
+
+      while (!offsetTracker.isFinished() && !stop && !finished) {
+        if (threadHealthReporter != null) {
+          threadHealthReporter.reportHealth(ProductionPipelineRunnable.RUNNABLE_NAME, -1, System.currentTimeMillis());
+        }
+
+        PrefetchedBatch batch = prefetched.poll(100, TimeUnit.MILLISECONDS);
+        if (batch == null) {
+          continue;
+        }
+        if (batch == PrefetchedBatch.END) {
+          break;
+        }
+        permits.release();
+        if (batch.failure != null) {
+          Throwables.propagateIfInstanceOf(batch.failure, StageException.class);
+          Throwables.propagateIfInstanceOf(batch.failure, PipelineException.class);
+          Throwables.propagate(batch.failure);
+        }
+
+        for (BatchListener batchListener : batchListenerList) {
+          batchListener.preBatch();
+        }
+
+        if(observer != null) {
+          observer.reconfigure();
+        }
+
+        // The batches waiting in the queue hold about as much memory as the origin needed for this one
+        Long originMemory = batch.memoryConsumedByStage.get(originName);
+        if (originMemory != null) {
+          batch.memoryConsumedByStage.put(originName, originMemory * (1 + prefetched.size()));
+        }
+
+        FullPipeBatch pipeBatch = batch.pipeBatch;
+        try {
+          // Run rest of the pipeline
+          runSourceLessBatch(
+            batch.start,
+            pipeBatch,
+            Source.POLL_SOURCE_OFFSET_KEY,
+            pipeBatch.getNewOffset(),
+            batch.memoryConsumedByStage,
+            batch.stageBatchMetrics
+          );
+        } catch (Throwable t) {
+          // We try to create partial batch on processing failure
+          createFailureBatch(pipeBatch);
+
+          Throwables.propagateIfInstanceOf(t, StageException.class);
+          Throwables.propagateIfInstanceOf(t, PipelineRuntimeException.class);
+          Throwables.propagate(t);
+        }
+
+        for (BatchListener batchListener : batchListenerList) {
+          batchListener.postBatch();
+        }
+      }
+    } catch (InterruptedException e) {
+      throw new PipelineRuntimeException(ContainerError.CONTAINER_0801, e);
+    } finally {
+      // The origin must not be running anymore when this method returns as it's going to be destroyed. Like in the
+      // sequential mode, a batch that is being produced is allowed to finish, it's simply not processed.
+      done.set(true);
+      permits.release(prefetchBatches + 1);
+      originExecutor.shutdown();
+      try {
+        while (!originExecutor.awaitTermination(1, TimeUnit.MINUTES)) {
+          LOG.warn("Still waiting for origin '{}' to finish producing a batch", originName);
+        }
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }
+  }
+
+  private void prefetch(BlockingQueue<PrefetchedBatch> prefetched, Semaphore permits, AtomicBoolean done) {
+    // Since the origin runs on its own thread, it needs its own copy of the PipelineEL constants
+    PipelineEL.setConstantsInContext(pipelineConfiguration, originPipe.getStage().getContext().getUserContext());
+    String offset = offsetTracker.getOffsets().get(Source.POLL_SOURCE_OFFSET_KEY);
+    try {
+      while (!stop && !finished && !done.get()) {
+        permits.acquire();
+        if (stop || finished || done.get()) {
+          break;
+        }
+
+        long start = System.currentTimeMillis();
+        FullPipeBatch pipeBatch = createFullPipeBatch(Source.POLL_SOURCE_OFFSET_KEY, offset);
+        Map<String, Long> memoryConsumedByStage = new HashMap<>();
+        Map<String, Object> stageBatchMetrics = new HashMap<>();
+        processPipe(
+          originPipe,
+          pipeBatch,
+          new AtomicBoolean(false),
+          null,
+          null,
+          memoryConsumedByStage,
+          stageBatchMetrics
+        );
+        prefetched.add(new PrefetchedBatch(start, pipeBatch, memoryConsumedByStage, stageBatchMetrics, null));
+
+        // Null offset means that the origin has no more data
+        offset = pipeBatch.getNewOffset();
+        if (offset == null) {
+          break;
+        }
+      }
+      prefetched.add(PrefetchedBatch.END);
+    } catch (InterruptedException e) {
+      LOG.debug("Origin prefetch interrupted");
+    } catch (Throwable t) {
+      prefetched.add(new PrefetchedBatch(0, null, null, null, t));
+    }
+  }
+
   @Override
   public void errorNotification(SourcePipe originPipe, List<PipeRunner> pipes, Throwable throwable) {
     Set<ErrorListener> listeners = Sets.newIdentityHashSet();
@@ -736,6 +953,12 @@ public class ProductionPipelineRunner implements PipelineRunner, PushSourceConte
       }
     } finally {
         destroyLock.unlock();
+        if (branchExecutor != null) {
+          branchExecutor.shutdownNow();
+        }
+        if (offsetTracker != null) {
+          offsetTracker.close();
+        }
     }
   }
 
@@ -779,10 +1002,10 @@ public class ProductionPipelineRunner implements PipelineRunner, PushSourceConte
     }
   }
 
-  private boolean processPipe(
+  private void processPipe(
     Pipe pipe,
     FullPipeBatch pipeBatch,
-    boolean committed,
+    AtomicBoolean committed,
     String entityName,
     String newOffset,
     Map<String, Long> memoryConsumedByStage,
@@ -795,22 +1018,28 @@ public class ProductionPipelineRunner implements PipelineRunner, PushSourceConte
     if(!pipeBatch.isIdleBatch()) {
       if (deliveryGuarantee == DeliveryGuarantee.AT_MOST_ONCE
         && pipe.getStage().getDefinition().getType() == StageType.TARGET
-        && !committed
       ) {
-        // target cannot control offset commit in AT_MOST_ONCE mode
-        offsetTracker.commitOffset(entityName, newOffset);
-        committed = true;
+        // Targets on parallel branches must all wait until the offset is committed
+        synchronized (committed) {
+          if (!committed.get()) {
+            // target cannot control offset commit in AT_MOST_ONCE mode
+            commitOffsetTimed(entityName, newOffset);
+            committed.set(true);
+          }
+        }
       }
     }
     pipe.process(pipeBatch);
     if (pipe instanceof StagePipe) {
-      memoryConsumedByStage.put(pipe.getStage().getInfo().getInstanceName(), ((StagePipe)pipe).getMemoryConsumed());
+      synchronized (memoryConsumedByStage) {
+        memoryConsumedByStage.put(pipe.getStage().getInfo().getInstanceName(), ((StagePipe)pipe).getMemoryConsumed());
+      }
       if (isStatsAggregationEnabled()) {
-        stageBatchMetrics.put(pipe.getStage().getInfo().getInstanceName(), ((StagePipe) pipe).getBatchMetrics());
+        synchronized (stageBatchMetrics) {
+          stageBatchMetrics.put(pipe.getStage().getInfo().getInstanceName(), ((StagePipe) pipe).getBatchMetrics());
+        }
       }
     }
-
-    return committed;
   }
 
   private void runSourceLessBatch(
@@ -846,9 +1075,10 @@ public class ProductionPipelineRunner implements PipelineRunner, PushSourceConte
 
     OffsetCommitTrigger offsetCommitTrigger = pipeRunner.getOffsetCommitTrigger();
 
-    pipeRunner.executeBatch(entityName, newOffset, start, pipe -> {
-      committed.set(processPipe(pipe, pipeBatch, committed.get(), entityName, newOffset, memoryConsumedByStage, stageBatchMetrics));
-
+    // Snapshots are captured in the order in which the stages were processed, so they are always taken sequentially
+    ExecutorService executor = (pipeBatch.getSnapshotsOfAllStagesOutput() == null) ? branchExecutor : null;
+    pipeRunner.executeBatch(entityName, newOffset, start, executor, pipe -> {
+      processPipe(pipe, pipeBatch, committed, entityName, newOffset, memoryConsumedByStage, stageBatchMetrics);
     });
 
     enforceMemoryLimit(memoryConsumedByStage);
@@ -859,7 +1089,7 @@ public class ProductionPipelineRunner implements PipelineRunner, PushSourceConte
         // 1. There is no offset commit trigger for this pipeline or
         // 2. there is a commit trigger and it is on
         if (offsetCommitTrigger == null || offsetCommitTrigger.commit()) {
-          offsetTracker.commitOffset(entityName, newOffset);
+          commitOffsetTimed(entityName, newOffset);
         }
       }
     }
@@ -877,6 +877,19 @@ public class StandaloneRunner extends AbstractRunner implements StateListener {
         runner.setObserveRequests(productionObserveRequests);
         runner.setStatsAggregatorRequests(statsQueue);
         runner.setDeliveryGuarantee(pipelineConfigBean.deliveryGuarantee);
+        // Slaves of cluster pipelines run here too, parallel branches and prefetch are only offered for, and only
+        // applied to, standalone pipelines
+        if (pipelineConfigBean.executionMode == ExecutionMode.STANDALONE) {
+          runner.setBranchThreads(pipelineConfigBean.branchThreads);
+          runner.setPrefetchBatches(pipelineConfigBean.prefetchBatches);
+        } else if (pipelineConfigBean.branchThreads > 1 || pipelineConfigBean.prefetchBatches > 0) {
+          LOG.warn(
+              "Ignoring parallel branch threads '{}' and origin prefetch batches '{}' in execution mode '{}'",
+              pipelineConfigBean.branchThreads,
+              pipelineConfigBean.prefetchBatches,
+              pipelineConfigBean.executionMode
+          );
+        }
         runner.setMemoryLimitConfiguration(memoryLimitConfiguration);
 
         PipelineEL.setConstantsInContext(pipelineConfiguration, runningUser);
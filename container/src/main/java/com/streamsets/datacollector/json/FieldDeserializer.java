@@ -0,0 +1,128 @@
+/*
+ * Copyright 2018 StreamSets Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.streamsets.datacollector.json;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JsonDeserializer;
+import com.streamsets.pipeline.api.Field;
+import com.streamsets.pipeline.api.impl.Utils;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Builds a {@link Field} straight from the parser tokens, without materializing the JSON document as Java
+ * maps and lists first.
+ *
+ * The produced fields are the same as converting the untyped Jackson representation of the document: objects become
+ * MAP fields, arrays LIST fields, integers INTEGER, LONG or DECIMAL (when they don't fit in a long) fields, floating
+ * point numbers DOUBLE fields and nulls STRING fields with a null value.
+ */
+public class FieldDeserializer extends JsonDeserializer<Field> {
+
+  @Override
+  public Field deserialize(JsonParser jp, DeserializationContext ctxt) throws IOException {
+    return toField(jp, ctxt, jp.getCurrentToken());
+  }
+
+  /**
+   * Invoked every time a value has been added to a map or list field, subclasses can use it to enforce limits while
+   * the document is being read.
+   */
+  protected void valueAdded() {
+  }
+
+  private Field toField(JsonParser jp, DeserializationContext ctxt, JsonToken token) throws IOException {
+    if (token == null) {
+      throw ctxt.mappingException("Unexpected end of JSON input");
+    }
+    switch (token) {
+      case START_OBJECT:
+        jp.nextToken();
+        return toMapField(jp, ctxt);
+      case FIELD_NAME:
+        // Jackson may hand over an object after having consumed its START_OBJECT
+        return toMapField(jp, ctxt);
+      case END_OBJECT:
+        return Field.create(new LinkedHashMap<String, Field>());
+      case START_ARRAY:
+        return toListField(jp, ctxt);
+      case VALUE_STRING:
+        return Field.create(jp.getText());
+      case VALUE_NUMBER_INT:
+        switch (jp.getNumberType()) {
+          case INT:
+            return Field.create(jp.getIntValue());
+          case LONG:
+            return Field.create(jp.getLongValue());
+          default:
+            return Field.create(new BigDecimal(jp.getBigIntegerValue()));
+        }
+      case VALUE_NUMBER_FLOAT:
+        if (ctxt.isEnabled(DeserializationFeature.USE_BIG_DECIMAL_FOR_FLOATS)) {
+          return Field.create(jp.getDecimalValue());
+        }
+        return Field.create(jp.getDoubleValue());
+      case VALUE_TRUE:
+        return Field.create(true);
+      case VALUE_FALSE:
+        return Field.create(false);
+      case VALUE_NULL:
+        return Field.create(Field.Type.STRING, null);
+      case VALUE_EMBEDDED_OBJECT:
+        Object embedded = jp.getEmbeddedObject();
+        if (embedded == null) {
+          return Field.create(Field.Type.STRING, null);
+        } else if (embedded instanceof byte[]) {
+          return Field.create((byte[]) embedded);
+        }
+        throw ctxt.mappingException(Utils.format(
+            "Unsupported embedded JSON value of type '{}'", embedded.getClass().getSimpleName()
+        ));
+      default:
+        throw ctxt.mappingException(Utils.format("Unexpected JSON token '{}'", token));
+    }
+  }
+
+  // expects the parser at the first FIELD_NAME (or END_OBJECT) of the object, leaves it at its END_OBJECT
+  private Field toMapField(JsonParser jp, DeserializationContext ctxt) throws IOException {
+    Map<String, Field> map = new LinkedHashMap<>();
+    for (JsonToken token = jp.getCurrentToken(); token == JsonToken.FIELD_NAME; token = jp.nextToken()) {
+      String name = jp.getCurrentName();
+      map.put(name, toField(jp, ctxt, jp.nextToken()));
+      valueAdded();
+    }
+    return Field.create(map);
+  }
+
+  // expects the parser at the START_ARRAY, leaves it at the END_ARRAY
+  private Field toListField(JsonParser jp, DeserializationContext ctxt) throws IOException {
+    List<Field> list = new ArrayList<>();
+    for (JsonToken token = jp.nextToken(); token != JsonToken.END_ARRAY; token = jp.nextToken()) {
+      list.add(toField(jp, ctxt, token));
+      valueAdded();
+    }
+    return Field.create(list);
+  }
+
+}
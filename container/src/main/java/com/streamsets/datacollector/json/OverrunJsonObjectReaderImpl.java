@@ -22,6 +22,7 @@ import com.fasterxml.jackson.databind.DeserializationContext;
 import com.fasterxml.jackson.databind.JsonDeserializer;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.module.SimpleModule;
+import com.streamsets.pipeline.api.Field;
 import com.streamsets.pipeline.api.ext.io.CountingReader;
 import com.streamsets.pipeline.api.ext.io.OverrunReader;
 import com.streamsets.pipeline.api.ext.json.Mode;
@@ -54,6 +55,7 @@ public class OverrunJsonObjectReaderImpl extends JsonObjectReaderImpl {
     SimpleModule module = new SimpleModule();
     module.addDeserializer(Map.class, new MapDeserializer());
     module.addDeserializer(List.class, new ListDeserializer());
+    module.addDeserializer(Field.class, new EnforcerFieldDeserializer());
     DEFAULT_OVERRUN_OBJECT_MAPPER.registerModule(module);
     DEFAULT_OVERRUN_OBJECT_MAPPER.configure(JsonGenerator.Feature.AUTO_CLOSE_TARGET, false);
     DEFAULT_OVERRUN_OBJECT_MAPPER.configure(JsonParser.Feature.AUTO_CLOSE_SOURCE, false);
@@ -137,6 +139,15 @@ public class OverrunJsonObjectReaderImpl extends JsonObjectReaderImpl {
 
   }
 
+  private static class EnforcerFieldDeserializer extends FieldDeserializer {
+
+    @Override
+    protected void valueAdded() {
+      checkIfLengthExceededForObjectRead(this);
+    }
+
+  }
+
   public OverrunJsonObjectReaderImpl(Reader reader, long initialPosition, int maxObjectLen, Mode mode) throws IOException {
     this(reader, initialPosition, maxObjectLen, mode, Object.class);
   }
@@ -162,7 +173,7 @@ public class OverrunJsonObjectReaderImpl extends JsonObjectReaderImpl {
       TL.set(this);
       return super.readObjectFromArray();
     } catch (Exception ex) {
-      ObjectLengthException olex = ExceptionUtils.findSpecificCause(ex, ObjectLengthException.class);
+      ObjectLengthException olex = findCause(ex, ObjectLengthException.class);
       if (olex != null) {
         JsonParser parser = getJsonParser();
         JsonToken token = parser.getCurrentToken();
@@ -174,7 +185,7 @@ public class OverrunJsonObjectReaderImpl extends JsonObjectReaderImpl {
         }
         throw olex;
       } else {
-        OverrunException oex = ExceptionUtils.findSpecificCause(ex, OverrunException.class);
+        OverrunException oex = findCause(ex, OverrunException.class);
         if (oex != null) {
           overrun = true;
           throw oex;
@@ -195,12 +206,12 @@ public class OverrunJsonObjectReaderImpl extends JsonObjectReaderImpl {
       TL.set(this);
       return super.readObjectFromStream();
     } catch (Exception ex) {
-      ObjectLengthException olex = ExceptionUtils.findSpecificCause(ex, ObjectLengthException.class);
+      ObjectLengthException olex = findCause(ex, ObjectLengthException.class);
       if (olex != null) {
         fastForwardToNextRootObject();
         throw olex;
       } else {
-        OverrunException oex = ExceptionUtils.findSpecificCause(ex, OverrunException.class);
+        OverrunException oex = findCause(ex, OverrunException.class);
         if (oex != null) {
           overrun = true;
           throw oex;
@@ -212,6 +223,11 @@ public class OverrunJsonObjectReaderImpl extends JsonObjectReaderImpl {
     }
   }
 
+  // Jackson wraps exceptions thrown by its own deserializers, the Field deserializer lets them through as they are
+  private static <E extends Throwable> E findCause(Exception ex, Class<E> causeClass) {
+    return causeClass.isInstance(ex) ? causeClass.cast(ex) : ExceptionUtils.findSpecificCause(ex, causeClass);
+  }
+
   private static void checkIfLengthExceededForObjectRead(Object json) {
     OverrunJsonObjectReaderImpl enforcer = TL.get();
     if (checkNotNull(enforcer, "Enforcer was null").maxObjectLen > -1) {
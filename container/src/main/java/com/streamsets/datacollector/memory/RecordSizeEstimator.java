@@ -0,0 +1,132 @@
+/*
+ * Copyright 2018 StreamSets Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.streamsets.datacollector.memory;
+
+import com.streamsets.pipeline.api.Field;
+import com.streamsets.pipeline.api.Record;
+import com.streamsets.pipeline.container.record.ReadOnlyRecord;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Cheap, approximate estimator of the heap footprint of records.
+ *
+ * Unlike {@link MemoryUsageCollector}, which walks the whole object graph reachable from a stage, this only looks at
+ * the fields and header attributes of a few sampled records and extrapolates to the rest of the batch, so it is cheap
+ * enough to run on every batch. Sizes assume a 64-bit JVM with compressed oops.
+ */
+public final class RecordSizeEstimator {
+  // Record, its header and the header's attribute maps
+  static final long RECORD_OVERHEAD = 256;
+  // Field object plus the boxed value
+  static final long FIELD_OVERHEAD = 48;
+  // Map/list entry holding a field
+  static final long ENTRY_OVERHEAD = 32;
+  static final long STRING_OVERHEAD = 40;
+
+  private final int maxSamples;
+
+  public RecordSizeEstimator(int maxSamples) {
+    this.maxSamples = Math.max(1, maxSamples);
+  }
+
+  /**
+   * Estimates the footprint of all records in the given lists, sampling at most {@code maxSamples} records evenly
+   * across them.
+   */
+  public long estimate(Collection<List<Record>> recordLists) {
+    int count = 0;
+    for (List<Record> records : recordLists) {
+      count += records.size();
+    }
+    if (count == 0) {
+      return 0;
+    }
+    int stride = Math.max(1, count / maxSamples);
+    long sampledBytes = 0;
+    int sampled = 0;
+    int index = 0;
+    for (List<Record> records : recordLists) {
+      for (int i = stride - 1 - (index % stride); i < records.size(); i += stride) {
+        sampledBytes += estimate(records.get(i));
+        sampled++;
+      }
+      index += records.size();
+    }
+    return sampled == 0 ? 0 : sampledBytes / sampled * count;
+  }
+
+  public static long estimate(Record record) {
+    long size = RECORD_OVERHEAD;
+    // only user attributes, the system ones are part of RECORD_OVERHEAD and reading them all would materialize the
+    // compact header and render the source record it holds as a String
+    Record.Header header = record.getHeader();
+    for (String name : header.getAttributeNames()) {
+      size += ENTRY_OVERHEAD + estimateString(name) + estimateString(header.getAttribute(name));
+    }
+    // estimating must not copy the value of a copy-on-write record
+    return size + estimate(ReadOnlyRecord.getReadOnly(record));
+  }
+
+  static long estimate(Field field) {
+    if (field == null) {
+      return 0;
+    }
+    long size = FIELD_OVERHEAD;
+    Map<String, String> attributes = field.getAttributes();
+    if (attributes != null) {
+      for (Map.Entry<String, String> entry : attributes.entrySet()) {
+        size += ENTRY_OVERHEAD + estimateString(entry.getKey()) + estimateString(entry.getValue());
+      }
+    }
+    Object value = field.getValue();
+    if (value == null) {
+      return size;
+    }
+    switch (field.getType()) {
+      case STRING:
+        size += estimateString((String) value);
+        break;
+      case BYTE_ARRAY:
+        size += 16 + ((byte[]) value).length;
+        break;
+      case DECIMAL:
+        size += 64;
+        break;
+      case MAP:
+      case LIST_MAP:
+        for (Map.Entry<String, Field> entry : field.getValueAsMap().entrySet()) {
+          size += ENTRY_OVERHEAD + estimateString(entry.getKey()) + estimate(entry.getValue());
+        }
+        break;
+      case LIST:
+        for (Field element : field.getValueAsList()) {
+          size += ENTRY_OVERHEAD + estimate(element);
+        }
+        break;
+      default:
+        break;
+    }
+    return size;
+  }
+
+  private static long estimateString(String value) {
+    return value == null ? 0 : STRING_OVERHEAD + 2L * value.length();
+  }
+
+}
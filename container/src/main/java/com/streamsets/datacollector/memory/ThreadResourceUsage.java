@@ -0,0 +1,88 @@
+/*
+ * Copyright 2018 StreamSets Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.streamsets.datacollector.memory;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+/**
+ * Reads the bytes allocated and the CPU time consumed by the current thread from the JVM's {@link ThreadMXBean}.
+ *
+ * Both readings are per-thread counters maintained by the JVM, so sampling them is cheap. A reading is -1 when the
+ * JVM does not support it.
+ */
+public final class ThreadResourceUsage {
+  private static final ThreadMXBean THREAD_MX_BEAN = ManagementFactory.getThreadMXBean();
+  private static final com.sun.management.ThreadMXBean SUN_THREAD_MX_BEAN = getAllocationCapableBean();
+  private static final boolean CPU_TIME_SUPPORTED = enableCpuTime();
+
+  private ThreadResourceUsage() {
+  }
+
+  private static com.sun.management.ThreadMXBean getAllocationCapableBean() {
+    if (THREAD_MX_BEAN instanceof com.sun.management.ThreadMXBean) {
+      com.sun.management.ThreadMXBean bean = (com.sun.management.ThreadMXBean) THREAD_MX_BEAN;
+      try {
+        if (bean.isThreadAllocatedMemorySupported()) {
+          if (!bean.isThreadAllocatedMemoryEnabled()) {
+            bean.setThreadAllocatedMemoryEnabled(true);
+          }
+          return bean;
+        }
+      } catch (UnsupportedOperationException ex) {
+        // fall through, allocation accounting is not available
+      }
+    }
+    return null;
+  }
+
+  private static boolean enableCpuTime() {
+    try {
+      if (THREAD_MX_BEAN.isCurrentThreadCpuTimeSupported()) {
+        if (!THREAD_MX_BEAN.isThreadCpuTimeEnabled()) {
+          THREAD_MX_BEAN.setThreadCpuTimeEnabled(true);
+        }
+        return true;
+      }
+    } catch (UnsupportedOperationException ex) {
+      // fall through, CPU time accounting is not available
+    }
+    return false;
+  }
+
+  public static boolean isAllocatedBytesSupported() {
+    return SUN_THREAD_MX_BEAN != null;
+  }
+
+  public static boolean isCpuTimeSupported() {
+    return CPU_TIME_SUPPORTED;
+  }
+
+  /**
+   * Returns the total number of bytes allocated in the heap by the current thread, or -1 if not supported.
+   */
+  public static long getAllocatedBytes() {
+    return SUN_THREAD_MX_BEAN != null ? SUN_THREAD_MX_BEAN.getThreadAllocatedBytes(Thread.currentThread().getId()) : -1;
+  }
+
+  /**
+   * Returns the CPU time of the current thread in nanoseconds, or -1 if not supported.
+   */
+  public static long getCpuTime() {
+    return CPU_TIME_SUPPORTED ? THREAD_MX_BEAN.getCurrentThreadCpuTime() : -1;
+  }
+
+}
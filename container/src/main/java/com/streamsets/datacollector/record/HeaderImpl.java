@@ -26,6 +26,8 @@ import com.streamsets.pipeline.api.impl.LocalizableString;
 import com.streamsets.pipeline.api.Record;
 import com.streamsets.pipeline.api.impl.Utils;
 
+import java.io.IOException;
+import java.io.ObjectOutputStream;
 import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.Collections;
@@ -60,6 +62,41 @@ public class HeaderImpl implements Record.Header, Predicate<String>, Cloneable,
   //Note: additional fields should also define in ScriptRecord
 
   private Map<String, Object> map;
+  // Set when the map is shared with a copy-on-write clone, it must be copied before it's modified
+  private transient boolean mapShared;
+  // Stages path and tracking ids maintained while the record moves through the pipeline are kept in compact form,
+  // they take precedence over the map and are only rendered into it when the whole map is needed (see materialize()).
+  // They are not transient so that serializers going field by field (e.g. Kryo in Spark) don't lose them.
+  private StagePath stagesPath;
+  private TrackingId trackingId;
+  private TrackingId previousTrackingId;
+
+  /**
+   * Tracking id in the "<source id>::<stages path>" format, rendered on first use.
+   */
+  private static final class TrackingId implements Serializable {
+    private final String sourceId;
+    private final StagePath stagesPath;
+    private transient String rendered;
+
+    // for Kryo purposes
+    private TrackingId() {
+      this(null, null);
+    }
+
+    private TrackingId(String sourceId, StagePath stagesPath) {
+      this.sourceId = sourceId;
+      this.stagesPath = stagesPath;
+    }
+
+    @Override
+    public String toString() {
+      if (rendered == null) {
+        rendered = sourceId + "::" + stagesPath;
+      }
+      return rendered;
+    }
+  }
 
   public HeaderImpl() {
     map = new HashMap<>();
@@ -69,6 +106,51 @@ public class HeaderImpl implements Record.Header, Predicate<String>, Cloneable,
   // for clone() purposes
   private HeaderImpl(HeaderImpl header) {
     this.map = new HashMap<>(header.map);
+    copyCompactAttributes(header);
+  }
+
+  // for cloneCopyOnWrite() purposes
+  private HeaderImpl(Map<String, Object> sharedMap) {
+    this.map = sharedMap;
+    this.mapShared = true;
+  }
+
+  private void copyCompactAttributes(HeaderImpl header) {
+    stagesPath = header.stagesPath;
+    trackingId = header.trackingId;
+    previousTrackingId = header.previousTrackingId;
+  }
+
+  /**
+   * Renders the stages path and tracking ids kept in compact form into the attribute map. Must be called before
+   * the map is exposed or the header is serialized field by field.
+   */
+  public void materialize() {
+    if (stagesPath != null) {
+      writableMap().put(STAGES_PATH_ATTR, stagesPath.toString());
+      stagesPath = null;
+    }
+    if (trackingId != null) {
+      writableMap().put(TRACKING_ID_ATTR, trackingId.toString());
+      trackingId = null;
+    }
+    if (previousTrackingId != null) {
+      writableMap().put(PREVIOUS_TRACKING_ID_ATTR, previousTrackingId.toString());
+      previousTrackingId = null;
+    }
+  }
+
+  private void writeObject(ObjectOutputStream out) throws IOException {
+    materialize();
+    out.defaultWriteObject();
+  }
+
+  private Map<String, Object> writableMap() {
+    if (mapShared) {
+      map = new HashMap<>(map);
+      mapShared = false;
+    }
+    return map;
   }
 
   // Predicate interface
@@ -92,17 +174,17 @@ public class HeaderImpl implements Record.Header, Predicate<String>, Cloneable,
 
   @Override
   public String getStagesPath() {
-    return (String) map.get(STAGES_PATH_ATTR);
+    return (stagesPath != null) ? stagesPath.toString() : (String) map.get(STAGES_PATH_ATTR);
   }
 
   @Override
   public String getTrackingId() {
-    return (String) map.get(TRACKING_ID_ATTR);
+    return (trackingId != null) ? trackingId.toString() : (String) map.get(TRACKING_ID_ATTR);
   }
 
   @Override
   public String getPreviousTrackingId() {
-    return (String) map.get(PREVIOUS_TRACKING_ID_ATTR);
+    return (previousTrackingId != null) ? previousTrackingId.toString() : (String) map.get(PREVIOUS_TRACKING_ID_ATTR);
   }
 
   @Override
@@ -185,14 +267,14 @@ public class HeaderImpl implements Record.Header, Predicate<String>, Cloneable,
     Preconditions.checkNotNull(name, "name cannot be null");
     Preconditions.checkArgument(!name.startsWith(RESERVED_PREFIX), RESERVED_PREFIX_EXCEPTION_MSG);
     Preconditions.checkNotNull(value, "value cannot be null");
-    map.put(name, value);
+    writableMap().put(name, value);
   }
 
   @Override
   public void deleteAttribute(String name) {
     Preconditions.checkNotNull(name, "name cannot be null");
     Preconditions.checkArgument(!name.startsWith(RESERVED_PREFIX), RESERVED_PREFIX_EXCEPTION_MSG);
-    map.remove(name);
+    writableMap().remove(name);
   }
 
   // For Json serialization
@@ -253,42 +335,70 @@ public class HeaderImpl implements Record.Header, Predicate<String>, Cloneable,
 
   public void setStageCreator(String stateCreator) {
     Preconditions.checkNotNull(stateCreator, "stateCreator cannot be null");
-    map.put(STAGE_CREATOR_INSTANCE_ATTR, stateCreator);
+    writableMap().put(STAGE_CREATOR_INSTANCE_ATTR, stateCreator);
   }
 
   public void setSourceId(String sourceId) {
     Preconditions.checkNotNull(sourceId, "sourceId cannot be null");
-    map.put(RECORD_SOURCE_ID_ATTR, sourceId);
+    writableMap().put(RECORD_SOURCE_ID_ATTR, sourceId);
   }
 
   public void setStagesPath(String stagePath) {
     Preconditions.checkNotNull(stagePath, "stagePath cannot be null");
-    map.put(STAGES_PATH_ATTR, stagePath);
+    writableMap().put(STAGES_PATH_ATTR, stagePath);
+    this.stagesPath = null;
   }
 
   public void setTrackingId(String trackingId) {
     Preconditions.checkNotNull(trackingId, "trackingId cannot be null");
-    map.put(TRACKING_ID_ATTR, trackingId);
+    writableMap().put(TRACKING_ID_ATTR, trackingId);
+    this.trackingId = null;
   }
 
   public void setPreviousTrackingId(String previousTrackingId) {
     Preconditions.checkNotNull(previousTrackingId, "previousTrackingId cannot be null");
-    map.put(PREVIOUS_TRACKING_ID_ATTR, previousTrackingId);
+    writableMap().put(PREVIOUS_TRACKING_ID_ATTR, previousTrackingId);
+    this.previousTrackingId = null;
+  }
+
+  private StagePath currentStagesPath() {
+    return (stagesPath != null) ? stagesPath : StagePath.of((String) map.get(STAGES_PATH_ATTR));
+  }
+
+  /**
+   * Appends given stage to the stages path, same as setting it to getStagesPath() + ":" + stage (or just the stage
+   * if there is no stages path yet) without building the string.
+   */
+  public void addStageToStagesPath(String stage) {
+    Preconditions.checkNotNull(stage, "stage cannot be null");
+    stagesPath = currentStagesPath().append(stage);
+  }
+
+  /**
+   * Sets the tracking id to "<source id>::<stages path>", the current tracking id (if any) becomes the previous one.
+   */
+  public void createTrackingId() {
+    if (trackingId != null) {
+      previousTrackingId = trackingId;
+    } else if (map.get(TRACKING_ID_ATTR) != null) {
+      setPreviousTrackingId((String) map.get(TRACKING_ID_ATTR));
+    }
+    trackingId = new TrackingId(getSourceId(), currentStagesPath());
   }
 
   public void setRaw(byte[] raw) {
     Preconditions.checkNotNull(raw, "raw cannot be null");
-    map.put(RAW_DATA_ATTR, raw.clone());
+    writableMap().put(RAW_DATA_ATTR, raw.clone());
   }
 
   public void setRawMimeType(String rawMime) {
     Preconditions.checkNotNull(rawMime, "rawMime cannot be null");
-    map.put(RAW_MIME_TYPE_ATTR, rawMime);
+    writableMap().put(RAW_MIME_TYPE_ATTR, rawMime);
   }
 
   public void setErrorJobId(String errorJobId) {
     Preconditions.checkNotNull(errorJobId, "errorJobId cannot be null");
-    map.put(ERROR_JOB_ID, errorJobId);
+    writableMap().put(ERROR_JOB_ID, errorJobId);
   }
 
   public void setError(String errorStage, String errorStageName, ErrorMessage errorMessage) {
@@ -316,8 +426,8 @@ public class HeaderImpl implements Record.Header, Predicate<String>, Cloneable,
   }
 
   public void setErrorContext(String datacollector, String pipelineName) {
-    map.put(ERROR_DATACOLLECTOR_ID_ATTR, datacollector);
-    map.put(ERROR_PIPELINE_NAME_ATTR, pipelineName);
+    writableMap().put(ERROR_DATACOLLECTOR_ID_ATTR, datacollector);
+    writableMap().put(ERROR_PIPELINE_NAME_ATTR, pipelineName);
   }
 
   private void setError(
@@ -328,16 +438,16 @@ public class HeaderImpl implements Record.Header, Predicate<String>, Cloneable,
     long errorTimestamp,
     String errorStackTrace
   ) {
-    map.put(ERROR_STAGE_ATTR, errorStage);
-    map.put(ERROR_STAGE_LABEL_ATTR, errorStageName);
-    map.put(ERROR_CODE_ATTR, errorCode);
-    map.put(ERROR_MESSAGE_ATTR, errorMessage);
-    map.put(ERROR_TIMESTAMP_ATTR, errorTimestamp);
-    map.put(ERROR_STACKTRACE, errorStackTrace);
+    writableMap().put(ERROR_STAGE_ATTR, errorStage);
+    writableMap().put(ERROR_STAGE_LABEL_ATTR, errorStageName);
+    writableMap().put(ERROR_CODE_ATTR, errorCode);
+    writableMap().put(ERROR_MESSAGE_ATTR, errorMessage);
+    writableMap().put(ERROR_TIMESTAMP_ATTR, errorTimestamp);
+    writableMap().put(ERROR_STACKTRACE, errorStackTrace);
   }
 
   public void setSourceRecord(Record record) {
-    map.put(SOURCE_RECORD_ATTR, record);
+    writableMap().put(SOURCE_RECORD_ATTR, record);
   }
 
   public Record getSourceRecord() {
@@ -348,6 +458,7 @@ public class HeaderImpl implements Record.Header, Predicate<String>, Cloneable,
 
   @Override
   public int hashCode() {
+    materialize();
     return map.hashCode();
   }
 
@@ -355,6 +466,8 @@ public class HeaderImpl implements Record.Header, Predicate<String>, Cloneable,
   public boolean equals(Object obj) {
     boolean eq = this == obj;
     if (!eq && obj != null && obj instanceof HeaderImpl) {
+      materialize();
+      ((HeaderImpl) obj).materialize();
       Map<String, Object> otherMap = ((HeaderImpl) obj).map;
       eq = map.size() == otherMap.size();
       if (eq) {
@@ -394,6 +507,16 @@ public class HeaderImpl implements Record.Header, Predicate<String>, Cloneable,
     return new HeaderImpl(this);
   }
 
+  /**
+   * Returns a copy of this header that shares the attribute map with this one until either of them is modified.
+   */
+  public HeaderImpl cloneCopyOnWrite() {
+    mapShared = true;
+    HeaderImpl clone = new HeaderImpl(map);
+    clone.copyCompactAttributes(this);
+    return clone;
+  }
+
   @Override
   public String toString() {
     return Utils.format("HeaderImpl[{}]", getSourceId());
@@ -401,6 +524,7 @@ public class HeaderImpl implements Record.Header, Predicate<String>, Cloneable,
 
   // ImmutableMap can't have null values and our map could have, so use unmodifiable map
   public Map<String, Object> getAllAttributes() {
+    materialize();
     return Collections.unmodifiableMap(map);
   }
 
@@ -409,6 +533,7 @@ public class HeaderImpl implements Record.Header, Predicate<String>, Cloneable,
   }
 
   private Map<String, Object> getSystemAttributes() {
+    materialize();
     Map<String, Object> existingSystemAttr = new HashMap<>();
 
     //Need to do this way due to valid null values
@@ -451,6 +576,7 @@ public class HeaderImpl implements Record.Header, Predicate<String>, Cloneable,
     // ImmutableMap can't have null values and our map could have, so use unmodifiable map
     Map<String, Object> old = Collections.unmodifiableMap(map);
     map = new HashMap<>(newAttrs);
+    mapShared = false;
     return old;
   }
 
@@ -467,6 +593,7 @@ public class HeaderImpl implements Record.Header, Predicate<String>, Cloneable,
 
     //Set current map to just the Reserved System Attributes
     map = getSystemAttributes();
+    mapShared = false;
     // Add and validate each of the new user attributes
     newAttributes.forEach((k,v) -> setAttribute(k, v.toString()));
     return old;
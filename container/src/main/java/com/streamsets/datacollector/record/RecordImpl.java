@@ -16,27 +16,39 @@
 package com.streamsets.datacollector.record;
 
 import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Preconditions;
 import com.streamsets.datacollector.util.EscapeUtil;
 import com.streamsets.pipeline.api.Field;
 import com.streamsets.pipeline.api.Record;
+import com.streamsets.pipeline.api.impl.CreateByRef;
 import com.streamsets.pipeline.api.impl.Utils;
+import com.streamsets.pipeline.container.record.ReadOnlyRecord;
 
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
-public class RecordImpl implements Record, Cloneable {
+public class RecordImpl implements Record, ReadOnlyRecord, Cloneable {
   private final HeaderImpl header;
   private Field value;
   //Default true: so as to denote the record is just created
   //and initialized in a stage and did not pass through any other stage.
   private boolean isInitialRecord = true;
 
+  // Copy-on-write state (see cloneCopyOnWrite()). When set, parts of the field tree might be referenced by other
+  // records too and have to be copied before they are modified or handed out.
+  private transient boolean valueShared;
+  // Fields of a shared tree that have already been copied by this record, TRUE if the whole subtree is private to
+  // this record, FALSE if only the container itself is (its children may still be shared).
+  private transient Map<Field, Boolean> ownedFields;
+
   // need default constructor for deserialization purposes (Kryo)
   private RecordImpl() {
     header = new HeaderImpl();
@@ -72,25 +84,33 @@ public class RecordImpl implements Record, Cloneable {
   // for clone() purposes
 
   protected RecordImpl(RecordImpl record) {
+    this(record, false);
+  }
+
+  protected RecordImpl(RecordImpl record, boolean copyOnWrite) {
     Preconditions.checkNotNull(record, "record cannot be null");
-    header = record.header.clone();
-    value = (record.value != null) ? record.value.clone() : null;
+    if (copyOnWrite) {
+      header = record.header.cloneCopyOnWrite();
+      value = record.value;
+      if (value != null) {
+        // Whatever the original owned is now shared with this copy
+        valueShared = true;
+        record.valueShared = true;
+        record.ownedFields = null;
+      }
+    } else {
+      header = record.header.clone();
+      value = (record.value != null) ? record.value.clone() : null;
+    }
     isInitialRecord = record.isInitialRecord();
   }
 
   public void addStageToStagePath(String stage) {
-    Preconditions.checkNotNull(stage, "stage cannot be null");
-    String currentPath = (header.getStagesPath() == null) ? "" : header.getStagesPath() + ":";
-    header.setStagesPath(currentPath + stage);
+    header.addStageToStagesPath(stage);
   }
 
   public void createTrackingId() {
-    String currentTrackingId = header.getTrackingId();
-    String newTrackingId = getHeader().getSourceId() + "::" + getHeader().getStagesPath();
-    if (currentTrackingId != null) {
-      header.setPreviousTrackingId(currentTrackingId);
-    }
-    header.setTrackingId(newTrackingId);
+    header.createTrackingId();
   }
 
   public boolean isInitialRecord() {
@@ -108,13 +128,26 @@ public class RecordImpl implements Record, Cloneable {
 
   @Override
   public Field get() {
+    if (valueShared) {
+      // The caller can do anything with the root field, the whole tree needs to be private
+      if (!isPrivate(value)) {
+        value = deepCopy(value);
+      }
+      unshared();
+    }
+    return value;
+  }
+
+  @Override
+  public Field getReadOnly() {
     return value;
   }
 
   @Override
   public Field set(Field field) {
-    Field oldData = value;
+    Field oldData = released(value);
     value = field;
+    unshared();
     return oldData;
   }
 
@@ -264,106 +297,51 @@ public class RecordImpl implements Record, Cloneable {
   }
 
   public FieldWithPath getValue() {
-    return createFieldWithPath("", "", get());
+    return createFieldWithPath("", "", value);
   }
 
   List<PathElement> parse(String fieldPath) {
-    return PathElement.parse(fieldPath, true);
-  }
-
-  private List<Field> get(List<PathElement> elements) {
-    List<Field> fields = new ArrayList<>(elements.size());
-    if (value != null) {
-      Field current = value;
-      for (int i = 0; current != null &&  i < elements.size(); i++) {
-        Field next = null;
-        PathElement element = elements.get(i);
-        switch (element.getType()) {
-          case ROOT:
-            fields.add(current);
-            next = current;
-            break;
-          case MAP:
-            if (current.getType().isOneOf(Field.Type.MAP, Field.Type.LIST_MAP)) {
-              String name = element.getName();
-              Map<String, Field> map = current.getValueAsMap();
-              if (map != null) {
-                Field field = map.get(name);
-                if (field != null) {
-                  fields.add(field);
-                  next = field;
-                }
-              }
-            }
-            break;
-          case LIST:
-            if (current.getType().isOneOf(Field.Type.LIST, Field.Type.LIST_MAP)) {
-              int index = element.getIndex();
-              List<Field> list = current.getValueAsList();
-              if (list != null) {
-                if (list.size() > index) {
-                  Field field = list.get(index);
-                  fields.add(field);
-                  next = field;
-                }
-              }
-            }
-            break;
-          case FIELD_EXPRESSION:
-          default:
-            break;
-        }
-        current = next;
-      }
-    }
-    return fields;
+    return PathElement.parseCached(fieldPath);
   }
 
   @Override
   public Field get(String fieldPath) {
-    List<PathElement> elements = parse(fieldPath);
-    List<Field> fields = get(elements);
-    return (elements.size() == fields.size()) ? fields.get(fields.size() - 1) : null;
+    return get(CompiledFieldPath.compile(fieldPath));
   }
 
+  public Field get(CompiledFieldPath fieldPath) {
+    if (valueShared) {
+      if (fieldPath.getElements().size() == 1) {
+        return get();
+      }
+      unshare(fieldPath, fieldPath.getElements().size(), true);
+    }
+    return fieldPath.get(value);
+  }
 
   @Override
   public Field delete(String fieldPath) {
-    List<PathElement> elements = parse(fieldPath);
-    List<Field> fields = get(elements);
-    Field deleted = null;
-    int fieldPos = fields.size();
-    if (elements.size() == fieldPos) {
-      fieldPos--;
-
-      if (fieldPos == 0) {
-        // the field to delete must be a primitive. delete it directly.
-        deleted = value;
-        value = null;
-      } else {
-        // the field to delete is a map or list element, so to delete, you must remove it from the parent collection.
-        PathElement element = elements.get(fieldPos);
-        switch (element.getType()) {
-          case MAP:
-            deleted = fields.get(fieldPos - 1).getValueAsMap().remove(element.getName());
-            break;
-          case LIST:
-            deleted = fields.get(fieldPos - 1).getValueAsList().remove(element.getIndex());
-            break;
-          case FIELD_EXPRESSION:
-          default:
-            throw new IllegalStateException("Unexpected field type " + element.getType());
-        }
-      }
+    return delete(CompiledFieldPath.compile(fieldPath));
+  }
+
+  public Field delete(CompiledFieldPath fieldPath) {
+    if (fieldPath.getElements().size() == 1) {
+      return (value == null) ? null : set((Field) null);
+    }
+    if (valueShared) {
+      unshare(fieldPath, fieldPath.getElements().size() - 1, false);
+      return released(fieldPath.delete(value));
     }
-    return deleted;
+    return fieldPath.delete(value);
   }
 
   @Override
   public boolean has(String fieldPath) {
-    List<PathElement> elements = parse(fieldPath);
-    List<Field> fields = get(elements);
-    return (elements.size() == fields.size());
+    return has(CompiledFieldPath.compile(fieldPath));
+  }
+
+  public boolean has(CompiledFieldPath fieldPath) {
+    return fieldPath.has(value);
   }
 
   @Override
@@ -519,64 +497,199 @@ public class RecordImpl implements Record, Cloneable {
     return new RecordImpl(this);
   }
 
+  /**
+   * Returns a copy of this record that shares the header and the field tree with this record. Both records copy
+   * whatever part of the tree they modify (or hand out through {@link #get()} and the field path getters) on first
+   * access, so the copies are as independent as the ones returned by {@link #clone()}, the parts that are only
+   * routed or read through {@link #has(String)} and the serialization getters are never copied.
+   */
+  public RecordImpl cloneCopyOnWrite() {
+    return new RecordImpl(this, true);
+  }
+
+  @VisibleForTesting
+  boolean isValueShared() {
+    return valueShared;
+  }
+
   @Override
   public Field set(String fieldPath, Field newField) {
-    //get all the elements present in the fieldPath, including the newest element
-    //For example, if the existing record has /a/b/c and the argument fieldPath is /a/b/d the parser returns three
-    // elements - a, b and d
-    List<PathElement> elements = parse(fieldPath);
-    //return all *existing* fields form the list of elements
-    //In the above case it is going to return only field a and field b. Field d does not exist.
-    List<Field> fields = get(elements);
-    Field fieldToReplace;
-    int fieldPos = fields.size();
-    if (elements.size() == fieldPos) {
-      //The number of elements in the path is same as the number of fields => set use case
-      fieldPos--;
-      fieldToReplace = doSet(fieldPos, newField, elements, fields);
-    } else if (elements.size() -1 == fieldPos) {
-      //The number of elements in the path is on more than the number of fields => add use case
-      fieldToReplace = doSet(fieldPos, newField, elements, fields);
-    } else {
-      throw new IllegalArgumentException(Utils.format("Field-path '{}' not reachable", fieldPath));
+    return set(CompiledFieldPath.compile(fieldPath), newField);
+  }
+
+  public Field set(CompiledFieldPath fieldPath, Field newField) {
+    if (fieldPath.getElements().size() == 1) {
+      return set(newField);
+    }
+    if (valueShared) {
+      unshare(fieldPath, fieldPath.getElements().size() - 1, false);
+      Field oldField = released(fieldPath.set(value, newField));
+      if (newField != null) {
+        ownedFields.put(newField, Boolean.TRUE);
+      }
+      return oldField;
     }
-    return fieldToReplace;
+    return fieldPath.set(value, newField);
   }
 
-  private Field doSet(int fieldPos, Field newField, List<PathElement> elements, List<Field> fields) {
-    Field fieldToReplace = null;
-    if (fieldPos == 0) {
-      //root element
-      fieldToReplace = value;
-      value = newField;
-    } else {
-      //get the type of the element based on the output of the parser.
-      //Note that this is not the real type of the field, this is how the parser interpreted the fieldPath argument
-      //to the set API above. For example if fieldPath is /a/b parser interprets a as type map, if fieldPath is a[0]/b
-      //parser interprets a as of type list
-      switch (elements.get(fieldPos).getType()) {
-        case MAP:
-          //get the name of the field which must be added
-          String elementName = elements.get(fieldPos).getName();
-          //attempt to get the parent as a map type.
-          fieldToReplace = fields.get(fieldPos - 1).getValueAsMap().put(elementName, newField);
-          break;
-        case LIST:
-          int elementIndex = elements.get(fieldPos).getIndex();
-          Field parentField = fields.get(fieldPos - 1);
-          if(elementIndex == parentField.getValueAsList().size()){
-            //add at end
-            parentField.getValueAsList().add(newField);
-          } else {
-            //replace existing value
-            fieldToReplace = parentField.getValueAsList().set(elementIndex, newField);
+  // Copy-on-write support
+
+  private void unshared() {
+    valueShared = false;
+    ownedFields = null;
+  }
+
+  private boolean isPrivate(Field field) {
+    return field == null || (ownedFields != null && ownedFields.get(field) == Boolean.TRUE);
+  }
+
+  // Field removed from a shared tree, it might still be referenced by other records
+  private Field released(Field field) {
+    return (valueShared && !isPrivate(field)) ? deepCopy(field) : field;
+  }
+
+  /**
+   * Makes the first {@code depth} fields of the given path private to this record, copying the ones that are still
+   * shared without their children. If {@code exposeLast} is set the last of them is deep copied instead as it's about
+   * to be handed out. Stops at the first field that doesn't exist.
+   */
+  private void unshare(CompiledFieldPath fieldPath, int depth, boolean exposeLast) {
+    if (ownedFields == null) {
+      ownedFields = new IdentityHashMap<>();
+    }
+    List<PathElement> elements = fieldPath.getElements();
+    Field parent = null;
+    Field current = value;
+    for (int i = 0; i < depth && current != null; i++) {
+      if (i > 0) {
+        parent = current;
+        current = getChild(parent, elements.get(i));
+        if (current == null) {
+          return;
+        }
+      }
+      Boolean owned = ownedFields.get(current);
+      if (owned == Boolean.TRUE) {
+        // Everything below is private already
+        return;
+      }
+      Field copy;
+      if (exposeLast && i == depth - 1) {
+        copy = deepCopy(current);
+        ownedFields.put(copy, Boolean.TRUE);
+      } else if (owned == null) {
+        copy = shallowCopy(current);
+        ownedFields.put(copy, Boolean.FALSE);
+      } else {
+        continue;
+      }
+      if (parent == null) {
+        value = copy;
+      } else {
+        setChild(parent, elements.get(i), copy);
+      }
+      current = copy;
+    }
+  }
+
+  private static Field getChild(Field parent, PathElement element) {
+    Object container = parent.getValue();
+    if (container == null) {
+      return null;
+    }
+    switch (element.getType()) {
+      case MAP:
+        return (parent.getType().isOneOf(Field.Type.MAP, Field.Type.LIST_MAP))
+            ? parent.getValueAsMap().get(element.getName()) : null;
+      case LIST:
+        if (parent.getType() == Field.Type.LIST) {
+          List<Field> list = parent.getValueAsList();
+          return (element.getIndex() < list.size()) ? list.get(element.getIndex()) : null;
+        } else if (parent.getType() == Field.Type.LIST_MAP) {
+          Map<String, Field> map = parent.getValueAsListMap();
+          if (element.getIndex() < map.size()) {
+            Iterator<Field> it = map.values().iterator();
+            for (int i = 0; i < element.getIndex(); i++) {
+              it.next();
+            }
+            return it.next();
           }
-          break;
-        case FIELD_EXPRESSION:
-        case ROOT:
-          break;
+        }
+        return null;
+      default:
+        return null;
+    }
+  }
+
+  private static void setChild(Field parent, PathElement element, Field child) {
+    if (element.getType() == PathElement.Type.MAP) {
+      parent.getValueAsMap().put(element.getName(), child);
+    } else if (parent.getType() == Field.Type.LIST) {
+      parent.getValueAsList().set(element.getIndex(), child);
+    } else {
+      Iterator<Map.Entry<String, Field>> it = parent.getValueAsListMap().entrySet().iterator();
+      for (int i = 0; i < element.getIndex(); i++) {
+        it.next();
       }
+      it.next().setValue(child);
+    }
+  }
+
+  // New container holding the same children
+  private static Field shallowCopy(Field field) {
+    switch (field.getType()) {
+      case MAP:
+      case LIST_MAP:
+        Map<String, Field> map = field.getValueAsMap();
+        return createByRef(field, (map == null) ? null : new LinkedHashMap<>(map));
+      case LIST:
+        List<Field> list = field.getValueAsList();
+        return createByRef(field, (list == null) ? null : new ArrayList<>(list));
+      default:
+        return field.clone();
+    }
+  }
+
+  // Same as Field.clone(), but it copies the containers even when invoked from a stage running in by-reference mode
+  private static Field deepCopy(Field field) {
+    if (field == null) {
+      return null;
+    }
+    switch (field.getType()) {
+      case MAP:
+      case LIST_MAP:
+        Map<String, Field> map = field.getValueAsMap();
+        if (map == null) {
+          return field.clone();
+        }
+        Map<String, Field> mapCopy = new LinkedHashMap<>();
+        for (Map.Entry<String, Field> entry : map.entrySet()) {
+          mapCopy.put(entry.getKey(), deepCopy(entry.getValue()));
+        }
+        return createByRef(field, mapCopy);
+      case LIST:
+        List<Field> list = field.getValueAsList();
+        if (list == null) {
+          return field.clone();
+        }
+        List<Field> listCopy = new ArrayList<>(list.size());
+        for (Field element : list) {
+          listCopy.add(deepCopy(element));
+        }
+        return createByRef(field, listCopy);
+      default:
+        return field.clone();
+    }
+  }
+
+  private static Field createByRef(Field field, Object value) {
+    if (CreateByRef.isByRef()) {
+      return Field.create(field.getType(), value, field.getAttributes());
+    }
+    try {
+      return CreateByRef.call(() -> Field.create(field.getType(), value, field.getAttributes()));
+    } catch (Exception ex) {
+      throw new IllegalStateException(ex);
     }
-    return fieldToReplace;
   }
 }
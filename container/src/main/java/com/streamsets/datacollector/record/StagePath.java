@@ -0,0 +1,135 @@
+/*
+ * Copyright 2018 StreamSets Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.streamsets.datacollector.record;
+
+import java.io.Serializable;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Compact, immutable representation of the stages path of a record header.
+ *
+ * A path is a node pointing to its parent path plus the last stage. Appending a stage returns a child node that is
+ * cached in the parent, so all records that went through the same stages share the very same node and adding a stage
+ * to a record doesn't allocate anything once the pipeline has warmed up. The "a:b:c" string is only built when it's
+ * asked for, and it's then cached in the node as well.
+ *
+ * Only the parent, the stage and the base string are serialized, so records serialized field by field (Kryo in
+ * Spark or cluster mode) keep their path without it having to be rendered first.
+ */
+final class StagePath implements Serializable {
+
+  /**
+   * Upper bound of cached children per node, paths beyond that (e.g. records received with arbitrary paths) are
+   * still correct but not shared.
+   */
+  private static final int MAX_CHILDREN = 64;
+
+  /**
+   * Upper bound of cached nodes in total. Stage names differ between pipelines, so a long running data collector
+   * would otherwise keep adding nodes, when the limit is reached the cache is simply emptied and starts over.
+   */
+  private static final int MAX_CACHED_PATHS = Integer.parseInt(
+      System.getProperty("com.streamsets.datacollector.record.StagePath.cache_max", "100000")
+  );
+
+  private static final AtomicInteger CACHED_PATHS = new AtomicInteger();
+
+  // Path of a record that didn't go through any stage yet, renders as null
+  static final StagePath NONE = new StagePath(null, null, null);
+
+  private final StagePath parent;
+  private final String stage;
+  // Whole path of a node created from a string, null for nodes created by append()
+  private final String base;
+  private transient volatile String rendered;
+  private transient volatile Map<String, StagePath> children = Collections.emptyMap();
+
+  // for Kryo purposes
+  private StagePath() {
+    this(null, null, null);
+  }
+
+  private StagePath(StagePath parent, String stage, String base) {
+    this.parent = parent;
+    this.stage = stage;
+    this.base = base;
+  }
+
+  /**
+   * Returns path for given stages path string, as found in headers created from a string representation.
+   */
+  static StagePath of(String stagesPath) {
+    return (stagesPath == null) ? NONE : new StagePath(null, null, stagesPath);
+  }
+
+  StagePath append(String stage) {
+    // children is null for deserialized nodes
+    Map<String, StagePath> current = children;
+    StagePath child = (current == null) ? null : current.get(stage);
+    if (child == null) {
+      child = new StagePath(this, stage, null);
+      synchronized (this) {
+        current = (children == null) ? Collections.<String, StagePath>emptyMap() : children;
+        StagePath existing = current.get(stage);
+        if (existing != null) {
+          child = existing;
+        } else if (current.size() < MAX_CHILDREN) {
+          if (CACHED_PATHS.incrementAndGet() > MAX_CACHED_PATHS) {
+            clearCache();
+          }
+          Map<String, StagePath> newChildren = new HashMap<>(current);
+          newChildren.put(stage, child);
+          children = newChildren;
+        }
+      }
+    }
+    return child;
+  }
+
+  /**
+   * Drops all cached paths. Nodes still referenced by records stay valid, they are just not shared anymore by
+   * records going through the same stages later on.
+   */
+  static void clearCache() {
+    synchronized (NONE) {
+      NONE.children = Collections.emptyMap();
+    }
+    CACHED_PATHS.set(0);
+  }
+
+  static int getCachedPaths() {
+    return CACHED_PATHS.get();
+  }
+
+  @Override
+  public String toString() {
+    String string = rendered;
+    if (string == null) {
+      if (parent == null) {
+        string = base;
+      } else {
+        String parentString = parent.toString();
+        // same format as the original string concatenation, a path that is just "" gets a leading ':'
+        string = (parentString == null) ? stage : parentString + ":" + stage;
+      }
+      rendered = string;
+    }
+    return string;
+  }
+}
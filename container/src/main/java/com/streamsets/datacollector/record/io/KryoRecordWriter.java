@@ -17,6 +17,8 @@ package com.streamsets.datacollector.record.io;
 
 import com.esotericsoftware.kryo.Kryo;
 import com.esotericsoftware.kryo.io.Output;
+import com.esotericsoftware.kryo.serializers.FieldSerializer;
+import com.streamsets.datacollector.record.HeaderImpl;
 import com.streamsets.pipeline.api.Record;
 import com.streamsets.pipeline.api.ext.RecordWriter;
 import com.streamsets.pipeline.api.impl.Utils;
@@ -31,6 +33,15 @@ public class KryoRecordWriter implements RecordWriter {
 
   public KryoRecordWriter(OutputStream outputStream) throws IOException {
     kryo = new Kryo();
+    // The stages path and tracking ids are not kept in the attribute map until they are needed, default serializer
+    // rather than registration so that the encoding doesn't change
+    kryo.addDefaultSerializer(HeaderImpl.class, new FieldSerializer<HeaderImpl>(kryo, HeaderImpl.class) {
+      @Override
+      public void write(Kryo kryo, Output output, HeaderImpl header) {
+        header.materialize();
+        super.write(kryo, output, header);
+      }
+    });
     output = new Output(outputStream);
   }
 
@@ -302,11 +302,14 @@ public class PipelineStoreResource {
 
     final List<PipelineInfo> pipelineInfoList = store.getPipelines();
     final Map<String, PipelineState> pipelineStateCache = new HashMap<>();
+    final String lowerCaseFilterText = (filterText != null) ? filterText.toLowerCase() : "";
 
     Collection<PipelineInfo> filteredCollection = Collections2.filter(pipelineInfoList, pipelineInfo -> {
-      String title = pipelineInfo.getTitle() != null ? pipelineInfo.getTitle() : pipelineInfo.getPipelineId();
-      if (filterText != null && !title.toLowerCase().contains(filterText.toLowerCase())) {
-        return false;
+      if (!lowerCaseFilterText.isEmpty()) {
+        String title = pipelineInfo.getTitle() != null ? pipelineInfo.getTitle() : pipelineInfo.getPipelineId();
+        if (!title.toLowerCase().contains(lowerCaseFilterText)) {
+          return false;
+        }
       }
       if (label != null) {
         try {
@@ -429,7 +432,7 @@ public class PipelineStoreResource {
 
     Object responseData;
 
-    if (filteredList.size() > 0) {
+    if (offset < filteredList.size()) {
       int endIndex = offset + len;
       if (len == -1 || endIndex > filteredList.size()) {
         endIndex = filteredList.size();
@@ -23,16 +23,22 @@ import com.google.common.collect.ImmutableSet;
 import com.google.common.util.concurrent.RateLimiter;
 import com.streamsets.datacollector.record.RecordImpl;
 import com.streamsets.pipeline.api.BatchMaker;
+import com.streamsets.pipeline.api.Field;
 import com.streamsets.pipeline.api.Record;
+import com.streamsets.pipeline.api.Stage;
 import com.streamsets.pipeline.api.StageType;
 import com.streamsets.pipeline.api.impl.Utils;
+import com.streamsets.pipeline.container.record.ReadOnlyRecord;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import javax.annotation.Nullable;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -50,7 +56,12 @@ public class BatchMakerImpl implements BatchMaker {
   private int recordAllowance;
   private int size;
   private boolean recordByRef;
+  private boolean copyOnWrite;
   private Optional<RateLimiter> rateLimiterOptional = Optional.absent();
+  // value trees of the records given to the stage, output records still holding one of them were not created or
+  // modified by the stage
+  private Set<Field> inputValues;
+  private List<Record> createdRecords;
 
   public BatchMakerImpl(StagePipe stagePipe, boolean keepSnapshot) {
     this(stagePipe, keepSnapshot, Integer.MAX_VALUE);
@@ -74,12 +85,22 @@ public class BatchMakerImpl implements BatchMaker {
     // we can skip one copy here (just here though), except if we are in preview
     recordByRef = !stagePipe.getStage().getContext().isPreview() &&
                   stagePipe.getStage().getDefinition().getRecordsByRef();
+    Stage.Context context = stagePipe.getStage().getContext();
+    copyOnWrite = context instanceof StageContext && ((StageContext) context).isCopyOnWriteRecords();
   }
 
   boolean isRecordByRef() {
     return recordByRef;
   }
 
+  boolean isCopyOnWrite() {
+    return copyOnWrite;
+  }
+
+  private RecordImpl copy(RecordImpl record) {
+    return (copyOnWrite) ? record.cloneCopyOnWrite() : record.clone();
+  }
+
   public StagePipe getStagePipe() {
     return stagePipe;
   }
@@ -92,7 +113,7 @@ public class BatchMakerImpl implements BatchMaker {
   @VisibleForTesting
   RecordImpl getRecordForBatchMaker(Record record) {
     // in the constructor we figured out if we can do recordByRef or not
-    return (recordByRef) ? (RecordImpl) record: ((RecordImpl) record).clone();
+    return (recordByRef) ? (RecordImpl) record: copy((RecordImpl) record);
   }
 
   @Override
@@ -107,11 +128,15 @@ public class BatchMakerImpl implements BatchMaker {
     Preconditions.checkNotNull(record, "record cannot be null");
 
     RecordImpl recordCopy = getRecordForBatchMaker(record);
+    // the stage's own record, the copy of a copy-on-write record shares its value but a full copy does not
+    if (createdRecords != null && !inputValues.contains(ReadOnlyRecord.getReadOnly(record))) {
+      createdRecords.add(recordCopy);
+    }
     recordCopy.addStageToStagePath(instanceName);
     recordCopy.createTrackingId();
 
     if (recordCopy.isInitialRecord()) {
-      RecordImpl recordSource = recordCopy.clone();
+      RecordImpl recordSource = copy(recordCopy);
       recordCopy.getHeader().setSourceRecord(recordSource);
       recordCopy.setInitialRecord(false);
     }
@@ -140,7 +165,7 @@ public class BatchMakerImpl implements BatchMaker {
       }
     }
     if (stageOutputSnapshot != null) {
-      recordCopy = recordCopy.clone();
+      recordCopy = copy(recordCopy);
       if (lanes.length == 0) {
         stageOutputSnapshot.get(singleOutputLane).add(recordCopy);
       } else {
@@ -156,6 +181,27 @@ public class BatchMakerImpl implements BatchMaker {
     return stageOutput;
   }
 
+  /**
+   * Tracks the output records the stage created or modified, as opposed to records it passed through.
+   *
+   * @param inputBatch the batch given to the stage.
+   */
+  void trackCreatedRecords(BatchImpl inputBatch) {
+    inputValues = Collections.newSetFromMap(new IdentityHashMap<>());
+    Iterator<Record> records = inputBatch.getRecords();
+    while (records.hasNext()) {
+      inputValues.add(ReadOnlyRecord.getReadOnly(records.next()));
+    }
+    createdRecords = new ArrayList<>();
+  }
+
+  /**
+   * Returns the output records the stage created or modified, or NULL if they are not being tracked.
+   */
+  public List<Record> getCreatedRecords() {
+    return createdRecords;
+  }
+
   public Map<String, List<Record>> getStageOutputSnapshot() {
     return stageOutputSnapshot;
   }
@@ -28,6 +28,10 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
+/**
+ * Sink for all error records and stage errors of a batch, stages on parallel branches can report errors at the same
+ * time.
+ */
 public class ErrorSink implements ReportErrorDelegate {
 
   private final Map<String, List<ErrorMessage>> stageErrors;
@@ -45,18 +49,18 @@ public class ErrorSink implements ReportErrorDelegate {
   }
 
   // for SDK
-  public void clear() {
+  public synchronized void clear() {
     stageErrors.clear();
     errorRecords.clear();
   }
 
   @Override
-  public void reportError(String stage, ErrorMessage errorMessage) {
+  public synchronized void reportError(String stage, ErrorMessage errorMessage) {
     addError(stageErrors, stage, errorMessage);
     totalErrorMessages++;
   }
 
-  public void addRecord(String stage, Record errorRecord) {
+  public synchronized void addRecord(String stage, Record errorRecord) {
     addError(errorRecords, stage, errorRecord);
     totalErrorRecords++;
   }
@@ -81,30 +85,30 @@ public class ErrorSink implements ReportErrorDelegate {
     return (errors != null) ? errors : Collections.emptyList();
   }
 
-  public List<Record> getErrorRecords(String stage) {
+  public synchronized List<Record> getErrorRecords(String stage) {
     return getErrors(errorRecords, stage);
   }
 
-  public List<ErrorMessage> getStageErrors(String stage) {
+  public synchronized List<ErrorMessage> getStageErrors(String stage) {
     return getErrors(stageErrors, stage);
   }
 
-  public int size() {
+  public synchronized int size() {
     return size;
   }
 
   @Override
-  public String toString() {
+  public synchronized String toString() {
     Set<String> stages = new HashSet<>(errorRecords.keySet());
     stages.addAll(stageErrors.keySet());
     return Utils.format("ErrorSink[reportingInstances='{}' size='{}']", stages, size());
   }
 
-  public int getTotalErrorRecords() {
+  public synchronized int getTotalErrorRecords() {
     return totalErrorRecords;
   }
 
-  public int getTotalErrorMessages() {
+  public synchronized int getTotalErrorMessages() {
     return totalErrorMessages;
   }
 
@@ -35,7 +35,7 @@ public class EventSink {
     this.eventRecords = new LinkedHashMap<>();
   }
 
-  public void addEvent(String stage, EventRecord event) {
+  public synchronized void addEvent(String stage, EventRecord event) {
     List<EventRecord> events = eventRecords.get(stage);
     if(events == null) {
       events = new ArrayList<>();
@@ -45,7 +45,7 @@ public class EventSink {
     events.add(event);
   }
 
-  public List<EventRecord> getStageEventsAsEventRecords(String stage) {
+  public synchronized List<EventRecord> getStageEventsAsEventRecords(String stage) {
     return eventRecords.containsKey(stage) ? eventRecords.get(stage) : Collections.emptyList();
   }
 
@@ -58,7 +58,7 @@ public class EventSink {
     return records;
   }
 
-  public void clear() {
+  public synchronized void clear() {
     this.eventRecords.clear();
   }
 }
@@ -37,6 +37,12 @@ import java.util.Map;
 import java.util.Set;
 import java.util.stream.Collectors;
 
+/**
+ * Pipe batch holding the whole payload of a pipeline runner.
+ *
+ * Independent branches of the pipeline can be processed concurrently, so all methods that are called while processing
+ * pipes are thread safe. Interceptors and record copies are run outside of the lock.
+ */
 public class FullPipeBatch implements PipeBatch {
 
   private final String sourceEntity;
@@ -53,6 +59,7 @@ public class FullPipeBatch implements PipeBatch {
   private int inputRecords;
   private int outputRecords;
   private RateLimiter rateLimiter;
+  private boolean copyOnWrite;
 
   // True if the batch was created by a framework rather then origin
   private boolean isIdleBatch;
@@ -103,11 +110,13 @@ public class FullPipeBatch implements PipeBatch {
   public BatchImpl getBatch(final Pipe pipe, List<? extends Interceptor> interceptors) throws StageException {
     List<Record> records = new ArrayList<>();
     List<String> inputLanes = pipe.getInputLanes();
-    for (String inputLane : inputLanes) {
-      records.addAll(fullPayload.get(inputLane));
-    }
-    if (pipe.getStage().getDefinition().getType().isOneOf(StageType.TARGET, StageType.EXECUTOR)) {
-      outputRecords += records.size();
+    synchronized (this) {
+      for (String inputLane : inputLanes) {
+        records.addAll(fullPayload.get(inputLane));
+      }
+      if (pipe.getStage().getDefinition().getType().isOneOf(StageType.TARGET, StageType.EXECUTOR)) {
+        outputRecords += records.size();
+      }
     }
 
     // Run interceptors as part before providing data to the stage
@@ -118,7 +127,7 @@ public class FullPipeBatch implements PipeBatch {
   }
 
   @Override
-  public BatchMakerImpl startStage(StagePipe pipe) {
+  public synchronized BatchMakerImpl startStage(StagePipe pipe) {
     String stageName = pipe.getStage().getInfo().getInstanceName();
     Preconditions.checkState(!processedStages.contains(stageName), Utils.formatL(
       "The stage '{}' has been processed already", stageName));
@@ -130,12 +139,14 @@ public class FullPipeBatch implements PipeBatch {
                           ? getBatchSize() : Integer.MAX_VALUE;
     BatchMakerImpl batchMaker = new BatchMakerImpl(pipe, stageOutputSnapshot != null, recordAllowance);
     batchMaker.setRateLimiter(rateLimiter);
+    // Copy-on-write is a pipeline wide setting, the stages of the batch all agree on it
+    copyOnWrite = batchMaker.isCopyOnWrite();
     return batchMaker;
   }
 
   @Override
   @SuppressWarnings("unchecked")
-  public void skipStage(Pipe pipe) {
+  public synchronized void skipStage(Pipe pipe) {
     // Fill expected stage output lanes with empty lists
     pipe.getOutputLanes().stream().forEach(lane -> fullPayload.put((String)lane, Collections.emptyList()));
     // Components are allowed to generate events on destroy phase and hence we need to use default empty
@@ -146,21 +157,19 @@ public class FullPipeBatch implements PipeBatch {
   @Override
   public void completeStage(BatchMakerImpl batchMaker, List<? extends Interceptor> interceptors) throws StageException {
     StagePipe pipe = batchMaker.getStagePipe();
-    if (pipe.getStage().getDefinition().getType() == StageType.SOURCE) {
-      inputRecords += batchMaker.getSize() +
-          errorSink.getErrorRecords(pipe.getStage().getInfo().getInstanceName()).size();
-    }
     Map<String, List<Record>> stageOutput = batchMaker.getStageOutput();
     // convert lane names from stage naming to pipe naming when adding to the payload
     // leveraging the fact that the stage output lanes and the pipe output lanes are in the same order
+    Map<String, List<Record>> pipeOutput = new HashMap<>();
     List<String> stageLaneNames = pipe.getStage().getConfiguration().getOutputLanes();
     for (int i = 0; i < stageLaneNames.size() ; i++) {
       String stageLaneName = stageLaneNames.get(i);
       String pipeLaneName = pipe.getOutputLanes().get(i);
       List<Record> records  = stageOutput.get(stageLaneName);
 
-      fullPayload.put(pipeLaneName, intercept(records, interceptors));
+      pipeOutput.put(pipeLaneName, intercept(records, interceptors));
     }
+    StageOutput snapshot = null;
     if (stageOutputSnapshot != null) {
       String instanceName = pipe.getStage().getInfo().getInstanceName();
       // The snapshot have a (deep) copy of the records so we need to run the interceptors again. We might eventually
@@ -169,16 +178,26 @@ public class FullPipeBatch implements PipeBatch {
       for(Map.Entry<String, List<Record>> entry : batchMaker.getStageOutputSnapshot().entrySet()) {
         records.put(entry.getKey(), intercept(entry.getValue(), interceptors));
       }
-      stageOutputSnapshot.add(new StageOutput(instanceName, records, errorSink, eventSink));
+      snapshot = new StageOutput(instanceName, records, errorSink, eventSink);
     }
-    if (pipe.getStage().getDefinition().getType().isOneOf(StageType.TARGET, StageType.EXECUTOR)) {
-      outputRecords -= errorSink.getErrorRecords(pipe.getStage().getInfo().getInstanceName()).size();
+    synchronized (this) {
+      if (pipe.getStage().getDefinition().getType() == StageType.SOURCE) {
+        inputRecords += batchMaker.getSize() +
+            errorSink.getErrorRecords(pipe.getStage().getInfo().getInstanceName()).size();
+      }
+      fullPayload.putAll(pipeOutput);
+      if (snapshot != null) {
+        stageOutputSnapshot.add(snapshot);
+      }
+      if (pipe.getStage().getDefinition().getType().isOneOf(StageType.TARGET, StageType.EXECUTOR)) {
+        outputRecords -= errorSink.getErrorRecords(pipe.getStage().getInfo().getInstanceName()).size();
+      }
+      completeStage(pipe);
     }
-    completeStage(pipe);
   }
 
   @Override
-  public void completeStage(StagePipe pipe) {
+  public synchronized void completeStage(StagePipe pipe) {
     List<String> inputLanes = pipe.getInputLanes();
     for(String inputLane : inputLanes) {
       fullPayload.remove(inputLane);
@@ -190,7 +209,7 @@ public class FullPipeBatch implements PipeBatch {
   }
 
   @Override
-  public Map<String, List<Record>> getLaneOutputRecords(List<String> pipeLanes) {
+  public synchronized Map<String, List<Record>> getLaneOutputRecords(List<String> pipeLanes) {
     Map<String, List<Record>> snapshot = new HashMap<>();
     for (String pipeLane : pipeLanes) {
       //The observer will copy
@@ -203,7 +222,7 @@ public class FullPipeBatch implements PipeBatch {
   private List<Record> createSnapshot(List<Record> records) {
     List<Record> list = new ArrayList<>(records.size());
     for (Record record : records) {
-      list.add(((RecordImpl) record).clone());
+      list.add(copy((RecordImpl) record));
     }
     return list;
   }
@@ -218,7 +237,7 @@ public class FullPipeBatch implements PipeBatch {
 
   @Override
   @SuppressWarnings("unchecked")
-  public void overrideStageOutput(StagePipe pipe, StageOutput stageOutput) {
+  public synchronized void overrideStageOutput(StagePipe pipe, StageOutput stageOutput) {
     startStage(pipe);
     for (String pipeLaneName : pipe.getOutputLanes()) {
       String stageLaneName = LaneResolver.removePostFixFromLane(pipeLaneName);
@@ -300,25 +319,39 @@ public class FullPipeBatch implements PipeBatch {
   }
 
   @Override
-  public void moveLane(String inputLane, String outputLane) {
+  public synchronized void moveLane(String inputLane, String outputLane) {
     fullPayload.put(outputLane, Preconditions.checkNotNull(fullPayload.remove(inputLane), Utils.formatL(
         "Stream '{}' does not exist", inputLane)));
   }
 
   @Override
   public void moveLaneCopying(String inputLane, List<String> outputLanes) {
-    List<Record> records = Preconditions.checkNotNull(fullPayload.remove(inputLane), Utils.formatL(
-        "Stream '{}' does not exist", inputLane));
+    List<Record> records;
+    synchronized (this) {
+      records = Preconditions.checkNotNull(fullPayload.remove(inputLane), Utils.formatL(
+          "Stream '{}' does not exist", inputLane));
+      for (String lane : outputLanes) {
+        Preconditions.checkState(!fullPayload.containsKey(lane), Utils.formatL("Lane '{}' already exists", lane));
+      }
+    }
+    // The copies are the expensive part, only the lane that was just removed is used by them
+    Map<String, List<Record>> copies = new HashMap<>();
     for (String lane : outputLanes) {
-      Preconditions.checkState(!fullPayload.containsKey(lane), Utils.formatL("Lane '{}' already exists", lane));
-      fullPayload.put(lane, createCopy(records));
+      copies.put(lane, createCopy(records));
     }
+    synchronized (this) {
+      fullPayload.putAll(copies);
+    }
+  }
+
+  private RecordImpl copy(RecordImpl record) {
+    return (copyOnWrite) ? record.cloneCopyOnWrite() : record.clone();
   }
 
   private List<Record> createCopy(List<Record> records) {
     List<Record> list = new ArrayList<>(records.size());
     for (Record record : records) {
-      list.add(((RecordImpl) record).clone());
+      list.add(copy((RecordImpl) record));
     }
     return list;
   }
@@ -16,6 +16,7 @@
 package com.streamsets.datacollector.runner;
 
 import com.codahale.metrics.MetricRegistry;
+import com.google.common.base.Throwables;
 import com.google.common.collect.ImmutableList;
 import com.streamsets.datacollector.metrics.MetricsConfigurator;
 import com.streamsets.datacollector.util.PipelineException;
@@ -27,9 +28,16 @@ import com.streamsets.pipeline.api.Target;
 import com.streamsets.pipeline.lib.log.LogConstants;
 import org.slf4j.MDC;
 
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * Pipe Runner that wraps one source-less instance of the pipeline.
@@ -62,6 +70,18 @@ public class PipeRunner {
    */
   private final List<Pipe> pipes;
 
+  /**
+   * For each pipe, indexes of the pipes producing its input lanes.
+   *
+   * Pipes are sorted topologically, so all indexes are lower than the index of the pipe itself.
+   */
+  private final int[][] dependencies;
+
+  /**
+   * True if at least two pipes don't depend on each other and hence can be processed at the same time.
+   */
+  private final boolean branching;
+
   /**
    * Gauge with runtime metrics of this runner.
    */
@@ -76,6 +96,8 @@ public class PipeRunner {
   ) {
     this.runnerId = runnerId;
     this.pipes = ImmutableList.copyOf(pipes);
+    this.dependencies = resolveDependencies(this.pipes);
+    this.branching = isBranching(this.dependencies);
 
     // Create metric gauge for this particular runner
     this.runtimeMetricGauge = MetricsConfigurator.createStageGauge(
@@ -117,6 +139,26 @@ public class PipeRunner {
       String offsetValue,
       long batchStartTime,
       ThrowingConsumer<Pipe> consumer
+  ) throws PipelineRuntimeException, StageException {
+    executeBatch(offsetKey, offsetValue, batchStartTime, null, consumer);
+  }
+
+  /**
+   * Run batch with given consumer for each pipe, processing independent branches of the pipeline concurrently.
+   *
+   * A pipe is given to the consumer only once all the pipes producing its input lanes are done, so each pipe still
+   * sees exactly the same data as when running sequentially. The method returns only after all pipes finished. When
+   * a pipe fails, pipes that haven't started yet are not processed and the first failure is rethrown.
+   *
+   * @param branchExecutor Executor for the independent branches, the batch is processed sequentially on the calling
+   *                       thread if null or if the pipeline doesn't branch.
+   */
+  public void executeBatch(
+      String offsetKey,
+      String offsetValue,
+      long batchStartTime,
+      ExecutorService branchExecutor,
+      ThrowingConsumer<Pipe> consumer
   ) throws PipelineRuntimeException, StageException {
     MDC.put(LogConstants.RUNNER, String.valueOf(runnerId));
     // Persist static information for the batch (this won't change as the batch progresses)
@@ -125,15 +167,13 @@ public class PipeRunner {
     this.runtimeMetricGauge.put(METRIC_OFFSET_KEY, Optional.ofNullable(offsetValue).orElse(""));
     this.runtimeMetricGauge.put(METRIC_STAGE_START_TIME, System.currentTimeMillis());
     try {
-      // Run one pipe at a time
-      for(Pipe p : pipes) {
-        this.runtimeMetricGauge.put(METRIC_CURRENT_STAGE, p.getStage().getInfo().getInstanceName());
-        if(p instanceof StagePipe) {
-          this.runtimeMetricGauge.put(METRIC_STAGE_START_TIME, System.currentTimeMillis());
+      if (branchExecutor != null && branching) {
+        executeBranches(branchExecutor, consumer);
+      } else {
+        // Run one pipe at a time
+        for(Pipe p : pipes) {
+          executePipe(p, consumer);
         }
-
-        // Process pipe
-        consumer.accept(p);
       }
 
       // We've successfully finished batch
@@ -144,6 +184,57 @@ public class PipeRunner {
     }
   }
 
+  private void executePipe(Pipe p, ThrowingConsumer<Pipe> consumer) throws PipelineRuntimeException, StageException {
+    this.runtimeMetricGauge.put(METRIC_CURRENT_STAGE, p.getStage().getInfo().getInstanceName());
+    if(p instanceof StagePipe) {
+      this.runtimeMetricGauge.put(METRIC_STAGE_START_TIME, System.currentTimeMillis());
+    }
+
+    // Process pipe
+    consumer.accept(p);
+  }
+
+  private void executeBranches(
+      ExecutorService branchExecutor,
+      ThrowingConsumer<Pipe> consumer
+  ) throws PipelineRuntimeException, StageException {
+    Map<String, String> mdc = MDC.getCopyOfContextMap();
+    AtomicReference<Throwable> failure = new AtomicReference<>();
+    CompletableFuture<?>[] futures = new CompletableFuture<?>[pipes.size()];
+    for (int i = 0; i < pipes.size(); i++) {
+      Pipe p = pipes.get(i);
+      CompletableFuture<?>[] inputs = Arrays.stream(dependencies[i]).mapToObj(d -> futures[d])
+          .toArray(CompletableFuture<?>[]::new);
+      futures[i] = CompletableFuture.allOf(inputs).thenRunAsync(() -> {
+        // Same as the sequential run, nothing else is started once a pipe failed
+        if (failure.get() != null) {
+          throw new CompletionException(failure.get());
+        }
+        if (mdc != null) {
+          MDC.setContextMap(mdc);
+        }
+        try {
+          executePipe(p, consumer);
+        } catch (Throwable t) {
+          failure.compareAndSet(null, t);
+          throw new CompletionException(t);
+        } finally {
+          MDC.clear();
+        }
+      }, branchExecutor);
+    }
+
+    // Waits for all pipes, including the ones on other branches than the one that failed
+    try {
+      CompletableFuture.allOf(futures).join();
+    } catch (CompletionException e) {
+      Throwable t = Optional.ofNullable(failure.get()).orElse(e.getCause());
+      Throwables.propagateIfInstanceOf(t, PipelineRuntimeException.class);
+      Throwables.propagateIfInstanceOf(t, StageException.class);
+      throw Throwables.propagate(t);
+    }
+  }
+
   private void resetBatchSpecificMetrics() {
     // Fill in default values when there is no batch running
     this.runtimeMetricGauge.put(METRIC_CURRENT_STAGE, IDLE);
@@ -201,4 +292,42 @@ public class PipeRunner {
 
     return false;
   }
+
+  private static int[][] resolveDependencies(List<Pipe> pipes) {
+    Map<String, Integer> producers = new HashMap<>();
+    int[][] dependencies = new int[pipes.size()][];
+    for (int i = 0; i < pipes.size(); i++) {
+      Pipe<?> pipe = pipes.get(i);
+      // Lanes produced outside of this runner (e.g. by the origin) are not a dependency
+      dependencies[i] = pipe.getInputLanes().stream()
+          .filter(producers::containsKey)
+          .mapToInt(producers::get)
+          .distinct()
+          .toArray();
+      for (String lane : pipe.getOutputLanes()) {
+        producers.put(lane, i);
+      }
+      for (String lane : pipe.getEventLanes()) {
+        producers.put(lane, i);
+      }
+    }
+    return dependencies;
+  }
+
+  private static boolean isBranching(int[][] dependencies) {
+    // The pipeline is a single chain if every pipe (transitively) depends on the pipe right before it
+    BitSet[] ancestors = new BitSet[dependencies.length];
+    boolean branching = false;
+    for (int i = 0; i < dependencies.length; i++) {
+      ancestors[i] = new BitSet(i);
+      for (int dependency : dependencies[i]) {
+        ancestors[i].or(ancestors[dependency]);
+        ancestors[i].set(dependency);
+      }
+      if (i > 0 && !ancestors[i].get(i - 1)) {
+        branching = true;
+      }
+    }
+    return branching;
+  }
 }
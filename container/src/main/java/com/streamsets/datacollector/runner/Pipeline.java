@@ -1104,35 +1104,35 @@ public class Pipeline {
     }
 
     // And finally create StageContext
-    stageRuntime.setContext(
-      new StageContext(
-        pipelineName,
-        pipelineConfiguration.getTitle(),
-        pipelineRev,
-        Collections.unmodifiableList(stageInfos),
-        userContext,
-        stageRuntime.getDefinition().getType(),
-        runnerId,
-        pipelineRunner.isPreview(),
-        pipelineRunner.getMetrics(),
-        stageRuntime.getDefinition().getConfigDefinitions(),
-        stageRuntime.getOnRecordError(),
-        stageRuntime.getConfiguration().getOutputLanes(),
-        stageRuntime.getConstants(),
-        stageRuntime.getInfo(),
-        pipelineConfiguration.getMemoryLimitConfiguration().getMemoryLimit(),
-        getExecutionMode(pipelineConfiguration),
-        getDeliveryGuarantee(pipelineConfiguration),
-        pipelineRunner.getRuntimeInfo(),
-        emailSender,
-        configuration,
-        runnerSharedMap,
-        startTime,
-        new LineagePublisherDelegator.TaskDelegator(lineagePublisherTask),
-        services,
-        isErrorStage
-      )
+    StageContext stageContext = new StageContext(
+      pipelineName,
+      pipelineConfiguration.getTitle(),
+      pipelineRev,
+      Collections.unmodifiableList(stageInfos),
+      userContext,
+      stageRuntime.getDefinition().getType(),
+      runnerId,
+      pipelineRunner.isPreview(),
+      pipelineRunner.getMetrics(),
+      stageRuntime.getDefinition().getConfigDefinitions(),
+      stageRuntime.getOnRecordError(),
+      stageRuntime.getConfiguration().getOutputLanes(),
+      stageRuntime.getConstants(),
+      stageRuntime.getInfo(),
+      pipelineConfiguration.getMemoryLimitConfiguration().getMemoryLimit(),
+      getExecutionMode(pipelineConfiguration),
+      getDeliveryGuarantee(pipelineConfiguration),
+      pipelineRunner.getRuntimeInfo(),
+      emailSender,
+      configuration,
+      runnerSharedMap,
+      startTime,
+      new LineagePublisherDelegator.TaskDelegator(lineagePublisherTask),
+      services,
+      isErrorStage
     );
+    stageContext.setCopyOnWriteRecords(pipelineBean.getConfig().copyOnWriteRecords);
+    stageRuntime.setContext(stageContext);
 
     return stageRuntime;
   }
@@ -32,6 +32,8 @@ public class RuntimeStats implements GaugeValue {
   private long lastBatchErrorMessagesCount;
   private long totalRunners;
   private long availableRunners;
+  private AtomicLong allocatedBytes;
+  private AtomicLong cpuTime;
 
   public RuntimeStats() {
     //initialize to current time, otherwise it will be 0 and will trigger the pipeline idle alert as soon as the
@@ -39,6 +41,8 @@ public class RuntimeStats implements GaugeValue {
     timeOfLastReceivedRecord = System.currentTimeMillis();
     batchCount = new AtomicLong(0);
     idleBatchCount = new AtomicLong(0);
+    allocatedBytes = new AtomicLong(0);
+    cpuTime = new AtomicLong(0);
   }
 
   public long getBatchCount() {
@@ -113,6 +117,36 @@ public class RuntimeStats implements GaugeValue {
     this.availableRunners = availableRunners;
   }
 
+  /**
+   * Total bytes allocated by all stages while processing batches, as sampled around each stage's process call.
+   */
+  public long getAllocatedBytes() {
+    return allocatedBytes.get();
+  }
+
+  public void setAllocatedBytes(long allocatedBytes) {
+    this.allocatedBytes.set(allocatedBytes);
+  }
+
+  public void addAllocatedBytes(long bytes) {
+    allocatedBytes.addAndGet(bytes);
+  }
+
+  /**
+   * Total CPU time in nanoseconds spent by all stages while processing batches.
+   */
+  public long getCpuTime() {
+    return cpuTime.get();
+  }
+
+  public void setCpuTime(long cpuTime) {
+    this.cpuTime.set(cpuTime);
+  }
+
+  public void addCpuTime(long nanos) {
+    cpuTime.addAndGet(nanos);
+  }
+
   @Override
   public void serialize(JsonGenerator jg) throws IOException {
     jg.writeStartObject();
@@ -125,6 +159,8 @@ public class RuntimeStats implements GaugeValue {
     jg.writeObjectField("lastBatchErrorMessagesCount", lastBatchErrorMessagesCount);
     jg.writeObjectField("totalRunners", totalRunners);
     jg.writeObjectField("availableRunners", availableRunners);
+    jg.writeObjectField("allocatedBytes", allocatedBytes.get());
+    jg.writeObjectField("cpuTime", cpuTime.get());
     jg.writeEndObject();
   }
 
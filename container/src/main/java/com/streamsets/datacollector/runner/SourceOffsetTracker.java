@@ -52,4 +52,10 @@ public interface SourceOffsetTracker {
    */
   public long getLastBatchTime();
 
+  /**
+   * Release resources held by the tracker, called once the pipeline is done committing offsets.
+   */
+  public default void close() {
+  }
+
 }
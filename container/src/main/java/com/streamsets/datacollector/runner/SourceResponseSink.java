@@ -28,7 +28,7 @@ public class SourceResponseSink {
     this.responseRecords = new ArrayList<>();
   }
 
-  public void addResponse(Record record) {
+  public synchronized void addResponse(Record record) {
     responseRecords.add(record);
   }
 
@@ -87,6 +87,7 @@ public class StageContext extends ProtoContext implements
   private RuntimeInfo runtimeInfo;
   private final Map services;
   private final boolean isErrorStage;
+  private boolean copyOnWriteRecords;
 
   //for SDK
   public StageContext(
@@ -294,6 +295,21 @@ public class StageContext extends ProtoContext implements
     return isPreview;
   }
 
+  public boolean isCopyOnWriteRecords() {
+    return copyOnWriteRecords;
+  }
+
+  public void setCopyOnWriteRecords(boolean copyOnWriteRecords) {
+    this.copyOnWriteRecords = copyOnWriteRecords;
+  }
+
+  /**
+   * Copy of the given record, using copy-on-write if it has been enabled for the pipeline.
+   */
+  RecordImpl copyRecord(Record record) {
+    return copyOnWriteRecords ? ((RecordImpl) record).cloneCopyOnWrite() : ((RecordImpl) record).clone();
+  }
+
   @Override
   public Stage.UserContext getUserContext() {
     return userContext;
@@ -403,7 +419,7 @@ public class StageContext extends ProtoContext implements
 
   private void toError(Record record, ErrorMessage errorMessage) {
     String jobId = (String) getPipelineConstants().get(JOB_ID);
-    RecordImpl recordImpl = ((RecordImpl) record).clone();
+    RecordImpl recordImpl = copyRecord(record);
     if (recordImpl.isInitialRecord()) {
       recordImpl.getHeader().setSourceRecord(recordImpl);
       recordImpl.setInitialRecord(false);
@@ -560,7 +576,7 @@ public class StageContext extends ProtoContext implements
   //Processor.Context
   @Override
   public Record cloneRecord(Record record) {
-    RecordImpl clonedRecord = ((RecordImpl) record).clone();
+    RecordImpl clonedRecord = copyRecord(record);
     HeaderImpl header = clonedRecord.getHeader();
     header.setStagesPath("");
     return clonedRecord;
@@ -569,7 +585,7 @@ public class StageContext extends ProtoContext implements
   //Processor.Context
   @Override
   public Record cloneRecord(Record record, String sourceIdPostfix) {
-    RecordImpl clonedRecord = ((RecordImpl) record).clone();
+    RecordImpl clonedRecord = copyRecord(record);
     HeaderImpl header = clonedRecord.getHeader();
     header.setSourceId(header.getSourceId() + "_" + sourceIdPostfix);
     header.setStagesPath("");
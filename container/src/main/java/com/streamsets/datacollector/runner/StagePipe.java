@@ -25,6 +25,8 @@ import com.google.common.annotations.VisibleForTesting;
 import com.streamsets.datacollector.memory.MemoryMonitor;
 import com.streamsets.datacollector.memory.MemoryUsageCollector;
 import com.streamsets.datacollector.memory.MemoryUsageCollectorResourceBundle;
+import com.streamsets.datacollector.memory.RecordSizeEstimator;
+import com.streamsets.datacollector.memory.ThreadResourceUsage;
 import com.streamsets.datacollector.metrics.MetricsConfigurator;
 import com.streamsets.datacollector.restapi.bean.CounterJson;
 import com.streamsets.datacollector.restapi.bean.HistogramJson;
@@ -34,11 +36,13 @@ import com.streamsets.datacollector.util.AggregatorUtil;
 import com.streamsets.datacollector.util.Configuration;
 import com.streamsets.datacollector.validation.Issue;
 import com.streamsets.pipeline.api.Batch;
+import com.streamsets.pipeline.api.Record;
 import com.streamsets.pipeline.api.StageException;
 import com.streamsets.pipeline.api.StageType;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -49,8 +53,20 @@ public class StagePipe extends Pipe<StagePipe.Context> {
   private static final Logger LOG = LoggerFactory.getLogger(StagePipe.class);
   //Runtime stat gauge name
   public static final String RUNTIME_STATS_GAUGE = "RuntimeStatsGauge";
+
+  public static final String MONITOR_MEMORY_KEY = "monitor.memory";
+  public static final boolean MONITOR_MEMORY_DEFAULT = false;
+  // Samples allocated bytes and CPU time around each process() call and estimates the batch footprint, this is cheap
+  // enough to be always on, unlike the heap walking done by monitor.memory
+  public static final String STAGE_ACCOUNTING_KEY = "monitor.stage.accounting";
+  public static final boolean STAGE_ACCOUNTING_DEFAULT = true;
+  public static final String STAGE_ACCOUNTING_SAMPLE_RECORDS_KEY = "monitor.stage.accounting.sampleRecords";
+  public static final int STAGE_ACCOUNTING_SAMPLE_RECORDS_DEFAULT = 20;
+
   private Timer processingTimer;
   private Counter memoryConsumedCounter;
+  private Counter allocatedBytesCounter;
+  private Timer cpuTimer;
   private Meter inputRecordsMeter;
   private Meter outputRecordsMeter;
   private Meter errorRecordsMeter;
@@ -73,6 +89,10 @@ public class StagePipe extends Pipe<StagePipe.Context> {
   private final Configuration configuration;
   private final MetricRegistryJson metricRegistryJson;
   private Map<String, Object> batchMetrics;
+  private boolean monitorMemory;
+  private boolean stageAccounting;
+  private RecordSizeEstimator recordSizeEstimator;
+  private long estimatedMemoryConsumed;
   FilterRecordBatch.Predicate[] predicates;
 
   @VisibleForTesting
@@ -138,7 +158,15 @@ public class StagePipe extends Pipe<StagePipe.Context> {
       outputRecordsHistogram = MetricsConfigurator.createStageHistogram5Min(metrics, metricsKey + ".outputRecords", name, rev);
       errorRecordsHistogram = MetricsConfigurator.createStageHistogram5Min(metrics, metricsKey + ".errorRecords", name, rev);
       stageErrorsHistogram = MetricsConfigurator.createStageHistogram5Min(metrics, metricsKey + ".stageErrors", name, rev);
-
+      monitorMemory = configuration.get(MONITOR_MEMORY_KEY, MONITOR_MEMORY_DEFAULT);
+      stageAccounting = configuration.get(STAGE_ACCOUNTING_KEY, STAGE_ACCOUNTING_DEFAULT);
+      if (stageAccounting) {
+        allocatedBytesCounter = MetricsConfigurator.createStageCounter(metrics, metricsKey + ".allocatedBytes", name, rev);
+        cpuTimer = MetricsConfigurator.createStageTimer(metrics, metricsKey + ".cpuTime", name, rev);
+        recordSizeEstimator = new RecordSizeEstimator(
+          configuration.get(STAGE_ACCOUNTING_SAMPLE_RECORDS_KEY, STAGE_ACCOUNTING_SAMPLE_RECORDS_DEFAULT)
+        );
+      }
 
       if (metricRegistryJson != null) {
         MeterJson inputRecordsMeterJson =
@@ -208,7 +236,7 @@ public class StagePipe extends Pipe<StagePipe.Context> {
         }
       }
       this.context = pipeContext;
-      if (configuration.get("monitor.memory", false)) {
+      if (monitorMemory) {
         LOG.info("Starting memory collector for {}", getStage().getInfo().getInstanceName());
         scheduledExecutorService.submit(
           new MemoryMonitor(memoryConsumedCounter, () -> new MemoryUsageCollector.Builder()
@@ -240,7 +268,13 @@ public class StagePipe extends Pipe<StagePipe.Context> {
     getStage().setSinks(errorSink, eventSink, processedSink, sourceResponseSink);
     Batch batch = new FilterRecordBatch(batchImpl, predicates, getStage().getContext());
 
+    if (stageAccounting && !monitorMemory) {
+      batchMaker.trackCreatedRecords(batchImpl);
+    }
+
     long start = System.currentTimeMillis();
+    long allocatedBytesAtStart = stageAccounting ? ThreadResourceUsage.getAllocatedBytes() : -1;
+    long cpuTimeAtStart = stageAccounting ? ThreadResourceUsage.getCpuTime() : -1;
     String newOffset = getStage().execute(
         previousOffset,
         pipeBatch.getBatchSize(),
@@ -254,6 +288,9 @@ public class StagePipe extends Pipe<StagePipe.Context> {
     if (isSource()) {
       pipeBatch.setNewOffset(newOffset);
     }
+    if (stageAccounting) {
+      updateResourceAccounting(allocatedBytesAtStart, cpuTimeAtStart, batchMaker);
+    }
 
     batchMetrics = finishBatchAndCalculateMetrics(
       start,
@@ -342,6 +379,29 @@ public class StagePipe extends Pipe<StagePipe.Context> {
     return batchMetrics;
   }
 
+  private void updateResourceAccounting(long allocatedBytesAtStart, long cpuTimeAtStart, BatchMakerImpl batchMaker) {
+    if (allocatedBytesAtStart >= 0) {
+      long allocatedBytes = ThreadResourceUsage.getAllocatedBytes() - allocatedBytesAtStart;
+      allocatedBytesCounter.inc(allocatedBytes);
+      context.getRuntimeStats().addAllocatedBytes(allocatedBytes);
+    }
+    if (cpuTimeAtStart >= 0) {
+      long cpuTime = ThreadResourceUsage.getCpuTime() - cpuTimeAtStart;
+      cpuTimer.update(cpuTime, TimeUnit.NANOSECONDS);
+      context.getRuntimeStats().addCpuTime(cpuTime);
+    }
+    // Footprint of the records this stage created or modified, the heap walk of monitor.memory takes precedence.
+    // Records passed through are not counted again, they are already counted by the stage that created them.
+    if (!monitorMemory) {
+      List<Record> createdRecords = batchMaker.getCreatedRecords();
+      long estimatedBytes = createdRecords == null
+          ? 0
+          : recordSizeEstimator.estimate(Collections.singletonList(createdRecords));
+      estimatedMemoryConsumed = estimatedBytes / 1000000;
+      memoryConsumedCounter.inc(estimatedMemoryConsumed - memoryConsumedCounter.getCount());
+    }
+  }
+
   protected void increaseStageErrorMetrics(int count) {
     stageErrorCounter.inc(count);
     stageErrorMeter.mark(count);
@@ -359,7 +419,14 @@ public class StagePipe extends Pipe<StagePipe.Context> {
     pipeBatch.completeStage(this);
   }
 
+  /**
+   * Memory consumed by the stage in MB, either as measured by the memory monitor or, when only stage accounting is
+   * enabled, as estimated from the records it created or modified in the last batch.
+   */
   public long getMemoryConsumed() {
+    if (!monitorMemory && stageAccounting) {
+      return estimatedMemoryConsumed;
+    }
     return memoryConsumedCounter.getCount();
   }
 
@@ -31,12 +31,14 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.Map;
 
 public class OffsetFileUtil {
   private static final Logger LOG = LoggerFactory.getLogger(ProductionSourceOffsetTracker.class);
 
   private static final String OFFSET_FILE = "offset.json";
+  private static final String OFFSET_JOURNAL_FILE = "offset.journal";
   private static final Map<String, String> DEFAULT_OFFSET = Collections.emptyMap();
   private static final int MAX_RETRIES = 5;
 
@@ -46,13 +48,17 @@ public class OffsetFileUtil {
     return new File(PipelineDirectoryUtil.getPipelineDir(runtimeInfo, pipelineName, rev), OFFSET_FILE);
   }
 
+  public static File getPipelineOffsetJournalFile(RuntimeInfo runtimeInfo, String pipelineName, String rev) {
+    return new File(PipelineDirectoryUtil.getPipelineDir(runtimeInfo, pipelineName, rev), OFFSET_JOURNAL_FILE);
+  }
+
   public static Map<String, String> saveIfEmpty(RuntimeInfo runtimeInfo, String pipelineName, String rev) {
     File pipelineOffsetFile =  getPipelineOffsetFile(runtimeInfo, pipelineName, rev);
     SourceOffset sourceOffset;
     DataStore ds = new DataStore(pipelineOffsetFile);
     try {
       if (ds.exists()) {
-        return readSourceOffsetFromDataStore(ds).getOffsets();
+        return readSourceOffsetFromDataStore(ds, pipelineOffsetFile).getOffsets();
       } else {
         sourceOffset = new SourceOffset(SourceOffset.CURRENT_VERSION, DEFAULT_OFFSET);
         try (OutputStream os = ds.getOutputStream()) {
@@ -83,6 +89,16 @@ public class OffsetFileUtil {
     }
   }
   public static void saveSourceOffset(RuntimeInfo runtimeInfo, String pipelineName, String rev, SourceOffset offset) {
+    saveSourceOffsetFile(runtimeInfo, pipelineName, rev, offset);
+    deleteJournal(runtimeInfo, pipelineName, rev);
+  }
+
+  private static void saveSourceOffsetFile(
+      RuntimeInfo runtimeInfo,
+      String pipelineName,
+      String rev,
+      SourceOffset offset
+  ) {
     // Assumes that the argument offset confirms to the format on disk. hence just writes it to offset file
     LOG.debug("Saving offset {} for pipeline {}", offset, pipelineName);
     DataStore dataStore = new DataStore(OffsetFileUtil.getPipelineOffsetFile(runtimeInfo, pipelineName, rev));
@@ -99,6 +115,15 @@ public class OffsetFileUtil {
 
   public static void resetOffsets(RuntimeInfo runtimeInfo, String pipelineName, String rev) {
     saveOffsets(runtimeInfo, pipelineName, rev, DEFAULT_OFFSET);
+    deleteJournal(runtimeInfo, pipelineName, rev);
+  }
+
+  // Entries of a journal left behind by a crashed run must not be applied on top of explicitly set offsets
+  private static void deleteJournal(RuntimeInfo runtimeInfo, String pipelineName, String rev) {
+    File journalFile = getPipelineOffsetJournalFile(runtimeInfo, pipelineName, rev);
+    if (journalFile.exists() && !journalFile.delete()) {
+      throw new IllegalStateException(Utils.format("Can't delete offset journal '{}'", journalFile));
+    }
   }
 
   public static Map<String, String> getOffsets(RuntimeInfo runtimeInfo, String pipelineName, String rev) {
@@ -133,7 +158,7 @@ public class OffsetFileUtil {
         if (pipelineOffsetFile.exists()) {
           DataStore ds = new DataStore(pipelineOffsetFile);
           if (ds.exists()) {
-            return readSourceOffsetFromDataStore(ds);
+            return readSourceOffsetFromDataStore(ds, pipelineOffsetFile);
           }
         }
 
@@ -147,13 +172,21 @@ public class OffsetFileUtil {
     throw new IllegalStateException(Utils.format("Retrieving offset failed for last attempt {}", retries));
   }
 
-  private static SourceOffset readSourceOffsetFromDataStore(DataStore ds) throws IOException {
+  private static SourceOffset readSourceOffsetFromDataStore(DataStore ds, File offsetFile) throws IOException {
+    SourceOffset sourceOffset;
     try (InputStream is = ds.getInputStream()) {
       SourceOffsetJson sourceOffsetJson = ObjectMapperFactory.get().readValue(is, SourceOffsetJson.class);
-      SourceOffset sourceOffset = BeanHelper.unwrapSourceOffset(sourceOffsetJson);
+      sourceOffset = BeanHelper.unwrapSourceOffset(sourceOffsetJson);
       SourceOffsetUpgrader.upgrade(sourceOffset);
-      return sourceOffset;
     }
+    // Offsets committed to the journal are not part of the offset file until it gets compacted
+    File journalFile = new File(offsetFile.getParentFile(), OFFSET_JOURNAL_FILE);
+    if (journalFile.exists()) {
+      Map<String, String> offsets = new HashMap<>(sourceOffset.getOffsets());
+      OffsetJournal.replay(journalFile, offsets);
+      sourceOffset.setOffsets(offsets);
+    }
+    return sourceOffset;
   }
 }
 
@@ -0,0 +1,222 @@
+/*
+ * Copyright 2018 StreamSets Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.streamsets.datacollector.runner.production;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.streamsets.datacollector.json.ObjectMapperFactory;
+import com.streamsets.pipeline.api.impl.Utils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Write-ahead log of offset changes, kept next to the offset file.
+ *
+ * Each committed offset is appended as a single JSON line {"e": entity, "o": offset} rather than rewriting the whole
+ * offset file. The effective offsets are the content of the offset file with all journal entries applied in order,
+ * the journal is folded back into the offset file (compacted) once it has enough entries or is old enough.
+ *
+ * Entries are written to the file system before append() returns, so that a process crash loses nothing, exactly as
+ * when the offset file is rewritten. Threads that append at the same time (multithreaded origins) are group committed,
+ * one of them writes the entries of all the others in a single write.
+ */
+class OffsetJournal {
+  private static final Logger LOG = LoggerFactory.getLogger(OffsetJournal.class);
+
+  private static final String ENTITY = "e";
+  private static final String OFFSET = "o";
+
+  private final File file;
+  private final int compactEntries;
+  private final long compactIntervalMillis;
+
+  // Entries that were appended but not written yet, guarded by this
+  private final List<byte[]> pending = new ArrayList<>();
+  private long appended;
+
+  // Everything below is guarded by writeLock
+  private final Object writeLock = new Object();
+  private FileChannel channel;
+  private long written;
+  private int entries;
+  private long lastCompaction;
+
+  OffsetJournal(File file, int compactEntries, long compactIntervalMillis) {
+    this.file = file;
+    this.compactEntries = compactEntries;
+    this.compactIntervalMillis = compactIntervalMillis;
+    this.lastCompaction = System.currentTimeMillis();
+  }
+
+  /**
+   * Queues given change, returns ticket to be given to {@link #write(long)}.
+   *
+   * Callers must queue changes in the same order in which they apply them to their in memory offsets.
+   */
+  synchronized long append(String entity, String offset) {
+    Map<String, String> entry = new HashMap<>();
+    entry.put(ENTITY, entity);
+    entry.put(OFFSET, offset);
+    try {
+      byte[] bytes = ObjectMapperFactory.getOneLine().writeValueAsBytes(entry);
+      byte[] line = new byte[bytes.length + 1];
+      System.arraycopy(bytes, 0, line, 0, bytes.length);
+      line[bytes.length] = '\n';
+      pending.add(line);
+    } catch (IOException e) {
+      throw new IllegalStateException(Utils.format("Can't serialize offset '{}': {}", offset, e.toString()), e);
+    }
+    return ++appended;
+  }
+
+  /**
+   * Returns once the entry with given ticket (and all entries queued before it) have been written.
+   */
+  void write(long ticket) {
+    synchronized (writeLock) {
+      if (written >= ticket) {
+        // Written as part of another thread's group
+        return;
+      }
+      List<byte[]> group;
+      long last;
+      synchronized (this) {
+        group = new ArrayList<>(pending);
+        pending.clear();
+        last = appended;
+      }
+      int size = 0;
+      for (byte[] line : group) {
+        size += line.length;
+      }
+      ByteBuffer buffer = ByteBuffer.allocate(size);
+      for (byte[] line : group) {
+        buffer.put(line);
+      }
+      buffer.flip();
+      try {
+        if (channel == null) {
+          channel = FileChannel.open(
+              file.toPath(),
+              StandardOpenOption.CREATE,
+              StandardOpenOption.WRITE,
+              StandardOpenOption.APPEND
+          );
+        }
+        while (buffer.hasRemaining()) {
+          channel.write(buffer);
+        }
+      } catch (IOException e) {
+        LOG.error("Failed to write offset journal '{}': {}", file, e.toString(), e);
+        throw new IllegalStateException(e);
+      }
+      written = last;
+      entries += group.size();
+    }
+  }
+
+  boolean needsCompaction() {
+    synchronized (writeLock) {
+      return entries >= compactEntries
+          || (entries > 0 && System.currentTimeMillis() - lastCompaction >= compactIntervalMillis);
+    }
+  }
+
+  /**
+   * Runs given task, that is expected to save the current offsets to the offset file, and empties the journal.
+   *
+   * No entry is written while the task runs, so all changes that are not part of the saved offsets end up in the
+   * emptied journal.
+   */
+  void compact(Runnable saveOffsets) {
+    synchronized (writeLock) {
+      saveOffsets.run();
+      try {
+        if (channel != null) {
+          channel.truncate(0);
+        }
+      } catch (IOException e) {
+        LOG.error("Failed to truncate offset journal '{}': {}", file, e.toString(), e);
+        throw new IllegalStateException(e);
+      }
+      entries = 0;
+      lastCompaction = System.currentTimeMillis();
+    }
+  }
+
+  void close() {
+    synchronized (writeLock) {
+      if (channel != null) {
+        try {
+          channel.close();
+        } catch (IOException e) {
+          LOG.warn("Failed to close offset journal '{}': {}", file, e.toString(), e);
+        }
+        channel = null;
+      }
+    }
+  }
+
+  /**
+   * Applies all entries of given journal file (if it exists) to given offsets.
+   *
+   * A partially written last line (process died while writing it) is ignored, the offset it was carrying was never
+   * reported as committed.
+   */
+  @SuppressWarnings("unchecked")
+  static void replay(File file, Map<String, String> offsets) throws IOException {
+    if (!file.exists()) {
+      return;
+    }
+    ObjectMapper objectMapper = ObjectMapperFactory.get();
+    try (BufferedReader reader = new BufferedReader(
+        new InputStreamReader(Files.newInputStream(file.toPath()), StandardCharsets.UTF_8)
+    )) {
+      String line;
+      while ((line = reader.readLine()) != null) {
+        if (line.isEmpty()) {
+          continue;
+        }
+        Map<String, String> entry;
+        try {
+          entry = objectMapper.readValue(line, Map.class);
+        } catch (IOException e) {
+          LOG.warn("Ignoring incomplete offset journal entry in '{}': {}", file, e.toString());
+          break;
+        }
+        String offset = entry.get(OFFSET);
+        if (offset == null) {
+          offsets.remove(entry.get(ENTITY));
+        } else {
+          offsets.put(entry.get(ENTITY), offset);
+        }
+      }
+    }
+  }
+}
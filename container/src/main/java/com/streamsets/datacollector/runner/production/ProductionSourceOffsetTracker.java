@@ -18,12 +18,14 @@ package com.streamsets.datacollector.runner.production;
 import com.streamsets.datacollector.main.RuntimeInfo;
 import com.streamsets.datacollector.runner.SourceOffsetTracker;
 
+import com.streamsets.datacollector.util.Configuration;
 import com.streamsets.pipeline.api.Source;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import javax.inject.Inject;
 import javax.inject.Named;
+import java.io.File;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
@@ -31,23 +33,63 @@ import java.util.Map;
 public class ProductionSourceOffsetTracker implements SourceOffsetTracker {
 
   private static final Logger LOG = LoggerFactory.getLogger(ProductionSourceOffsetTracker.class);
+
+  // Append committed offsets to a journal instead of rewriting the offset file on every commit
+  public static final String OFFSET_JOURNAL_ENABLED_KEY = "offset.journal.enabled";
+  public static final boolean OFFSET_JOURNAL_ENABLED_DEFAULT = false;
+  // Fold the journal into the offset file once it has that many entries ...
+  public static final String OFFSET_JOURNAL_COMPACT_ENTRIES_KEY = "offset.journal.compact.entries";
+  public static final int OFFSET_JOURNAL_COMPACT_ENTRIES_DEFAULT = 10000;
+  // ... or when the last compaction is older than this
+  public static final String OFFSET_JOURNAL_COMPACT_INTERVAL_KEY = "offset.journal.compact.interval.ms";
+  public static final long OFFSET_JOURNAL_COMPACT_INTERVAL_DEFAULT = 60000;
+
   private Map<String, String> offsets;
   private volatile long lastBatchTime;
   private boolean finished;
   private final String pipelineName;
   private final String rev;
   private final RuntimeInfo runtimeInfo;
+  // Null when every commit rewrites the offset file
+  private final OffsetJournal journal;
+
+  public ProductionSourceOffsetTracker(String pipelineName, String rev, RuntimeInfo runtimeInfo) {
+    this(pipelineName, rev, runtimeInfo, null);
+  }
 
   @Inject
   public ProductionSourceOffsetTracker(
       @Named("name") String pipelineName,
       @Named("rev") String rev,
-      RuntimeInfo runtimeInfo
+      RuntimeInfo runtimeInfo,
+      Configuration configuration
   ) {
     this.pipelineName = pipelineName;
     this.rev = rev;
     this.runtimeInfo = runtimeInfo;
     this.offsets = new HashMap<>(getSourceOffset(pipelineName, rev));
+
+    // Journal left behind by a previous run (that might have crashed) is folded in the offset file first, so that we
+    // always start with an empty journal and so that the journal is never left behind when the mode is switched off.
+    File journalFile = OffsetFileUtil.getPipelineOffsetJournalFile(runtimeInfo, pipelineName, rev);
+    if (journalFile.exists()) {
+      LOG.info("Compacting offset journal '{}' left behind by previous run", journalFile);
+      saveOffset(pipelineName, rev, offsets);
+      if (!journalFile.delete()) {
+        throw new IllegalStateException("Can't delete offset journal " + journalFile);
+      }
+    }
+
+    if (configuration != null
+        && configuration.get(OFFSET_JOURNAL_ENABLED_KEY, OFFSET_JOURNAL_ENABLED_DEFAULT)) {
+      this.journal = new OffsetJournal(
+          journalFile,
+          configuration.get(OFFSET_JOURNAL_COMPACT_ENTRIES_KEY, OFFSET_JOURNAL_COMPACT_ENTRIES_DEFAULT),
+          configuration.get(OFFSET_JOURNAL_COMPACT_INTERVAL_KEY, OFFSET_JOURNAL_COMPACT_INTERVAL_DEFAULT)
+      );
+    } else {
+      this.journal = null;
+    }
   }
 
   @Override
@@ -71,6 +113,11 @@ public class ProductionSourceOffsetTracker implements SourceOffsetTracker {
       finished = newOffset == null;
     }
 
+    if (journal != null) {
+      commitToJournal(entity, newOffset);
+      return;
+    }
+
     // This object can be called from multiple threads, so we have to synchronize access to the offset map
     synchronized (offsets) {
       if (newOffset == null) {
@@ -84,6 +131,46 @@ public class ProductionSourceOffsetTracker implements SourceOffsetTracker {
     }
   }
 
+  private void commitToJournal(String entity, String newOffset) {
+    long ticket;
+    // Journal entries have to be appended in the same order in which they are applied to the map
+    synchronized (offsets) {
+      if (newOffset == null) {
+        offsets.remove(entity);
+      } else {
+        offsets.put(entity, newOffset);
+      }
+      ticket = journal.append(entity, newOffset);
+    }
+
+    // Written together with the entries of all other threads committing at the same time
+    journal.write(ticket);
+
+    if (journal.needsCompaction()) {
+      journal.compact(this::saveOffsetSnapshot);
+    }
+  }
+
+  private void saveOffsetSnapshot() {
+    Map<String, String> snapshot;
+    synchronized (offsets) {
+      snapshot = new HashMap<>(offsets);
+    }
+    saveOffset(pipelineName, rev, snapshot);
+  }
+
+  @Override
+  public void close() {
+    if (journal != null) {
+      journal.compact(this::saveOffsetSnapshot);
+      journal.close();
+      File journalFile = OffsetFileUtil.getPipelineOffsetJournalFile(runtimeInfo, pipelineName, rev);
+      if (!journalFile.delete()) {
+        LOG.warn("Can't delete offset journal '{}'", journalFile);
+      }
+    }
+  }
+
   @Override
   public Map<String, String> getOffsets() {
     return Collections.unmodifiableMap(offsets);
@@ -23,6 +23,7 @@ import com.google.common.cache.CacheLoader;
 import com.google.common.cache.LoadingCache;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.streamsets.datacollector.classpath.ClasspathValidator;
 import com.streamsets.datacollector.classpath.ClasspathValidatorResult;
 import com.streamsets.datacollector.config.CredentialStoreDefinition;
@@ -59,10 +60,12 @@ import com.streamsets.datacollector.task.AbstractTask;
 import com.streamsets.datacollector.util.Configuration;
 import com.streamsets.datacollector.util.Version;
 import com.streamsets.pipeline.SDCClassLoader;
+import com.streamsets.pipeline.api.Stage;
 import com.streamsets.pipeline.api.ext.DataCollectorServices;
 import com.streamsets.pipeline.api.ext.json.JsonMapper;
 import com.streamsets.pipeline.api.impl.LocaleInContext;
 import com.streamsets.pipeline.api.impl.Utils;
+import com.streamsets.pipeline.api.service.Service;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.pool2.BaseKeyedPooledObjectFactory;
 import org.apache.commons.pool2.KeyedObjectPool;
@@ -74,6 +77,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import javax.inject.Inject;
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.lang.reflect.Method;
@@ -90,6 +94,9 @@ import java.util.Map;
 import java.util.Properties;
 import java.util.Set;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 public class ClassLoaderStageLibraryTask extends AbstractTask implements StageLibraryTask {
   public static final String MAX_PRIVATE_STAGE_CLASS_LOADERS_KEY = "max.stage.private.classloaders";
@@ -110,6 +117,13 @@ public class ClassLoaderStageLibraryTask extends AbstractTask implements StageLi
   private static final String CONFIG_CP_VALIDATION_RESULT = "stagelibs.classpath.validation.terminate";
   private static final boolean DEFAULT_CP_VALIDATION_RESULT = false;
 
+  private static final String CONFIG_LOAD_THREADS = "stagelibs.load.threads";
+  private static final int DEFAULT_LOAD_THREADS = Runtime.getRuntime().availableProcessors();
+
+  private static final String CONFIG_DEFINITION_INDEX = "stagelibs.definition.index.enable";
+  private static final boolean DEFAULT_DEFINITION_INDEX = true;
+  private static final String DEFINITION_INDEX_DIR = "stagelibs-index";
+
   private static final Logger LOG = LoggerFactory.getLogger(ClassLoaderStageLibraryTask.class);
 
   private final RuntimeInfo runtimeInfo;
@@ -131,6 +145,7 @@ public class ClassLoaderStageLibraryTask extends AbstractTask implements StageLi
   private Map<String, StageLibraryDelegateDefinitition> delegateMap;
   private ObjectMapper json;
   private KeyedObjectPool<String, ClassLoader> privateClassLoaderPool;
+  private DefinitionIndex definitionIndex;
 
   @Inject
   public ClassLoaderStageLibraryTask(RuntimeInfo runtimeInfo, BuildInfo buildInfo, Configuration configuration) {
@@ -411,7 +426,6 @@ public class ClassLoaderStageLibraryTask extends AbstractTask implements StageLi
   }
 
   @VisibleForTesting
-  @SuppressWarnings("unchecked")
   void loadStages() {
     String javaVersion = System.getProperty("java.version");
     Version sdcVersion = new Version(buildInfo.getVersion());
@@ -430,120 +444,265 @@ public class ClassLoaderStageLibraryTask extends AbstractTask implements StageLi
         Utils.format("Could not load runtime configuration, '{}'", e.toString()), e);
     }
 
+    if (configuration.get(CONFIG_DEFINITION_INDEX, DEFAULT_DEFINITION_INDEX) && runtimeInfo.getDataDir() != null) {
+      definitionIndex = new DefinitionIndex(
+          new File(runtimeInfo.getDataDir(), DEFINITION_INDEX_DIR),
+          Utils.format("{}/{}/{}", buildInfo.getVersion(), buildInfo.getBuiltDate(), buildInfo.getBuiltRepoSha())
+      );
+    }
+
+    long start = System.currentTimeMillis();
+    List<LibraryDefinitions> libraries = forEachLibrary(
+        "Loader",
+        stageClassLoaders,
+        cl -> loadLibrary(cl, javaVersion, sdcVersion)
+    );
+
+    // merged in class loader order, so that the result is the same as when loading one library after the other
+    int libs = 0;
+    int stages = 0;
+    int lineagePublishers = 0;
+    int credentialStores = 0;
+    int services = 0;
+    int interceptors = 0;
+    int delegates = 0;
+    for (LibraryDefinitions library : libraries) {
+      if (library == null) {
+        continue;
+      }
+      libs++;
+      String libName = library.libDef.getName();
+      for (StageDefinition stage : library.stages) {
+        stages++;
+        stageList.add(stage);
+        stageMap.put(createKey(libName, stage.getName()), stage);
+      }
+      for (LineagePublisherDefinition lineage : library.lineagePublishers) {
+        lineagePublishers++;
+        lineagePublisherDefinitions.add(lineage);
+        lineagePublisherDefinitionMap.put(createKey(libName, lineage.getName()), lineage);
+      }
+      for (CredentialStoreDefinition def : library.credentialStores) {
+        credentialStores++;
+        credentialStoreDefinitions.add(def);
+      }
+      for (ServiceDefinition def : library.services) {
+        services++;
+        serviceList.add(def);
+        serviceMap.put(def.getProvides(), def);
+      }
+      for (InterceptorDefinition def : library.interceptors) {
+        interceptors++;
+        interceptorList.add(def);
+      }
+      for (StageLibraryDelegateDefinitition def : library.delegates) {
+        delegates++;
+        delegateList.add(def);
+        delegateMap.put(createKey(libName, def.getExportedInterface().getCanonicalName()), def);
+      }
+      LOG.info(
+          "Loaded library '{}' with '{}' stages in '{}ms'{}",
+          libName,
+          library.stages.size(),
+          library.loadMillis,
+          library.indexed ? " from the definition index" : ""
+      );
+    }
+    LOG.info(
+      "Loaded '{}' libraries with a total of '{}' stages, '{}' lineage publishers, '{}' services, '{}' interceptors, '{}' delegates and '{}' credentialStores in '{}ms'",
+      libs,
+      stages,
+      lineagePublishers,
+      services,
+      interceptors,
+      delegates,
+      credentialStores,
+      System.currentTimeMillis() - start
+    );
+  }
+
+  /**
+   * Definitions extracted from a single stage library.
+   */
+  private static class LibraryDefinitions {
+    private final StageLibraryDefinition libDef;
+    private final List<StageDefinition> stages = new ArrayList<>();
+    private final List<LineagePublisherDefinition> lineagePublishers = new ArrayList<>();
+    private final List<CredentialStoreDefinition> credentialStores = new ArrayList<>();
+    private final List<ServiceDefinition> services = new ArrayList<>();
+    private final List<InterceptorDefinition> interceptors = new ArrayList<>();
+    private final List<StageLibraryDelegateDefinitition> delegates = new ArrayList<>();
+    private long loadMillis;
+    private boolean indexed;
+
+    private LibraryDefinitions(StageLibraryDefinition libDef) {
+      this.libDef = libDef;
+    }
+  }
+
+  /**
+   * Extracts all definitions of given stage library, returns null if the library can't run on this JVM.
+   */
+  @SuppressWarnings("unchecked")
+  private LibraryDefinitions loadLibrary(ClassLoader cl, String javaVersion, Version sdcVersion) {
+    long start = System.currentTimeMillis();
     try {
-      int libs = 0;
-      int stages = 0;
-      int lineagePublishers = 0;
-      int credentialStores = 0;
-      int services = 0;
-      int interceptors = 0;
-      int delegates = 0;
-      long start = System.currentTimeMillis();
-      LocaleInContext.set(Locale.getDefault());
-      for (ClassLoader cl : stageClassLoaders) {
-        try {
-          // Before loading any stages, let's verify that given stage library is compatible with our current JVM version
-          String unsupportedJvmVersion = getPropertyFromLibraryProperties(cl, JAVA_UNSUPPORTED_REGEXP, null);
-          if(!StringUtils.isEmpty(unsupportedJvmVersion)) {
-            if(javaVersion.matches(unsupportedJvmVersion)) {
-              LOG.warn("Can't load stages from {} since they are not compatible with current JVM version", StageLibraryUtils.getLibraryName(cl));
-              continue;
-            } else {
-              LOG.debug("Stage lib {} passed java compatibility test for '{}'", StageLibraryUtils.getLibraryName(cl), unsupportedJvmVersion);
-            }
-          }
+      // Before loading any stages, let's verify that given stage library is compatible with our current JVM version
+      String unsupportedJvmVersion = getPropertyFromLibraryProperties(cl, JAVA_UNSUPPORTED_REGEXP, null);
+      if(!StringUtils.isEmpty(unsupportedJvmVersion)) {
+        if(javaVersion.matches(unsupportedJvmVersion)) {
+          LOG.warn("Can't load stages from {} since they are not compatible with current JVM version", StageLibraryUtils.getLibraryName(cl));
+          return null;
+        } else {
+          LOG.debug("Stage lib {} passed java compatibility test for '{}'", StageLibraryUtils.getLibraryName(cl), unsupportedJvmVersion);
+        }
+      }
 
-          // And that this SDC is at least on requested version
-          String minSdcVersion = getPropertyFromLibraryProperties(cl, MIN_SDC_VERSION, null);
-          if(!StringUtils.isEmpty(minSdcVersion)) {
-            if(!sdcVersion.isGreaterOrEqualTo(minSdcVersion)) {
-              throw new IllegalArgumentException(
-                  Utils.format("Can't load stage library '{}' as it requires at least SDC version {} whereas current version is {}",
-                  StageLibraryUtils.getLibraryName(cl),
-                  minSdcVersion,
-                  buildInfo.getVersion()
-                ));
-            }
-          }
+      // And that this SDC is at least on requested version
+      String minSdcVersion = getPropertyFromLibraryProperties(cl, MIN_SDC_VERSION, null);
+      if(!StringUtils.isEmpty(minSdcVersion)) {
+        if(!sdcVersion.isGreaterOrEqualTo(minSdcVersion)) {
+          throw new IllegalArgumentException(
+              Utils.format("Can't load stage library '{}' as it requires at least SDC version {} whereas current version is {}",
+              StageLibraryUtils.getLibraryName(cl),
+              minSdcVersion,
+              buildInfo.getVersion()
+            ));
+        }
+      }
 
-          // Load stages from the stage library
-          StageLibraryDefinition libDef = StageLibraryDefinitionExtractor.get().extract(cl);
-          LOG.debug("Loading stages and plugins from library '{}'", libDef.getName());
-          libs++;
-
-          // Load Stages
-          for(Class klass : loadClassesFromResource(libDef, cl, STAGES_DEFINITION_RESOURCE)) {
-            stages++;
-            StageDefinition stage = StageDefinitionExtractor.get().extract(libDef, klass, Utils.formatL("Library='{}'", libDef.getName()));
-            String key = createKey(libDef.getName(), stage.getName());
-            LOG.debug("Loaded stage '{}'  version {}", key, stage.getVersion());
-            stageList.add(stage);
-            stageMap.put(key, stage);
-          }
+      // Load stages from the stage library
+      StageLibraryDefinition libDef = StageLibraryDefinitionExtractor.get().extract(cl);
+      LOG.debug("Loading stages and plugins from library '{}'", libDef.getName());
+      LibraryDefinitions library = new LibraryDefinitions(libDef);
+
+      // Load Stages and Services, from the definition index if it is up to date with the library jars
+      List<Class<? extends Stage>> stageClasses = loadClassesFromResource(libDef, cl, STAGES_DEFINITION_RESOURCE);
+      List<Class<? extends Service>> serviceClasses = loadClassesFromResource(libDef, cl, SERVICE_DEFINITION_RESOURCE);
+      String checksum = (definitionIndex == null) ? null : DefinitionIndex.checksum(cl);
+      DefinitionIndex.Definitions indexed = (checksum == null)
+          ? null
+          : definitionIndex.read(libDef, checksum, stageClasses, serviceClasses);
+      if (indexed != null) {
+        library.indexed = true;
+        library.stages.addAll(indexed.getStages());
+        library.services.addAll(indexed.getServices());
+      } else {
+        for(Class<? extends Stage> klass : stageClasses) {
+          StageDefinition stage = StageDefinitionExtractor.get().extract(libDef, klass, Utils.formatL("Library='{}'", libDef.getName()));
+          library.stages.add(stage);
+        }
+        for(Class<? extends Service> klass : serviceClasses) {
+          library.services.add(ServiceDefinitionExtractor.get().extract(libDef, klass));
+        }
+        if (checksum != null) {
+          definitionIndex.write(libDef, checksum, library.stages, library.services);
+        }
+      }
+      for (StageDefinition stage : library.stages) {
+        LOG.debug("Loaded stage '{}'  version {}", createKey(libDef.getName(), stage.getName()), stage.getVersion());
+      }
+      for (ServiceDefinition def : library.services) {
+        LOG.debug("Loaded service for '{}'", def.getProvides().getCanonicalName());
+      }
 
-          // Load Lineage publishers
-          for(Class klass : loadClassesFromResource(libDef, cl, LINEAGE_PUBLISHERS_DEFINITION_RESOURCE)) {
-            lineagePublishers++;
-            LineagePublisherDefinition lineage = LineagePublisherDefinitionExtractor.get().extract(libDef, klass);
-            String key = createKey(libDef.getName(), lineage.getName());
-            LOG.debug("Loaded lineage plugin '{}'", key);
-            lineagePublisherDefinitions.add(lineage);
-            lineagePublisherDefinitionMap.put(key, lineage);
-          }
+      // Load Lineage publishers
+      for(Class klass : loadClassesFromResource(libDef, cl, LINEAGE_PUBLISHERS_DEFINITION_RESOURCE)) {
+        LineagePublisherDefinition lineage = LineagePublisherDefinitionExtractor.get().extract(libDef, klass);
+        LOG.debug("Loaded lineage plugin '{}'", createKey(libDef.getName(), lineage.getName()));
+        library.lineagePublishers.add(lineage);
+      }
 
-          // Load Credential stores
-          for(Class klass : loadClassesFromResource(libDef, cl, CREDENTIAL_STORE_DEFINITION_RESOURCE)) {
-            credentialStores++;
-            CredentialStoreDefinition def = CredentialStoreDefinitionExtractor.get().extract(libDef, klass);
-            String key = createKey(libDef.getName(), def.getName());
-            LOG.debug("Loaded credential store '{}'", key);
-            credentialStoreDefinitions.add(def);
-          }
+      // Load Credential stores
+      for(Class klass : loadClassesFromResource(libDef, cl, CREDENTIAL_STORE_DEFINITION_RESOURCE)) {
+        CredentialStoreDefinition def = CredentialStoreDefinitionExtractor.get().extract(libDef, klass);
+        LOG.debug("Loaded credential store '{}'", createKey(libDef.getName(), def.getName()));
+        library.credentialStores.add(def);
+      }
 
-          // Load Services
-          for(Class klass : loadClassesFromResource(libDef, cl, SERVICE_DEFINITION_RESOURCE)) {
-            services++;
-            ServiceDefinition def = ServiceDefinitionExtractor.get().extract(libDef, klass);
-            LOG.debug("Loaded service for '{}'", def.getProvides().getCanonicalName());
-            serviceList.add(def);
-            serviceMap.put(def.getProvides(), def);
-          }
+      // Load Interceptors
+      for(Class klass : loadClassesFromResource(libDef, cl, INTERCEPTOR_DEFINITION_RESOURCE)) {
+        InterceptorDefinition def = InterceptorDefinitionExtractor.get().extract(libDef, klass);
+        LOG.debug("Loaded interceptor '{}'", def.getKlass().getCanonicalName());
+        library.interceptors.add(def);
+      }
 
-          // Load Interceptors
-          for(Class klass : loadClassesFromResource(libDef, cl, INTERCEPTOR_DEFINITION_RESOURCE)) {
-            interceptors++;
-            InterceptorDefinition def = InterceptorDefinitionExtractor.get().extract(libDef, klass);
-            LOG.debug("Loaded interceptor '{}'", def.getKlass().getCanonicalName());
-            interceptorList.add(def);
-          }
+      // Load Delegates
+      for(Class klass : loadClassesFromResource(libDef, cl, DELEGATE_DEFINITION_RESOURCE)) {
+        StageLibraryDelegateDefinitition def = StageLibraryDelegateDefinitionExtractor.get().extract(libDef, klass);
+        LOG.debug("Loaded delegate '{}'", def.getKlass().getCanonicalName());
+        library.delegates.add(def);
+      }
+      library.loadMillis = System.currentTimeMillis() - start;
+      return library;
+    } catch (IOException | ClassNotFoundException ex) {
+      throw new RuntimeException(
+          Utils.format("Could not load stages definition from '{}', {}", cl, ex.toString()), ex);
+    }
+  }
+
+  private interface LibraryTask<T> {
+    T run(ClassLoader cl);
+  }
 
-          // Load Delegates
-          for(Class klass : loadClassesFromResource(libDef, cl, DELEGATE_DEFINITION_RESOURCE)) {
-            delegates++;
-            StageLibraryDelegateDefinitition def = StageLibraryDelegateDefinitionExtractor.get().extract(libDef, klass);
-            String key = createKey(libDef.getName(), def.getExportedInterface().getCanonicalName());
-            LOG.debug("Loaded delegate '{}'", def.getKlass().getCanonicalName());
-            delegateList.add(def);
-            delegateMap.put(key, def);
+  /**
+   * Runs given task for every class loader on up to 'stagelibs.load.threads' threads, returns the results in class
+   * loader order. The first failure (in class loader order) is rethrown once all tasks are done.
+   */
+  private <T> List<T> forEachLibrary(String threadName, List<? extends ClassLoader> classLoaders, LibraryTask<T> task) {
+    Locale locale = Locale.getDefault();
+    int threads = Math.min(configuration.get(CONFIG_LOAD_THREADS, DEFAULT_LOAD_THREADS), classLoaders.size());
+    List<T> results = new ArrayList<>(classLoaders.size());
+    if (threads <= 1) {
+      LocaleInContext.set(locale);
+      try {
+        for (ClassLoader cl : classLoaders) {
+          results.add(task.run(cl));
+        }
+      } finally {
+        LocaleInContext.set(null);
+      }
+      return results;
+    }
+
+    ExecutorService executor = Executors.newFixedThreadPool(
+        threads,
+        new ThreadFactoryBuilder().setNameFormat("Stage Library " + threadName + " %d").setDaemon(true).build()
+    );
+    try {
+      List<Future<T>> futures = new ArrayList<>(classLoaders.size());
+      for (ClassLoader cl : classLoaders) {
+        futures.add(executor.submit(() -> {
+          // the locale is per thread, the definitions must be extracted with the default one
+          LocaleInContext.set(locale);
+          try {
+            return task.run(cl);
+          } finally {
+            LocaleInContext.set(null);
           }
-        } catch (IOException | ClassNotFoundException ex) {
-          throw new RuntimeException(
-              Utils.format("Could not load stages definition from '{}', {}", cl, ex.toString()), ex);
+        }));
+      }
+      RuntimeException failure = null;
+      for (Future<T> future : futures) {
+        try {
+          results.add(future.get());
+        } catch (ExecutionException ex) {
+          if (failure == null) {
+            failure = (ex.getCause() instanceof RuntimeException)
+                ? (RuntimeException) ex.getCause()
+                : new RuntimeException(ex.getCause());
+          }
+        } catch (InterruptedException ex) {
+          Thread.currentThread().interrupt();
+          throw new RuntimeException("Interrupted while processing stage libraries", ex);
         }
       }
-      LOG.info(
-        "Loaded '{}' libraries with a total of '{}' stages, '{}' lineage publishers, '{}' services, '{}' interceptors, '{}' delegates and '{}' credentialStores in '{}ms'",
-        libs,
-        stages,
-        lineagePublishers,
-        services,
-        interceptors,
-        delegates,
-        credentialStores,
-        System.currentTimeMillis() - start
-      );
+      if (failure != null) {
+        throw failure;
+      }
+      return results;
     } finally {
-      LocaleInContext.set(null);
+      executor.shutdownNow();
     }
   }
 
@@ -752,14 +911,18 @@ public class ClassLoaderStageLibraryTask extends AbstractTask implements StageLi
     long startTime = System.currentTimeMillis();
     List<ClasspathValidatorResult> validators = new LinkedList<>();
 
-    for (ClassLoader cl : stageClassLoaders) {
+    List<ClasspathValidatorResult> results = forEachLibrary("Classpath Validator", stageClassLoaders, cl -> {
       if (cl instanceof SDCClassLoader) {
         SDCClassLoader sdcCl = (SDCClassLoader) cl;
 
-        ClasspathValidatorResult validationResult = ClasspathValidator.newValidator(sdcCl.getName())
+        return ClasspathValidator.newValidator(sdcCl.getName())
           .withURLs(sdcCl.getURLs())
           .validate(loadClasspathWhitelist(cl));
-
+      }
+      return null;
+    });
+    for (ClasspathValidatorResult validationResult : results) {
+      if (validationResult != null) {
         validators.add(validationResult);
       }
     }
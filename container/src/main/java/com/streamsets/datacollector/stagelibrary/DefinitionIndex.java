@@ -0,0 +1,860 @@
+/*
+ * Copyright 2018 StreamSets Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.streamsets.datacollector.stagelibrary;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import com.streamsets.datacollector.config.ConfigDefinition;
+import com.streamsets.datacollector.config.ConfigGroupDefinition;
+import com.streamsets.datacollector.config.ModelDefinition;
+import com.streamsets.datacollector.config.ModelType;
+import com.streamsets.datacollector.config.RawSourceDefinition;
+import com.streamsets.datacollector.config.ServiceDefinition;
+import com.streamsets.datacollector.config.ServiceDependencyDefinition;
+import com.streamsets.datacollector.config.StageDefinition;
+import com.streamsets.datacollector.config.StageLibraryDefinition;
+import com.streamsets.datacollector.credential.ClearCredentialValue;
+import com.streamsets.datacollector.credential.CredentialEL;
+import com.streamsets.datacollector.definition.ConcreteELDefinitionExtractor;
+import com.streamsets.datacollector.el.ElConstantDefinition;
+import com.streamsets.datacollector.el.ElFunctionDefinition;
+import com.streamsets.datacollector.io.DataStore;
+import com.streamsets.pipeline.api.ConfigDef;
+import com.streamsets.pipeline.api.ExecutionMode;
+import com.streamsets.pipeline.api.HideStage;
+import com.streamsets.pipeline.api.Stage;
+import com.streamsets.pipeline.api.StageDef;
+import com.streamsets.pipeline.api.StageType;
+import com.streamsets.pipeline.api.StageUpgrader;
+import com.streamsets.pipeline.api.impl.Utils;
+import com.streamsets.pipeline.api.service.Service;
+import com.streamsets.pipeline.api.service.ServiceDef;
+import com.streamsets.pipeline.lib.el.VaultEL;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.reflect.Field;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * On-disk index of the stage and service definitions of the stage libraries, one file per library.
+ * <p/>
+ * An index file is only used if it was written by the same data collector build for the same library jars, the jars
+ * are identified by a checksum of the names, CRC-32s and sizes of their entries as recorded in the zip central
+ * directory. Classes, fields and EL definitions are resolved by name, which is much cheaper than validating and
+ * extracting the definitions again from the annotations. Libraries that are not made of jar files are not indexed.
+ * <p/>
+ * Everything that depends on the running JVM rather than on the library jars (private class loader system
+ * properties, upgrader instances, execution mode overrides) is recomputed when reading the index.
+ */
+class DefinitionIndex {
+  private static final Logger LOG = LoggerFactory.getLogger(DefinitionIndex.class);
+
+  private static final int MAGIC = 0x53444349;
+  static final int FORMAT_VERSION = 1;
+
+  private static final byte NULL = 0;
+  private static final byte BOOLEAN = 1;
+  private static final byte BYTE = 2;
+  private static final byte SHORT = 3;
+  private static final byte INTEGER = 4;
+  private static final byte LONG = 5;
+  private static final byte FLOAT = 6;
+  private static final byte DOUBLE = 7;
+  private static final byte CHARACTER = 8;
+  private static final byte STRING = 9;
+  private static final byte ENUM = 10;
+  private static final byte LIST = 11;
+  private static final byte SET = 12;
+  private static final byte MAP = 13;
+  private static final byte CREDENTIAL = 14;
+
+  private final File dir;
+  private final String build;
+
+  DefinitionIndex(File dir, String build) {
+    this.dir = dir;
+    this.build = build;
+  }
+
+  /**
+   * Definitions of a library as read from the index.
+   */
+  static class Definitions {
+    private final List<StageDefinition> stages;
+    private final List<ServiceDefinition> services;
+
+    private Definitions(List<StageDefinition> stages, List<ServiceDefinition> services) {
+      this.stages = stages;
+      this.services = services;
+    }
+
+    List<StageDefinition> getStages() {
+      return stages;
+    }
+
+    List<ServiceDefinition> getServices() {
+      return services;
+    }
+  }
+
+  /**
+   * Returns the checksum of the jars of the given library class loader, or null if the library can't be indexed.
+   */
+  static String checksum(ClassLoader cl) {
+    if (!(cl instanceof URLClassLoader)) {
+      return null;
+    }
+    Hasher hasher = Hashing.sha256().newHasher();
+    try {
+      for (URL url : ((URLClassLoader) cl).getURLs()) {
+        if (!"file".equals(url.getProtocol())) {
+          return null;
+        }
+        File file = new File(url.toURI());
+        if (!file.isFile()) {
+          return null;
+        }
+        hasher.putString(file.getName(), StandardCharsets.UTF_8);
+        try (ZipFile zip = new ZipFile(file)) {
+          Enumeration<? extends ZipEntry> entries = zip.entries();
+          while (entries.hasMoreElements()) {
+            ZipEntry entry = entries.nextElement();
+            hasher.putString(entry.getName(), StandardCharsets.UTF_8);
+            hasher.putLong(entry.getCrc());
+            hasher.putLong(entry.getSize());
+          }
+        }
+      }
+    } catch (IOException | URISyntaxException ex) {
+      LOG.debug("Could not compute checksum of '{}': {}", StageLibraryUtils.getLibraryName(cl), ex.toString(), ex);
+      return null;
+    }
+    return hasher.hash().toString();
+  }
+
+  private File getFile(StageLibraryDefinition libDef) {
+    return new File(dir, libDef.getName() + ".idx");
+  }
+
+  /**
+   * Reads the definitions of the given library, returns null if there is no up to date index for it.
+   */
+  Definitions read(
+      StageLibraryDefinition libDef,
+      String checksum,
+      List<Class<? extends Stage>> stageClasses,
+      List<Class<? extends Service>> serviceClasses
+  ) {
+    DataStore ds = new DataStore(getFile(libDef));
+    try {
+      if (!ds.exists()) {
+        return null;
+      }
+      try (DataInputStream in = new DataInputStream(new BufferedInputStream(ds.getInputStream()))) {
+        Reader reader = new Reader(in, libDef);
+        if (!reader.readHeader(build, checksum, stageClasses, serviceClasses)) {
+          LOG.debug("Definition index of library '{}' is stale", libDef.getName());
+          return null;
+        }
+        List<StageDefinition> stages = new ArrayList<>(stageClasses.size());
+        for (Class<? extends Stage> klass : stageClasses) {
+          stages.add(reader.readStage(klass));
+        }
+        List<ServiceDefinition> services = new ArrayList<>(serviceClasses.size());
+        for (Class<? extends Service> klass : serviceClasses) {
+          services.add(reader.readService(klass));
+        }
+        return new Definitions(stages, services);
+      }
+    } catch (IOException | RuntimeException ex) {
+      LOG.warn("Could not read definition index of library '{}': {}", libDef.getName(), ex.toString(), ex);
+      return null;
+    }
+  }
+
+  /**
+   * Writes the definitions of the given library, failures are logged and otherwise ignored.
+   */
+  void write(
+      StageLibraryDefinition libDef,
+      String checksum,
+      List<StageDefinition> stages,
+      List<ServiceDefinition> services
+  ) {
+    if (!dir.exists() && !dir.mkdirs() && !dir.exists()) {
+      LOG.warn("Could not create definition index directory '{}'", dir);
+      return;
+    }
+    DataStore ds = new DataStore(getFile(libDef));
+    try (OutputStream os = ds.getOutputStream()) {
+      DataOutputStream out = new DataOutputStream(new BufferedOutputStream(os));
+      Writer writer = new Writer(out);
+      writer.writeHeader(build, checksum, stages, services);
+      for (StageDefinition stage : stages) {
+        writer.writeStage(stage);
+      }
+      for (ServiceDefinition service : services) {
+        writer.writeService(service);
+      }
+      out.flush();
+      ds.commit(os);
+    } catch (IOException | RuntimeException ex) {
+      LOG.warn("Could not write definition index of library '{}': {}", libDef.getName(), ex.toString(), ex);
+    } finally {
+      ds.release();
+    }
+  }
+
+  private static class Writer {
+    private final DataOutputStream out;
+
+    private Writer(DataOutputStream out) {
+      this.out = out;
+    }
+
+    void writeHeader(String build, String checksum, List<StageDefinition> stages, List<ServiceDefinition> services)
+        throws IOException {
+      out.writeInt(MAGIC);
+      out.writeInt(FORMAT_VERSION);
+      writeString(build);
+      writeString(checksum);
+      out.writeInt(stages.size());
+      for (StageDefinition stage : stages) {
+        writeString(stage.getClassName());
+      }
+      out.writeInt(services.size());
+      for (ServiceDefinition service : services) {
+        writeString(service.getClassName());
+      }
+    }
+
+    void writeStage(StageDefinition def) throws IOException {
+      writeString(def.getName());
+      out.writeInt(def.getVersion());
+      writeString(def.getLabel());
+      writeString(def.getDescription());
+      writeString(def.getType().name());
+      out.writeBoolean(def.isErrorStage());
+      out.writeBoolean(def.hasPreconditions());
+      out.writeBoolean(def.hasOnRecordError());
+      writeConfigs(def.getConfigDefinitions());
+      RawSourceDefinition rawSource = def.getRawSourceDefinition();
+      out.writeBoolean(rawSource != null);
+      if (rawSource != null) {
+        writeString(rawSource.getRawSourcePreviewerClass());
+        writeString(rawSource.getMimeType());
+        writeConfigs(rawSource.getConfigDefinitions());
+      }
+      writeString(def.getIcon());
+      writeGroups(def.getConfigGroupDefinition());
+      out.writeBoolean(def.isVariableOutputStreams());
+      out.writeInt(def.getOutputStreams());
+      writeString(def.getOutputStreamLabelProviderClass());
+      out.writeBoolean(def.getRecordsByRef());
+      writeValue(def.getLibJarsRegex());
+      out.writeBoolean(def.isResetOffset());
+      writeString(def.getOnlineHelpRefUrl());
+      out.writeBoolean(def.isStatsAggregatorStage());
+      out.writeBoolean(def.isPipelineLifecycleStage());
+      out.writeBoolean(def.isOffsetCommitTrigger());
+      out.writeBoolean(def.isProducingEvents());
+      out.writeInt(def.getServices().size());
+      for (ServiceDependencyDefinition service : def.getServices()) {
+        writeString(service.getService().getName());
+        writeValue(service.getConfiguration());
+      }
+      writeValue(def.getHideStage());
+    }
+
+    void writeService(ServiceDefinition def) throws IOException {
+      writeString(def.getProvides().getName());
+      out.writeInt(def.getVersion());
+      writeString(def.getLabel());
+      writeString(def.getDescription());
+      writeGroups(def.getGroupDefinition());
+      writeConfigs(def.getConfigDefinitions());
+      out.writeBoolean(def.isPrivateClassLoader());
+    }
+
+    private void writeGroups(ConfigGroupDefinition groups) throws IOException {
+      out.writeBoolean(groups != null);
+      if (groups != null) {
+        writeValue(groups.getGroupNames());
+        writeValue(groups.getClassNameToGroupsMap());
+        writeValue(groups.getGroupNameToLabelMapList());
+      }
+    }
+
+    private void writeConfigs(List<ConfigDefinition> configs) throws IOException {
+      if (configs == null) {
+        out.writeInt(-1);
+      } else {
+        out.writeInt(configs.size());
+        for (ConfigDefinition config : configs) {
+          writeConfig(config);
+        }
+      }
+    }
+
+    private void writeConfig(ConfigDefinition def) throws IOException {
+      Field field = def.getConfigField();
+      out.writeBoolean(field != null);
+      if (field != null) {
+        writeString(field.getDeclaringClass().getName());
+        writeString(field.getName());
+      }
+      writeString(def.getName());
+      writeString(def.getType().name());
+      writeString(def.getLabel());
+      writeString(def.getDescription());
+      writeValue(def.getDefaultValue());
+      out.writeBoolean(def.isRequired());
+      writeString(def.getGroup());
+      writeString(def.getFieldName());
+      ModelDefinition model = def.getModel();
+      out.writeBoolean(model != null);
+      if (model != null) {
+        writeString(model.getModelType().name());
+        writeString(model.getValuesProviderClass());
+        writeValue(model.getValues());
+        writeValue(model.getLabels());
+        writeString((model.getListBeanClass() == null) ? null : model.getListBeanClass().getName());
+        writeConfigs(model.getConfigDefinitions());
+        writeString(model.getFilteringConfig());
+      }
+      writeString(def.getDependsOn());
+      writeValue(def.getTriggeredByValues());
+      out.writeInt(def.getDisplayPosition());
+      out.writeInt(def.getElFunctionDefinitions().size());
+      for (ElFunctionDefinition function : def.getElFunctionDefinitions()) {
+        writeString(function.getName());
+      }
+      out.writeInt(def.getElConstantDefinitions().size());
+      for (ElConstantDefinition constant : def.getElConstantDefinitions()) {
+        writeString(constant.getName());
+      }
+      out.writeLong(def.getMin());
+      out.writeLong(def.getMax());
+      writeString(def.getMode());
+      out.writeInt(def.getLines());
+      out.writeInt(def.getElDefs().size());
+      for (Class klass : def.getElDefs()) {
+        writeString(klass.getName());
+      }
+      writeString((def.getEvaluation() == null) ? null : def.getEvaluation().name());
+      writeValue(def.getDependsOnMap());
+      writeString(def.getPrefix());
+    }
+
+    private void writeString(String str) throws IOException {
+      if (str == null) {
+        out.writeInt(-1);
+      } else {
+        byte[] bytes = str.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+      }
+    }
+
+    private void writeValue(Object value) throws IOException {
+      if (value == null) {
+        out.writeByte(NULL);
+      } else if (value instanceof Boolean) {
+        out.writeByte(BOOLEAN);
+        out.writeBoolean((Boolean) value);
+      } else if (value instanceof Byte) {
+        out.writeByte(BYTE);
+        out.writeByte((Byte) value);
+      } else if (value instanceof Short) {
+        out.writeByte(SHORT);
+        out.writeShort((Short) value);
+      } else if (value instanceof Integer) {
+        out.writeByte(INTEGER);
+        out.writeInt((Integer) value);
+      } else if (value instanceof Long) {
+        out.writeByte(LONG);
+        out.writeLong((Long) value);
+      } else if (value instanceof Float) {
+        out.writeByte(FLOAT);
+        out.writeFloat((Float) value);
+      } else if (value instanceof Double) {
+        out.writeByte(DOUBLE);
+        out.writeDouble((Double) value);
+      } else if (value instanceof Character) {
+        out.writeByte(CHARACTER);
+        out.writeChar((Character) value);
+      } else if (value instanceof String) {
+        out.writeByte(STRING);
+        writeString((String) value);
+      } else if (value instanceof Enum) {
+        out.writeByte(ENUM);
+        writeString(((Enum) value).getDeclaringClass().getName());
+        writeString(((Enum) value).name());
+      } else if (value instanceof List || value instanceof Set) {
+        out.writeByte((value instanceof List) ? LIST : SET);
+        out.writeInt(((Collection) value).size());
+        for (Object element : (Collection) value) {
+          writeValue(element);
+        }
+      } else if (value instanceof Map) {
+        out.writeByte(MAP);
+        out.writeInt(((Map) value).size());
+        for (Map.Entry entry : ((Map<?, ?>) value).entrySet()) {
+          writeValue(entry.getKey());
+          writeValue(entry.getValue());
+        }
+      } else if (value instanceof ClearCredentialValue) {
+        out.writeByte(CREDENTIAL);
+        writeString(((ClearCredentialValue) value).get());
+      } else {
+        throw new IOException(Utils.format("Unsupported value type '{}'", value.getClass().getName()));
+      }
+    }
+  }
+
+  @SuppressWarnings("unchecked")
+  private static class Reader {
+    private final DataInputStream in;
+    private final StageLibraryDefinition libDef;
+    private final ClassLoader cl;
+    private final Map<Class, List<ElFunctionDefinition>> functionsByClass = new HashMap<>();
+    private final Map<Class, List<ElConstantDefinition>> constantsByClass = new HashMap<>();
+
+    private Reader(DataInputStream in, StageLibraryDefinition libDef) {
+      this.in = in;
+      this.libDef = libDef;
+      this.cl = libDef.getClassLoader();
+    }
+
+    boolean readHeader(
+        String build,
+        String checksum,
+        List<Class<? extends Stage>> stageClasses,
+        List<Class<? extends Service>> serviceClasses
+    ) throws IOException {
+      return in.readInt() == MAGIC &&
+          in.readInt() == FORMAT_VERSION &&
+          build.equals(readString()) &&
+          checksum.equals(readString()) &&
+          readClassNames(stageClasses) &&
+          readClassNames(serviceClasses);
+    }
+
+    private boolean readClassNames(List<? extends Class> classes) throws IOException {
+      int size = in.readInt();
+      if (size != classes.size()) {
+        return false;
+      }
+      for (Class klass : classes) {
+        if (!klass.getName().equals(readString())) {
+          return false;
+        }
+      }
+      return true;
+    }
+
+    StageDefinition readStage(Class<? extends Stage> klass) throws IOException {
+      String name = readString();
+      int version = in.readInt();
+      String label = readString();
+      String description = readString();
+      StageType type = StageType.valueOf(readString());
+      boolean errorStage = in.readBoolean();
+      boolean preconditions = in.readBoolean();
+      boolean onRecordError = in.readBoolean();
+      List<ConfigDefinition> configs = readConfigs();
+      RawSourceDefinition rawSource = null;
+      if (in.readBoolean()) {
+        rawSource = new RawSourceDefinition(readString(), readString(), readConfigs());
+      }
+      String icon = readString();
+      ConfigGroupDefinition groups = readGroups();
+      boolean variableOutputStreams = in.readBoolean();
+      int outputStreams = in.readInt();
+      String outputStreamLabelProviderClass = readString();
+      boolean recordsByRef = in.readBoolean();
+      List<String> libJarsRegex = (List<String>) readValue();
+      boolean resetOffset = in.readBoolean();
+      String onlineHelpRefUrl = readString();
+      boolean statsAggregatorStage = in.readBoolean();
+      boolean pipelineLifecycleStage = in.readBoolean();
+      boolean offsetCommitTrigger = in.readBoolean();
+      boolean producesEvents = in.readBoolean();
+      int servicesSize = in.readInt();
+      List<ServiceDependencyDefinition> services = new ArrayList<>(servicesSize);
+      for (int i = 0; i < servicesSize; i++) {
+        services.add(new ServiceDependencyDefinition(readClass(readString()), (Map<String, String>) readValue()));
+      }
+      List<HideStage.Type> hideStage = (List<HideStage.Type>) readValue();
+
+      // same as StageDefinitionExtractor, these depend on the JVM rather than on the library jars
+      StageDef sDef = klass.getAnnotation(StageDef.class);
+      boolean privateClassLoader =
+          sDef.privateClassLoader() && System.getProperty(klass.getCanonicalName() + ".no.private.classloader") == null;
+      List<ExecutionMode> executionModes = libDef.getStageExecutionModesOverride(klass);
+      if (executionModes == null) {
+        executionModes = ImmutableList.copyOf(sDef.execution());
+      }
+      StageUpgrader upgrader;
+      try {
+        upgrader = sDef.upgrader().newInstance();
+      } catch (Exception ex) {
+        throw new IllegalArgumentException(Utils.format(
+            "Could not instantiate StageUpgrader for StageDefinition '{}': {}", name, ex.toString(), ex));
+      }
+
+      return new StageDefinition(
+          libDef,
+          privateClassLoader,
+          klass,
+          name,
+          version,
+          label,
+          description,
+          type,
+          errorStage,
+          preconditions,
+          onRecordError,
+          configs,
+          rawSource,
+          icon,
+          groups,
+          variableOutputStreams,
+          outputStreams,
+          outputStreamLabelProviderClass,
+          executionModes,
+          recordsByRef,
+          upgrader,
+          libJarsRegex,
+          resetOffset,
+          onlineHelpRefUrl,
+          statsAggregatorStage,
+          pipelineLifecycleStage,
+          offsetCommitTrigger,
+          producesEvents,
+          services,
+          hideStage
+      );
+    }
+
+    ServiceDefinition readService(Class<? extends Service> klass) throws IOException {
+      Class provides = readClass(readString());
+      int version = in.readInt();
+      String label = readString();
+      String description = readString();
+      ConfigGroupDefinition groups = readGroups();
+      List<ConfigDefinition> configs = readConfigs();
+      boolean privateClassLoader = in.readBoolean();
+
+      StageUpgrader upgrader;
+      try {
+        upgrader = klass.getAnnotation(ServiceDef.class).upgrader().newInstance();
+      } catch (Exception ex) {
+        throw new IllegalArgumentException(Utils.format(
+            "Could not instantiate StageUpgrader for ServiceDefinition '{}': {}", provides.getCanonicalName(),
+            ex.toString(), ex));
+      }
+
+      return new ServiceDefinition(
+          libDef,
+          klass,
+          provides,
+          cl,
+          version,
+          label,
+          description,
+          groups,
+          configs,
+          privateClassLoader,
+          upgrader
+      );
+    }
+
+    private ConfigGroupDefinition readGroups() throws IOException {
+      if (!in.readBoolean()) {
+        return null;
+      }
+      return new ConfigGroupDefinition(
+          (Set<String>) readValue(),
+          (Map<String, List<String>>) readValue(),
+          (List<Map<String, String>>) readValue()
+      );
+    }
+
+    private List<ConfigDefinition> readConfigs() throws IOException {
+      int size = in.readInt();
+      if (size < 0) {
+        return null;
+      }
+      List<ConfigDefinition> configs = new ArrayList<>(size);
+      for (int i = 0; i < size; i++) {
+        configs.add(readConfig());
+      }
+      return configs;
+    }
+
+    private ConfigDefinition readConfig() throws IOException {
+      Field field = null;
+      if (in.readBoolean()) {
+        Class declaringClass = readClass(readString());
+        String fieldName = readString();
+        try {
+          field = declaringClass.getDeclaredField(fieldName);
+        } catch (NoSuchFieldException ex) {
+          throw new IOException(Utils.format("Field '{}' not found in '{}'", fieldName, declaringClass.getName()), ex);
+        }
+      }
+      String name = readString();
+      ConfigDef.Type type = ConfigDef.Type.valueOf(readString());
+      String label = readString();
+      String description = readString();
+      Object defaultValue = readValue();
+      boolean required = in.readBoolean();
+      String group = readString();
+      String fieldName = readString();
+      ModelDefinition model = null;
+      if (in.readBoolean()) {
+        ModelType modelType = ModelType.valueOf(readString());
+        String valuesProviderClass = readString();
+        List<String> values = (List<String>) readValue();
+        List<String> labels = (List<String>) readValue();
+        String listBeanClass = readString();
+        List<ConfigDefinition> configs = readConfigs();
+        String filteringConfig = readString();
+        model = new ModelDefinition(
+            modelType,
+            valuesProviderClass,
+            values,
+            labels,
+            (listBeanClass == null) ? null : readClass(listBeanClass),
+            configs,
+            filteringConfig
+        );
+      }
+      String dependsOn = readString();
+      List<Object> triggeredByValues = (List<Object>) readValue();
+      int displayPosition = in.readInt();
+      List<String> functionNames = readStrings();
+      List<String> constantNames = readStrings();
+      long min = in.readLong();
+      long max = in.readLong();
+      String mode = readString();
+      int lines = in.readInt();
+      List<String> elDefNames = readStrings();
+      List<Class> elDefs = new ArrayList<>(elDefNames.size());
+      for (String elDefName : elDefNames) {
+        elDefs.add(readClass(elDefName));
+      }
+      String evaluation = readString();
+      Map<String, List<Object>> dependsOnMap = (Map<String, List<Object>>) readValue();
+      String prefix = readString();
+
+      ConfigDefinition def = new ConfigDefinition(
+          field,
+          name,
+          type,
+          label,
+          description,
+          defaultValue,
+          required,
+          group,
+          fieldName,
+          model,
+          dependsOn,
+          triggeredByValues,
+          displayPosition,
+          resolveFunctions(elDefs, functionNames),
+          resolveConstants(elDefs, constantNames),
+          min,
+          max,
+          mode,
+          lines,
+          elDefs,
+          (evaluation == null) ? null : ConfigDef.Evaluation.valueOf(evaluation),
+          dependsOnMap
+      );
+      def.setPrefix(prefix);
+      return def;
+    }
+
+    // EL definitions are shared and have JVM wide indexes, they are looked up by name among the EL classes of the
+    // config and the library, which are the only places they can come from.
+    private List<ElFunctionDefinition> resolveFunctions(List<Class> elDefs, List<String> names) throws IOException {
+      Map<String, ElFunctionDefinition> candidates = new HashMap<>();
+      for (Class klass : getElClasses(elDefs)) {
+        List<ElFunctionDefinition> functions = functionsByClass.get(klass);
+        if (functions == null) {
+          functions = ConcreteELDefinitionExtractor.get().extractFunctions(new Class[]{klass}, "Definition index");
+          functionsByClass.put(klass, functions);
+        }
+        for (ElFunctionDefinition function : functions) {
+          addCandidate(candidates, function.getName(), function.getIndex(), function);
+        }
+      }
+      for (ElFunctionDefinition function : libDef.getElFunctionDefinitions()) {
+        addCandidate(candidates, function.getName(), function.getIndex(), function);
+      }
+      return resolve(candidates, names);
+    }
+
+    private List<ElConstantDefinition> resolveConstants(List<Class> elDefs, List<String> names) throws IOException {
+      Map<String, ElConstantDefinition> candidates = new HashMap<>();
+      for (Class klass : getElClasses(elDefs)) {
+        List<ElConstantDefinition> constants = constantsByClass.get(klass);
+        if (constants == null) {
+          constants = ConcreteELDefinitionExtractor.get().extractConstants(new Class[]{klass}, "Definition index");
+          constantsByClass.put(klass, constants);
+        }
+        for (ElConstantDefinition constant : constants) {
+          addCandidate(candidates, constant.getName(), constant.getIndex(), constant);
+        }
+      }
+      for (ElConstantDefinition constant : libDef.getElConstantDefinitions()) {
+        addCandidate(candidates, constant.getName(), constant.getIndex(), constant);
+      }
+      return resolve(candidates, names);
+    }
+
+    private Set<Class> getElClasses(List<Class> elDefs) {
+      Set<Class> classes = new LinkedHashSet<>(elDefs);
+      classes.add(CredentialEL.class);
+      classes.add(VaultEL.class);
+      return classes;
+    }
+
+    private <T> void addCandidate(Map<String, T> candidates, String name, String index, T def) throws IOException {
+      T existing = candidates.put(name, def);
+      if (existing != null && existing != def) {
+        String existingIndex = (existing instanceof ElFunctionDefinition)
+            ? ((ElFunctionDefinition) existing).getIndex()
+            : ((ElConstantDefinition) existing).getIndex();
+        if (!existingIndex.equals(index)) {
+          throw new IOException(Utils.format("Ambiguous EL definition '{}'", name));
+        }
+      }
+    }
+
+    private <T> List<T> resolve(Map<String, T> candidates, List<String> names) throws IOException {
+      List<T> defs = new ArrayList<>(names.size());
+      for (String name : names) {
+        T def = candidates.get(name);
+        if (def == null) {
+          throw new IOException(Utils.format("EL definition '{}' not found", name));
+        }
+        defs.add(def);
+      }
+      return defs;
+    }
+
+    private Class readClass(String name) throws IOException {
+      try {
+        return Class.forName(name, false, cl);
+      } catch (ClassNotFoundException ex) {
+        throw new IOException(Utils.format("Class '{}' not found", name), ex);
+      }
+    }
+
+    private List<String> readStrings() throws IOException {
+      int size = in.readInt();
+      List<String> list = new ArrayList<>(size);
+      for (int i = 0; i < size; i++) {
+        list.add(readString());
+      }
+      return list;
+    }
+
+    private String readString() throws IOException {
+      int length = in.readInt();
+      if (length < 0) {
+        return null;
+      }
+      byte[] bytes = new byte[length];
+      in.readFully(bytes);
+      return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private Object readValue() throws IOException {
+      byte type = in.readByte();
+      switch (type) {
+        case NULL:
+          return null;
+        case BOOLEAN:
+          return in.readBoolean();
+        case BYTE:
+          return in.readByte();
+        case SHORT:
+          return in.readShort();
+        case INTEGER:
+          return in.readInt();
+        case LONG:
+          return in.readLong();
+        case FLOAT:
+          return in.readFloat();
+        case DOUBLE:
+          return in.readDouble();
+        case CHARACTER:
+          return in.readChar();
+        case STRING:
+          return readString();
+        case ENUM:
+          return Enum.valueOf(readClass(readString()), readString());
+        case LIST:
+        case SET:
+          int size = in.readInt();
+          Collection collection = (type == LIST) ? new ArrayList(size) : new LinkedHashSet(size);
+          for (int i = 0; i < size; i++) {
+            collection.add(readValue());
+          }
+          return collection;
+        case MAP:
+          int entries = in.readInt();
+          Map map = new LinkedHashMap(entries);
+          for (int i = 0; i < entries; i++) {
+            map.put(readValue(), readValue());
+          }
+          return map;
+        case CREDENTIAL:
+          return new ClearCredentialValue(readString());
+        default:
+          throw new IOException(Utils.format("Unknown value type '{}'", type));
+      }
+    }
+  }
+
+}
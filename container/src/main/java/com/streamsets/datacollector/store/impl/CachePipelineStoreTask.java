@@ -28,25 +28,24 @@ import com.streamsets.datacollector.util.ContainerError;
 import com.streamsets.datacollector.util.LockCache;
 import com.streamsets.datacollector.util.PipelineException;
 import com.streamsets.pipeline.api.impl.Utils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import javax.inject.Inject;
-import java.util.ArrayList;
-import java.util.Collections;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ConcurrentMap;
 
 public class CachePipelineStoreTask implements PipelineStoreTask {
+  private static final Logger LOG = LoggerFactory.getLogger(CachePipelineStoreTask.class);
 
   private final PipelineStoreTask pipelineStore;
-  private final ConcurrentMap<String, PipelineInfo> pipelineInfoMap;
+  private final PipelineCatalog catalog;
   private final LockCache<String> lockCache;
 
   @Inject
   public CachePipelineStoreTask(PipelineStoreTask pipelineStore, LockCache<String> lockCache) {
     this.pipelineStore = pipelineStore;
-    pipelineInfoMap = new ConcurrentHashMap<>();
+    catalog = new PipelineCatalog();
     this.lockCache = lockCache;
   }
 
@@ -60,7 +59,7 @@ public class CachePipelineStoreTask implements PipelineStoreTask {
     pipelineStore.init();
     try {
       for (PipelineInfo info: pipelineStore.getPipelines()) {
-        pipelineInfoMap.put(info.getPipelineId(), info);
+        catalog.put(info);
       }
     } catch (PipelineStoreException e) {
       throw new RuntimeException(Utils.format("Cannot fetch list of pipelines due to: '{}'", e), e);
@@ -80,7 +79,7 @@ public class CachePipelineStoreTask implements PipelineStoreTask {
   @Override
   public void stop() {
     pipelineStore.stop();
-    pipelineInfoMap.clear();
+    catalog.clear();
   }
 
   @Override
@@ -98,31 +97,60 @@ public class CachePipelineStoreTask implements PipelineStoreTask {
       boolean draft
   ) throws PipelineException {
     synchronized (lockCache.getLock(pipelineId)) {
-      PipelineConfiguration pipelineConf = pipelineStore
-          .create(user, pipelineId, pipelineTitle, description, isRemote, draft);
-      if (!draft) {
-        pipelineInfoMap.put(pipelineConf.getInfo().getPipelineId(), pipelineConf.getInfo());
+      try {
+        PipelineConfiguration pipelineConf = pipelineStore
+            .create(user, pipelineId, pipelineTitle, description, isRemote, draft);
+        if (!draft) {
+          catalog.put(pipelineConf.getInfo());
+        }
+        return pipelineConf;
+      } catch (PipelineException | RuntimeException e) {
+        if (!draft) {
+          refresh(pipelineId);
+        }
+        throw e;
       }
-      return pipelineConf;
     }
   }
 
   @Override
   public void delete(String name) throws PipelineException {
     synchronized (lockCache.getLock(name)) {
-      pipelineStore.delete(name);
-      pipelineInfoMap.remove(name);
+      try {
+        pipelineStore.delete(name);
+        catalog.remove(name);
+      } catch (PipelineException | RuntimeException e) {
+        refresh(name);
+        throw e;
+      }
+    }
+  }
+
+  /**
+   * Brings the catalog entry of given pipeline in line with the store after an operation failed, the store may have
+   * changed (or removed) the pipeline files before failing.
+   */
+  private void refresh(String name) {
+    try {
+      if (pipelineStore.hasPipeline(name)) {
+        catalog.put(pipelineStore.getInfo(name));
+      } else {
+        catalog.remove(name);
+      }
+    } catch (PipelineException | RuntimeException e) {
+      LOG.warn("Cannot read info of pipeline '{}', removing it from the catalog: {}", name, e.toString(), e);
+      catalog.remove(name);
     }
   }
 
   @Override
   public List<PipelineInfo> getPipelines() throws PipelineStoreException {
-    return Collections.unmodifiableList(new ArrayList<>(pipelineInfoMap.values()));
+    return catalog.getPipelines();
   }
 
   @Override
   public PipelineInfo getInfo(String name) throws PipelineStoreException {
-    PipelineInfo pipelineInfo = pipelineInfoMap.get(name);
+    PipelineInfo pipelineInfo = catalog.get(name);
     if (pipelineInfo == null) {
       throw new PipelineStoreException(ContainerError.CONTAINER_0200, name);
     } else {
@@ -139,9 +167,14 @@ public class CachePipelineStoreTask implements PipelineStoreTask {
   public PipelineConfiguration save(String user, String name, String tag, String tagDescription,
     PipelineConfiguration pipeline) throws PipelineException {
     synchronized (lockCache.getLock(name)) {
-      PipelineConfiguration pipelineConf = pipelineStore.save(user, name, tag, tagDescription, pipeline);
-      pipelineInfoMap.put(name, pipelineConf.getInfo());
-      return pipelineConf;
+      try {
+        PipelineConfiguration pipelineConf = pipelineStore.save(user, name, tag, tagDescription, pipeline);
+        catalog.put(pipelineConf.getInfo());
+        return pipelineConf;
+      } catch (PipelineException | RuntimeException e) {
+        refresh(name);
+        throw e;
+      }
     }
   }
 
@@ -152,7 +185,7 @@ public class CachePipelineStoreTask implements PipelineStoreTask {
 
   @Override
   public boolean hasPipeline(String name) {
-    return pipelineInfoMap.containsKey(name);
+    return catalog.contains(name);
   }
 
   @Override
@@ -193,9 +226,14 @@ public class CachePipelineStoreTask implements PipelineStoreTask {
       Map<String, Object> metadata
   ) throws PipelineException {
     synchronized (lockCache.getLock(name)) {
-      PipelineConfiguration pipelineConf = pipelineStore.saveMetadata(user, name, rev, metadata);
-      pipelineInfoMap.put(name, pipelineConf.getInfo());
-      return pipelineConf;
+      try {
+        PipelineConfiguration pipelineConf = pipelineStore.saveMetadata(user, name, rev, metadata);
+        catalog.put(pipelineConf.getInfo());
+        return pipelineConf;
+      } catch (PipelineException | RuntimeException e) {
+        refresh(name);
+        throw e;
+      }
     }
   }
 
@@ -0,0 +1,84 @@
+/*
+ * Copyright 2018 StreamSets Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.streamsets.datacollector.store.impl;
+
+import com.streamsets.datacollector.store.PipelineInfo;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In memory catalog of the {@link PipelineInfo} of all the pipelines of a store, maintained by the store as pipelines
+ * are created, saved and deleted.
+ *
+ * Listing the pipelines returns an immutable list ordered by pipeline id. The list is built once after a change and
+ * then shared by all the listings until the next change, so listing does not copy the catalog every time.
+ */
+class PipelineCatalog {
+  private final ConcurrentNavigableMap<String, PipelineInfo> pipelines = new ConcurrentSkipListMap<>();
+  // incremented after every change of the pipelines map
+  private final AtomicLong version = new AtomicLong();
+  private volatile Snapshot snapshot;
+
+  private static class Snapshot {
+    private final long version;
+    private final List<PipelineInfo> pipelines;
+
+    Snapshot(long version, List<PipelineInfo> pipelines) {
+      this.version = version;
+      this.pipelines = pipelines;
+    }
+  }
+
+  void put(PipelineInfo info) {
+    pipelines.put(info.getPipelineId(), info);
+    version.incrementAndGet();
+  }
+
+  void remove(String pipelineId) {
+    if (pipelines.remove(pipelineId) != null) {
+      version.incrementAndGet();
+    }
+  }
+
+  void clear() {
+    pipelines.clear();
+    version.incrementAndGet();
+  }
+
+  PipelineInfo get(String pipelineId) {
+    return pipelines.get(pipelineId);
+  }
+
+  boolean contains(String pipelineId) {
+    return pipelines.containsKey(pipelineId);
+  }
+
+  List<PipelineInfo> getPipelines() {
+    Snapshot current = snapshot;
+    long currentVersion = version.get();
+    if (current == null || current.version != currentVersion) {
+      // Changes made while copying bump the version again, the next listing picks them up
+      current = new Snapshot(currentVersion, Collections.unmodifiableList(new ArrayList<>(pipelines.values())));
+      snapshot = current;
+    }
+    return current.pipelines;
+  }
+}
@@ -147,4 +147,31 @@ public class TestPipelineConfigUpgrader {
     Assert.assertTrue(emrConfigList.contains(AmazonEMRConfig.VISIBLE_TO_ALL_USERS));
   }
 
+  private static void assertUpgradeAddsConfig(int fromVersion, int toVersion, String name, Object value)
+      throws StageException {
+    TestUpgraderContext context = new TestUpgraderContext("x", "y", "z", fromVersion, toVersion);
+    List<Config> upgraded = new PipelineConfigUpgrader().upgrade(new ArrayList<>(), context);
+
+    List<Config> configs = upgraded.stream()
+        .filter(config -> config.getName().equals(name))
+        .collect(Collectors.toList());
+    Assert.assertEquals(1, configs.size());
+    Assert.assertEquals(value, configs.get(0).getValue());
+  }
+
+  @Test
+  public void testPipelineConfigUpgradeV10ToV11() throws StageException {
+    assertUpgradeAddsConfig(10, 11, "copyOnWriteRecords", false);
+  }
+
+  @Test
+  public void testPipelineConfigUpgradeV11ToV12() throws StageException {
+    assertUpgradeAddsConfig(11, 12, "branchThreads", 1);
+  }
+
+  @Test
+  public void testPipelineConfigUpgradeV12ToV13() throws StageException {
+    assertUpgradeAddsConfig(12, 13, "prefetchBatches", 0);
+  }
+
 }
@@ -19,6 +19,7 @@ import com.streamsets.datacollector.definition.ConcreteELDefinitionExtractor;
 import com.streamsets.datacollector.definition.ELDefinitionExtractor;
 import com.streamsets.pipeline.api.ElConstant;
 import com.streamsets.pipeline.api.ElFunction;
+import com.streamsets.pipeline.api.ElParam;
 import com.streamsets.pipeline.api.el.ELEval;
 import com.streamsets.pipeline.api.el.ELEvalException;
 import com.streamsets.pipeline.api.el.ELVars;
@@ -140,6 +141,25 @@ public class TestELEvaluator {
 
   }
 
+  public static class CompileTestEl {
+
+    @ElFunction(prefix = "test", name = "add")
+    public static int add(@ElParam("a") int a, @ElParam("b") int b) {
+      return a + b;
+    }
+
+    @ElFunction(prefix = "test", name = "concat")
+    public static String concat(@ElParam("a") String a, @ElParam("b") String b) {
+      return a + b;
+    }
+
+    @ElFunction(prefix = "test", name = "fail")
+    public static String fail(@ElParam("message") String message) {
+      throw new IllegalStateException(message);
+    }
+
+  }
+
   public static class NonStaticConstEl {
     @ElConstant(name = "CITY", description = "Declares the CITY constant to be 'San Francisco'")
     public final String CITY = "San Francisco";
@@ -201,4 +221,81 @@ public class TestELEvaluator {
     elEval.eval(elEval.createVariables(), "${implicitOnly:f()}", String.class);
   }
 
+  @Test
+  public void testCompiledMatchesInterpreted() throws Exception {
+    ELEvaluator compiled = new ELEvaluator("compiled", false, elDefinitionExtractor, ValidTestEl.class, CompileTestEl.class);
+    compiled.setCompile(true);
+    ELEvaluator interpreted = new ELEvaluator("interpreted", false, elDefinitionExtractor, ValidTestEl.class, CompileTestEl.class);
+    interpreted.setCompile(false);
+
+    String[] expressions = {
+        "",
+        "plain text",
+        "${CITY}",
+        "${location:city() eq CITY}",
+        "${test:add(1, 2)}",
+        "${test:add('1', x) * 2}",
+        "${test:add(test:add(1, 2), x)}",
+        "${x > 1 ? test:concat(CITY, '!') : 'none'}",
+        "prefix ${test:concat('a', 'b')} and ${x + 1}",
+        "${empty y or test:add(x, 1) == 6}",
+        "${not (x < 3) and test:concat(y, '') eq 'str'}",
+    };
+
+    for (String expression : expressions) {
+      for (Class<?> type : new Class[] {Object.class, String.class}) {
+        ELVars compiledVars = compiled.createVariables();
+        compiledVars.addVariable("x", 5);
+        compiledVars.addVariable("y", "str");
+        ELVars interpretedVars = interpreted.createVariables();
+        interpretedVars.addVariable("x", 5);
+        interpretedVars.addVariable("y", "str");
+        Assert.assertEquals(
+            expression,
+            interpreted.eval(interpretedVars, expression, type),
+            compiled.eval(compiledVars, expression, type)
+        );
+      }
+    }
+  }
+
+  @Test
+  public void testCompiledFunctionException() throws Exception {
+    ELEvaluator compiled = new ELEvaluator("compiled", false, elDefinitionExtractor, CompileTestEl.class);
+    compiled.setCompile(true);
+    ELEvaluator interpreted = new ELEvaluator("interpreted", false, elDefinitionExtractor, CompileTestEl.class);
+    interpreted.setCompile(false);
+
+    String compiledError = null;
+    String interpretedError = null;
+    try {
+      compiled.eval(compiled.createVariables(), "${test:fail('boom')}", String.class);
+      Assert.fail();
+    } catch (ELEvalException ex) {
+      compiledError = ex.getMessage();
+    }
+    try {
+      interpreted.eval(interpreted.createVariables(), "${test:fail('boom')}", String.class);
+      Assert.fail();
+    } catch (ELEvalException ex) {
+      interpretedError = ex.getMessage();
+    }
+    Assert.assertEquals(interpretedError, compiledError);
+  }
+
+  @Test
+  public void testCompiledFallbackToInterpreter() throws Exception {
+    ELEvaluator compiled = new ELEvaluator("compiled", false, elDefinitionExtractor, CompileTestEl.class);
+    compiled.setCompile(true);
+
+    // Unknown function and wrong number of arguments can't be bound and are left to the interpreter
+    for (String expression : new String[] {"${test:unknown()}", "${test:add(1)}", "${test:add(1, }"}) {
+      try {
+        compiled.eval(compiled.createVariables(), expression, Object.class);
+        Assert.fail("ELEvalException expected for " + expression);
+      } catch (ELEvalException e) {
+      }
+    }
+  }
+
 }
@@ -17,9 +17,11 @@ package com.streamsets.datacollector.el;
 
 import com.streamsets.datacollector.el.ELVariables;
 import com.streamsets.pipeline.api.el.ELVars;
+import com.streamsets.pipeline.container.el.ResettableELVars;
 
 import org.junit.Assert;
 import org.junit.Test;
+import org.mockito.Mockito;
 
 import java.util.HashMap;
 import java.util.Map;
@@ -96,4 +98,85 @@ public class TestELVariables {
     Assert.assertEquals(1, elVars.getVariable("ZERO"));
   }
 
+  @Test
+  public void testReset() {
+    Map<String, Object> constants = new HashMap<>();
+    constants.put("X", "x");
+    ELVariables elVars = new ELVariables(constants);
+
+    elVars.addVariable(VAR_NAME, VAR_VALUE);
+    elVars.addContextVariable("record", VAR_VALUE);
+    elVars.addContextVariable(VAR_NAME, null);
+    Assert.assertTrue(elVars.hasVariable(VAR_NAME));
+    Assert.assertTrue(elVars.hasContextVariable("record"));
+    Assert.assertTrue(elVars.hasContextVariable(VAR_NAME));
+    Assert.assertNull(elVars.getContextVariable(VAR_NAME));
+
+    elVars.reset();
+    Assert.assertFalse(elVars.hasVariable(VAR_NAME));
+    Assert.assertFalse(elVars.hasContextVariable("record"));
+    Assert.assertFalse(elVars.hasContextVariable(VAR_NAME));
+    Assert.assertNull(elVars.getVariable(VAR_NAME));
+    Assert.assertEquals("x", elVars.getConstant("X"));
+
+    elVars.addVariable(VAR_NAME, 6);
+    Assert.assertEquals(6, elVars.getVariable(VAR_NAME));
+  }
+
+  @Test
+  public void testResetThroughInterface() {
+    ELVars elVars = new ELVariables();
+    elVars.addContextVariable("record", VAR_VALUE);
+    elVars.addContextVariable("field", VAR_VALUE);
+    ResettableELVars.reset(elVars);
+    Assert.assertFalse(elVars.hasContextVariable("record"));
+    Assert.assertFalse(elVars.hasContextVariable("field"));
+
+    // other implementations are left alone
+    ELVars other = Mockito.mock(ELVars.class);
+    ResettableELVars.reset(other);
+    Mockito.verifyZeroInteractions(other);
+  }
+
+  @Test
+  public void testManyVariables() {
+    // more variables than the initial capacity, registered in a different order than they are set
+    ELVariables elVars = new ELVariables();
+    for (int i = 0; i < 20; i++) {
+      new ELVariables().addVariable("var" + (19 - i), i);
+    }
+    for (int i = 0; i < 20; i++) {
+      elVars.addVariable("var" + i, i);
+      elVars.addContextVariable("ctx" + i, i);
+    }
+    elVars.addVariable("var5", 50);
+    for (int i = 0; i < 20; i++) {
+      Assert.assertEquals(i == 5 ? 50 : i, elVars.getVariable("var" + i));
+      Assert.assertEquals(i, elVars.getContextVariable("ctx" + i));
+      Assert.assertFalse(elVars.hasContextVariable("var" + i));
+    }
+
+    elVars.reset();
+    for (int i = 0; i < 20; i++) {
+      Assert.assertFalse(elVars.hasVariable("var" + i));
+      Assert.assertFalse(elVars.hasContextVariable("ctx" + i));
+    }
+    elVars.addVariable("var19", 19);
+    Assert.assertEquals(19, elVars.getVariable("var19"));
+    Assert.assertNull(elVars.getVariable("var0"));
+  }
+
+  @Test
+  public void testInvalidNameRejectedOnEveryCall() {
+    ELVars elVars = new ELVariables();
+    for (int i = 0; i < 2; i++) {
+      try {
+        elVars.getVariable("$hello");
+        Assert.fail("IllegalArgumentException expected.");
+      } catch (IllegalArgumentException e) {
+
+      }
+    }
+  }
+
 }
@@ -16,6 +16,7 @@
 package com.streamsets.datacollector.execution.runner.common;
 
 import com.codahale.metrics.MetricRegistry;
+import com.google.common.collect.ImmutableList;
 import com.streamsets.datacollector.blobstore.BlobStoreTask;
 import com.streamsets.datacollector.config.MemoryLimitConfiguration;
 import com.streamsets.datacollector.config.MemoryLimitExceeded;
@@ -32,6 +33,7 @@ import com.streamsets.datacollector.main.RuntimeModule;
 import com.streamsets.datacollector.main.StandaloneRuntimeInfo;
 import com.streamsets.datacollector.memory.TestMemoryUsageCollector;
 import com.streamsets.datacollector.metrics.MetricsConfigurator;
+import com.streamsets.datacollector.runner.BatchListener;
 import com.streamsets.datacollector.runner.MockStages;
 import com.streamsets.datacollector.runner.PipeBatch;
 import com.streamsets.datacollector.runner.Pipeline;
@@ -63,6 +65,7 @@ import com.streamsets.pipeline.api.base.BaseSource;
 import com.streamsets.pipeline.api.base.BaseTarget;
 import com.streamsets.pipeline.api.impl.ErrorMessage;
 import com.streamsets.pipeline.api.impl.Utils;
+import com.streamsets.pipeline.lib.log.LogConstants;
 import org.apache.commons.io.FileUtils;
 import org.junit.AfterClass;
 import org.junit.Assert;
@@ -72,6 +75,7 @@ import org.junit.Test;
 import org.mockito.Mockito;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.slf4j.MDC;
 
 import java.io.File;
 import java.io.IOException;
@@ -99,6 +103,7 @@ public class TestProductionPipeline {
   private static final String SNAPSHOT_NAME = "snapshot";
   private MetricRegistry runtimeInfoMetrics;
   private MemoryLimitConfiguration memoryLimit;
+  private boolean monitorMemory;
   private RuntimeInfo runtimeInfo;
   private ProductionPipelineRunner lastCreatedRunner;
 
@@ -131,6 +136,7 @@ public class TestProductionPipeline {
                                   Arrays.asList(getClass().getClassLoader()));
     runtimeInfo.init();
     memoryLimit = new MemoryLimitConfiguration();
+    monitorMemory = true;
     MetricsConfigurator.registerJmxMetrics(runtimeInfoMetrics);
 
     MockStages.setSourceCapture(null);
@@ -279,6 +285,80 @@ public class TestProductionPipeline {
     Assert.assertTrue(capture.lastBatchTime < endTime);
   }
 
+  @Test
+  public void testProductionRunWithPrefetch() throws Exception {
+    List<String> producedFrom = Collections.synchronizedList(new ArrayList<>());
+    List<Thread> producedOn = Collections.synchronizedList(new ArrayList<>());
+    Source source = new BaseSource() {
+      @Override
+      public String produce(String lastSourceOffset, int maxBatchSize, BatchMaker batchMaker) throws StageException {
+        producedFrom.add(lastSourceOffset);
+        producedOn.add(Thread.currentThread());
+        int offset = Integer.parseInt(lastSourceOffset);
+        return (offset < 4) ? String.valueOf(offset + 1) : null;
+      }
+    };
+    MockStages.setSourceCapture(source);
+    ProductionPipeline pipeline = createProductionPipeline(DeliveryGuarantee.AT_LEAST_ONCE, false, PipelineType.DEFAULT);
+    lastCreatedRunner.setPrefetchBatches(2);
+    pipeline.registerStatusListener(new MyStateListener());
+    pipeline.run();
+
+    // Each batch is produced from the offset of the previous one and all offsets were committed
+    Assert.assertEquals(ImmutableList.of("1", "2", "3", "4"), producedFrom);
+    Assert.assertTrue(pipeline.getCommittedOffsets().isEmpty());
+    Assert.assertFalse(producedOn.contains(Thread.currentThread()));
+  }
+
+  @Test
+  public void testPrefetchKeepsMdcAndBatchListenerOrder() throws Exception {
+    List<String> events = Collections.synchronizedList(new ArrayList<>());
+    List<String> originEntities = Collections.synchronizedList(new ArrayList<>());
+    MockStages.setSourceCapture(new BaseSource() {
+      @Override
+      public String produce(String lastSourceOffset, int maxBatchSize, BatchMaker batchMaker) throws StageException {
+        originEntities.add(MDC.get(LogConstants.ENTITY));
+        int offset = Integer.parseInt(lastSourceOffset);
+        return (offset < 4) ? String.valueOf(offset + 1) : null;
+      }
+    });
+    MockStages.setProcessorCapture(new BaseProcessor() {
+      @Override
+      public void process(Batch batch, BatchMaker batchMaker) throws StageException {
+        events.add("process");
+      }
+    });
+    ProductionPipeline pipeline = createProductionPipeline(DeliveryGuarantee.AT_LEAST_ONCE, false, PipelineType.DEFAULT);
+    lastCreatedRunner.setPrefetchBatches(2);
+    lastCreatedRunner.registerListener(new BatchListener() {
+      @Override
+      public void preBatch() {
+        events.add("pre");
+      }
+
+      @Override
+      public void postBatch() {
+        events.add("post");
+      }
+    });
+    pipeline.registerStatusListener(new MyStateListener());
+    MDC.put(LogConstants.ENTITY, PIPELINE_NAME);
+    try {
+      pipeline.run();
+    } finally {
+      MDC.remove(LogConstants.ENTITY);
+    }
+
+    // The origin thread logs under the pipeline's context
+    Assert.assertEquals(Collections.nCopies(4, PIPELINE_NAME), originEntities);
+    // Listener calls stay paired per batch, around the processing of the batch by the rest of the pipeline
+    List<String> expected = new ArrayList<>();
+    for (int i = 0; i < 4; i++) {
+      expected.addAll(ImmutableList.of("pre", "process", "post"));
+    }
+    Assert.assertEquals(expected, events);
+  }
+
   @Test
   public void testMemoryLimit() throws Exception {
     memoryLimit = new MemoryLimitConfiguration(MemoryLimitExceeded.STOP_PIPELINE, 1);
@@ -304,6 +384,70 @@ public class TestProductionPipeline {
     }
   }
 
+  private static class LargeRecordsSource extends BaseSource {
+    @Override
+    public String produce(String lastSourceOffset, int maxBatchSize, BatchMaker batchMaker) throws StageException {
+      if (!"1".equals(lastSourceOffset)) {
+        return null;
+      }
+      // three records of 600000 chars each is about 3.6 MB
+      for (int i = 0; i < 3; i++) {
+        Record record = getContext().createRecord("r" + i);
+        record.set(Field.create(new String(new char[600000])));
+        batchMaker.addRecord(record);
+      }
+      return "2";
+    }
+  }
+
+  @Test
+  public void testMemoryLimitWithStageAccounting() throws Exception {
+    monitorMemory = false;
+    memoryLimit = new MemoryLimitConfiguration(MemoryLimitExceeded.STOP_PIPELINE, 5);
+    MockStages.setSourceCapture(new LargeRecordsSource());
+    // replacing the value of the records doubles the estimated footprint
+    MockStages.setProcessorCapture(new BaseProcessor() {
+      @Override
+      public void process(Batch batch, BatchMaker batchMaker) throws StageException {
+        Iterator<Record> records = batch.getRecords();
+        while (records.hasNext()) {
+          Record record = records.next();
+          record.set(Field.create(new String(new char[600000])));
+          batchMaker.addRecord(record);
+        }
+      }
+    });
+    ProductionPipeline pipeline = createProductionPipeline(DeliveryGuarantee.AT_LEAST_ONCE, false, PipelineType.DEFAULT);
+    pipeline.registerStatusListener(new MyStateListener());
+    try {
+      pipeline.run();
+      Assert.fail("Expected PipelineRuntimeException");
+    } catch (PipelineRuntimeException e) {
+      Assert.assertEquals(ContainerError.CONTAINER_0011, e.getErrorCode());
+    }
+  }
+
+  @Test
+  public void testStageAccountingDoesNotCountPassThroughRecords() throws Exception {
+    monitorMemory = false;
+    memoryLimit = new MemoryLimitConfiguration(MemoryLimitExceeded.STOP_PIPELINE, 5);
+    MockStages.setSourceCapture(new LargeRecordsSource());
+    MockStages.setProcessorCapture(new BaseProcessor() {
+      @Override
+      public void process(Batch batch, BatchMaker batchMaker) throws StageException {
+        Iterator<Record> records = batch.getRecords();
+        while (records.hasNext()) {
+          batchMaker.addRecord(records.next());
+        }
+      }
+    });
+    ProductionPipeline pipeline = createProductionPipeline(DeliveryGuarantee.AT_LEAST_ONCE, false, PipelineType.DEFAULT);
+    pipeline.registerStatusListener(new MyStateListener());
+    // the records are only counted at the origin that created them, that is under the limit
+    pipeline.run();
+    Assert.assertTrue(pipeline.getCommittedOffsets().isEmpty());
+  }
+
   @Test
   public void testNoRerunOnJVMError() throws Exception {
     SourceOffsetTrackerCapture capture = new SourceOffsetTrackerCapture() {
@@ -408,7 +552,7 @@ public class TestProductionPipeline {
             System.currentTimeMillis(), false, 0));
     BlockingQueue<Object> productionObserveRequests = new ArrayBlockingQueue<>(100, true /* FIFO */);
     Configuration config = new Configuration();
-    config.set("monitor.memory", true);
+    config.set("monitor.memory", monitorMemory);
     ProductionPipelineRunner runner = new ProductionPipelineRunner(
       PIPELINE_NAME,
       REVISION,
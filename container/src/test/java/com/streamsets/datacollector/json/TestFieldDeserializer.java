@@ -0,0 +1,113 @@
+/*
+ * Copyright 2018 StreamSets Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.streamsets.datacollector.json;
+
+import com.google.common.collect.ImmutableList;
+import com.streamsets.datacollector.record.io.JsonWriterReaderFactory;
+import com.streamsets.pipeline.api.Field;
+import com.streamsets.pipeline.api.ext.JsonObjectReader;
+import com.streamsets.pipeline.api.ext.io.ObjectLengthException;
+import com.streamsets.pipeline.api.ext.json.Mode;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.StringReader;
+import java.math.BigDecimal;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+public class TestFieldDeserializer {
+
+  private static final String DOCUMENT = "{\"s\":\"a\",\"i\":1,\"l\":12345678901,\"b\":123456789012345678901234567890," +
+      "\"d\":1.5,\"t\":true,\"f\":false,\"n\":null,\"o\":{},\"a\":[1,[\"x\"],{\"k\":null}]}";
+
+  private static Field expected() {
+    Map<String, Field> inner = new LinkedHashMap<>();
+    inner.put("k", Field.create(Field.Type.STRING, null));
+    Map<String, Field> map = new LinkedHashMap<>();
+    map.put("s", Field.create("a"));
+    map.put("i", Field.create(1));
+    map.put("l", Field.create(12345678901L));
+    map.put("b", Field.create(new BigDecimal("123456789012345678901234567890")));
+    map.put("d", Field.create(1.5d));
+    map.put("t", Field.create(true));
+    map.put("f", Field.create(false));
+    map.put("n", Field.create(Field.Type.STRING, null));
+    map.put("o", Field.create(new LinkedHashMap<String, Field>()));
+    map.put("a", Field.create(ImmutableList.of(
+        Field.create(1),
+        Field.create(ImmutableList.of(Field.create("x"))),
+        Field.create(inner)
+    )));
+    return Field.create(map);
+  }
+
+  @Test
+  public void testMultipleObjects() throws Exception {
+    String json = DOCUMENT + "\n\"x\"\n7 ";
+    JsonObjectReader reader = JsonWriterReaderFactory.createObjectReader(
+        new StringReader(json), 0, Mode.MULTIPLE_OBJECTS, Field.class
+    );
+    Assert.assertEquals(expected(), reader.read());
+    Assert.assertEquals(DOCUMENT.length() + 1, reader.getReaderPosition());
+    Assert.assertEquals(Field.create("x"), reader.read());
+    Assert.assertEquals(Field.create(7), reader.read());
+    Assert.assertNull(reader.read());
+    reader.close();
+  }
+
+  @Test
+  public void testArrayOfObjects() throws Exception {
+    String json = "[" + DOCUMENT + ", [2]]";
+    JsonObjectReader reader = JsonWriterReaderFactory.createObjectReader(
+        new StringReader(json), 0, Mode.ARRAY_OBJECTS, Field.class, -1
+    );
+    Assert.assertEquals(expected(), reader.read());
+    long position = reader.getReaderPosition();
+    Assert.assertEquals(Field.create(ImmutableList.of(Field.create(2))), reader.read());
+    Assert.assertNull(reader.read());
+    reader.close();
+
+    // resuming from the position of the second object
+    reader = JsonWriterReaderFactory.createObjectReader(
+        new StringReader(json), position, Mode.ARRAY_OBJECTS, Field.class, -1
+    );
+    Assert.assertEquals(Field.create(ImmutableList.of(Field.create(2))), reader.read());
+    Assert.assertNull(reader.read());
+    reader.close();
+  }
+
+  @Test
+  public void testObjectLengthExceeded() throws Exception {
+    String json = "{\"a\":\"0123456789\",\"b\":[1,2,3,4,5,6,7,8,9]}\n{\"c\":1}";
+    JsonObjectReader reader = JsonWriterReaderFactory.createObjectReader(
+        new StringReader(json), 0, Mode.MULTIPLE_OBJECTS, Field.class, 20
+    );
+    try {
+      reader.read();
+      Assert.fail("Expected ObjectLengthException");
+    } catch (ObjectLengthException ex) {
+      Assert.assertEquals(0, ex.getOffset());
+    }
+    // the reader skipped the long object and carries on with the next one
+    Map<String, Field> map = new LinkedHashMap<>();
+    map.put("c", Field.create(1));
+    Assert.assertEquals(Field.create(map), reader.read());
+    Assert.assertNull(reader.read());
+    reader.close();
+  }
+
+}
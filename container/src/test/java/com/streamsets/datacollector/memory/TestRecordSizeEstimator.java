@@ -0,0 +1,82 @@
+/*
+ * Copyright 2018 StreamSets Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.streamsets.datacollector.memory;
+
+import com.google.common.collect.ImmutableList;
+import com.streamsets.datacollector.record.RecordImpl;
+import com.streamsets.pipeline.api.Field;
+import com.streamsets.pipeline.api.Record;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+public class TestRecordSizeEstimator {
+
+  private static Record createRecord(String value) {
+    Record record = new RecordImpl("stage", "id", null, null);
+    Map<String, Field> map = new LinkedHashMap<>();
+    map.put("a", Field.create(value));
+    map.put("b", Field.create(1));
+    map.put("c", Field.create(ImmutableList.of(Field.create(true), Field.create(new byte[100]))));
+    record.set(Field.create(map));
+    return record;
+  }
+
+  @Test
+  public void testLargerRecordsEstimateLarger() {
+    long small = RecordSizeEstimator.estimate(createRecord("x"));
+    long large = RecordSizeEstimator.estimate(createRecord(new String(new char[1000])));
+    Assert.assertTrue(small > RecordSizeEstimator.RECORD_OVERHEAD);
+    Assert.assertEquals(2 * 999, large - small);
+  }
+
+  @Test
+  public void testSystemAttributesAreNotRendered() {
+    RecordImpl record = (RecordImpl) createRecord(new String(new char[1000]));
+    long size = RecordSizeEstimator.estimate(record);
+    record.getHeader().setSourceRecord(record.clone());
+    Assert.assertEquals(size, RecordSizeEstimator.estimate(record));
+    record.getHeader().setAttribute("attr", "value");
+    Assert.assertTrue(RecordSizeEstimator.estimate(record) > size);
+  }
+
+  @Test
+  public void testEstimateExtrapolatesFromSamples() {
+    List<Record> records = new ArrayList<>();
+    for (int i = 0; i < 1000; i++) {
+      records.add(createRecord("value"));
+    }
+    long perRecord = RecordSizeEstimator.estimate(records.get(0));
+    Assert.assertEquals(1000 * perRecord, new RecordSizeEstimator(10).estimate(ImmutableList.of(records)));
+    Assert.assertEquals(
+      2000 * perRecord,
+      new RecordSizeEstimator(10).estimate(ImmutableList.of(records, records.subList(0, 3), records.subList(0, 997)))
+    );
+  }
+
+  @Test
+  public void testEmpty() {
+    RecordSizeEstimator estimator = new RecordSizeEstimator(10);
+    Assert.assertEquals(0, estimator.estimate(Collections.emptyList()));
+    Assert.assertEquals(0, estimator.estimate(ImmutableList.of(Collections.emptyList())));
+  }
+
+}
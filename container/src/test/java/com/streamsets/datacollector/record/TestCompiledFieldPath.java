@@ -0,0 +1,101 @@
+/*
+ * Copyright 2018 StreamSets Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.streamsets.datacollector.record;
+
+import com.google.common.collect.ImmutableList;
+import com.streamsets.pipeline.api.Field;
+import com.streamsets.pipeline.api.Record;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+public class TestCompiledFieldPath {
+
+  private static Record createRecord() {
+    Map<String, Field> inner = new HashMap<>();
+    inner.put("b", Field.create("b"));
+    List<Field> list = new ArrayList<>();
+    list.add(Field.create(1));
+    list.add(Field.create(Field.Type.STRING, null));
+    Map<String, Field> root = new HashMap<>();
+    root.put("a", Field.create(inner));
+    root.put("list", Field.create(list));
+    return new RecordImpl(new HeaderImpl(), Field.create(root));
+  }
+
+  @Test
+  public void testCompileIsCached() {
+    CompiledFieldPath path = CompiledFieldPath.compile("/a/b");
+    Assert.assertSame(path, CompiledFieldPath.compile("/a/b"));
+    Assert.assertSame(path.getElements(), PathElement.parseCached("/a/b"));
+    Assert.assertEquals(PathElement.parse("/a/b", true).size(), path.getElements().size());
+    Assert.assertEquals("/a/b", path.getFieldPath());
+  }
+
+  @Test(expected = UnsupportedOperationException.class)
+  public void testElementsAreUnmodifiable() {
+    CompiledFieldPath.compile("/a").getElements().add(PathElement.ROOT);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testInvalidPath() {
+    CompiledFieldPath.compile("a/b");
+  }
+
+  @Test
+  public void testSameResultsAsStringAccessors() {
+    for (String path : ImmutableList.of("", "/a", "/a/b", "/a/c", "/a/b/c", "/list", "/list[0]", "/list[1]",
+        "/list[1]/x", "/list[2]", "/a[0]", "/list/a")) {
+      Record record = createRecord();
+      CompiledFieldPath compiled = CompiledFieldPath.compile(path);
+      Assert.assertEquals(path, record.has(path), compiled.has(record));
+      Assert.assertEquals(path, record.get(path), compiled.get(record));
+    }
+  }
+
+  @Test
+  public void testSetAndDelete() {
+    Record record = createRecord();
+    Assert.assertNull(CompiledFieldPath.compile("/a/c").set(record, Field.create("c")));
+    Assert.assertEquals("c", record.get("/a/c").getValueAsString());
+    Assert.assertEquals("c", CompiledFieldPath.compile("/a/c").set(record, Field.create("d")).getValueAsString());
+    Assert.assertNull(CompiledFieldPath.compile("/list[2]").set(record, Field.create(3)));
+    Assert.assertEquals(3, record.get("/list[2]").getValueAsInteger());
+
+    try {
+      CompiledFieldPath.compile("/x/y").set(record, Field.create(1));
+      Assert.fail();
+    } catch (IllegalArgumentException ex) {
+      // expected
+    }
+
+    Assert.assertEquals("d", CompiledFieldPath.compile("/a/c").delete(record).getValueAsString());
+    Assert.assertFalse(record.has("/a/c"));
+    Assert.assertNull(CompiledFieldPath.compile("/a/c").delete(record));
+    Assert.assertEquals(1, CompiledFieldPath.compile("/list[0]").delete(record).getValueAsInteger());
+    Assert.assertEquals(2, record.get("/list").getValueAsList().size());
+
+    Field root = record.get();
+    Assert.assertSame(root, CompiledFieldPath.compile("").delete(record));
+    Assert.assertNull(record.get());
+    Assert.assertNull(CompiledFieldPath.compile("").set(record, root));
+    Assert.assertSame(root, record.get());
+  }
+}
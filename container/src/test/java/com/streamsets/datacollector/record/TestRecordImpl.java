@@ -15,13 +15,22 @@
  */
 package com.streamsets.datacollector.record;
 
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
 import com.streamsets.pipeline.api.Field;
 import com.streamsets.pipeline.api.Record;
 import org.junit.Assert;
 import org.junit.Test;
+import org.objenesis.strategy.StdInstantiatorStrategy;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.LinkedHashMap;
@@ -96,6 +105,110 @@ public class TestRecordImpl {
     record.toString();
   }
 
+  private static RecordImpl createRecordWithCompactHeader() {
+    RecordImpl record = new RecordImpl("stage", "source", null, null);
+    record.addStageToStagePath("a");
+    record.createTrackingId();
+    record.addStageToStagePath("b");
+    record.createTrackingId();
+    return record;
+  }
+
+  private static void assertCompactHeader(HeaderImpl header) {
+    Assert.assertEquals("a:b", header.getStagesPath());
+    Assert.assertEquals("source::a:b", header.getTrackingId());
+    Assert.assertEquals("source::a", header.getPreviousTrackingId());
+    Assert.assertEquals("a:b", header.getAllAttributes().get("_.stagePath"));
+    // the path can be extended after deserialization
+    header.addStageToStagesPath("c");
+    Assert.assertEquals("a:b:c", header.getStagesPath());
+  }
+
+  @Test
+  public void testStagesPathKryoRoundTrip() {
+    // plain Kryo, configured the way Spark does, without the serializers of KryoRecordWriter
+    Kryo kryo = new Kryo();
+    kryo.setInstantiatorStrategy(new Kryo.DefaultInstantiatorStrategy(new StdInstantiatorStrategy()));
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    Output output = new Output(bytes);
+    kryo.writeClassAndObject(output, createRecordWithCompactHeader());
+    output.close();
+
+    Input input = new Input(new ByteArrayInputStream(bytes.toByteArray()));
+    assertCompactHeader(((RecordImpl) kryo.readClassAndObject(input)).getHeader());
+  }
+
+  @Test
+  public void testStagesPathJavaSerializationRoundTrip() throws Exception {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try (ObjectOutputStream output = new ObjectOutputStream(bytes)) {
+      output.writeObject(createRecordWithCompactHeader().getHeader());
+    }
+    try (ObjectInputStream input = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+      assertCompactHeader((HeaderImpl) input.readObject());
+    }
+  }
+
+  @Test
+  public void testStagesPathCacheClear() {
+    StagePath path = StagePath.NONE.append("x").append("y");
+    Assert.assertSame(path, StagePath.NONE.append("x").append("y"));
+    Assert.assertTrue(StagePath.getCachedPaths() > 0);
+
+    StagePath.clearCache();
+    Assert.assertEquals(0, StagePath.getCachedPaths());
+    StagePath newPath = StagePath.NONE.append("x").append("y");
+    Assert.assertNotSame(path, newPath);
+    Assert.assertEquals("x:y", path.toString());
+    Assert.assertEquals("x:y", newPath.toString());
+  }
+
+  @Test
+  public void testStagesPathAndTrackingId() {
+    RecordImpl record = new RecordImpl("stage", "source", null, null);
+    HeaderImpl header = record.getHeader();
+    record.createTrackingId();
+    Assert.assertEquals("source::null", header.getTrackingId());
+    Assert.assertNull(header.getPreviousTrackingId());
+
+    record.addStageToStagePath("a");
+    record.createTrackingId();
+    record.addStageToStagePath("b");
+    record.createTrackingId();
+    Assert.assertEquals("a:b", header.getStagesPath());
+    Assert.assertEquals("source::a:b", header.getTrackingId());
+    Assert.assertEquals("source::a", header.getPreviousTrackingId());
+
+    // same attributes as if they had been set as strings
+    HeaderImpl expected = new RecordImpl("stage", "source", null, null).getHeader();
+    expected.setStagesPath("a:b");
+    expected.setTrackingId("source::a:b");
+    expected.setPreviousTrackingId("source::a");
+    Assert.assertEquals(expected, header);
+    Assert.assertEquals(expected.hashCode(), header.hashCode());
+    Assert.assertEquals(expected.getAllAttributes(), header.getAllAttributes());
+
+    // continuing from string values
+    header.setStagesPath("");
+    record.addStageToStagePath("c");
+    record.createTrackingId();
+    Assert.assertEquals(":c", header.getStagesPath());
+    Assert.assertEquals("source:::c", header.getTrackingId());
+    Assert.assertEquals("source::a:b", header.getPreviousTrackingId());
+    header.setTrackingId("t");
+    record.createTrackingId();
+    Assert.assertEquals("t", header.getPreviousTrackingId());
+
+    // copies are independent
+    RecordImpl copy = record.clone();
+    RecordImpl copyOnWrite = record.cloneCopyOnWrite();
+    copy.addStageToStagePath("d");
+    copyOnWrite.addStageToStagePath("e");
+    Assert.assertEquals(":c", header.getStagesPath());
+    Assert.assertEquals(":c:d", copy.getHeader().getStagesPath());
+    Assert.assertEquals(":c:e", copyOnWrite.getHeader().getStagesPath());
+  }
+
   @Test
   public void testHeaderUserAttr_basic() {
     RecordImpl record = new RecordImpl("stage", "source", null, null);
@@ -744,4 +857,105 @@ public class TestRecordImpl {
       }
     }
   }
+
+  private static RecordImpl createCopyOnWriteRecord() {
+    RecordImpl record = new RecordImpl("stage", "source", null, null);
+    Map<String, Field> nested = new LinkedHashMap<>();
+    nested.put("x", Field.create("X"));
+    nested.put("y", Field.create(ImmutableList.of(Field.create(1), Field.create(2))));
+    Map<String, Field> root = new LinkedHashMap<>();
+    root.put("a", Field.create("A"));
+    root.put("b", Field.create(nested));
+    root.put("c", Field.createListMap(new LinkedHashMap<>(ImmutableMap.of("k", Field.create("K")))));
+    record.set(Field.create(root));
+    return record;
+  }
+
+  @Test
+  public void testCloneCopyOnWriteSharesUntilModified() {
+    RecordImpl record = createCopyOnWriteRecord();
+    Field rootBefore = record.get();
+    RecordImpl copy = record.cloneCopyOnWrite();
+    Assert.assertTrue(copy.isValueShared());
+    Assert.assertTrue(record.isValueShared());
+    Assert.assertEquals(record, copy);
+
+    // read only access doesn't copy
+    Assert.assertTrue(copy.has("/b/y[1]"));
+    Assert.assertFalse(copy.has("/b/z"));
+    Assert.assertEquals(record.getEscapedFieldPaths(), copy.getEscapedFieldPaths());
+    Assert.assertTrue(copy.isValueShared());
+
+    copy.set("/b/x", Field.create("XX"));
+    copy.delete("/a");
+    copy.get("/b/y[0]").setAttribute("attr", "value");
+    copy.set("/c/k", Field.create("KK"));
+
+    Assert.assertEquals("XX", copy.get("/b/x").getValueAsString());
+    Assert.assertFalse(copy.has("/a"));
+    Assert.assertEquals("value", copy.get("/b/y[0]").getAttribute("attr"));
+    Assert.assertEquals("KK", copy.get("/c/k").getValueAsString());
+
+    Assert.assertEquals(createCopyOnWriteRecord(), record);
+    Assert.assertNull(record.get("/b/y[0]").getAttribute("attr"));
+    Assert.assertEquals("K", record.get("/c/k").getValueAsString());
+    // the tree the records started with was never modified
+    Assert.assertEquals(createCopyOnWriteRecord().get(), rootBefore);
+  }
+
+  @Test
+  public void testCloneCopyOnWriteExposedFields() {
+    RecordImpl record = createCopyOnWriteRecord();
+    RecordImpl copy = record.cloneCopyOnWrite();
+
+    // fields handed out can be modified directly
+    copy.get("/b").getValueAsMap().put("z", Field.create("Z"));
+    copy.get("/b/y").getValueAsList().clear();
+    Field deleted = copy.delete("/c");
+    deleted.getValueAsMap().clear();
+    Assert.assertEquals("Z", copy.get("/b/z").getValueAsString());
+    Assert.assertEquals(0, copy.get("/b/y").getValueAsList().size());
+
+    // and so can the whole tree of the original
+    record.get().getValueAsMap().remove("a");
+    Assert.assertFalse(record.isValueShared());
+    Assert.assertTrue(copy.has("/a"));
+
+    RecordImpl expected = createCopyOnWriteRecord();
+    expected.delete("/a");
+    Assert.assertEquals(expected, record);
+    Assert.assertEquals("K", record.get("/c/k").getValueAsString());
+  }
+
+  @Test
+  public void testCloneCopyOnWriteHeader() {
+    RecordImpl record = createCopyOnWriteRecord();
+    record.getHeader().setAttribute("a", "A");
+    RecordImpl copy = record.cloneCopyOnWrite();
+    copy.getHeader().setAttribute("a", "B");
+    copy.getHeader().setStagesPath("s1");
+    record.getHeader().setAttribute("b", "B");
+
+    Assert.assertEquals("A", record.getHeader().getAttribute("a"));
+    Assert.assertNull(record.getHeader().getStagesPath());
+    Assert.assertEquals("B", copy.getHeader().getAttribute("a"));
+    Assert.assertNull(copy.getHeader().getAttribute("b"));
+    Assert.assertEquals("s1", copy.getHeader().getStagesPath());
+  }
+
+  @Test
+  public void testCloneCopyOnWriteRoot() {
+    RecordImpl record = createCopyOnWriteRecord();
+    RecordImpl copy = record.cloneCopyOnWrite();
+
+    Field root = copy.delete("");
+    Assert.assertNull(copy.get());
+    root.getValueAsMap().clear();
+    Assert.assertEquals(createCopyOnWriteRecord(), record);
+
+    copy = record.cloneCopyOnWrite();
+    copy.set(Field.create("new root"));
+    Assert.assertFalse(copy.isValueShared());
+    Assert.assertEquals(createCopyOnWriteRecord(), record);
+  }
 }
@@ -109,6 +109,8 @@ public  class TestRecordWriterReaderFactory {
     RecordImpl record2 = new RecordImpl("stage2", "source2", null, null);
     record2.getHeader().setStagesPath("stagePath2");
     record2.getHeader().setTrackingId("trackingId2");
+    record2.addStageToStagePath("stage3");
+    record2.createTrackingId();
     record2.set(Field.create("Hello"));
     writer.write(record2);
 
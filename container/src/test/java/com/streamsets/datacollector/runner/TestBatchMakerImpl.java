@@ -21,6 +21,7 @@ import com.streamsets.datacollector.config.StageConfiguration;
 import com.streamsets.datacollector.config.StageDefinition;
 import com.streamsets.datacollector.record.RecordImpl;
 import com.streamsets.datacollector.runner.preview.StageConfigurationBuilder;
+import com.streamsets.pipeline.api.Field;
 import com.streamsets.pipeline.api.Record;
 import com.streamsets.pipeline.api.Source;
 import com.streamsets.pipeline.api.Stage;
@@ -36,8 +37,12 @@ import java.util.List;
 
 public class TestBatchMakerImpl {
 
-  @SuppressWarnings("unchecked")
   private StagePipe createStagePipe(List<String> outputs) {
+    return createStagePipe(outputs, false);
+  }
+
+  @SuppressWarnings("unchecked")
+  private StagePipe createStagePipe(List<String> outputs, boolean copyOnWrite) {
     StageConfiguration stageConfiguration = new StageConfigurationBuilder("i",  "n")
       .withOutputLanes("i")
       .withOutputLanes(outputs)
@@ -61,6 +66,7 @@ public class TestBatchMakerImpl {
 
     StageContext context = Mockito.mock(StageContext.class);
     Mockito.when(context.isPreview()).thenReturn(false);
+    Mockito.when(context.isCopyOnWriteRecords()).thenReturn(copyOnWrite);
     Mockito.when(stageRuntime.getContext()).thenReturn(context);
     return new StagePipe(stageRuntime, pipeInput, pipeOutput, Collections.<String>emptyList());
   }
@@ -102,6 +108,63 @@ public class TestBatchMakerImpl {
     Assert.assertEquals("2", records.get(1).getHeader().getAttribute("r"));
   }
 
+  @Test
+  public void testBatchMakerCopyOnWrite() {
+    StagePipe pipe = createStagePipe(ImmutableList.of("o1", "o2"), true);
+    BatchMakerImpl batchMaker = new BatchMakerImpl(pipe, true);
+    Assert.assertTrue(batchMaker.isCopyOnWrite());
+
+    Record record = new RecordImpl("i", "source", null, null);
+    record.set(Field.create(ImmutableMap.of("a", Field.create("A"))));
+    batchMaker.addRecord(record, "o1", "o2");
+
+    Record output = batchMaker.getStageOutput().get("o1").get(0);
+    Assert.assertSame(output, batchMaker.getStageOutput().get("o2").get(0));
+    output.set("/a", Field.create("B"));
+    output.get().getValueAsMap().put("b", Field.create("B"));
+
+    Assert.assertEquals("B", output.get("/a").getValueAsString());
+    Assert.assertEquals("A", record.get("/a").getValueAsString());
+    Assert.assertFalse(record.has("/b"));
+    Record snapshot = batchMaker.getStageOutputSnapshot().get("o1").get(0);
+    Assert.assertEquals("A", snapshot.get("/a").getValueAsString());
+    Assert.assertFalse(snapshot.has("/b"));
+    Record source = ((RecordImpl) output).getHeader().getSourceRecord();
+    Assert.assertEquals("A", source.get("/a").getValueAsString());
+    Assert.assertNull(record.getHeader().getStagesPath());
+  }
+
+  @Test
+  public void testBatchMakerTracksCreatedRecords() {
+    StagePipe pipe = createStagePipe(ImmutableList.of("o"), true);
+    BatchMakerImpl batchMaker = new BatchMakerImpl(pipe, false);
+    Assert.assertNull(batchMaker.getCreatedRecords());
+
+    RecordImpl passThrough = new RecordImpl("i", "source", null, null);
+    passThrough.set(Field.create("A"));
+    RecordImpl shared = new RecordImpl("i", "source", null, null);
+    shared.set(Field.create("B"));
+    RecordImpl sharedCopy = shared.cloneCopyOnWrite();
+    RecordImpl modified = new RecordImpl("i", "source", null, null);
+    modified.set(Field.create("C"));
+    batchMaker.trackCreatedRecords(
+        new BatchImpl("i", "source", "offset", ImmutableList.<Record>of(passThrough, shared, modified))
+    );
+
+    batchMaker.addRecord(passThrough);
+    batchMaker.addRecord(sharedCopy);
+    modified.set(Field.create("D"));
+    batchMaker.addRecord(modified);
+    Record created = new RecordImpl("i", "source", null, null);
+    created.set(Field.create("E"));
+    batchMaker.addRecord(created);
+
+    Assert.assertEquals(4, batchMaker.getSize());
+    Assert.assertEquals(2, batchMaker.getCreatedRecords().size());
+    Assert.assertEquals("D", batchMaker.getCreatedRecords().get(0).get().getValueAsString());
+    Assert.assertEquals("E", batchMaker.getCreatedRecords().get(1).get().getValueAsString());
+  }
+
   @Test
   @SuppressWarnings("unchecked")
   public void testBatchMakerSingleOutputWithSnapshot() {
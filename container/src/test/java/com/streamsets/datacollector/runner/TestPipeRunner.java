@@ -0,0 +1,134 @@
+/*
+ * Copyright 2018 StreamSets Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.streamsets.datacollector.runner;
+
+import com.codahale.metrics.MetricRegistry;
+import com.google.common.collect.ImmutableList;
+import com.streamsets.datacollector.util.ContainerError;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+public class TestPipeRunner {
+
+  private ExecutorService executor;
+
+  @Before
+  public void setUp() {
+    executor = Executors.newFixedThreadPool(2);
+  }
+
+  @After
+  public void tearDown() {
+    executor.shutdownNow();
+  }
+
+  private static Pipe createPipe(String name, List<String> inputLanes, List<String> outputLanes) {
+    Pipe pipe = Mockito.mock(Pipe.class);
+    StageRuntime stage = Mockito.mock(StageRuntime.class, Mockito.RETURNS_DEEP_STUBS);
+    Mockito.when(stage.getInfo().getInstanceName()).thenReturn(name);
+    Mockito.when(pipe.getStage()).thenReturn(stage);
+    Mockito.when(pipe.getInputLanes()).thenReturn(inputLanes);
+    Mockito.when(pipe.getOutputLanes()).thenReturn(outputLanes);
+    Mockito.when(pipe.getEventLanes()).thenReturn(Collections.emptyList());
+    return pipe;
+  }
+
+  private static String getName(Pipe pipe) {
+    return pipe.getStage().getInfo().getInstanceName();
+  }
+
+  // origin lane -> selector -> (a -> targetA, b -> targetB), both branches -> merge
+  private static PipeRunner createBranchingRunner() {
+    return new PipeRunner("p", "0", 0, new MetricRegistry(), ImmutableList.of(
+      createPipe("selector", ImmutableList.of("origin"), ImmutableList.of("a", "b")),
+      createPipe("targetA", ImmutableList.of("a"), ImmutableList.of("aOut")),
+      createPipe("targetB", ImmutableList.of("b"), ImmutableList.of("bOut")),
+      createPipe("merge", ImmutableList.of("aOut", "bOut"), Collections.emptyList())
+    ));
+  }
+
+  @Test
+  public void testSequentialWithoutExecutor() throws Exception {
+    List<String> processed = new CopyOnWriteArrayList<>();
+    createBranchingRunner().executeBatch(null, null, 0, pipe -> processed.add(getName(pipe)));
+    Assert.assertEquals(ImmutableList.of("selector", "targetA", "targetB", "merge"), processed);
+  }
+
+  @Test
+  public void testBranchesRunConcurrently() throws Exception {
+    // Both targets have to be in the consumer at the same time for the barrier to open
+    CyclicBarrier barrier = new CyclicBarrier(2);
+    List<String> processed = new CopyOnWriteArrayList<>();
+    createBranchingRunner().executeBatch(null, null, 0, executor, pipe -> {
+      if (getName(pipe).startsWith("target")) {
+        try {
+          barrier.await(10, TimeUnit.SECONDS);
+        } catch (Exception e) {
+          throw new RuntimeException(e);
+        }
+      }
+      processed.add(getName(pipe));
+    });
+    Assert.assertEquals(4, processed.size());
+    Assert.assertEquals("selector", processed.get(0));
+    Assert.assertEquals("merge", processed.get(3));
+  }
+
+  @Test
+  public void testChainRunsOnCallingThread() throws Exception {
+    PipeRunner runner = new PipeRunner("p", "0", 0, new MetricRegistry(), ImmutableList.of(
+      createPipe("a", ImmutableList.of("origin"), ImmutableList.of("x")),
+      createPipe("b", ImmutableList.of("x"), ImmutableList.of("y")),
+      createPipe("c", ImmutableList.of("y"), Collections.emptyList())
+    ));
+    Thread caller = Thread.currentThread();
+    List<String> processed = new CopyOnWriteArrayList<>();
+    runner.executeBatch(null, null, 0, executor, pipe -> {
+      Assert.assertSame(caller, Thread.currentThread());
+      processed.add(getName(pipe));
+    });
+    Assert.assertEquals(ImmutableList.of("a", "b", "c"), processed);
+  }
+
+  @Test
+  public void testFailureOnBranch() throws Exception {
+    List<String> processed = new CopyOnWriteArrayList<>();
+    try {
+      createBranchingRunner().executeBatch(null, null, 0, executor, pipe -> {
+        if (getName(pipe).equals("targetA")) {
+          throw new PipelineRuntimeException(ContainerError.CONTAINER_0151, "foo");
+        }
+        processed.add(getName(pipe));
+      });
+      Assert.fail("Expected PipelineRuntimeException");
+    } catch (PipelineRuntimeException e) {
+      Assert.assertEquals(ContainerError.CONTAINER_0151, e.getErrorCode());
+    }
+    // Pipes depending on the failed one are never processed
+    Assert.assertFalse(processed.contains("merge"));
+  }
+}
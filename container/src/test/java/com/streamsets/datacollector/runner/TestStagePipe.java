@@ -18,10 +18,14 @@ package com.streamsets.datacollector.runner;
 import com.codahale.metrics.MetricRegistry;
 import com.google.common.collect.ImmutableList;
 import com.streamsets.datacollector.main.RuntimeInfo;
+import com.streamsets.datacollector.memory.ThreadResourceUsage;
+import com.streamsets.datacollector.record.RecordImpl;
 import com.streamsets.pipeline.api.Batch;
 import com.streamsets.pipeline.api.BatchMaker;
 import com.streamsets.pipeline.api.Executor;
+import com.streamsets.pipeline.api.Field;
 import com.streamsets.pipeline.api.Processor;
+import com.streamsets.pipeline.api.Record;
 import com.streamsets.pipeline.api.Source;
 import com.streamsets.pipeline.api.StageException;
 import com.streamsets.pipeline.api.Target;
@@ -32,6 +36,7 @@ import org.junit.Test;
 import org.mockito.Mockito;
 import org.powermock.reflect.Whitebox;
 
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 
@@ -115,7 +120,6 @@ public class TestStagePipe {
     batch = Mockito.mock(BatchImpl.class);
     Mockito.when(batch.getSize()).thenReturn(0);
     //empty batch
-    Mockito.when(batch.getRecords()).thenReturn(Collections.emptyIterator());
     Mockito.when(batchMaker.getSize()).thenReturn(0);
 
     Mockito.when(pipeBatch.getBatch(Mockito.eq(pipe), Mockito.anyList())).thenReturn(batch);
@@ -205,6 +209,69 @@ public class TestStagePipe {
     Assert.assertTrue(process);
   }
 
+  @Test
+  @SuppressWarnings("unchecked")
+  public void testStageAccounting() throws Exception {
+    MockStages.setProcessorCapture(new Processor() {
+
+      @Override
+      public List<ConfigIssue> init(Info info, Context context) {
+        return Collections.emptyList();
+      }
+
+      @Override
+      public void process(Batch batch, BatchMaker batchMaker) throws StageException {
+        List<long[]> allocated = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+          allocated.add(new long[128]);
+        }
+        Assert.assertEquals(1000, allocated.size());
+      }
+
+      @Override
+      public void destroy() {
+      }
+    });
+    MetricRegistry metrics = new MetricRegistry();
+    PipelineRunner pipelineRunner = Mockito.mock(PipelineRunner.class);
+    Mockito.when(pipelineRunner.getMetrics()).thenReturn(metrics);
+    Mockito.when(pipelineRunner.getRuntimeInfo()).thenReturn(Mockito.mock(RuntimeInfo.class));
+    Pipeline pipeline = new MockPipelineBuilder()
+      .withPipelineConf(MockStages.createPipelineConfigurationSourceProcessorTarget())
+      .build(pipelineRunner);
+    StagePipe pipe = (StagePipe) pipeline.getRunners().get(0).get(2);
+    BatchMakerImpl batchMaker = Mockito.mock(BatchMakerImpl.class);
+    Mockito.when(batchMaker.getLanes()).thenReturn(ImmutableList.of("p"));
+    Record record = new RecordImpl("stage", "id", null, null);
+    record.set(Field.create(new String(new char[600000])));
+    Mockito.when(batchMaker.getCreatedRecords()).thenReturn(ImmutableList.of(record, record));
+
+    BatchImpl batch = Mockito.mock(BatchImpl.class);
+    Mockito.when(batch.getSourceOffset()).thenReturn("offset2");
+
+    PipeBatch pipeBatch = Mockito.mock(FullPipeBatch.class);
+    Mockito.when(pipeBatch.startStage(Mockito.eq(pipe))).thenReturn(batchMaker);
+    Mockito.when(pipeBatch.getBatch(Mockito.eq(pipe), Mockito.anyList())).thenReturn(batch);
+    Mockito.when(pipeBatch.getErrorSink()).thenReturn(new ErrorSink());
+
+    PipeContext pipeContext = new PipeContext();
+    Assert.assertTrue(pipe.init(pipeContext).isEmpty());
+    pipe.process(pipeBatch);
+    pipe.destroy(pipeBatch);
+
+    String metricsKey = "stage." + pipe.getStage().getInfo().getInstanceName();
+    if (ThreadResourceUsage.isAllocatedBytesSupported()) {
+      long allocated = metrics.getCounters().get(metricsKey + ".allocatedBytes.counter").getCount();
+      Assert.assertTrue(allocated >= 1000 * 128 * 8);
+      Assert.assertEquals(allocated, pipeContext.getRuntimeStats().getAllocatedBytes());
+    }
+    if (ThreadResourceUsage.isCpuTimeSupported()) {
+      Assert.assertEquals(1, metrics.getTimers().get(metricsKey + ".cpuTime.timer").getCount());
+    }
+    // two records of 600000 chars each is about 2.4 MB
+    Assert.assertEquals(2, pipe.getMemoryConsumed());
+  }
+
   @Test
   @SuppressWarnings("unchecked")
   public void testTarget() throws Exception {
@@ -19,6 +19,7 @@ import com.codahale.metrics.MetricRegistry;
 import com.streamsets.datacollector.main.RuntimeInfo;
 import com.streamsets.datacollector.main.RuntimeModule;
 import com.streamsets.datacollector.main.StandaloneRuntimeInfo;
+import com.streamsets.datacollector.util.Configuration;
 import com.streamsets.datacollector.util.PipelineDirectoryUtil;
 import com.streamsets.pipeline.api.Source;
 import com.streamsets.pipeline.api.impl.Utils;
@@ -34,7 +35,9 @@ import org.slf4j.LoggerFactory;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
 import java.util.Arrays;
 
 public class TestProductionSourceOffsetTracker {
@@ -43,6 +46,7 @@ public class TestProductionSourceOffsetTracker {
   private static final String PIPELINE_NAME = "myPipeline";
   private static final String PIPELINE_REV = "2.0";
 
+  private static RuntimeInfo info;
   private static ProductionSourceOffsetTracker offsetTracker;
 
   @BeforeClass
@@ -64,7 +68,7 @@ public class TestProductionSourceOffsetTracker {
 
   @Before
   public void createOffsetTracker() throws Exception {
-    RuntimeInfo info = new StandaloneRuntimeInfo(
+    info = new StandaloneRuntimeInfo(
       RuntimeModule.SDC_PROPERTY_PREFIX,
       new MetricRegistry(),
       Arrays.asList(TestProductionSourceOffsetTracker.class.getClassLoader())
@@ -113,4 +117,91 @@ public class TestProductionSourceOffsetTracker {
     Assert.assertEquals(0, offsetTracker.getOffsets().size());
   }
 
+  private static ProductionSourceOffsetTracker createJournalTracker(int compactEntries) {
+    Configuration configuration = new Configuration();
+    configuration.set(ProductionSourceOffsetTracker.OFFSET_JOURNAL_ENABLED_KEY, true);
+    configuration.set(ProductionSourceOffsetTracker.OFFSET_JOURNAL_COMPACT_ENTRIES_KEY, compactEntries);
+    return new ProductionSourceOffsetTracker(PIPELINE_NAME, PIPELINE_REV, info, configuration);
+  }
+
+  private static File getJournalFile() {
+    return OffsetFileUtil.getPipelineOffsetJournalFile(info, PIPELINE_NAME, PIPELINE_REV);
+  }
+
+  @Test
+  public void testJournal() {
+    ProductionSourceOffsetTracker tracker = createJournalTracker(1000);
+    tracker.commitOffset("a", "1");
+    tracker.commitOffset("b", "2");
+    tracker.commitOffset("a", "3");
+    tracker.commitOffset("b", null);
+    Assert.assertTrue(getJournalFile().exists());
+
+    // Offset file itself wasn't rewritten, but reading the offsets applies the journal
+    Assert.assertEquals(1, OffsetFileUtil.getOffsets(info, PIPELINE_NAME, PIPELINE_REV).size());
+    Assert.assertEquals("3", OffsetFileUtil.getOffsets(info, PIPELINE_NAME, PIPELINE_REV).get("a"));
+
+    tracker.close();
+    Assert.assertFalse(getJournalFile().exists());
+    Assert.assertEquals("3", OffsetFileUtil.getOffsets(info, PIPELINE_NAME, PIPELINE_REV).get("a"));
+  }
+
+  @Test
+  public void testJournalRecovery() throws IOException {
+    // Tracker is never closed, as if the data collector died
+    ProductionSourceOffsetTracker tracker = createJournalTracker(1000);
+    tracker.commitOffset("a", "1");
+    tracker.commitOffset("a", "2");
+    // Partially written entry of a commit that never returned
+    Files.write(getJournalFile().toPath(), "{\"e\":\"a\",\"o\":\"".getBytes(StandardCharsets.UTF_8),
+        StandardOpenOption.APPEND);
+
+    // Both with and without journal the offsets are recovered and the journal is folded into the offset file
+    tracker = new ProductionSourceOffsetTracker(PIPELINE_NAME, PIPELINE_REV, info);
+    Assert.assertEquals("2", tracker.getOffsets().get("a"));
+    Assert.assertFalse(getJournalFile().exists());
+  }
+
+  @Test
+  public void testJournalCompaction() {
+    ProductionSourceOffsetTracker tracker = createJournalTracker(2);
+    tracker.commitOffset("a", "1");
+    Assert.assertTrue(getJournalFile().length() > 0);
+    tracker.commitOffset("a", "2");
+    // Second entry triggered compaction
+    Assert.assertEquals(0, getJournalFile().length());
+    tracker.close();
+    Assert.assertEquals("2", OffsetFileUtil.getOffsets(info, PIPELINE_NAME, PIPELINE_REV).get("a"));
+  }
+
+  @Test
+  public void testJournalConcurrentCommits() throws Exception {
+    ProductionSourceOffsetTracker tracker = createJournalTracker(50);
+    Thread[] threads = new Thread[4];
+    for (int i = 0; i < threads.length; i++) {
+      String entity = "entity" + i;
+      threads[i] = new Thread(() -> {
+        for (int j = 0; j < 100; j++) {
+          tracker.commitOffset(entity, String.valueOf(j));
+        }
+      });
+      threads[i].start();
+    }
+    for (Thread thread : threads) {
+      thread.join();
+    }
+    for (int i = 0; i < threads.length; i++) {
+      Assert.assertEquals("99", OffsetFileUtil.getOffsets(info, PIPELINE_NAME, PIPELINE_REV).get("entity" + i));
+    }
+    tracker.close();
+  }
+
+  @Test
+  public void testResetOffsetDiscardsJournal() {
+    ProductionSourceOffsetTracker tracker = createJournalTracker(1000);
+    tracker.commitOffset("a", "1");
+    OffsetFileUtil.resetOffsets(info, PIPELINE_NAME, PIPELINE_REV);
+    Assert.assertFalse(getJournalFile().exists());
+    Assert.assertTrue(OffsetFileUtil.getOffsets(info, PIPELINE_NAME, PIPELINE_REV).isEmpty());
+  }
 }
@@ -25,9 +25,11 @@ import com.streamsets.datacollector.config.StageLibraryDelegateDefinitition;
 import com.streamsets.datacollector.definition.StageLibraryDefinitionExtractor;
 import com.streamsets.datacollector.el.ElConstantDefinition;
 import com.streamsets.datacollector.el.ElFunctionDefinition;
+import com.streamsets.datacollector.json.ObjectMapperFactory;
 import com.streamsets.datacollector.main.BuildInfo;
 import com.streamsets.datacollector.main.DataCollectorBuildInfo;
 import com.streamsets.datacollector.main.RuntimeInfo;
+import com.streamsets.datacollector.restapi.bean.BeanHelper;
 import com.streamsets.datacollector.util.Configuration;
 
 import com.streamsets.pipeline.ApplicationPackage;
@@ -42,13 +44,17 @@ import org.powermock.core.transformers.MockTransformer;
 
 import java.io.ByteArrayInputStream;
 import java.io.File;
+import java.io.FileOutputStream;
 import java.io.InputStream;
 import java.net.URL;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.Set;
 import java.util.TreeSet;
 import java.util.UUID;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
 
 public class TestClassLoaderStageLibraryTask {
 
@@ -123,6 +129,65 @@ public class TestClassLoaderStageLibraryTask {
     Assert.assertTrue(foundAutoC);
   }
 
+  @Test
+  @SuppressWarnings("unchecked")
+  public void testParallelLoadingKeepsLibraryOrder() {
+    File configDir = new File("target", UUID.randomUUID().toString()).getAbsoluteFile();
+    List<ClassLoader> classLoaders = new ArrayList<>();
+    for (String name : ImmutableList.of("library1", "library2", "library3")) {
+      classLoaders.add(new SDCClassLoader("library", name, Collections.<URL>emptyList(), getClass().getClassLoader(),
+                                          new String[0], new SystemPackage(new String[0]),
+                                          new ApplicationPackage(new TreeSet<String>()), false, false, false));
+    }
+    RuntimeInfo runtimeInfo = Mockito.mock(RuntimeInfo.class);
+    Mockito.when(runtimeInfo.getConfigDir()).thenReturn(configDir.getAbsolutePath());
+    Mockito.when(runtimeInfo.getStageLibraryClassLoaders()).thenReturn((List) classLoaders);
+
+    Configuration configuration = new Configuration();
+    configuration.set("stagelibs.load.threads", 3);
+    ClassLoaderStageLibraryTask library = new ClassLoaderStageLibraryTask(runtimeInfo, new DataCollectorBuildInfo(), configuration);
+    library.initTask();
+
+    List<String> libraries = new ArrayList<>();
+    for (StageDefinition stage : library.getStages()) {
+      libraries.add(stage.getLibrary());
+    }
+    Assert.assertEquals(ImmutableList.of("library1", "library2", "library3"), libraries);
+    Assert.assertNotNull(library.getStage("library2", library.getStages().get(1).getName(), false));
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  public void testDefinitionIndex() throws Exception {
+    File baseDir = new File("target", UUID.randomUUID().toString()).getAbsoluteFile();
+    File dataDir = new File(baseDir, "data");
+    Assert.assertTrue(dataDir.mkdirs());
+    File jar = new File(baseDir, "lib.jar");
+    try (ZipOutputStream zos = new ZipOutputStream(new FileOutputStream(jar))) {
+      zos.putNextEntry(new ZipEntry("marker.txt"));
+      zos.closeEntry();
+    }
+    ClassLoader cl = new SDCClassLoader("library", "lib", ImmutableList.of(jar.toURI().toURL()),
+                                        getClass().getClassLoader(), new String[0], new SystemPackage(new String[0]),
+                                        new ApplicationPackage(new TreeSet<String>()), false, false, false);
+    RuntimeInfo runtimeInfo = Mockito.mock(RuntimeInfo.class);
+    Mockito.when(runtimeInfo.getConfigDir()).thenReturn(baseDir.getAbsolutePath());
+    Mockito.when(runtimeInfo.getDataDir()).thenReturn(dataDir.getAbsolutePath());
+    Mockito.when(runtimeInfo.getStageLibraryClassLoaders()).thenReturn((List) ImmutableList.of(cl));
+
+    ClassLoaderStageLibraryTask library = new ClassLoaderStageLibraryTask(runtimeInfo, new DataCollectorBuildInfo(), new Configuration());
+    library.initTask();
+    Assert.assertTrue(new File(dataDir, "stagelibs-index/lib.idx").isFile());
+
+    ClassLoaderStageLibraryTask indexed = new ClassLoaderStageLibraryTask(runtimeInfo, new DataCollectorBuildInfo(), new Configuration());
+    indexed.initTask();
+    Assert.assertEquals(
+        ObjectMapperFactory.get().writeValueAsString(BeanHelper.wrapStageDefinitions(library.getStages())),
+        ObjectMapperFactory.get().writeValueAsString(BeanHelper.wrapStageDefinitions(indexed.getStages()))
+    );
+    Assert.assertEquals(ForTestSource.class, indexed.getStages().get(0).getStageClass());
+  }
+
   @Test
   @SuppressWarnings("unchecked")
   public void testIncorrectSdcMinVersion() {
@@ -0,0 +1,532 @@
+/*
+ * Copyright 2018 StreamSets Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.streamsets.datacollector.stagelibrary;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.streamsets.datacollector.config.ConfigDefinition;
+import com.streamsets.datacollector.config.ConfigGroupDefinition;
+import com.streamsets.datacollector.config.ModelDefinition;
+import com.streamsets.datacollector.config.RawSourceDefinition;
+import com.streamsets.datacollector.config.ServiceDefinition;
+import com.streamsets.datacollector.config.ServiceDependencyDefinition;
+import com.streamsets.datacollector.config.StageDefinition;
+import com.streamsets.datacollector.config.StageLibraryDefinition;
+import com.streamsets.datacollector.credential.ClearCredentialValue;
+import com.streamsets.datacollector.definition.ConcreteELDefinitionExtractor;
+import com.streamsets.datacollector.definition.ServiceDefinitionExtractor;
+import com.streamsets.datacollector.definition.StageDefinitionExtractor;
+import com.streamsets.datacollector.json.ObjectMapperFactory;
+import com.streamsets.datacollector.restapi.bean.BeanHelper;
+import com.streamsets.pipeline.api.Batch;
+import com.streamsets.pipeline.api.BatchMaker;
+import com.streamsets.pipeline.api.ConfigDef;
+import com.streamsets.pipeline.api.ConfigDefBean;
+import com.streamsets.pipeline.api.ConfigGroups;
+import com.streamsets.pipeline.api.ConfigIssue;
+import com.streamsets.pipeline.api.ErrorStage;
+import com.streamsets.pipeline.api.ExecutionMode;
+import com.streamsets.pipeline.api.HideStage;
+import com.streamsets.pipeline.api.Label;
+import com.streamsets.pipeline.api.ListBeanModel;
+import com.streamsets.pipeline.api.OffsetCommitTrigger;
+import com.streamsets.pipeline.api.PipelineLifecycleStage;
+import com.streamsets.pipeline.api.RawSource;
+import com.streamsets.pipeline.api.RawSourcePreviewer;
+import com.streamsets.pipeline.api.Record;
+import com.streamsets.pipeline.api.Stage;
+import com.streamsets.pipeline.api.StageDef;
+import com.streamsets.pipeline.api.StageException;
+import com.streamsets.pipeline.api.StageUpgrader;
+import com.streamsets.pipeline.api.StatsAggregatorStage;
+import com.streamsets.pipeline.api.ValueChooserModel;
+import com.streamsets.pipeline.api.base.BaseEnumChooserValues;
+import com.streamsets.pipeline.api.base.BaseSource;
+import com.streamsets.pipeline.api.base.BaseTarget;
+import com.streamsets.pipeline.api.base.SingleLaneRecordProcessor;
+import com.streamsets.pipeline.api.credential.CredentialValue;
+import com.streamsets.pipeline.api.service.Service;
+import com.streamsets.pipeline.api.service.ServiceConfiguration;
+import com.streamsets.pipeline.api.service.ServiceDef;
+import com.streamsets.pipeline.api.service.ServiceDependency;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.stream.Collectors;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+public class TestDefinitionIndex {
+
+  public enum Color implements Label {
+    RED, BLUE;
+
+    @Override
+    public String getLabel() {
+      return name();
+    }
+  }
+
+  public static class ColorChooserValues extends BaseEnumChooserValues<Color> {
+    public ColorChooserValues() {
+      super(Color.class);
+    }
+  }
+
+  public enum Groups implements Label {
+    FIRST;
+
+    @Override
+    public String getLabel() {
+      return name();
+    }
+  }
+
+  public enum Outputs implements Label {
+    ONE, TWO;
+
+    @Override
+    public String getLabel() {
+      return name();
+    }
+  }
+
+  public static class Previewer implements RawSourcePreviewer {
+
+    @ConfigDef(type = ConfigDef.Type.STRING, label = "L", required = false, defaultValue = "p")
+    public String previewConfig;
+
+    @Override
+    public InputStream preview(int maxLength) {
+      return null;
+    }
+
+    @Override
+    public String getMimeType() {
+      return null;
+    }
+
+    @Override
+    public void setMimeType(String mimeType) {
+    }
+  }
+
+  public static class Bean {
+    @ConfigDef(type = ConfigDef.Type.STRING, label = "L", required = false, defaultValue = "inner")
+    public String inner;
+  }
+
+  public interface Greeter {
+    void greet();
+  }
+
+  @ServiceDef(provides = Greeter.class, version = 2, label = "Greeter", description = "D", privateClassLoader = true)
+  @ConfigGroups(Groups.class)
+  public static class GreeterImpl implements Service, Greeter {
+
+    @ConfigDef(type = ConfigDef.Type.NUMBER, label = "L", required = true, defaultValue = "3", group = "FIRST")
+    public long times;
+
+    @Override
+    public void greet() {
+    }
+
+    @Override
+    public List<ConfigIssue> init(Context context) {
+      return Collections.emptyList();
+    }
+
+    @Override
+    public void destroy() {
+    }
+  }
+
+  @StageDef(
+      version = 3,
+      label = "Indexed",
+      description = "D",
+      execution = {ExecutionMode.STANDALONE, ExecutionMode.CLUSTER_BATCH},
+      libJarsRegex = "foo-.*",
+      producesEvents = true,
+      onlineHelpRefUrl = "help",
+      icon = "TargetIcon.svg",
+      outputStreams = StageDef.VariableOutputStreams.class,
+      outputStreamsDrivenByConfig = "list",
+      recordsByRef = true,
+      resetOffset = true,
+      privateClassLoader = true,
+      services = @ServiceDependency(service = Greeter.class, configuration = {
+          @ServiceConfiguration(name = "times", value = "5")
+      })
+  )
+  @RawSource(rawSourcePreviewer = Previewer.class, mimeType = "text/plain")
+  @ConfigGroups(Groups.class)
+  @HideStage(HideStage.Type.FIELD_PROCESSOR)
+  public static class IndexedSource extends BaseSource {
+
+    @ConfigDef(type = ConfigDef.Type.BOOLEAN, label = "L", required = true, defaultValue = "true", group = "FIRST",
+        displayPosition = 10)
+    public boolean flag;
+
+    @ConfigDef(type = ConfigDef.Type.TEXT, label = "L", required = false, mode = ConfigDef.Mode.JSON, lines = 5)
+    public String text;
+
+    @ConfigDef(type = ConfigDef.Type.NUMBER, label = "L", required = true, defaultValue = "5", min = 1, max = 10,
+        dependsOn = "flag", triggeredByValue = "true")
+    public int number;
+
+    @ConfigDef(type = ConfigDef.Type.STRING, label = "L", required = false, defaultValue = "${foo:bar()}",
+        elDefs = ForTestELs.class, evaluation = ConfigDef.Evaluation.EXPLICIT)
+    public String expression;
+
+    @ConfigDef(type = ConfigDef.Type.MAP, label = "L", required = false, defaultValue = "{\"a\" : 1}")
+    public Map<String, String> map;
+
+    @ConfigDef(type = ConfigDef.Type.LIST, label = "L", required = false, defaultValue = "[\"x\", \"y\"]")
+    public List<String> list;
+
+    @ConfigDef(type = ConfigDef.Type.CHARACTER, label = "L", required = false, defaultValue = ",")
+    public char separator;
+
+    @ConfigDef(type = ConfigDef.Type.CREDENTIAL, label = "L", required = false, defaultValue = "secret")
+    public CredentialValue password;
+
+    @ConfigDef(type = ConfigDef.Type.MODEL, label = "L", required = true, defaultValue = "BLUE")
+    @ValueChooserModel(value = ColorChooserValues.class, filteringConfig = "text")
+    public Color color;
+
+    @ConfigDefBean
+    public Bean bean;
+
+    @ConfigDef(type = ConfigDef.Type.MODEL, label = "L", required = false)
+    @ListBeanModel
+    public List<Bean> beans;
+
+    @Override
+    public String produce(String lastSourceOffset, int maxBatchSize, BatchMaker batchMaker) throws StageException {
+      return null;
+    }
+  }
+
+  @StageDef(version = 1, label = "Processor", outputStreams = Outputs.class, onlineHelpRefUrl = "")
+  public static class IndexedProcessor extends SingleLaneRecordProcessor {
+    @Override
+    protected void process(Record record, SingleLaneBatchMaker batchMaker) throws StageException {
+    }
+  }
+
+  @StageDef(version = 1, label = "Target", onlineHelpRefUrl = "")
+  @ErrorStage
+  @StatsAggregatorStage
+  @PipelineLifecycleStage
+  public static class IndexedTarget extends BaseTarget implements OffsetCommitTrigger {
+    @Override
+    public void write(Batch batch) throws StageException {
+    }
+
+    @Override
+    public boolean commit() {
+      return false;
+    }
+  }
+
+  private static final List<Class<? extends Stage>> STAGE_CLASSES = ImmutableList.of(
+      IndexedSource.class,
+      IndexedProcessor.class,
+      IndexedTarget.class
+  );
+
+  /**
+   * Classes whose fields are compared one by one after a round trip. Each of their fields has to have a non default
+   * value in at least one of the definitions above, so that a field added later and not stored by the index fails
+   * {@link #testEveryDefinitionFieldRoundTrips()} rather than being dropped from indexed definitions.
+   */
+  private static final Set<Class> DEFINITION_CLASSES = ImmutableSet.of(
+      StageDefinition.class,
+      ConfigDefinition.class,
+      ModelDefinition.class,
+      RawSourceDefinition.class,
+      ConfigGroupDefinition.class,
+      ServiceDefinition.class,
+      ServiceDependencyDefinition.class
+  );
+
+  /**
+   * Fields that extraction leaves at their default value, whatever the stage, so no definition can cover them.
+   */
+  private static final Set<String> NEVER_EXTRACTED = ImmutableSet.of(
+      // folded into dependsOnMap
+      "ConfigDefinition.dependsOn",
+      "ConfigDefinition.triggeredByValues",
+      // only set for definitions built outside of the stage libraries
+      "ConfigDefinition.prefix",
+      "StageDefinition.outputStreamLabels"
+  );
+
+  private File dir;
+  private StageLibraryDefinition libDef;
+
+  @Before
+  public void setUp() {
+    dir = new File("target", UUID.randomUUID().toString()).getAbsoluteFile();
+    Class[] elDefs = {ForTestELs.class};
+    libDef = new StageLibraryDefinition(
+        getClass().getClassLoader(),
+        "lib",
+        "Lib",
+        new Properties(),
+        elDefs,
+        ConcreteELDefinitionExtractor.get().extractFunctions(elDefs, "x"),
+        ConcreteELDefinitionExtractor.get().extractConstants(elDefs, "x")
+    );
+  }
+
+  private List<StageDefinition> extractStages() {
+    return STAGE_CLASSES.stream()
+        .map(klass -> StageDefinitionExtractor.get().extract(libDef, klass, "x"))
+        .collect(Collectors.toList());
+  }
+
+  private List<ServiceDefinition> extractServices() {
+    return ImmutableList.of(ServiceDefinitionExtractor.get().extract(libDef, GreeterImpl.class));
+  }
+
+  private DefinitionIndex.Definitions writeAndRead(String build, String checksum) {
+    new DefinitionIndex(dir, "build").write(libDef, "checksum", extractStages(), extractServices());
+    return new DefinitionIndex(dir, build).read(
+        libDef,
+        checksum,
+        STAGE_CLASSES,
+        ImmutableList.of(GreeterImpl.class)
+    );
+  }
+
+  private static void assertSameConfigs(List<ConfigDefinition> expected, List<ConfigDefinition> actual) {
+    if (expected == null) {
+      Assert.assertNull(actual);
+      return;
+    }
+    Assert.assertEquals(expected.size(), actual.size());
+    for (int i = 0; i < expected.size(); i++) {
+      ConfigDefinition e = expected.get(i);
+      ConfigDefinition a = actual.get(i);
+      Assert.assertEquals(e.getConfigField(), a.getConfigField());
+      // not only the same JSON, also the same Java types (i.e. Integer vs Long)
+      if (e.getDefaultValue() instanceof ClearCredentialValue) {
+        Assert.assertEquals(
+            ((ClearCredentialValue) e.getDefaultValue()).get(),
+            ((ClearCredentialValue) a.getDefaultValue()).get()
+        );
+      } else {
+        Assert.assertEquals(e.getDefaultValue(), a.getDefaultValue());
+      }
+      if (e.getDefaultValue() != null && !(e.getDefaultValue() instanceof Collection)) {
+        Assert.assertEquals(e.getDefaultValue().getClass(), a.getDefaultValue().getClass());
+      }
+      Assert.assertEquals(e.getTriggeredByValues(), a.getTriggeredByValues());
+      Assert.assertEquals(e.getDependsOnMap(), a.getDependsOnMap());
+      Assert.assertEquals(e.getElDefs(), a.getElDefs());
+      Assert.assertEquals(e.getElFunctionDefinitions(), a.getElFunctionDefinitions());
+      Assert.assertEquals(e.getElConstantDefinitions(), a.getElConstantDefinitions());
+      Assert.assertEquals(e.getEvaluation(), a.getEvaluation());
+      Assert.assertEquals(e.getPrefix(), a.getPrefix());
+      if (e.getModel() != null) {
+        Assert.assertEquals(e.getModel().getListBeanClass(), a.getModel().getListBeanClass());
+        assertSameConfigs(e.getModel().getConfigDefinitions(), a.getModel().getConfigDefinitions());
+      }
+    }
+  }
+
+  @Test
+  public void testRoundTrip() throws Exception {
+    DefinitionIndex.Definitions indexed = writeAndRead("build", "checksum");
+    Assert.assertNotNull(indexed);
+
+    List<StageDefinition> stages = extractStages();
+    Assert.assertEquals(
+        ObjectMapperFactory.get().writeValueAsString(BeanHelper.wrapStageDefinitions(stages)),
+        ObjectMapperFactory.get().writeValueAsString(BeanHelper.wrapStageDefinitions(indexed.getStages()))
+    );
+    StageDefinition stage = indexed.getStages().get(0);
+    Assert.assertEquals(IndexedSource.class, stage.getStageClass());
+    Assert.assertEquals(libDef.getName(), stage.getLibrary());
+    Assert.assertEquals(libDef.getClassLoader(), stage.getStageClassLoader());
+    Assert.assertEquals(stages.get(0).getUpgrader().getClass(), stage.getUpgrader().getClass());
+    Assert.assertEquals(Greeter.class, stage.getServices().get(0).getService());
+    Assert.assertEquals(stages.get(0).getConfigDefinitionsMap().keySet(), stage.getConfigDefinitionsMap().keySet());
+    assertSameConfigs(stages.get(0).getConfigDefinitions(), stage.getConfigDefinitions());
+
+    List<ServiceDefinition> services = extractServices();
+    Assert.assertEquals(
+        ObjectMapperFactory.get().writeValueAsString(BeanHelper.wrapServiceDefinitions(services)),
+        ObjectMapperFactory.get().writeValueAsString(BeanHelper.wrapServiceDefinitions(indexed.getServices()))
+    );
+    ServiceDefinition service = indexed.getServices().get(0);
+    Assert.assertEquals(GreeterImpl.class, service.getKlass());
+    Assert.assertEquals(Greeter.class, service.getProvides());
+    Assert.assertEquals(libDef.getClassLoader(), service.getStageClassLoader());
+    assertSameConfigs(services.get(0).getConfigDefinitions(), service.getConfigDefinitions());
+  }
+
+  private static boolean isDefault(Object value) {
+    return value == null ||
+        Boolean.FALSE.equals(value) ||
+        (value instanceof Number && ((Number) value).longValue() == 0) ||
+        "".equals(value) ||
+        (value instanceof Collection && ((Collection) value).isEmpty()) ||
+        (value instanceof Map && ((Map) value).isEmpty());
+  }
+
+  private static void assertRoundTripped(String path, Object expected, Object actual, Map<String, Boolean> covered)
+      throws IllegalAccessException {
+    if (expected == null) {
+      Assert.assertNull(path, actual);
+      return;
+    }
+    Assert.assertNotNull(path, actual);
+    if (expected instanceof List) {
+      List expectedList = (List) expected;
+      List actualList = (List) actual;
+      Assert.assertEquals(path, expectedList.size(), actualList.size());
+      for (int i = 0; i < expectedList.size(); i++) {
+        assertRoundTripped(path + "[" + i + "]", expectedList.get(i), actualList.get(i), covered);
+      }
+    } else if (expected instanceof Map) {
+      Map<?, ?> expectedMap = (Map) expected;
+      Map<?, ?> actualMap = (Map) actual;
+      Assert.assertEquals(path, expectedMap.keySet(), actualMap.keySet());
+      for (Map.Entry<?, ?> entry : expectedMap.entrySet()) {
+        assertRoundTripped(path + "/" + entry.getKey(), entry.getValue(), actualMap.get(entry.getKey()), covered);
+      }
+    } else if (DEFINITION_CLASSES.contains(expected.getClass())) {
+      Assert.assertEquals(path, expected.getClass(), actual.getClass());
+      for (Field field : expected.getClass().getDeclaredFields()) {
+        if (Modifier.isStatic(field.getModifiers())) {
+          continue;
+        }
+        field.setAccessible(true);
+        Object value = field.get(expected);
+        covered.merge(expected.getClass().getSimpleName() + "." + field.getName(), !isDefault(value), Boolean::logicalOr);
+        assertRoundTripped(path + "." + field.getName(), value, field.get(actual), covered);
+      }
+    } else if (expected instanceof ClearCredentialValue) {
+      Assert.assertEquals(path, ((ClearCredentialValue) expected).get(), ((ClearCredentialValue) actual).get());
+    } else if (expected instanceof StageUpgrader) {
+      // instantiated again from the annotation
+      Assert.assertEquals(path, expected.getClass(), actual.getClass());
+    } else {
+      Assert.assertEquals(path, expected, actual);
+      if (!(expected instanceof Set)) {
+        // not only equal, also the same Java type (i.e. Integer vs Long)
+        Assert.assertEquals(path, expected.getClass(), actual.getClass());
+      }
+    }
+  }
+
+  @Test
+  public void testEveryDefinitionFieldRoundTrips() throws Exception {
+    DefinitionIndex.Definitions indexed = writeAndRead("build", "checksum");
+    Assert.assertNotNull(indexed);
+
+    Map<String, Boolean> covered = new TreeMap<>();
+    assertRoundTripped("stages", extractStages(), indexed.getStages(), covered);
+    assertRoundTripped("services", extractServices(), indexed.getServices(), covered);
+
+    List<String> notCovered = covered.entrySet().stream()
+        .filter(entry -> !entry.getValue() && !NEVER_EXTRACTED.contains(entry.getKey()))
+        .map(Map.Entry::getKey)
+        .collect(Collectors.toList());
+    Assert.assertTrue("Fields without a non default value in any test definition: " + notCovered, notCovered.isEmpty());
+  }
+
+  @Test
+  public void testStaleIndex() {
+    Assert.assertNull(writeAndRead("other build", "checksum"));
+    Assert.assertNull(writeAndRead("build", "other checksum"));
+
+    new DefinitionIndex(dir, "build").write(libDef, "checksum", extractStages(), extractServices());
+    DefinitionIndex index = new DefinitionIndex(dir, "build");
+    Assert.assertNull(index.read(libDef, "checksum", Collections.emptyList(), ImmutableList.of(GreeterImpl.class)));
+    Assert.assertNull(index.read(libDef, "checksum", STAGE_CLASSES, Collections.emptyList()));
+    Assert.assertNull(
+        index.read(libDef, "checksum", ImmutableList.of(IndexedSource.class), ImmutableList.of(GreeterImpl.class))
+    );
+    Assert.assertNotNull(index.read(libDef, "checksum", STAGE_CLASSES, ImmutableList.of(GreeterImpl.class)));
+  }
+
+  @Test
+  public void testMissingOrCorruptedIndex() throws IOException {
+    DefinitionIndex index = new DefinitionIndex(dir, "build");
+    Assert.assertNull(index.read(libDef, "checksum", Collections.emptyList(), Collections.emptyList()));
+
+    Assert.assertTrue(dir.mkdirs());
+    try (FileOutputStream os = new FileOutputStream(new File(dir, "lib.idx"))) {
+      os.write("garbage".getBytes(StandardCharsets.UTF_8));
+    }
+    Assert.assertNull(index.read(libDef, "checksum", Collections.emptyList(), Collections.emptyList()));
+  }
+
+  private static File createJar(File dir, String name, String content) throws IOException {
+    File jar = new File(dir, name);
+    try (ZipOutputStream zos = new ZipOutputStream(new FileOutputStream(jar))) {
+      zos.putNextEntry(new ZipEntry("file.txt"));
+      zos.write(content.getBytes(StandardCharsets.UTF_8));
+      zos.closeEntry();
+    }
+    return jar;
+  }
+
+  @Test
+  public void testChecksum() throws IOException {
+    Assert.assertTrue(dir.mkdirs());
+    File jar = createJar(dir, "lib.jar", "foo");
+    String checksum = DefinitionIndex.checksum(new URLClassLoader(new URL[]{jar.toURI().toURL()}, null));
+    Assert.assertNotNull(checksum);
+    Assert.assertEquals(
+        checksum,
+        DefinitionIndex.checksum(new URLClassLoader(new URL[]{jar.toURI().toURL()}, null))
+    );
+
+    jar = createJar(dir, "lib.jar", "bar");
+    Assert.assertNotEquals(
+        checksum,
+        DefinitionIndex.checksum(new URLClassLoader(new URL[]{jar.toURI().toURL()}, null))
+    );
+
+    // directories can change without notice, they are not indexed
+    Assert.assertNull(DefinitionIndex.checksum(new URLClassLoader(new URL[]{dir.toURI().toURL()}, null)));
+    Assert.assertNull(DefinitionIndex.checksum(new ClassLoader() {}));
+  }
+
+}
@@ -15,13 +15,20 @@
  */
 package com.streamsets.datacollector.store.impl;
 
-import org.junit.Before;
-import com.streamsets.datacollector.store.impl.CachePipelineStoreTask;
-import com.streamsets.datacollector.store.impl.FilePipelineStoreTask;
-
+import com.google.common.collect.ImmutableList;
+import com.streamsets.datacollector.config.PipelineConfiguration;
+import com.streamsets.datacollector.store.PipelineInfo;
+import com.streamsets.datacollector.store.PipelineStoreException;
+import com.streamsets.datacollector.store.PipelineStoreTask;
+import com.streamsets.datacollector.util.ContainerError;
 import com.streamsets.datacollector.util.LockCache;
-
 import dagger.ObjectGraph;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import java.util.List;
 
 public class TestCachePipelineStoreTask extends TestFilePipelineStoreTask {
 
@@ -31,4 +38,68 @@ public class TestCachePipelineStoreTask extends TestFilePipelineStoreTask {
     ObjectGraph dagger = ObjectGraph.create(new Module());
     store = new CachePipelineStoreTask(dagger.get(FilePipelineStoreTask.class), new LockCache<String>());
   }
+
+  @Test
+  public void testPipelinesListingSharedUntilChange() throws Exception {
+    try {
+      store.init();
+      store.create("foo", "b", "label", "B", false, false);
+      store.create("foo", "a", "label", "A", false, false);
+      List<PipelineInfo> pipelines = store.getPipelines();
+      Assert.assertSame(pipelines, store.getPipelines());
+      Assert.assertEquals("a", pipelines.get(0).getPipelineId());
+      Assert.assertEquals("b", pipelines.get(1).getPipelineId());
+
+      store.create("foo", "c", "label", "C", false, false);
+      Assert.assertNotSame(pipelines, store.getPipelines());
+      Assert.assertEquals(2, pipelines.size());
+      Assert.assertEquals(3, store.getPipelines().size());
+    } finally {
+      store.stop();
+    }
+  }
+
+  @Test
+  public void testCatalogFollowsStoreAfterFailure() throws Exception {
+    PipelineStoreTask fileStore = Mockito.mock(PipelineStoreTask.class);
+    PipelineInfo saved = Mockito.mock(PipelineInfo.class);
+    Mockito.when(saved.getPipelineId()).thenReturn("p");
+    PipelineInfo updated = Mockito.mock(PipelineInfo.class);
+    Mockito.when(updated.getPipelineId()).thenReturn("p");
+    Mockito.when(fileStore.getPipelines()).thenReturn(ImmutableList.of(saved));
+    store = new CachePipelineStoreTask(fileStore, new LockCache<String>());
+    store.init();
+    Assert.assertSame(saved, store.getInfo("p"));
+
+    // the info file was rewritten before the save failed
+    Mockito.when(fileStore.save(
+        Mockito.anyString(),
+        Mockito.eq("p"),
+        Mockito.anyString(),
+        Mockito.anyString(),
+        Mockito.any(PipelineConfiguration.class)
+    )).thenThrow(new PipelineStoreException(ContainerError.CONTAINER_0204, "p", "failed"));
+    Mockito.when(fileStore.hasPipeline("p")).thenReturn(true);
+    Mockito.when(fileStore.getInfo("p")).thenReturn(updated);
+    try {
+      store.save("foo", "p", "0", "", Mockito.mock(PipelineConfiguration.class));
+      Assert.fail("Expected PipelineStoreException");
+    } catch (PipelineStoreException ex) {
+      // expected
+    }
+    Assert.assertSame(updated, store.getInfo("p"));
+
+    // the pipeline files were removed before the delete failed
+    Mockito.doThrow(new PipelineStoreException(ContainerError.CONTAINER_0203, "p", "failed"))
+        .when(fileStore).delete("p");
+    Mockito.when(fileStore.hasPipeline("p")).thenReturn(false);
+    try {
+      store.delete("p");
+      Assert.fail("Expected PipelineStoreException");
+    } catch (PipelineStoreException ex) {
+      // expected
+    }
+    Assert.assertFalse(store.hasPipeline("p"));
+    Assert.assertTrue(store.getPipelines().isEmpty());
+  }
 }
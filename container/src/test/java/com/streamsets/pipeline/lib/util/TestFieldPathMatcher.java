@@ -0,0 +1,252 @@
+/*
+ * Copyright 2018 StreamSets Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.streamsets.pipeline.lib.util;
+
+import com.google.common.collect.ImmutableList;
+import com.streamsets.pipeline.SDCClassLoader;
+import com.streamsets.datacollector.definition.ConcreteELDefinitionExtractor;
+import com.streamsets.datacollector.el.ELEvaluator;
+import com.streamsets.datacollector.el.ELVariables;
+import com.streamsets.datacollector.record.RecordImpl;
+import com.streamsets.pipeline.api.Field;
+import com.streamsets.pipeline.api.Record;
+import com.streamsets.pipeline.api.el.ELEval;
+import com.streamsets.pipeline.api.el.ELEvalException;
+import com.streamsets.pipeline.api.el.ELVars;
+import com.streamsets.pipeline.lib.el.FieldEL;
+import com.streamsets.pipeline.lib.el.RecordEL;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.lang.reflect.Method;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+public class TestFieldPathMatcher {
+
+  private static final String[] NAMES = {"a", "b", "ab", "a1", "b c", "a/b", "x[0]", "it's", "_"};
+
+  private static final String[] EXPRESSIONS = {
+      "/*", "/a", "/a/*", "/*/a", "/*/*", "/a*", "/?", "/a?", "/*[*]", "/*[0]", "/*[*]/*", "/a[?]", "/[*]",
+      "[*]", "[*]/*", "/a/b/*", "/*/*[*]", "/'b c'/*", "/b*/*", "/*/*/*/*",
+  };
+
+  private static Field randomField(Random random, int depth) {
+    int type = depth >= 4 ? 3 : random.nextInt(4);
+    switch (type) {
+      case 0:
+      case 1:
+        Map<String, Field> map = new LinkedHashMap<>();
+        int size = random.nextInt(4);
+        for (int i = 0; i < size; i++) {
+          map.put(NAMES[random.nextInt(NAMES.length)], randomField(random, depth + 1));
+        }
+        return type == 0 ? Field.create(map) : Field.createListMap((LinkedHashMap<String, Field>) map);
+      case 2:
+        List<Field> list = new ArrayList<>();
+        int length = random.nextInt(12);
+        for (int i = 0; i < length; i++) {
+          list.add(randomField(random, depth + 1));
+        }
+        return Field.create(list);
+      default:
+        return Field.create(random.nextInt(100));
+    }
+  }
+
+  @Test
+  public void testSameResultsAsFieldRegexUtil() {
+    Random random = new Random(42);
+    for (int i = 0; i < 500; i++) {
+      Record record = new RecordImpl("s", "r" + i, null, null);
+      record.set(i % 10 == 0 ? Field.create(ImmutableList.of(randomField(random, 1))) : randomField(random, 0));
+      List<String> allPaths = record.getEscapedFieldPathsOrdered();
+      for (String expression : EXPRESSIONS) {
+        Assert.assertEquals(
+            expression + " on " + allPaths,
+            FieldRegexUtil.getMatchingFieldPaths(expression, allPaths),
+            FieldPathMatcher.compile(expression).getMatchingFieldPaths(record)
+        );
+      }
+    }
+  }
+
+  @Test
+  public void testLiteral() {
+    Record record = new RecordImpl("s", "r", null, null);
+    record.set(Field.create(Collections.singletonMap("a", Field.create(1))));
+    Assert.assertEquals(Arrays.asList("/a"), FieldPathMatcher.compile("/a").getMatchingFieldPaths(record));
+    Assert.assertEquals(Arrays.asList("/b"), FieldPathMatcher.compile("/b").getMatchingFieldPaths(record));
+    Assert.assertFalse(FieldPathMatcher.compile("/b").hasFieldPathExpressions());
+    Assert.assertTrue(FieldPathMatcher.compile("/*[${f:value() > 0}]").hasFieldPathExpressions());
+    Assert.assertSame(FieldPathMatcher.compile("/a/*"), FieldPathMatcher.compile("/a/*"));
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void testExpressionRequiresELEval() {
+    FieldPathMatcher.compile("/*[${f:value() > 0}]").getMatchingFieldPaths(new RecordImpl("s", "r", null, null));
+  }
+
+  @Test
+  public void testEmptyRecord() throws Exception {
+    Record record = new RecordImpl("s", "r", null, null);
+    Assert.assertTrue(FieldPathMatcher.compile("/*").getMatchingFieldPaths(record).isEmpty());
+    ELEval eval = new ELEvaluator("test", ConcreteELDefinitionExtractor.get(), RecordEL.class, FieldEL.class);
+    Assert.assertTrue(
+        FieldPathMatcher.compile("/*[${f:value() > 0}]")
+            .getMatchingFieldPaths(record, eval, new ELVariables())
+            .isEmpty()
+    );
+  }
+
+  @Test
+  public void testExpressions() throws Exception {
+    ELEval eval = new ELEvaluator("test", ConcreteELDefinitionExtractor.get(), RecordEL.class, FieldEL.class);
+    ELVars vars = new ELVariables();
+
+    Map<String, Field> inner = new LinkedHashMap<>();
+    inner.put("x y", Field.create(5));
+    inner.put("z", Field.create(50));
+    Map<String, Field> root = new LinkedHashMap<>();
+    root.put("a", Field.create(inner));
+    root.put("list", Field.create(ImmutableList.of(Field.create(1), Field.create(20), Field.create(3))));
+    root.put("b", Field.create(7));
+    Record record = new RecordImpl("s", "r", null, null);
+    record.set(Field.create(root));
+
+    Assert.assertEquals(
+        ImmutableList.of("/a/z"),
+        FieldPathMatcher.compile("/a/*[${f:value() > 10}]").getMatchingFieldPaths(record, eval, vars)
+    );
+    // names are reported escaped, the expressions see them unescaped
+    Assert.assertEquals(
+        ImmutableList.of("/a/'x y'"),
+        FieldPathMatcher.compile("/*/'x y'[${f:path() == '/a/x y'}]").getMatchingFieldPaths(record, eval, vars)
+    );
+    Assert.assertEquals(
+        ImmutableList.of("/list[0]", "/list[2]"),
+        FieldPathMatcher.compile("/list[*][${f:value() < 10}]").getMatchingFieldPaths(record, eval, vars)
+    );
+    Assert.assertEquals(
+        ImmutableList.of("/a/z"),
+        FieldPathMatcher.compile("/*[${f:type() == 'MAP'}]/z").getMatchingFieldPaths(record, eval, vars)
+    );
+    Assert.assertEquals(
+        ImmutableList.of("/b"),
+        FieldPathMatcher.compile("/*[${f:type() == 'INTEGER'}]").getMatchingFieldPaths(record, eval, vars)
+    );
+  }
+
+  @Test
+  public void testCopyOnWriteRecordStaysShared() throws Exception {
+    Map<String, Field> root = new LinkedHashMap<>();
+    root.put("a", Field.create(Collections.singletonMap("c", Field.create(1))));
+    root.put("b", Field.create(2));
+    RecordImpl record = new RecordImpl("s", "r", null, null);
+    record.set(Field.create(root));
+    RecordImpl copy = record.cloneCopyOnWrite();
+
+    Assert.assertEquals(ImmutableList.of("/a/c"), FieldPathMatcher.compile("/*/c").getMatchingFieldPaths(copy));
+    ELEval eval = new ELEvaluator("test", ConcreteELDefinitionExtractor.get(), RecordEL.class, FieldEL.class);
+    Assert.assertEquals(
+        ImmutableList.of("/b"),
+        FieldPathMatcher.compile("/*[${f:type() == 'INTEGER'}]").getMatchingFieldPaths(copy, eval, new ELVariables())
+    );
+
+    // nothing was copied
+    Assert.assertSame(record.getReadOnly(), copy.getReadOnly());
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  public void testCopyOnWriteRecordStaysSharedFromStageClassLoader() throws Exception {
+    // stage libraries bundle their own stagesupport, load it the way a stage library classloader does
+    File libDir = new File("target", UUID.randomUUID().toString()).getAbsoluteFile();
+    Assert.assertTrue(libDir.mkdirs());
+    File stageLibJar = new File(libDir, "streamsets-datacollector-matcher-lib.jar");
+    try (ZipOutputStream zos = new ZipOutputStream(new FileOutputStream(stageLibJar))) {
+      zos.putNextEntry(new ZipEntry("marker.txt"));
+      zos.closeEntry();
+    }
+    URL stageSupport = FieldPathMatcher.class.getProtectionDomain().getCodeSource().getLocation();
+    ClassLoader stageCL = SDCClassLoader.getStageClassLoader("stage-lib", "matcher-lib",
+        ImmutableList.of(stageLibJar.toURI().toURL(), stageSupport), getClass().getClassLoader());
+    Class<?> matcherClass = stageCL.loadClass(FieldPathMatcher.class.getName());
+    Assert.assertNotSame(FieldPathMatcher.class, matcherClass);
+
+    Map<String, Field> root = new LinkedHashMap<>();
+    root.put("a", Field.create(Collections.singletonMap("c", Field.create(1))));
+    root.put("b", Field.create(2));
+    RecordImpl record = new RecordImpl("s", "r", null, null);
+    record.set(Field.create(root));
+    RecordImpl copy = record.cloneCopyOnWrite();
+
+    Object matcher = matcherClass.getMethod("compile", String.class).invoke(null, "/*/c");
+    Method getMatchingFieldPaths = matcherClass.getMethod("getMatchingFieldPaths", Record.class);
+    Assert.assertEquals(ImmutableList.of("/a/c"), (List<String>) getMatchingFieldPaths.invoke(matcher, copy));
+
+    // nothing was copied
+    Assert.assertSame(record.getReadOnly(), copy.getReadOnly());
+  }
+
+  @Test
+  public void testNonMatchingBranchesAreNotVisited() throws Exception {
+    final AtomicInteger evaluations = new AtomicInteger();
+    ELEval eval = new ELEvaluator("test", ConcreteELDefinitionExtractor.get(), RecordEL.class, FieldEL.class) {
+      @Override
+      public <T> T evaluate(ELVars vars, String expression, Class<T> returnType) throws ELEvalException {
+        evaluations.incrementAndGet();
+        return super.evaluate(vars, expression, returnType);
+      }
+    };
+
+    Map<String, Field> large = new LinkedHashMap<>();
+    for (int i = 0; i < 1000; i++) {
+      large.put("f" + i, Field.create(Collections.singletonMap("c", Field.create(i))));
+    }
+    Map<String, Field> root = new LinkedHashMap<>();
+    root.put("a", Field.create(Collections.singletonMap("c", Field.create(-1))));
+    root.put("b", Field.create(large));
+    Record record = new RecordImpl("s", "r", null, null);
+    record.set(Field.create(root));
+
+    Assert.assertEquals(
+        ImmutableList.of("/a/c"),
+        FieldPathMatcher.compile("/a/*[${f:value() < 0}]").getMatchingFieldPaths(record, eval, new ELVariables())
+    );
+    Assert.assertEquals(1, evaluations.get());
+
+    // the expression is evaluated once per field, not once per candidate field path
+    evaluations.set(0);
+    Assert.assertEquals(
+        ImmutableList.of("/a/c"),
+        FieldPathMatcher.compile("/*[${f:type() == 'MAP'}]/c").getMatchingFieldPaths(record, eval, new ELVariables())
+    );
+    Assert.assertEquals(2, evaluations.get());
+  }
+}
@@ -30,6 +30,7 @@ import org.apache.http.impl.nio.client.HttpAsyncClientBuilder;
 import org.apache.http.message.BasicHeader;
 import org.apache.http.ssl.SSLContexts;
 import org.elasticsearch.client.Response;
+import org.elasticsearch.client.ResponseListener;
 import org.elasticsearch.client.RestClient;
 import org.elasticsearch.client.RestClientBuilder;
 import org.elasticsearch.client.sniff.ElasticsearchHostsSniffer;
@@ -170,6 +171,20 @@ public class ElasticsearchStageDelegate {
     return restClient.performRequest(method, endpoint, params, entity, headers);
   }
 
+  /**
+   * Sends given request without waiting for its response, given listener is invoked from the client's I/O threads.
+   */
+  public void performRequestAsync(
+      String method,
+      String endpoint,
+      Map<String, String> params,
+      HttpEntity entity,
+      ResponseListener listener,
+      Header... headers
+  ) {
+    restClient.performRequestAsync(method, endpoint, params, entity, listener, headers);
+  }
+
   private void addSniffer(HttpHost[] hosts) {
     if (conf.clientSniff) {
       switch (hosts[0].getSchemeName()) {
@@ -151,4 +151,28 @@ public class ElasticsearchTargetConfig extends ElasticsearchConfig {
   )
   @ValueChooserModel(UnsupportedOperationActionChooserValues.class)
   public UnsupportedOperationAction unsupportedAction = UnsupportedOperationAction.DISCARD;
+
+  @ConfigDef(
+      required = true,
+      type = ConfigDef.Type.NUMBER,
+      defaultValue = "5120",
+      label = "Max Bulk Request Size (KB)",
+      description = "Maximum size of a bulk request. Batches that are larger are sent as several bulk requests.",
+      displayPosition = 120,
+      group = "ELASTIC_SEARCH",
+      min = 1
+  )
+  public int maxBulkRequestSizeKB = 5120;
+
+  @ConfigDef(
+      required = true,
+      type = ConfigDef.Type.NUMBER,
+      defaultValue = "2",
+      label = "Max Concurrent Bulk Requests",
+      description = "Maximum number of bulk requests of a batch that are sent at the same time",
+      displayPosition = 130,
+      group = "ELASTIC_SEARCH",
+      min = 1
+  )
+  public int maxConcurrentBulkRequests = 2;
 }
@@ -54,6 +54,7 @@ public enum Errors implements ErrorCode {
   ELASTICSEARCH_30("Could not evaluate the routing template expression: {}"),
   ELASTICSEARCH_31("Can't resolve password for TrustStore"),
   ELASTICSEARCH_32("Can't resolve user: {}"),
+  ELASTICSEARCH_33("Interrupted while sending bulk requests: {}"),
   ;
   private final String msg;
 
@@ -0,0 +1,246 @@
+/*
+ * Copyright 2018 StreamSets Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.streamsets.pipeline.stage.destination.elasticsearch;
+
+import com.streamsets.pipeline.api.Record;
+import com.streamsets.pipeline.api.StageException;
+import com.streamsets.pipeline.lib.elasticsearch.ElasticsearchStageDelegate;
+import com.streamsets.pipeline.stage.config.elasticsearch.Errors;
+import org.apache.http.Header;
+import org.apache.http.HttpEntity;
+import org.apache.http.entity.ByteArrayEntity;
+import org.apache.http.entity.ContentType;
+import org.elasticsearch.client.Response;
+import org.elasticsearch.client.ResponseListener;
+
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Splits the operations of a batch into size bounded bulk requests and sends them concurrently.
+ *
+ * Operations are written straight into reusable byte buffers. A request is sent as soon as the next operation would
+ * make it larger than the maximum size, while the following operations are written into another buffer. At most the
+ * configured number of requests are in flight at any time, {@link #finish()} waits for all of them and returns them
+ * in order, each one with its records and its response or failure.
+ *
+ * Not thread safe, meant to be owned by a stage instance.
+ */
+class BulkRequestWriter {
+
+  static class BulkBuffer extends ByteArrayOutputStream {
+    BulkBuffer() {
+      super(64 * 1024);
+    }
+
+    void truncate(int size) {
+      count = size;
+    }
+
+    // Moves everything from given position on to the other buffer
+    void moveTo(int from, BulkBuffer other) {
+      other.write(buf, from, count - from);
+      count = from;
+    }
+
+    HttpEntity toEntity(ContentType contentType) {
+      return new ByteArrayEntity(buf, 0, count, contentType);
+    }
+  }
+
+  static class BulkRequest {
+    private final List<Record> records = new ArrayList<>();
+    private BulkBuffer buffer;
+    private volatile Response response;
+    private volatile Exception failure;
+
+    /**
+     * Records of the request, in the order of their operations (and of the response items).
+     */
+    List<Record> getRecords() {
+      return records;
+    }
+
+    /**
+     * Response of the request, null if it failed.
+     */
+    Response getResponse() {
+      return response;
+    }
+
+    Exception getFailure() {
+      return failure;
+    }
+  }
+
+  private final ElasticsearchStageDelegate delegate;
+  private final Map<String, String> params;
+  private final ContentType contentType;
+  private final int maxRequestSize;
+  private final int maxConcurrentRequests;
+  private final Semaphore inFlight;
+  private final BlockingQueue<BulkBuffer> freeBuffers;
+  private final List<BulkRequest> requests = new ArrayList<>();
+  private Header[] headers;
+  private BulkRequest current;
+  private int operationStart;
+
+  BulkRequestWriter(
+      ElasticsearchStageDelegate delegate,
+      Map<String, String> params,
+      ContentType contentType,
+      int maxRequestSize,
+      int maxConcurrentRequests
+  ) {
+    this.delegate = delegate;
+    this.params = params;
+    this.contentType = contentType;
+    this.maxRequestSize = maxRequestSize;
+    this.maxConcurrentRequests = maxConcurrentRequests;
+    this.inFlight = new Semaphore(maxConcurrentRequests);
+    // One buffer per request in flight plus the one being written, allocated lazily
+    this.freeBuffers = new ArrayBlockingQueue<>(maxConcurrentRequests + 1);
+    for (int i = 0; i <= maxConcurrentRequests; i++) {
+      freeBuffers.add(new BulkBuffer());
+    }
+  }
+
+  /**
+   * Starts a new batch, whose requests are sent with given headers.
+   */
+  void begin(Header... headers) throws StageException {
+    this.headers = headers;
+    requests.clear();
+    if (current != null) {
+      // Left over by a batch that failed half way, its requests that were sent release their buffers once completed
+      release(current);
+    }
+    current = newRequest();
+  }
+
+  /**
+   * Starts an operation, it has to be written to the returned stream and then either added or discarded.
+   */
+  ByteArrayOutputStream startOperation() {
+    operationStart = current.buffer.size();
+    return current.buffer;
+  }
+
+  /**
+   * Discards what was written of the current operation, for records that could not be serialized.
+   */
+  void discardOperation() {
+    current.buffer.truncate(operationStart);
+  }
+
+  /**
+   * Adds the current operation of given record to the batch, sending the request that it does not fit in anymore.
+   */
+  void addOperation(Record record) throws StageException {
+    if (current.buffer.size() > maxRequestSize && operationStart > 0) {
+      BulkRequest full = current;
+      current = newRequest();
+      full.buffer.moveTo(operationStart, current.buffer);
+      send(full);
+    }
+    current.records.add(record);
+  }
+
+  /**
+   * Sends what is left of the batch and returns all its requests once they have all completed.
+   */
+  List<BulkRequest> finish() throws StageException {
+    if (current.records.isEmpty()) {
+      release(current);
+    } else {
+      send(current);
+    }
+    current = null;
+    try {
+      inFlight.acquire(maxConcurrentRequests);
+      inFlight.release(maxConcurrentRequests);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new StageException(Errors.ELASTICSEARCH_33, e.toString(), e);
+    }
+    return requests;
+  }
+
+  private BulkRequest newRequest() throws StageException {
+    BulkRequest request = new BulkRequest();
+    try {
+      request.buffer = freeBuffers.take();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new StageException(Errors.ELASTICSEARCH_33, e.toString(), e);
+    }
+    return request;
+  }
+
+  private void send(final BulkRequest request) throws StageException {
+    try {
+      inFlight.acquire();
+    } catch (InterruptedException e) {
+      release(request);
+      Thread.currentThread().interrupt();
+      throw new StageException(Errors.ELASTICSEARCH_33, e.toString(), e);
+    }
+    requests.add(request);
+    try {
+      delegate.performRequestAsync(
+          "POST",
+          "/_bulk",
+          params,
+          request.buffer.toEntity(contentType),
+          new ResponseListener() {
+            @Override
+            public void onSuccess(Response response) {
+              request.response = response;
+              completed(request);
+            }
+
+            @Override
+            public void onFailure(Exception exception) {
+              request.failure = exception;
+              completed(request);
+            }
+          },
+          headers
+      );
+    } catch (RuntimeException e) {
+      request.failure = e;
+      completed(request);
+    }
+  }
+
+  // The buffer goes back to the pool before the permit, so that a free permit always means a free buffer
+  private void completed(BulkRequest request) {
+    release(request);
+    inFlight.release();
+  }
+
+  private void release(BulkRequest request) {
+    request.buffer.reset();
+    freeBuffers.add(request.buffer);
+    request.buffer = null;
+  }
+
+}
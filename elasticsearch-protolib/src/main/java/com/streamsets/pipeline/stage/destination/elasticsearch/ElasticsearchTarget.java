@@ -35,10 +35,10 @@ import com.streamsets.pipeline.lib.el.RecordEL;
 import com.streamsets.pipeline.lib.el.TimeEL;
 import com.streamsets.pipeline.lib.el.TimeNowEL;
 import com.streamsets.pipeline.lib.elasticsearch.ElasticsearchStageDelegate;
-import com.streamsets.pipeline.lib.generator.DataGenerator;
 import com.streamsets.pipeline.lib.generator.DataGeneratorFactory;
 import com.streamsets.pipeline.lib.generator.DataGeneratorFactoryBuilder;
 import com.streamsets.pipeline.lib.generator.DataGeneratorFormat;
+import com.streamsets.pipeline.lib.generator.RecordSerializer;
 import com.streamsets.pipeline.lib.operation.OperationType;
 import com.streamsets.pipeline.stage.common.DefaultErrorRecordHandler;
 import com.streamsets.pipeline.stage.common.ErrorRecordHandler;
@@ -46,15 +46,14 @@ import com.streamsets.pipeline.stage.config.elasticsearch.ElasticsearchTargetCon
 import com.streamsets.pipeline.stage.config.elasticsearch.Errors;
 import com.streamsets.pipeline.stage.config.elasticsearch.Groups;
 import org.apache.commons.lang.StringUtils;
-import org.apache.http.HttpEntity;
 import org.apache.http.entity.ContentType;
-import org.apache.http.entity.StringEntity;
-import org.elasticsearch.client.Response;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.Reader;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
 import java.time.ZoneId;
@@ -68,6 +67,8 @@ import java.util.TimeZone;
 
 public class ElasticsearchTarget extends BaseTarget {
   private static final Logger LOG = LoggerFactory.getLogger(ElasticsearchTarget.class);
+  private static final String UPDATE_PREFIX = "{\"doc\":";
+  private static final String MERGE_PREFIX = "{\"doc_as_upsert\": \"true\", \"doc\":";
   private final ElasticsearchTargetConfig conf;
   private ELEval timeDriverEval;
   private TimeZone timeZone;
@@ -78,6 +79,9 @@ public class ElasticsearchTarget extends BaseTarget {
   private ELEval parentIdEval;
   private ELEval routingEval;
   private DataGeneratorFactory generatorFactory;
+  private RecordSerializer recordSerializer;
+  private Charset charset;
+  private BulkRequestWriter bulkWriter;
   private ErrorRecordHandler errorRecordHandler;
   private ElasticsearchStageDelegate delegate;
 
@@ -193,10 +197,19 @@ public class ElasticsearchTarget extends BaseTarget {
 
     issues = delegate.init("elasticSearchConfig", issues);
 
+    charset = Charset.forName(conf.charset);
     generatorFactory = new DataGeneratorFactoryBuilder(getContext(), DataGeneratorFormat.JSON)
         .setMode(Mode.MULTIPLE_OBJECTS)
-        .setCharset(Charset.forName(conf.charset))
+        .setCharset(charset)
         .build();
+    recordSerializer = new RecordSerializer(generatorFactory);
+    bulkWriter = new BulkRequestWriter(
+        delegate,
+        conf.params,
+        ContentType.create(ContentType.APPLICATION_JSON.getMimeType(), charset),
+        conf.maxBulkRequestSizeKB * 1024,
+        conf.maxConcurrentBulkRequests
+    );
 
     return issues;
   }
@@ -206,6 +219,13 @@ public class ElasticsearchTarget extends BaseTarget {
     if(delegate != null) {
       delegate.destroy();
     }
+    if (recordSerializer != null) {
+      try {
+        recordSerializer.close();
+      } catch (IOException e) {
+        LOG.warn("Error closing record serializer: {}", e.toString(), e);
+      }
+    }
     super.destroy();
   }
 
@@ -234,16 +254,14 @@ public class ElasticsearchTarget extends BaseTarget {
     ELVars elVars = getContext().createELVars();
     TimeNowEL.setTimeNowInContext(elVars, getBatchTime());
     Iterator<Record> it = batch.getRecords();
+    if (!it.hasNext()) {
+      return;
+    }
 
-    StringBuilder bulkRequest = new StringBuilder();
-
-    //we need to keep the records in order of appearance in case we have indexing errors
-    //and error handling is TO_ERROR
-    List<Record> records = new ArrayList<>();
+    bulkWriter.begin(delegate.getAuthenticationHeader(conf.securityConfig.securityUser.get()));
 
     while (it.hasNext()) {
       Record record = it.next();
-      records.add(record);
 
       try {
         RecordEL.setRecordInContext(elVars, record);
@@ -261,14 +279,9 @@ public class ElasticsearchTarget extends BaseTarget {
         if (!StringUtils.isEmpty(conf.routingTemplate)) {
           routing = routingEval.eval(elVars, conf.routingTemplate, String.class);
         }
-        ByteArrayOutputStream baos = new ByteArrayOutputStream();
-        DataGenerator generator = generatorFactory.getGenerator(baos);
-        generator.write(record);
-        generator.close();
 
         int opCode = -1;
         String opType = record.getHeader().getAttribute(OperationType.SDC_OPERATION_TYPE);
-        String recordJson = new String(baos.toByteArray(), StandardCharsets.UTF_8).replace("\n", "");
         // Check if the operation code from header attribute is valid
         if (!StringUtils.isEmpty(opType)) {
           try {
@@ -293,7 +306,16 @@ public class ElasticsearchTarget extends BaseTarget {
           // No header attribute set. Use default.
           opCode = conf.defaultOperation.code;
         }
-        bulkRequest.append(getOperation(index, type, id, parent, routing, recordJson, opCode));
+        if (opCode != -1) {
+          OutputStream os = bulkWriter.startOperation();
+          try {
+            writeOperation(os, index, type, id, parent, routing, record, opCode);
+          } catch (IOException | StageException | RuntimeException ex) {
+            bulkWriter.discardOperation();
+            throw ex;
+          }
+          bulkWriter.addOperation(record);
+        }
       } catch (IOException ex) {
         errorRecordHandler.onError(
             new OnRecordErrorException(
@@ -307,21 +329,26 @@ public class ElasticsearchTarget extends BaseTarget {
       }
     }
 
-    if (!records.isEmpty()) {
-      try {
-        HttpEntity entity = new StringEntity(bulkRequest.toString(), ContentType.APPLICATION_JSON);
-        Response response;
-        response = delegate.performRequest(
-            "POST",
-            "/_bulk",
-            conf.params,
-            entity,
-            delegate.getAuthenticationHeader(conf.securityConfig.securityUser.get())
+    //the responses are handled in the order of the requests, and their items in the order of the records of each
+    //request, in case we have indexing errors and error handling is TO_ERROR
+    for (BulkRequestWriter.BulkRequest request : bulkWriter.finish()) {
+      List<Record> records = request.getRecords();
+      if (request.getFailure() != null) {
+        Exception ex = request.getFailure();
+        errorRecordHandler.onError(
+            records,
+            new StageException(Errors.ELASTICSEARCH_17, records.size(), ex.toString(), ex)
         );
-        ByteArrayOutputStream baos = new ByteArrayOutputStream();
-        response.getEntity().writeTo(baos);
-        JsonObject json = new JsonParser().parse(baos.toString()).getAsJsonObject();
-        baos.close();
+        continue;
+      }
+      try {
+        JsonObject json;
+        try (Reader reader = new InputStreamReader(
+            request.getResponse().getEntity().getContent(),
+            StandardCharsets.UTF_8
+        )) {
+          json = new JsonParser().parse(reader).getAsJsonObject();
+        }
 
         // Handle errors in bulk requests individually.
         boolean errors = json.get("errors").getAsBoolean();
@@ -361,47 +388,77 @@ public class ElasticsearchTarget extends BaseTarget {
     return batchTime;
   }
 
-  private String getOperation(String index, String type, String id, String parent, String routing, String record, int opCode) {
-    StringBuilder op = new StringBuilder();
+  private void writeOperation(
+      OutputStream os,
+      String index,
+      String type,
+      String id,
+      String parent,
+      String routing,
+      Record record,
+      int opCode
+  ) throws IOException, StageException {
     switch (opCode) {
       case OperationType.UPSERT_CODE:
-        getOperationMetadata("index", index, type, id, parent, routing, op);
-        op.append(String.format("%s%n", record));
+        writeOperationMetadata("index", index, type, id, parent, routing, os);
+        writeDocument(record, null, os);
         break;
       case OperationType.INSERT_CODE:
-        getOperationMetadata("create", index, type, id, parent, routing, op);
-        op.append(String.format("%s%n", record));
+        writeOperationMetadata("create", index, type, id, parent, routing, os);
+        writeDocument(record, null, os);
         break;
       case OperationType.UPDATE_CODE:
-        getOperationMetadata("update", index, type, id, parent, routing, op);
-        op.append(String.format("{\"doc\":%s}%n", record));
+        writeOperationMetadata("update", index, type, id, parent, routing, os);
+        writeDocument(record, UPDATE_PREFIX, os);
         break;
       case OperationType.MERGE_CODE:
-        getOperationMetadata("update", index, type, id, parent, routing, op);
-        op.append(String.format("{\"doc_as_upsert\": \"true\", \"doc\":%s}%n", record));
+        writeOperationMetadata("update", index, type, id, parent, routing, os);
+        writeDocument(record, MERGE_PREFIX, os);
         break;
       case OperationType.DELETE_CODE:
-        getOperationMetadata("delete", index, type, id, parent, routing, op);
+        writeOperationMetadata("delete", index, type, id, parent, routing, os);
         break;
       default:
         LOG.error("Operation {} not supported", opCode);
         throw new UnsupportedOperationException(String.format("Unsupported Operation: %s", opCode));
     }
-    return op.toString();
   }
 
-  private void getOperationMetadata(String operation, String index, String type, String id, String parent, String routing, StringBuilder sb) {
-    sb.append(String.format("{\"%s\":{\"_index\":\"%s\",\"_type\":\"%s\"", operation, index, type));
+  private void writeOperationMetadata(
+      String operation,
+      String index,
+      String type,
+      String id,
+      String parent,
+      String routing,
+      OutputStream os
+  ) throws IOException {
+    StringBuilder sb = new StringBuilder();
+    sb.append("{\"").append(operation).append("\":{\"_index\":\"").append(index)
+        .append("\",\"_type\":\"").append(type).append('"');
     if (!StringUtils.isEmpty(id)) {
-      sb.append(String.format(",\"_id\":\"%s\"", id));
+      sb.append(",\"_id\":\"").append(id).append('"');
     }
     if (!StringUtils.isEmpty(parent)) {
-      sb.append(String.format(",\"parent\":\"%s\"", parent));
+      sb.append(",\"parent\":\"").append(parent).append('"');
     }
     if (!StringUtils.isEmpty(routing)) {
-      sb.append(String.format(",\"routing\":\"%s\"", routing));
+      sb.append(",\"routing\":\"").append(routing).append('"');
+    }
+    sb.append("}}\n");
+    os.write(sb.toString().getBytes(charset));
+  }
+
+  // Writes the record as a single line, wrapped in given object prefix if any
+  private void writeDocument(Record record, String prefix, OutputStream os) throws IOException, StageException {
+    if (prefix != null) {
+      os.write(prefix.getBytes(charset));
+    }
+    recordSerializer.serializeTrimmed(record, os);
+    if (prefix != null) {
+      os.write('}');
     }
-    sb.append(String.format("}}%n"));
+    os.write('\n');
   }
 
   private List<ErrorItem> extractErrorItems(JsonObject json) {
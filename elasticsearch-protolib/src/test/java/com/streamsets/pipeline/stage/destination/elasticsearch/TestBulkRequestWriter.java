@@ -0,0 +1,188 @@
+/*
+ * Copyright 2018 StreamSets Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.streamsets.pipeline.stage.destination.elasticsearch;
+
+import com.google.common.collect.ImmutableList;
+import com.streamsets.pipeline.api.Record;
+import com.streamsets.pipeline.lib.elasticsearch.ElasticsearchStageDelegate;
+import com.streamsets.pipeline.sdk.RecordCreator;
+import org.apache.http.Header;
+import org.apache.http.HttpEntity;
+import org.apache.http.entity.ContentType;
+import org.apache.http.util.EntityUtils;
+import org.elasticsearch.client.Response;
+import org.elasticsearch.client.ResponseListener;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Matchers;
+import org.mockito.Mockito;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class TestBulkRequestWriter {
+
+  private ScheduledExecutorService executor;
+  private ElasticsearchStageDelegate delegate;
+  private List<String> bodies;
+
+  @Before
+  public void setUp() {
+    executor = Executors.newScheduledThreadPool(2);
+    delegate = Mockito.mock(ElasticsearchStageDelegate.class);
+    bodies = new CopyOnWriteArrayList<>();
+  }
+
+  @After
+  public void tearDown() {
+    executor.shutdownNow();
+  }
+
+  // Makes the delegate answer every request with given completion, after given delay
+  private void answerRequests(long delayMillis, AtomicInteger inFlight, AtomicInteger maxInFlight, boolean fail) {
+    Mockito.doAnswer(invocation -> {
+      bodies.add(EntityUtils.toString((HttpEntity) invocation.getArguments()[3], StandardCharsets.UTF_8));
+      ResponseListener listener = (ResponseListener) invocation.getArguments()[4];
+      maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+      executor.schedule(() -> {
+        inFlight.decrementAndGet();
+        if (fail) {
+          listener.onFailure(new IOException("failed"));
+        } else {
+          listener.onSuccess(Mockito.mock(Response.class));
+        }
+      }, delayMillis, TimeUnit.MILLISECONDS);
+      return null;
+    }).when(delegate).performRequestAsync(
+        Matchers.anyString(),
+        Matchers.anyString(),
+        Matchers.anyMapOf(String.class, String.class),
+        Matchers.any(HttpEntity.class),
+        Matchers.any(ResponseListener.class),
+        Matchers.<Header>anyVararg()
+    );
+  }
+
+  private BulkRequestWriter createWriter(int maxRequestSize, int maxConcurrentRequests) {
+    return new BulkRequestWriter(
+        delegate,
+        Collections.emptyMap(),
+        ContentType.APPLICATION_JSON,
+        maxRequestSize,
+        maxConcurrentRequests
+    );
+  }
+
+  private static List<BulkRequestWriter.BulkRequest> write(BulkRequestWriter writer, List<String> operations)
+      throws Exception {
+    writer.begin();
+    for (String operation : operations) {
+      writer.startOperation().write(operation.getBytes(StandardCharsets.UTF_8));
+      writer.addOperation(RecordCreator.create("s", operation));
+    }
+    return writer.finish();
+  }
+
+  private static List<String> getSourceIds(BulkRequestWriter.BulkRequest request) {
+    List<String> ids = new ArrayList<>();
+    for (Record record : request.getRecords()) {
+      ids.add(record.getHeader().getSourceId());
+    }
+    return ids;
+  }
+
+  @Test
+  public void testSplitsBySize() throws Exception {
+    answerRequests(0, new AtomicInteger(), new AtomicInteger(), false);
+    BulkRequestWriter writer = createWriter(10, 1);
+    List<BulkRequestWriter.BulkRequest> requests = write(writer, ImmutableList.of("aaaa\n", "bbbb\n", "cc\n", "d\n"));
+
+    // An operation is never split, the request it does not fit in anymore is sent without it
+    Assert.assertEquals(ImmutableList.of("aaaa\nbbbb\n", "cc\nd\n"), bodies);
+    Assert.assertEquals(2, requests.size());
+    Assert.assertEquals(ImmutableList.of("aaaa\n", "bbbb\n"), getSourceIds(requests.get(0)));
+    Assert.assertEquals(ImmutableList.of("cc\n", "d\n"), getSourceIds(requests.get(1)));
+    for (BulkRequestWriter.BulkRequest request : requests) {
+      Assert.assertNotNull(request.getResponse());
+      Assert.assertNull(request.getFailure());
+    }
+  }
+
+  @Test
+  public void testOperationLargerThanRequest() throws Exception {
+    answerRequests(0, new AtomicInteger(), new AtomicInteger(), false);
+    BulkRequestWriter writer = createWriter(4, 1);
+    write(writer, ImmutableList.of("aaaaaa\n", "b\n"));
+    Assert.assertEquals(ImmutableList.of("aaaaaa\n", "b\n"), bodies);
+  }
+
+  @Test
+  public void testDiscardOperation() throws Exception {
+    answerRequests(0, new AtomicInteger(), new AtomicInteger(), false);
+    BulkRequestWriter writer = createWriter(100, 1);
+    writer.begin();
+    writer.startOperation().write("a\n".getBytes(StandardCharsets.UTF_8));
+    writer.addOperation(RecordCreator.create("s", "a"));
+    writer.startOperation().write("partial".getBytes(StandardCharsets.UTF_8));
+    writer.discardOperation();
+    List<BulkRequestWriter.BulkRequest> requests = writer.finish();
+    Assert.assertEquals(ImmutableList.of("a\n"), bodies);
+    Assert.assertEquals(ImmutableList.of("a"), getSourceIds(requests.get(0)));
+  }
+
+  @Test
+  public void testBoundedConcurrency() throws Exception {
+    AtomicInteger inFlight = new AtomicInteger();
+    AtomicInteger maxInFlight = new AtomicInteger();
+    answerRequests(20, inFlight, maxInFlight, false);
+    BulkRequestWriter writer = createWriter(2, 2);
+
+    // Buffers are reused across batches
+    for (int batch = 0; batch < 3; batch++) {
+      List<BulkRequestWriter.BulkRequest> requests = write(
+          writer,
+          ImmutableList.of("1\n", "2\n", "3\n", "4\n", "5\n")
+      );
+      Assert.assertEquals(0, inFlight.get());
+      Assert.assertEquals(5, requests.size());
+      for (int i = 0; i < 5; i++) {
+        Assert.assertEquals(ImmutableList.of((i + 1) + "\n"), getSourceIds(requests.get(i)));
+        Assert.assertNotNull(requests.get(i).getResponse());
+      }
+    }
+    Assert.assertTrue(maxInFlight.get() <= 2);
+  }
+
+  @Test
+  public void testFailedRequest() throws Exception {
+    answerRequests(0, new AtomicInteger(), new AtomicInteger(), true);
+    BulkRequestWriter writer = createWriter(100, 1);
+    List<BulkRequestWriter.BulkRequest> requests = write(writer, ImmutableList.of("a\n"));
+    Assert.assertEquals(1, requests.size());
+    Assert.assertNull(requests.get(0).getResponse());
+    Assert.assertEquals("failed", requests.get(0).getFailure().getMessage());
+  }
+}
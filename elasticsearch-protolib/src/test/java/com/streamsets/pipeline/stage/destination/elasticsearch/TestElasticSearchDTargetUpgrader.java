@@ -71,4 +71,15 @@ public class TestElasticSearchDTargetUpgrader {
         "elasticSearchConfig.routingTemplate"
     );
   }
+
+  @Test
+  public void testV8ToV9() throws StageException {
+    StageUpgrader upgrader = new ElasticsearchDTargetUpgrader();
+    List<Config> configs = new ArrayList<>();
+    List<Config> newConfigs = upgrader.upgrade("library", "stageName", "stageInstance", 8, 9, configs);
+    UpgraderTestUtils.assertAllExist(newConfigs,
+        "elasticSearchConfig.maxBulkRequestSizeKB",
+        "elasticSearchConfig.maxConcurrentBulkRequests"
+    );
+  }
 }
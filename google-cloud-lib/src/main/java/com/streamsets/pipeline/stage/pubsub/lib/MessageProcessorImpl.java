@@ -145,7 +145,7 @@ public class MessageProcessorImpl implements MessageProcessor {
 
   private void parseMessage(PubsubMessage message) {
     LOG.trace("parseMessage called");
-    try (DataParser parser = parserFactory.getParser(message.getMessageId(), message.getData().toByteArray())) {
+    try (DataParser parser = parserFactory.getMessageParser(message.getMessageId(), message.getData().toByteArray())) {
       Record r;
       while ((r = tryParse(parser, message)) != null) {
         setHeaders(message, r);
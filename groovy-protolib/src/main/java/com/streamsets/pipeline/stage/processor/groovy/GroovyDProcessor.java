@@ -30,10 +30,11 @@ import static com.streamsets.pipeline.stage.processor.groovy.GroovyProcessor.GRO
 import static com.streamsets.pipeline.stage.processor.groovy.GroovyProcessor.GROOVY_INDY_ENGINE;
 
 @StageDef(
-    version = 1,
+    version = 2,
     label = "Groovy Evaluator",
     description = "Processes records using Groovy",
     icon="groovy.png",
+    upgrader = GroovyProcessorUpgrader.class,
     producesEvents = true,
     onlineHelpRefUrl ="index.html?contextID=task_asl_bpt_gv"
 )
@@ -249,10 +250,22 @@ public class GroovyDProcessor extends DProcessor {
   )
   public boolean invokeDynamic = false;
 
+  @ConfigDef(
+      required = true,
+      type = ConfigDef.Type.BOOLEAN,
+      defaultValue = "false",
+      label = "Lazy Record View",
+      description = "Record fields are converted only when the script reads them and only the changed ones are " +
+          "converted back",
+      displayPosition = 60,
+      group = "GROOVY"
+  )
+  public boolean lazyRecordView = false;
+
   @Override
   protected Processor createProcessor() {
     final String engineName = invokeDynamic ? GROOVY_INDY_ENGINE : GROOVY_ENGINE;
-    return new GroovyProcessor(processingMode, script, initScript, destroyScript, engineName);
+    return new GroovyProcessor(processingMode, script, initScript, destroyScript, engineName, lazyRecordView);
   }
 
 }
@@ -150,6 +150,43 @@ public class TestGroovyProcessor {
     ScriptingProcessorTestUtil.verifyPrimitiveTypesFromScripting(GroovyDProcessor.class, processor);
   }
 
+  @Test
+  public void testLazyRecordView() throws Exception {
+    Processor processor = new GroovyProcessor(
+        ProcessingMode.RECORD,
+        "for (record in records) {\n" +
+        "  record.value['a']['x'] = 2\n" +
+        "  record.value['b'].add(3)\n" +
+        "  record.value.remove('d')\n" +
+        "  record.value['e'] = 'new'\n" +
+        "  output.write(record)\n" +
+        "}",
+        "",
+        "",
+        GroovyProcessor.GROOVY_ENGINE,
+        true
+    );
+    ScriptingProcessorTestUtil.verifyLazyRecordView(GroovyDProcessor.class, processor);
+  }
+
+  @Test
+  public void testGlobalsNotSharedAcrossRecords() throws Exception {
+    Processor processor = new GroovyProcessor(
+        ProcessingMode.RECORD,
+        "for (record in records) {\n" +
+        "  try {\n" +
+        "    seen\n" +
+        "    record.value['leaked'] = true\n" +
+        "  } catch (MissingPropertyException e) {\n" +
+        "    record.value['leaked'] = false\n" +
+        "  }\n" +
+        "  seen = true\n" +
+        "  output.write(record)\n" +
+        "}"
+    );
+    ScriptingProcessorTestUtil.verifyGlobalsNotSharedAcrossRecords(GroovyDProcessor.class, processor);
+  }
+
   @Test
   public void testStateObject() throws Exception {
     final String script = Resources.toString(Resources.getResource("StateObjectScript.groovy"), Charsets.UTF_8);
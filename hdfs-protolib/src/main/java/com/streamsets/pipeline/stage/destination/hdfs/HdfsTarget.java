@@ -16,6 +16,7 @@
 package com.streamsets.pipeline.stage.destination.hdfs;
 
 import com.google.common.annotations.VisibleForTesting;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.streamsets.pipeline.api.Batch;
 import com.streamsets.pipeline.api.Record;
 import com.streamsets.pipeline.api.StageException;
@@ -32,7 +33,9 @@ import com.streamsets.pipeline.stage.common.DefaultErrorRecordHandler;
 import com.streamsets.pipeline.stage.common.ErrorRecordHandler;
 import com.streamsets.pipeline.stage.destination.hdfs.writer.ActiveRecordWriters;
 import com.streamsets.pipeline.stage.destination.hdfs.writer.RecordWriter;
+import com.streamsets.pipeline.stage.destination.hdfs.writer.RecordWriterManager;
 import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.Path;
 import org.apache.hadoop.io.compress.CompressionCodec;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -40,9 +43,17 @@ import org.slf4j.LoggerFactory;
 import java.io.IOException;
 import java.lang.reflect.UndeclaredThrowableException;
 import java.security.PrivilegedExceptionAction;
+import java.util.ArrayList;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 public class HdfsTarget extends BaseTarget {
   private static final Logger LOG = LoggerFactory.getLogger(HdfsTarget.class);
@@ -55,6 +66,8 @@ public class HdfsTarget extends BaseTarget {
   private final HdfsTargetConfigBean hdfsTargetConfigBean;
   private ErrorRecordHandler errorRecordHandler;
   private Date batchTime;
+  private boolean groupByDirectory;
+  private ExecutorService directoryWriters;
 
   public HdfsTarget(HdfsTargetConfigBean hdfsTargetConfigBean) {
     this.hdfsTargetConfigBean = hdfsTargetConfigBean;
@@ -65,6 +78,16 @@ public class HdfsTarget extends BaseTarget {
     List<ConfigIssue> issues = super.init();
     errorRecordHandler = new DefaultErrorRecordHandler(getContext());
     hdfsTargetConfigBean.init(getContext(), issues);
+    // whole files are written one record (file) at a time, there is nothing to group
+    groupByDirectory = hdfsTargetConfigBean.groupByDirectory
+        && hdfsTargetConfigBean.dataFormat != DataFormat.WHOLE_FILE
+        && hdfsTargetConfigBean.fileType != HdfsFileType.WHOLE_FILE;
+    if (issues.isEmpty() && groupByDirectory && hdfsTargetConfigBean.directoryWriteThreads > 1) {
+      directoryWriters = Executors.newFixedThreadPool(
+          hdfsTargetConfigBean.directoryWriteThreads,
+          new ThreadFactoryBuilder().setNameFormat("HDFS Directory Writer %d").setDaemon(true).build()
+      );
+    }
     return issues;
   }
 
@@ -89,6 +112,10 @@ public class HdfsTarget extends BaseTarget {
 
   @Override
   public void destroy() {
+    if (directoryWriters != null) {
+      directoryWriters.shutdownNow();
+      directoryWriters = null;
+    }
     hdfsTargetConfigBean.destroy();
     super.destroy();
   }
@@ -105,7 +132,10 @@ public class HdfsTarget extends BaseTarget {
             hdfsTargetConfigBean.getLateWriters().purge();
           }
           Iterator<Record> it = batch.getRecords();
-          if (it.hasNext()) {
+          if (it.hasNext() && groupByDirectory) {
+            writeGroupedByDirectory(it);
+            hdfsTargetConfigBean.getCurrentWriters().flushAll();
+          } else if (it.hasNext()) {
             while (it.hasNext()) {
               Record record = it.next();
               try {
@@ -214,34 +244,7 @@ public class HdfsTarget extends BaseTarget {
             LOG.debug("Writer was idle closed. Retrying.. ");
           }
         } else {
-          switch (hdfsTargetConfigBean.lateRecordsAction) {
-            case SEND_TO_ERROR:
-              incrementAndMarkLateRecords();
-              getContext().toError(record, Errors.HADOOPFS_12, record.getHeader().getSourceId());
-              break;
-            case SEND_TO_LATE_RECORDS_FILE:
-              RecordWriter lateWriter =
-                  hdfsTargetConfigBean.getLateWriters().get(getBatchTime(), getBatchTime(), record);
-              try {
-                lateWriter.write(record);
-                // To avoid double counting, in case of IdleClosedException
-                incrementAndMarkLateRecords();
-                //We anyway close the late record writers after writing,
-                //no need to handle specially for whole file
-                hdfsTargetConfigBean.getLateWriters().release(lateWriter, false);
-              } catch (IdleClosedException ex) {
-                // Try to write again, this time with a new lateWriter
-                hdfsTargetConfigBean.getCurrentWriters().release(lateWriter, false);
-                write = true;
-                // No use printing path, since it is a temp path - the real one is created later.
-                LOG.debug("Writer was idle closed. Retrying.. ");
-              }
-              break;
-            default:
-              incrementAndMarkLateRecords();
-              throw new RuntimeException(Utils.format("Unknown late records action: {}",
-                  hdfsTargetConfigBean.lateRecordsAction));
-          }
+          write = writeLate(record);
         }
       }
     } catch (IOException ex) {
@@ -251,6 +254,198 @@ public class HdfsTarget extends BaseTarget {
     }
   }
 
+  /**
+   * Handles a record that is too late for its file, returns true when it has to be written again.
+   */
+  private boolean writeLate(Record record) throws StageException, IOException {
+    switch (hdfsTargetConfigBean.lateRecordsAction) {
+      case SEND_TO_ERROR:
+        incrementAndMarkLateRecords();
+        getContext().toError(record, Errors.HADOOPFS_12, record.getHeader().getSourceId());
+        return false;
+      case SEND_TO_LATE_RECORDS_FILE:
+        RecordWriter lateWriter =
+            hdfsTargetConfigBean.getLateWriters().get(getBatchTime(), getBatchTime(), record);
+        try {
+          lateWriter.write(record);
+          // To avoid double counting, in case of IdleClosedException
+          incrementAndMarkLateRecords();
+          //We anyway close the late record writers after writing,
+          //no need to handle specially for whole file
+          hdfsTargetConfigBean.getLateWriters().release(lateWriter, false);
+          return false;
+        } catch (IdleClosedException ex) {
+          // Try to write again, this time with a new lateWriter
+          hdfsTargetConfigBean.getCurrentWriters().release(lateWriter, false);
+          // No use printing path, since it is a temp path - the real one is created later.
+          LOG.debug("Writer was idle closed. Retrying.. ");
+          return true;
+        }
+      default:
+        incrementAndMarkLateRecords();
+        throw new RuntimeException(Utils.format("Unknown late records action: {}",
+            hdfsTargetConfigBean.lateRecordsAction));
+    }
+  }
+
+  /**
+   * Records of a batch that go to the same directory (temporary file).
+   */
+  private static class DirectoryGroup {
+    private final Path path;
+    private final List<Record> records = new ArrayList<>();
+    private final List<Date> recordTimes = new ArrayList<>();
+    private final List<Record> lateRecords = new ArrayList<>();
+    private final List<OnRecordErrorException> errors = new ArrayList<>();
+
+    DirectoryGroup(Path path) {
+      this.path = path;
+    }
+
+    void add(Record record, Date recordTime) {
+      records.add(record);
+      recordTimes.add(recordTime);
+    }
+  }
+
+  /**
+   * Resolves the path of all records first, evaluating the directory template once per distinct template inputs,
+   * and then writes the records of each directory in one pass to its writer. Directories are written in parallel
+   * when there is more than one directory write thread.
+   */
+  private void writeGroupedByDirectory(Iterator<Record> it) throws Exception {
+    RecordWriterManager manager = hdfsTargetConfigBean.getCurrentWriters().getWriterManager();
+    Map<Object, Path> paths = new HashMap<>();
+    Map<Path, DirectoryGroup> groups = new LinkedHashMap<>();
+    while (it.hasNext()) {
+      Record record = it.next();
+      try {
+        Date recordTime = getRecordTime(record);
+
+        // recordTime may not be null!
+        if (recordTime == null) {
+          throw new StageException(Errors.HADOOPFS_47, hdfsTargetConfigBean.getTimeDriver());
+        }
+
+        if(hdfsTargetConfigBean.dirPathTemplateInHeader
+            && !record.getHeader().getAttributeNames().contains(TARGET_DIRECTORY_HEADER)) {
+          getContext().toError(record, Errors.HADOOPFS_50);
+          continue;
+        }
+
+        Object key = manager.getPathKey(recordTime, record);
+        Path path = (key == null) ? null : paths.get(key);
+        if (path == null) {
+          path = manager.getPath(recordTime, record);
+          if (key != null) {
+            paths.put(key, path);
+          }
+        }
+        DirectoryGroup group = groups.get(path);
+        if (group == null) {
+          group = new DirectoryGroup(path);
+          groups.put(path, group);
+        }
+        group.add(record, recordTime);
+      } catch (IOException ex) {
+        throw new StageException(Errors.HADOOPFS_14, ex.toString(), ex);
+      } catch (StageException ex) {
+        errorRecordHandler.onError(new OnRecordErrorException(record, ex.getErrorCode(), ex.getParams()));
+      }
+    }
+
+    if (directoryWriters == null || groups.size() < 2) {
+      for (DirectoryGroup group : groups.values()) {
+        writeGroup(group);
+      }
+    } else {
+      List<Future<Void>> futures = new ArrayList<>(groups.size());
+      for (DirectoryGroup group : groups.values()) {
+        futures.add(directoryWriters.submit(() -> hdfsTargetConfigBean.getUGI().doAs(
+            (PrivilegedExceptionAction<Void>) () -> {
+              writeGroup(group);
+              return null;
+            }
+        )));
+      }
+      // wait for all the directories before failing, no writer may be in use once the batch is over
+      Exception failure = null;
+      for (Future<Void> future : futures) {
+        try {
+          future.get();
+        } catch (ExecutionException ex) {
+          if (failure == null) {
+            failure = (ex.getCause() instanceof Exception) ? (Exception) ex.getCause() : ex;
+          }
+        }
+      }
+      if (failure != null) {
+        throw failure;
+      }
+    }
+
+    // error and late records are handled by this thread, the error record handler is not thread safe
+    for (DirectoryGroup group : groups.values()) {
+      for (OnRecordErrorException error : group.errors) {
+        errorRecordHandler.onError(error);
+      }
+      for (Record record : group.lateRecords) {
+        try {
+          while (writeLate(record)) {
+            // written again with a new late records writer
+          }
+        } catch (IOException ex) {
+          throw new StageException(Errors.HADOOPFS_14, ex.toString(), ex);
+        } catch (StageException ex) {
+          errorRecordHandler.onError(new OnRecordErrorException(record, ex.getErrorCode(), ex.getParams()));
+        }
+      }
+    }
+    // writers were released without purging while the directories were written
+    hdfsTargetConfigBean.getCurrentWriters().purge();
+  }
+
+  private void writeGroup(DirectoryGroup group) throws StageException, IOException {
+    ActiveRecordWriters writers = hdfsTargetConfigBean.getCurrentWriters();
+    RecordWriterManager manager = writers.getWriterManager();
+    RecordWriter writer = null;
+    for (int i = 0; i < group.records.size(); i++) {
+      Record record = group.records.get(i);
+      boolean write = true;
+      while (write) {
+        write = false;
+        if (writer != null && manager.shouldRoll(writer, record)) {
+          writers.release(writer, true, false);
+          writer = null;
+        }
+        if (writer == null) {
+          writer = writers.get(getBatchTime(), group.recordTimes.get(i), group.path, record);
+          if (writer == null) {
+            group.lateRecords.add(record);
+            break;
+          }
+        }
+        try {
+          writer.write(record);
+          hdfsTargetConfigBean.getToHdfsRecordsCounter().inc();
+          hdfsTargetConfigBean.getToHdfsRecordsMeter().mark();
+          if (writer.isIdleClosed() || manager.isOverThresholds(writer)) {
+            writers.release(writer, false, false);
+            writer = null;
+          }
+        } catch (IdleClosedException ex) {
+          writers.release(writer, false, false);
+          writer = null;
+          // Try to write again, this time with a new writer
+          write = true;
+          LOG.debug("Writer was idle closed. Retrying.. ");
+        } catch (StageException ex) {
+          group.errors.add(new OnRecordErrorException(record, ex.getErrorCode(), ex.getParams()));
+        }
+      }
+    }
+  }
+
   private void incrementAndMarkLateRecords() {
     hdfsTargetConfigBean.getLateRecordsCounter().inc();
     hdfsTargetConfigBean.getLateRecordsMeter().mark();
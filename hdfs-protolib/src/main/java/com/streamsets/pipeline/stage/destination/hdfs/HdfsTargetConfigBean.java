@@ -303,6 +303,34 @@ public class HdfsTargetConfigBean extends HdfsBaseConfigBean {
   )
   public String rollHeaderName;
 
+  @ConfigDef(
+    required = true,
+    type = ConfigDef.Type.BOOLEAN,
+    defaultValue = "false",
+    label = "Group Records by Directory",
+    description = "Resolves the directory of all records in the batch first and writes the records of each " +
+      "directory together, evaluating the directory template once per distinct time and header value",
+    displayPosition = 206,
+    group = "OUTPUT_FILES",
+    dependsOn = "fileType",
+    triggeredByValue = {"TEXT", "SEQUENCE_FILE"}
+  )
+  public boolean groupByDirectory;
+
+  @ConfigDef(
+    required = true,
+    type = ConfigDef.Type.NUMBER,
+    defaultValue = "1",
+    label = "Directory Write Threads",
+    description = "Number of threads writing the records of distinct directories at the same time",
+    displayPosition = 207,
+    group = "OUTPUT_FILES",
+    min = 1,
+    dependsOn = "groupByDirectory",
+    triggeredByValue = "true"
+  )
+  public int directoryWriteThreads = 1;
+
   @ConfigDef(
     required = true,
     type = ConfigDef.Type.MODEL,
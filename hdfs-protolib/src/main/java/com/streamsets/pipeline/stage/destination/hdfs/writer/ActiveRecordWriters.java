@@ -22,6 +22,7 @@ import com.streamsets.pipeline.api.StageException;
 import com.streamsets.pipeline.api.impl.Utils;
 import com.streamsets.pipeline.lib.hdfs.common.Errors;
 import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -123,21 +124,52 @@ public class ActiveRecordWriters {
     if (writer == null) {
       writer = manager.getWriter(now, recordDate, record);
       if (writer != null) {
-        if (IS_TRACE_ENABLED) {
-          LOG.trace("Got '{}'", writer.getPath());
-        }
-        writer.setActiveRecordWriters(this);
+        register(path, writer);
+      }
+    }
+    return writer;
+  }
 
-        //We are fine no lock on writer needed.
-        synchronized(this) {
-          writers.put(path, writer);
-        }
-        cutOffQueue.add(new DelayedRecordWriter(writer));
+  /**
+   * Returns the writer for an already resolved path. Writers that have to be rolled are released without purging,
+   * so it can be called by several threads at once as long as each of them writes to a distinct path.
+   */
+  public RecordWriter get(Date now, Date recordDate, Path tempPath, Record record) throws StageException, IOException {
+    String path = tempPath.toString();
+    RecordWriter writer = null;
+
+    //We are fine no lock on writer needed.
+    synchronized (this) {
+      writer = writers.get(path);
+    }
+
+    if(writer != null && manager.shouldRoll(writer, record)) {
+      release(writer, true, false);
+      writer = null;
+    }
+
+    if (writer == null) {
+      writer = manager.getWriter(now, recordDate, tempPath);
+      if (writer != null) {
+        register(path, writer);
       }
     }
     return writer;
   }
 
+  private void register(String path, RecordWriter writer) {
+    if (IS_TRACE_ENABLED) {
+      LOG.trace("Got '{}'", writer.getPath());
+    }
+    writer.setActiveRecordWriters(this);
+
+    //We are fine no lock on writer needed.
+    synchronized(this) {
+      writers.put(path, writer);
+    }
+    cutOffQueue.add(new DelayedRecordWriter(writer));
+  }
+
   public RecordWriterManager getWriterManager() {
     return manager;
   }
@@ -154,6 +186,14 @@ public class ActiveRecordWriters {
   //For Ex: idle close thread calls this method
   //and the hdfsTarget (in the pipeline runnable thread), calls flushAll
   public synchronized void release(RecordWriter writer, boolean roll) throws StageException, IOException {
+    release(writer, roll, true);
+  }
+
+  /**
+   * Without purge, writers of other paths that expired are left open until the next purge(), they may still be in use
+   * by other threads.
+   */
+  public synchronized void release(RecordWriter writer, boolean roll, boolean purge) throws StageException, IOException {
     writer.closeLock();
     try {
       if (roll || writer.isIdleClosed() || manager.isOverThresholds(writer)) {
@@ -166,7 +206,9 @@ public class ActiveRecordWriters {
     } finally {
       writer.closeUnlock();
     }
-    purge();
+    if (purge) {
+      purge();
+    }
   }
 
   public synchronized void flushAll() throws StageException {
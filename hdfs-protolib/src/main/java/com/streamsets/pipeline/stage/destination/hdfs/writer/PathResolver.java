@@ -74,7 +74,6 @@ public class PathResolver {
   private int incrementUnit;
   private int incrementValue;
   private final TimeZone timeZone;
-  private final ELVars elVars;
   private final ELEval freqEdgeElEval;
   private final ELEval pathEval;
   private boolean validated;
@@ -83,7 +82,6 @@ public class PathResolver {
     this.context = context;
     this.pathTemplate = pathTemplate;
     this.timeZone = timeZone;
-    elVars = context.createELVars();
     freqEdgeElEval = context.createELEval(config, FrequencyEdgeEL.class);
     pathEval = context.createELEval(config);
   }
@@ -336,13 +334,14 @@ public class PathResolver {
   public Date getDate(Date date, boolean floorDate) {
     Utils.checkState(validated, Utils.formatL("PathTemplateEL for '{}' must be validated", pathTemplate));
     DateContext dc = new DateContext(date, timeZone);
+    // own variables for every call, writers for distinct directories may be created by several threads at once
+    ELVars elVars = context.createELVars();
     elVars.addContextVariable(DATE_CONTEXT, dc);
     try {
       freqEdgeElEval.eval(elVars, pathTemplate, String.class);
     } catch (ELEvalException ex) {
       throw new RuntimeException(Utils.format("Unexpected exception: {}", ex.toString()), ex);
     }
-    elVars.addContextVariable(DATE_CONTEXT, null);
     if (!dc.noDate) {
       int rangeEdgeCorrection = floorDate ? 0 : 1;
       // set to the minimum all values for units smaller than the the incrementUnit
@@ -61,6 +61,8 @@ public class RecordWriterManager {
   public final static String TMP_FILE_PREFIX = "_tmp_";
 
   private final static String DOT = ".";
+  private final static String RECORD_EL_PREFIX = "record:";
+  private final static String UUID_EL = "uuid(";
   private FileSystem fs;
   private Configuration hdfsConf;
   private String uniquePrefix;
@@ -83,6 +85,7 @@ public class RecordWriterManager {
   private final String rollHeaderName;
   private final FsHelper fsHelper;
   private final ConcurrentLinkedQueue<Path> closedPaths;
+  private final boolean dirPathDependsOnTimeOnly;
 
   public RecordWriterManager(
       FileSystem fs,
@@ -128,6 +131,9 @@ public class RecordWriterManager {
     this.rollHeaderName = rollHeaderName;
     closedPaths = new ConcurrentLinkedQueue<>();
     pathResolver = new PathResolver(context, config, dirPathTemplate, timeZone);
+    dirPathDependsOnTimeOnly = dirPathTemplate != null
+        && !dirPathTemplate.contains(RECORD_EL_PREFIX)
+        && !dirPathTemplate.contains(UUID_EL);
     fsHelper = getFsHelper(context, fileNameEL, wholeFileAlreadyExistsAction, permissionEL);
   }
 
@@ -193,6 +199,21 @@ public class RecordWriterManager {
     return fsHelper.getPath(fs, recordDate, record);
   }
 
+  /**
+   * Returns the inputs of the directory template for given record and date, records with equal keys have the same
+   * path. Returns null when the directory depends on the record contents, the path must be resolved for every record.
+   */
+  public Object getPathKey(Date recordDate, Record record) {
+    if (dirPathTemplateInHeader) {
+      return record.getHeader().getAttribute(HdfsTarget.TARGET_DIRECTORY_HEADER);
+    }
+    if (dirPathDependsOnTimeOnly) {
+      // the template does not use millis, the floor date is the same for the whole second
+      return Math.floorDiv(recordDate.getTime(), 1000L);
+    }
+    return null;
+  }
+
   /**
    * This method should be called every time we finish writing into a file and consider it "done".
    */
@@ -286,9 +307,12 @@ public class RecordWriterManager {
   }
 
   public RecordWriter getWriter(Date now, Date recordDate, Record record) throws StageException, IOException {
+    return getWriter(now, recordDate, getPath(recordDate, record));
+  }
+
+  public RecordWriter getWriter(Date now, Date recordDate, Path tempPath) throws StageException, IOException {
     RecordWriter writer = null;
     long writerTimeToLive = getTimeToLiveMillis(now, recordDate);
-    Path tempPath = getPath(recordDate, record);
     if (writerTimeToLive >= 0) {
       if (fs.exists(tempPath)) {
         fsHelper.handleAlreadyExistingFile(fs, tempPath);
@@ -598,4 +598,58 @@ public class TestHdfsTarget {
     File targetDirectory = new File(getTestDir() + "/hdfs/a/b/c");
     Assert.assertFalse(targetDirectory.exists());
   }
+
+  @Test
+  public void testGroupByDirectory() throws Exception {
+    DataGeneratorFormatConfig dataGeneratorFormatConfig = new DataGeneratorFormatConfig();
+    dataGeneratorFormatConfig.jsonMode = JsonMode.MULTIPLE_OBJECTS;
+
+    HdfsTarget hdfsTarget = HdfsTargetUtil.newBuilder()
+      .dataGeneratorFormatConfig(dataGeneratorFormatConfig)
+      .dirPathTemplateInHeader(true)
+      .dirPathTemplate(null)
+      .dataForamt(DataFormat.JSON)
+      .groupByDirectory(true)
+      .directoryWriteThreads(2)
+      .build();
+
+    TargetRunner runner = new TargetRunner.Builder(HdfsDTarget.class, hdfsTarget)
+        .setOnRecordError(OnRecordError.TO_ERROR)
+        .build();
+    runner.runInit();
+
+    // records of both directories interleaved, one without directory
+    List<Record> records = new ArrayList<>();
+    for (String value : ImmutableList.of("1", "2", "3", "4", "5")) {
+      Record record = RecordCreator.create();
+      if (!"5".equals(value)) {
+        String dir = Integer.parseInt(value) % 2 == 0 ? "/even/" : "/odd/";
+        record.getHeader().setAttribute(HdfsTarget.TARGET_DIRECTORY_HEADER, getTestDir() + dir);
+      }
+      Map<String, Field> map = new HashMap<>();
+      map.put("a", Field.create(value));
+      record.set(Field.create(map));
+      records.add(record);
+    }
+
+    runner.runWrite(records);
+    runner.runDestroy();
+
+    Assert.assertEquals(1, runner.getErrorRecords().size());
+    Assert.assertEquals(2, runner.getEventRecords().size());
+
+    // every directory has a single file with its records in batch order
+    File[] odd = new File(getTestDir() + "/odd/").listFiles();
+    Assert.assertEquals(1, odd.length);
+    Assert.assertEquals(
+        "{\"a\":\"1\"}\n{\"a\":\"3\"}",
+        FileUtils.readFileToString(odd[0], Charset.defaultCharset()).trim()
+    );
+    File[] even = new File(getTestDir() + "/even/").listFiles();
+    Assert.assertEquals(1, even.length);
+    Assert.assertEquals(
+        "{\"a\":\"2\"}\n{\"a\":\"4\"}",
+        FileUtils.readFileToString(even[0], Charset.defaultCharset()).trim()
+    );
+  }
 }
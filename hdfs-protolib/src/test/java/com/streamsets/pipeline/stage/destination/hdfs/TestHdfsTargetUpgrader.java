@@ -210,4 +210,21 @@ public class TestHdfsTargetUpgrader {
     Assert.assertTrue(configValues.containsKey("hdfsTargetConfigBean.rollHeaderName"));
     Assert.assertEquals("roll", configValues.get("hdfsTargetConfigBean.rollHeaderName"));
   }
+
+  @Test
+  public void testUpgradeV4ToV5() throws StageException {
+    List<Config> configs = new ArrayList<>();
+
+    HdfsTargetUpgrader hdfsTargetUpgrader = new HdfsTargetUpgrader();
+    hdfsTargetUpgrader.upgrade("a", "b", "c", 4, 5, configs);
+
+    Assert.assertEquals(2, configs.size());
+    HashMap<String, Object> configValues = new HashMap<>();
+    for(Config c : configs) {
+      configValues.put(c.getName(), c.getValue());
+    }
+
+    Assert.assertEquals(false, configValues.get("hdfsTargetConfigBean.groupByDirectory"));
+    Assert.assertEquals(1, configValues.get("hdfsTargetConfigBean.directoryWriteThreads"));
+  }
 }
@@ -62,6 +62,8 @@ public class HdfsTargetUtil {
     String idleTimeout = null;
     boolean rollIfHeader = false;
     String rollHeaderName = null;
+    boolean groupByDirectory = false;
+    int directoryWriteThreads = 1;
     String fileNameEL = "";
     WholeFileExistsAction wholeFileExistsAction = WholeFileExistsAction.TO_ERROR;
     String permissionEL = "";
@@ -98,6 +100,8 @@ public class HdfsTargetUtil {
       hdfsTargetConfigBean.idleTimeout = idleTimeout;
       hdfsTargetConfigBean.rollIfHeader = rollIfHeader;
       hdfsTargetConfigBean.rollHeaderName = rollHeaderName;
+      hdfsTargetConfigBean.groupByDirectory = groupByDirectory;
+      hdfsTargetConfigBean.directoryWriteThreads = directoryWriteThreads;
       hdfsTargetConfigBean.dataGeneratorFormatConfig.fileNameEL = fileNameEL;
       hdfsTargetConfigBean.dataGeneratorFormatConfig.wholeFileExistsAction = wholeFileExistsAction;
       hdfsTargetConfigBean.permissionEL = permissionEL;
@@ -226,6 +230,16 @@ public class HdfsTargetUtil {
       return this;
     }
 
+    public Builder groupByDirectory(boolean groupByDirectory) {
+      this.groupByDirectory = groupByDirectory;
+      return this;
+    }
+
+    public Builder directoryWriteThreads(int directoryWriteThreads) {
+      this.directoryWriteThreads = directoryWriteThreads;
+      return this;
+    }
+
     public Builder fileNameEL(String fileNameEL) {
       this.fileNameEL = fileNameEL;
       return this;
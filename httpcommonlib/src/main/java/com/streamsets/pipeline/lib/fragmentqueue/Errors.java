@@ -22,6 +22,7 @@ import com.streamsets.pipeline.api.GenerateResourceBundle;
 public enum Errors implements ErrorCode {
   FRAGMENT_CACHE_WRITER_00("Could not delete file '{}'"),
   FRAGMENT_CACHE_WRITER_01("Could not create queue file '{}'"),
+  FRAGMENT_CACHE_WRITER_02("Could not open disk buffer '{}': {}"),
 
   ;
 
@@ -30,6 +30,8 @@ import java.util.concurrent.atomic.AtomicInteger;
 
 public class MemoryBufferFragmentQueue implements FragmentQueue {
   private static final Logger LOG = LoggerFactory.getLogger(MemoryBufferFragmentQueue.class);
+  // Fragments waiting in memory are handed over to the underlying queue in groups of up to this many
+  private static final int MAX_WRITE_GROUP = 100;
 
   private final int maxMemQueueFragments;
   private final BlockingQueue<byte[]> dataQueue;
@@ -64,14 +66,14 @@ public class MemoryBufferFragmentQueue implements FragmentQueue {
     return new Runnable() {
       @Override
       public void run() {
-        List<byte[]> list = new ArrayList<>(1);
-        list.add(null);
         try {
           while (running) {
             try {
               byte[] fragment = dataQueue.poll(100, TimeUnit.MILLISECONDS);
               if (fragment != null) {
-                list.set(0, fragment);
+                List<byte[]> list = new ArrayList<>();
+                list.add(fragment);
+                dataQueue.drainTo(list, MAX_WRITE_GROUP - 1);
                 fragmentQueue.write(list);
               }
             } catch (InterruptedException ex) {
@@ -94,7 +96,28 @@ public class MemoryBufferFragmentQueue implements FragmentQueue {
   @Override
   public void destroy() {
     running = false;
-    writerThread.interrupt();
+    if (writerThread != null) {
+      // Not interrupting the writer, that would close the files of the underlying queue in the middle of a write
+      try {
+        writerThread.join(10000);
+      } catch (InterruptedException ex) {
+        Thread.currentThread().interrupt();
+      }
+      if (writerThread.isAlive()) {
+        writerThread.interrupt();
+      } else {
+        // Hands over what is left in memory, a persistent queue keeps it for the next run
+        List<byte[]> list = new ArrayList<>();
+        dataQueue.drainTo(list);
+        if (!list.isEmpty()) {
+          try {
+            fragmentQueue.write(list);
+          } catch (IOException ex) {
+            LOG.warn("Lost '{}' fragments on destroy: {}", list.size(), ex.toString(), ex);
+          }
+        }
+      }
+    }
     fragmentQueue.destroy();
   }
 
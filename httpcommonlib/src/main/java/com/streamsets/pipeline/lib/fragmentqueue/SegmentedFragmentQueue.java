@@ -0,0 +1,505 @@
+/*
+ * Copyright 2018 StreamSets Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.streamsets.pipeline.lib.fragmentqueue;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.streamsets.pipeline.api.Stage;
+import com.streamsets.pipeline.api.impl.Utils;
+import org.apache.commons.io.FileUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.CRC32;
+
+/**
+ * Disk fragment queue kept as an append-only log of fixed size segment files.
+ *
+ * Each fragment is appended as [length][checksum][bytes], the checksum covers the segment id and the bytes so that
+ * the leftovers of a recycled segment file are never mistaken for fragments. All the fragments of a write() call are
+ * appended with a single gathering write and, for a persistent queue, a single sync (group commit). Fragments are
+ * read through read only memory mappings of the segments.
+ *
+ * Fragments stay on disk until a position after them is committed, fully committed segments are recycled for new
+ * fragments instead of being deleted. A persistent queue keeps its segments and its committed position across
+ * restarts, the fragments after the committed position are polled again after a restart. A non persistent queue
+ * lives in a temporary directory that is deleted on destroy.
+ */
+public class SegmentedFragmentQueue implements FragmentQueue {
+  private static final Logger LOG = LoggerFactory.getLogger(SegmentedFragmentQueue.class);
+
+  private static final Pattern SEGMENT_FILE = Pattern.compile("segment-(\\d+)\\.log");
+  private static final String CHECKPOINT_FILE = "checkpoint";
+  private static final int FRAGMENT_HEADER_SIZE = 8;
+  private static final int CHECKPOINT_SIZE = 16;
+  private static final int MIN_SEGMENTS = 4;
+  private static final int MAX_SEGMENT_SIZE = 64 * 1024 * 1024;
+
+  private static class Segment {
+    private final long id;
+    private final File file;
+    private final RandomAccessFile raf;
+    private final int capacity;
+    private MappedByteBuffer map;
+    // Bytes of complete fragments, visible to readers, guarded by the queue lock
+    private int size;
+
+    Segment(long id, File file, int capacity) throws IOException {
+      this.id = id;
+      this.file = file;
+      this.raf = new RandomAccessFile(file, "rw");
+      if (raf.length() != capacity) {
+        raf.setLength(capacity);
+      }
+      this.capacity = capacity;
+    }
+
+    FileChannel getChannel() {
+      return raf.getChannel();
+    }
+
+    ByteBuffer getMap() throws IOException {
+      if (map == null) {
+        map = getChannel().map(FileChannel.MapMode.READ_ONLY, 0, capacity);
+      }
+      return map.duplicate();
+    }
+
+    void close() {
+      try {
+        raf.close();
+      } catch (IOException ex) {
+        LOG.warn("Could not close segment '{}': {}", file, ex.toString(), ex);
+      }
+    }
+  }
+
+  private final long maxQueueSize;
+  private final String persistentDir;
+  private final int segmentSize;
+  private final int maxSegments;
+
+  private File dir;
+  private FileChannel checkpointChannel;
+  private AtomicInteger lostFragments;
+
+  // Serializes writers, write() does its I/O holding only this lock
+  private final Object writeLock = new Object();
+
+  // Everything below is guarded by lock, readers wait on it for new fragments
+  private final Object lock = new Object();
+  private final TreeMap<Long, Segment> segments = new TreeMap<>();
+  private final Deque<File> freeFiles = new ArrayDeque<>();
+  private long nextSegmentId;
+  private Segment readSegment;
+  private int readPosition;
+
+  /**
+   * Creates a queue of given maximum size, persistent if a directory is given. A persistent queue keeps its files in
+   * a subdirectory of given directory for the pipeline and stage instance.
+   */
+  public SegmentedFragmentQueue(long maxQueueSizeMB, String persistentDir) {
+    this.maxQueueSize = maxQueueSizeMB * 1000 * 1000;
+    this.persistentDir = persistentDir;
+    this.segmentSize = (int) Math.min(MAX_SEGMENT_SIZE, maxQueueSize / MIN_SEGMENTS);
+    this.maxSegments = (int) Math.max(MIN_SEGMENTS, maxQueueSize / segmentSize);
+  }
+
+  @VisibleForTesting
+  File getDir() {
+    return dir;
+  }
+
+  @VisibleForTesting
+  int getSegmentSize() {
+    return segmentSize;
+  }
+
+  private boolean isPersistent() {
+    return persistentDir != null;
+  }
+
+  @Override
+  public List<Stage.ConfigIssue> init(Stage.Context context) {
+    List<Stage.ConfigIssue> issues = new ArrayList<>();
+    lostFragments = new AtomicInteger(0);
+    try {
+      if (isPersistent()) {
+        dir = new File(new File(persistentDir, context.getPipelineId()), context.getStageInfo().getInstanceName());
+        if (!dir.isDirectory() && !dir.mkdirs()) {
+          throw new IOException(Utils.format("Could not create directory '{}'", dir.getAbsolutePath()));
+        }
+        checkpointChannel = FileChannel.open(
+            new File(dir, CHECKPOINT_FILE).toPath(),
+            StandardOpenOption.CREATE,
+            StandardOpenOption.READ,
+            StandardOpenOption.WRITE
+        );
+        replay();
+      } else {
+        dir = Files.createTempDirectory("sdc-fragments").toFile();
+      }
+      synchronized (lock) {
+        if (segments.isEmpty()) {
+          segments.put(nextSegmentId, new Segment(nextSegmentId, getSegmentFile(nextSegmentId), segmentSize));
+          nextSegmentId++;
+        }
+        if (readSegment == null) {
+          readSegment = segments.firstEntry().getValue();
+          readPosition = 0;
+        }
+      }
+    } catch (IOException ex) {
+      issues.add(context.createConfigIssue("", "", Errors.FRAGMENT_CACHE_WRITER_02, dir, ex.toString()));
+    }
+    return issues;
+  }
+
+  private File getSegmentFile(long id) {
+    return new File(dir, Utils.format("segment-{}.log", String.format("%019d", id)));
+  }
+
+  // Loads the segments left by a previous run and positions the reader after the committed fragments
+  private void replay() throws IOException {
+    File[] files = dir.listFiles();
+    Map<Long, File> found = new TreeMap<>();
+    if (files != null) {
+      for (File file : files) {
+        Matcher matcher = SEGMENT_FILE.matcher(file.getName());
+        if (matcher.matches()) {
+          found.put(Long.parseLong(matcher.group(1)), file);
+        }
+      }
+    }
+    long pending = 0;
+    synchronized (lock) {
+      for (Map.Entry<Long, File> entry : found.entrySet()) {
+        File file = entry.getValue();
+        Segment segment = new Segment(entry.getKey(), file, (int) Math.min(Integer.MAX_VALUE, file.length()));
+        segment.size = scan(segment);
+        segments.put(segment.id, segment);
+        nextSegmentId = segment.id + 1;
+      }
+      long[] checkpoint = readCheckpoint();
+      if (checkpoint != null && segments.containsKey(checkpoint[0])) {
+        recycleBefore(checkpoint[0]);
+        readSegment = segments.get(checkpoint[0]);
+        readPosition = (int) Math.min(checkpoint[1], readSegment.size);
+      }
+      for (Segment segment : segments.values()) {
+        pending += segment.size;
+      }
+      if (readSegment != null) {
+        pending -= readPosition;
+      }
+    }
+    if (pending > 0) {
+      LOG.info("Replaying '{}' bytes of buffered fragments from '{}'", pending, dir.getAbsolutePath());
+    }
+  }
+
+  // Returns the size of the complete and valid fragments at the beginning of the segment
+  private static int scan(Segment segment) throws IOException {
+    ByteBuffer map = segment.getMap();
+    CRC32 crc = new CRC32();
+    int position = 0;
+    while (position + FRAGMENT_HEADER_SIZE <= segment.capacity) {
+      int length = map.getInt(position);
+      if (length < 0 || length > segment.capacity - position - FRAGMENT_HEADER_SIZE) {
+        break;
+      }
+      ByteBuffer data = map.duplicate();
+      data.position(position + FRAGMENT_HEADER_SIZE);
+      data.limit(position + FRAGMENT_HEADER_SIZE + length);
+      if (checksum(crc, segment.id, data) != map.getInt(position + 4)) {
+        break;
+      }
+      position += FRAGMENT_HEADER_SIZE + length;
+    }
+    return position;
+  }
+
+  private static int checksum(CRC32 crc, long segmentId, ByteBuffer data) {
+    crc.reset();
+    ByteBuffer id = ByteBuffer.allocate(8);
+    id.putLong(0, segmentId);
+    crc.update(id);
+    crc.update(data);
+    return (int) crc.getValue();
+  }
+
+  private long[] readCheckpoint() throws IOException {
+    ByteBuffer buffer = ByteBuffer.allocate(CHECKPOINT_SIZE);
+    while (buffer.hasRemaining() && checkpointChannel.read(buffer, buffer.position()) > 0) {
+    }
+    if (buffer.hasRemaining()) {
+      return null;
+    }
+    CRC32 crc = new CRC32();
+    crc.update(buffer.array(), 0, 12);
+    if ((int) crc.getValue() != buffer.getInt(12)) {
+      LOG.warn("Ignoring corrupted checkpoint in '{}', replaying all buffered fragments", dir.getAbsolutePath());
+      return null;
+    }
+    return new long[] {buffer.getLong(0), buffer.getInt(8)};
+  }
+
+  private void writeCheckpoint(long segmentId, int position) throws IOException {
+    ByteBuffer buffer = ByteBuffer.allocate(CHECKPOINT_SIZE);
+    buffer.putLong(0, segmentId);
+    buffer.putInt(8, position);
+    CRC32 crc = new CRC32();
+    crc.update(buffer.array(), 0, 12);
+    buffer.putInt(12, (int) crc.getValue());
+    while (buffer.hasRemaining()) {
+      checkpointChannel.write(buffer, buffer.position());
+    }
+    checkpointChannel.force(false);
+  }
+
+  @Override
+  public void destroy() {
+    synchronized (writeLock) {
+      synchronized (lock) {
+        for (Segment segment : segments.values()) {
+          segment.close();
+        }
+        segments.clear();
+        freeFiles.clear();
+        readSegment = null;
+      }
+      if (checkpointChannel != null) {
+        try {
+          checkpointChannel.close();
+        } catch (IOException ex) {
+          LOG.warn("Could not close checkpoint in '{}': {}", dir.getAbsolutePath(), ex.toString(), ex);
+        }
+        checkpointChannel = null;
+      }
+      if (dir != null && !isPersistent()) {
+        try {
+          FileUtils.deleteDirectory(dir);
+        } catch (IOException ex) {
+          LOG.warn("Could not delete directory '{}' on destroy: {}", dir.getAbsolutePath(), ex.toString(), ex);
+        }
+      }
+    }
+  }
+
+  @Override
+  public int getMaxFragmentSizeKB() {
+    return (segmentSize - FRAGMENT_HEADER_SIZE) / 1000;
+  }
+
+  @Override
+  public void write(List<byte[]> fragments) throws IOException {
+    int lost = 0;
+    synchronized (writeLock) {
+      Segment segment;
+      synchronized (lock) {
+        segment = segments.lastEntry().getValue();
+      }
+      CRC32 crc = new CRC32();
+      ByteBuffer headers = ByteBuffer.allocate(FRAGMENT_HEADER_SIZE * fragments.size());
+      List<ByteBuffer> group = new ArrayList<>(fragments.size() * 2);
+      int position = segment.size;
+      int end = position;
+      for (byte[] fragment : fragments) {
+        int length = FRAGMENT_HEADER_SIZE + fragment.length;
+        if (length > segmentSize) {
+          lost++;
+          continue;
+        }
+        if (end + length > segment.capacity) {
+          append(segment, position, group);
+          group.clear();
+          position = end;
+          Segment next = roll();
+          if (next == null) {
+            lost++;
+            continue;
+          }
+          segment = next;
+          position = 0;
+          end = 0;
+        }
+        ByteBuffer data = ByteBuffer.wrap(fragment);
+        ByteBuffer header = headers.slice();
+        header.limit(FRAGMENT_HEADER_SIZE);
+        header.putInt(0, fragment.length);
+        header.putInt(4, checksum(crc, segment.id, data.duplicate()));
+        headers.position(headers.position() + FRAGMENT_HEADER_SIZE);
+        group.add(header);
+        group.add(data);
+        end += length;
+      }
+      append(segment, position, group);
+    }
+    if (lost > 0) {
+      lostFragments.addAndGet(lost);
+      LOG.warn("Lost '{}' fragments, disk buffer full at '{}MB'", lost, maxQueueSize / 1000 / 1000);
+    }
+  }
+
+  // Writes and syncs given fragments at given position of the segment, then makes them visible to readers
+  private void append(Segment segment, int position, List<ByteBuffer> group) throws IOException {
+    if (group.isEmpty()) {
+      return;
+    }
+    ByteBuffer[] buffers = group.toArray(new ByteBuffer[group.size()]);
+    long size = 0;
+    for (ByteBuffer buffer : buffers) {
+      size += buffer.remaining();
+    }
+    FileChannel channel = segment.getChannel();
+    channel.position(position);
+    long written = 0;
+    while (written < size) {
+      written += channel.write(buffers);
+    }
+    if (isPersistent()) {
+      channel.force(false);
+    }
+    synchronized (lock) {
+      segment.size = (int) (position + size);
+      lock.notifyAll();
+    }
+  }
+
+  // Adds a new segment, reusing a recycled file if any, returns null if the queue is full
+  private Segment roll() throws IOException {
+    synchronized (lock) {
+      File file = getSegmentFile(nextSegmentId);
+      File free = freeFiles.poll();
+      if (free != null) {
+        Files.move(free.toPath(), file.toPath());
+      } else if (segments.size() >= maxSegments) {
+        return null;
+      }
+      Segment segment = new Segment(nextSegmentId, file, segmentSize);
+      segments.put(segment.id, segment);
+      nextSegmentId++;
+      return segment;
+    }
+  }
+
+  // Releases the segments before the one with given id, that have been completely consumed
+  private void recycleBefore(long segmentId) {
+    while (!segments.isEmpty() && segments.firstKey() < segmentId) {
+      Segment segment = segments.pollFirstEntry().getValue();
+      segment.close();
+      freeFiles.add(segment.file);
+    }
+  }
+
+  @Override
+  public int getLostFragmentsCountAndReset() {
+    return lostFragments.getAndSet(0);
+  }
+
+  @Override
+  public List<byte[]> poll(int maxFragments) throws IOException {
+    synchronized (lock) {
+      return read(maxFragments);
+    }
+  }
+
+  @Override
+  public List<byte[]> poll(int maxFragments, long waitTimeMillis) throws IOException, InterruptedException {
+    long deadline = System.currentTimeMillis() + waitTimeMillis;
+    synchronized (lock) {
+      List<byte[]> fragments = read(maxFragments);
+      long remaining = waitTimeMillis;
+      while (fragments == null && remaining > 0) {
+        lock.wait(remaining);
+        fragments = read(maxFragments);
+        remaining = deadline - System.currentTimeMillis();
+      }
+      return fragments;
+    }
+  }
+
+  // Must be called holding lock
+  private List<byte[]> read(int maxFragments) throws IOException {
+    List<byte[]> fragments = null;
+    while (fragments == null || fragments.size() < maxFragments) {
+      if (readPosition < readSegment.size) {
+        ByteBuffer map = readSegment.getMap();
+        int length = map.getInt(readPosition);
+        byte[] fragment = new byte[length];
+        map.position(readPosition + FRAGMENT_HEADER_SIZE);
+        map.get(fragment);
+        readPosition += FRAGMENT_HEADER_SIZE + length;
+        if (fragments == null) {
+          fragments = new ArrayList<>();
+        }
+        fragments.add(fragment);
+      } else if (readSegment != segments.lastEntry().getValue()) {
+        // The writer moved to another segment after completing this one
+        readSegment = segments.higherEntry(readSegment.id).getValue();
+        readPosition = 0;
+      } else {
+        break;
+      }
+    }
+    return fragments;
+  }
+
+  /**
+   * Returns the position after the last polled fragment, to be committed once the polled fragments are processed.
+   */
+  public String getPosition() {
+    synchronized (lock) {
+      return readSegment.id + ":" + readPosition;
+    }
+  }
+
+  /**
+   * Commits given position, the fragments before it are not polled again after a restart and their space is reused.
+   */
+  public void commit(String position) throws IOException {
+    String[] parts = position.split(":");
+    long segmentId = Long.parseLong(parts[0]);
+    int segmentPosition = Integer.parseInt(parts[1]);
+    if (isPersistent()) {
+      synchronized (writeLock) {
+        if (checkpointChannel != null) {
+          writeCheckpoint(segmentId, segmentPosition);
+        }
+      }
+    }
+    synchronized (lock) {
+      recycleBefore(Math.min(segmentId, readSegment.id));
+    }
+  }
+
+}
@@ -0,0 +1,163 @@
+/*
+ * Copyright 2018 StreamSets Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.streamsets.pipeline.lib.fragmentqueue;
+
+import com.google.common.collect.ImmutableList;
+import com.streamsets.pipeline.api.OnRecordError;
+import com.streamsets.pipeline.api.Stage;
+import com.streamsets.pipeline.sdk.ContextInfoCreator;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.util.Arrays;
+import java.util.List;
+
+public class TestSegmentedFragmentQueue {
+
+  @Rule
+  public TemporaryFolder tempFolder = new TemporaryFolder();
+
+  private static Stage.Context createContext() {
+    return ContextInfoCreator.createSourceContext("i", false, OnRecordError.TO_ERROR, ImmutableList.of("a"));
+  }
+
+  private static byte[] fragment(int size, int value) {
+    byte[] fragment = new byte[size];
+    Arrays.fill(fragment, (byte) value);
+    return fragment;
+  }
+
+  private static SegmentedFragmentQueue createQueue(String persistentDir) {
+    SegmentedFragmentQueue queue = new SegmentedFragmentQueue(1, persistentDir);
+    Assert.assertTrue(queue.init(createContext()).isEmpty());
+    return queue;
+  }
+
+  @Test
+  public void testWriteAndPoll() throws Exception {
+    SegmentedFragmentQueue queue = createQueue(null);
+    File dir = queue.getDir();
+    Assert.assertNull(queue.poll(4));
+    Assert.assertNull(queue.poll(4, 10));
+
+    queue.write(ImmutableList.of(fragment(100, 1), fragment(0, 2), fragment(200, 3)));
+    List<byte[]> got = queue.poll(2);
+    Assert.assertEquals(2, got.size());
+    Assert.assertArrayEquals(fragment(100, 1), got.get(0));
+    Assert.assertArrayEquals(fragment(0, 2), got.get(1));
+    got = queue.poll(2, 10);
+    Assert.assertEquals(1, got.size());
+    Assert.assertArrayEquals(fragment(200, 3), got.get(0));
+    Assert.assertNull(queue.poll(2));
+
+    queue.destroy();
+    // A non persistent queue does not survive destroy
+    Assert.assertFalse(dir.exists());
+  }
+
+  @Test
+  public void testFullQueueAndSegmentRecycling() throws Exception {
+    SegmentedFragmentQueue queue = createQueue(null);
+    // 1MB queue, 4 segments holding 2 of these fragments each
+    int size = queue.getSegmentSize() / 2 - 100;
+    for (int i = 0; i < 9; i++) {
+      queue.write(ImmutableList.of(fragment(size, i)));
+    }
+    // Too large for any segment
+    queue.write(ImmutableList.of(fragment(queue.getSegmentSize(), 0)));
+    Assert.assertEquals(2, queue.getLostFragmentsCountAndReset());
+    Assert.assertEquals(0, queue.getLostFragmentsCountAndReset());
+
+    List<byte[]> got = queue.poll(10);
+    Assert.assertEquals(8, got.size());
+    for (int i = 0; i < 8; i++) {
+      Assert.assertArrayEquals(fragment(size, i), got.get(i));
+    }
+
+    // Polled but not committed fragments still take their space
+    queue.write(ImmutableList.of(fragment(size, 8)));
+    Assert.assertEquals(1, queue.getLostFragmentsCountAndReset());
+
+    queue.commit(queue.getPosition());
+    queue.write(ImmutableList.of(fragment(size, 8), fragment(size, 9), fragment(size, 10)));
+    Assert.assertEquals(0, queue.getLostFragmentsCountAndReset());
+    got = queue.poll(10);
+    Assert.assertEquals(3, got.size());
+    Assert.assertArrayEquals(fragment(size, 10), got.get(2));
+    Assert.assertEquals(4, queue.getDir().listFiles().length);
+    queue.destroy();
+  }
+
+  @Test
+  public void testReplayAfterRestart() throws Exception {
+    String dir = tempFolder.getRoot().getAbsolutePath();
+    SegmentedFragmentQueue queue = createQueue(dir);
+    queue.write(ImmutableList.of(fragment(10, 1), fragment(10, 2), fragment(10, 3)));
+    Assert.assertEquals(1, queue.poll(1).size());
+    queue.commit(queue.getPosition());
+    // Polled but never committed, polled again after the restart
+    Assert.assertEquals(1, queue.poll(1).size());
+    queue.destroy();
+
+    // Simulating a write that was interrupted half way by a crash
+    File segment = new File(queue.getDir(), "segment-0000000000000000000.log");
+    try (RandomAccessFile raf = new RandomAccessFile(segment, "rw")) {
+      raf.seek(3 * 18);
+      raf.writeInt(10);
+      raf.writeInt(1234);
+      raf.write(fragment(5, 4));
+    }
+
+    queue = createQueue(dir);
+    queue.write(ImmutableList.of(fragment(10, 5)));
+    List<byte[]> got = queue.poll(10);
+    Assert.assertEquals(3, got.size());
+    Assert.assertArrayEquals(fragment(10, 2), got.get(0));
+    Assert.assertArrayEquals(fragment(10, 3), got.get(1));
+    Assert.assertArrayEquals(fragment(10, 5), got.get(2));
+    queue.commit(queue.getPosition());
+    queue.destroy();
+
+    queue = createQueue(dir);
+    Assert.assertNull(queue.poll(10));
+    queue.destroy();
+  }
+
+  @Test
+  public void testRecycledSegmentLeftoversAreNotReplayed() throws Exception {
+    String dir = tempFolder.getRoot().getAbsolutePath();
+    SegmentedFragmentQueue queue = createQueue(dir);
+    int size = queue.getSegmentSize() / 2 - 100;
+    for (int i = 0; i < 8; i++) {
+      queue.write(ImmutableList.of(fragment(size, i)));
+    }
+    Assert.assertEquals(8, queue.poll(10).size());
+    queue.commit(queue.getPosition());
+    // Goes to a recycled segment, right before the header of a fragment left there from when it was the first one
+    queue.write(ImmutableList.of(fragment(size, 8)));
+    queue.destroy();
+
+    queue = createQueue(dir);
+    List<byte[]> got = queue.poll(10);
+    Assert.assertEquals(1, got.size());
+    Assert.assertArrayEquals(fragment(size, 8), got.get(0));
+    queue.destroy();
+  }
+}
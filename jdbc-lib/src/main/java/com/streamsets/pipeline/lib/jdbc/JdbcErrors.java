@@ -81,6 +81,8 @@ public enum JdbcErrors implements ErrorCode {
   JDBC_55("The default value of '{}' must be in the format '" + JdbcLookupProcessor.DATE_FORMAT + "': {}"),
   JDBC_56("The default value of '{}' must be in the format '" + JdbcLookupProcessor.DATETIME_FORMAT + "': {}"),
   JDBC_57("Unsupported Multi-Row Operation to SQL Server"),
+  JDBC_58("Batch lookup query result doesn't include key column '{}'"),
+  JDBC_59("Batch lookup requires at least one key column"),
 
   JDBC_60("Cannot Serialize Offset: {}"),
   JDBC_61("Cannot Deserialize Offset: {}"),
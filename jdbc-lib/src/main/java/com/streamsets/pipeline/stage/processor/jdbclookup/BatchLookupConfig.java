@@ -0,0 +1,81 @@
+/*
+ * Copyright 2018 StreamSets Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.streamsets.pipeline.stage.processor.jdbclookup;
+
+import com.streamsets.pipeline.api.ConfigDef;
+import com.streamsets.pipeline.api.ListBeanModel;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class BatchLookupConfig {
+  @ConfigDef(
+      required = true,
+      type = ConfigDef.Type.BOOLEAN,
+      defaultValue = "false",
+      label = "Batch Lookup",
+      description = "Select to look up the keys of all the records of a batch that are not cached with a few " +
+          "queries, instead of running the SQL query once per record",
+      displayPosition = 200,
+      group = "#0"
+  )
+  public boolean enabled = false;
+
+  @ConfigDef(
+      required = true,
+      type = ConfigDef.Type.TEXT,
+      mode = ConfigDef.Mode.SQL,
+      label = "Batch Query",
+      description = "SELECT <column>, ... FROM <table name>, without any record expression. It must return the " +
+          "columns of the SQL query plus the key columns, a condition on the key columns is added for every group " +
+          "of keys. Key values are compared as text, numbers regardless of their type.",
+      dependsOn = "enabled",
+      triggeredByValue = "true",
+      displayPosition = 210,
+      group = "#0"
+  )
+  public String query;
+
+  @ConfigDef(
+      required = true,
+      type = ConfigDef.Type.MODEL,
+      defaultValue = "",
+      label = "Key Columns",
+      description = "Columns of the batch query matched against record fields. Key columns are not added to the " +
+          "records unless they are in the column mappings.",
+      dependsOn = "enabled",
+      triggeredByValue = "true",
+      displayPosition = 220,
+      group = "#0"
+  )
+  @ListBeanModel
+  public List<JdbcLookupKeyColumn> keyColumns = new ArrayList<>();
+
+  @ConfigDef(
+      required = true,
+      type = ConfigDef.Type.NUMBER,
+      defaultValue = "1000",
+      min = 1,
+      label = "Max Parameters per Query",
+      description = "Maximum number of key values bound to a single batch query, for example 1000 for Oracle or " +
+          "2000 for SQL Server",
+      dependsOn = "enabled",
+      triggeredByValue = "true",
+      displayPosition = 230,
+      group = "#0"
+  )
+  public int maxParameters = 1000;
+}
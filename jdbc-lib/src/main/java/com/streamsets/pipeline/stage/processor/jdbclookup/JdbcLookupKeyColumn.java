@@ -0,0 +1,58 @@
+/*
+ * Copyright 2018 StreamSets Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.streamsets.pipeline.stage.processor.jdbclookup;
+
+import com.streamsets.pipeline.api.ConfigDef;
+import com.streamsets.pipeline.api.FieldSelectorModel;
+
+public class JdbcLookupKeyColumn {
+
+  /**
+   * Constructor used for unit testing purposes
+   * @param columnName
+   * @param field
+   */
+  public JdbcLookupKeyColumn(final String columnName, final String field) {
+    this.columnName = columnName;
+    this.field = field;
+  }
+
+  /**
+   * Parameter-less constructor required.
+   */
+  public JdbcLookupKeyColumn() {}
+
+  @ConfigDef(
+      required = true,
+      type = ConfigDef.Type.STRING,
+      defaultValue = "",
+      label = "Column Name",
+      description = "The key column in the batch query result.",
+      displayPosition = 10
+  )
+  public String columnName;
+
+  @ConfigDef(
+      required = true,
+      type = ConfigDef.Type.MODEL,
+      defaultValue = "",
+      label = "SDC Field",
+      description = "The field of the record holding the key value.",
+      displayPosition = 20
+  )
+  @FieldSelectorModel(singleValued = true)
+  public String field;
+}
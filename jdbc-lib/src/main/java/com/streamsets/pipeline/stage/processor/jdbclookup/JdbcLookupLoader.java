@@ -21,6 +21,7 @@ import com.google.common.cache.CacheLoader;
 import com.streamsets.pipeline.api.Field;
 import com.streamsets.pipeline.api.Stage;
 import com.streamsets.pipeline.api.StageException;
+import com.streamsets.pipeline.api.impl.Utils;
 import com.streamsets.pipeline.api.base.OnRecordErrorException;
 import com.streamsets.pipeline.lib.jdbc.DataType;
 import com.streamsets.pipeline.lib.jdbc.JdbcErrors;
@@ -31,12 +32,19 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import javax.sql.DataSource;
+import java.math.BigDecimal;
 import java.sql.Connection;
+import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.ResultSetMetaData;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.sql.Timestamp;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
@@ -127,4 +135,135 @@ public class JdbcLookupLoader extends CacheLoader<String, Optional<List<Map<Stri
 
     return Optional.of(lookupItems);
   }
+
+  /**
+   * Looks up the rows of all given keys (values of the key columns) with as few queries as possible, each query binds
+   * at most maxParameters values. Returns the rows found by normalized key, see {@link #normalizeKey(List)}.
+   */
+  public Map<List<String>, List<Map<String, Field>>> lookupValuesForKeys(
+      String query,
+      List<String> keyColumns,
+      Collection<List<Object>> keys,
+      int maxParameters
+  ) throws StageException {
+    Map<List<String>, List<Map<String, Field>>> lookupItems = new HashMap<>();
+    List<List<Object>> allKeys = new ArrayList<>(keys);
+    int keysPerQuery = Math.max(1, maxParameters / keyColumns.size());
+    for (int from = 0; from < allKeys.size(); from += keysPerQuery) {
+      List<List<Object>> queryKeys = allKeys.subList(from, Math.min(from + keysPerQuery, allKeys.size()));
+      String preparedQuery = getBatchQuery(query, keyColumns, queryKeys.size());
+      LOG.debug("Executing SQL:  {} for {} keys", preparedQuery, queryKeys.size());
+
+      Timer.Context t = selectTimer.time();
+      try (
+        Connection connection = dataSource.getConnection();
+        PreparedStatement stmt = connection.prepareStatement(preparedQuery)
+      ) {
+        int index = 1;
+        for (List<Object> key : queryKeys) {
+          for (Object value : key) {
+            stmt.setObject(index++, (value instanceof Date) ? new Timestamp(((Date) value).getTime()) : value);
+          }
+        }
+        try (ResultSet resultSet = stmt.executeQuery()) {
+          // Stop timer immediately so that we're calculating only query execution time and not the processing time
+          t.stop();
+          t = null;
+
+          while (resultSet.next()) {
+            ResultSetMetaData md = resultSet.getMetaData();
+
+            LinkedHashMap<String, Field> fields = JdbcUtil.resultSetToFields(resultSet,
+              maxClobSize,
+              maxBlobSize,
+              columnsToTypes,
+              errorRecordHandler,
+              UnknownTypeAction.STOP_PIPELINE
+            );
+
+            int numColumns = md.getColumnCount();
+            if (fields.size() != numColumns) {
+              throw new OnRecordErrorException(JdbcErrors.JDBC_35, fields.size(), numColumns);
+            }
+
+            List<Object> key = new ArrayList<>(keyColumns.size());
+            for (String keyColumn : keyColumns) {
+              key.add(getKeyValue(fields, keyColumn));
+            }
+            lookupItems.computeIfAbsent(normalizeKey(key), k -> new ArrayList<>()).add(fields);
+          }
+        }
+      } catch (SQLException e) {
+        LOG.error(JdbcErrors.JDBC_02.getMessage(), preparedQuery, e);
+        throw new StageException(JdbcErrors.JDBC_02, preparedQuery, e.getMessage());
+      } finally {
+        if (t != null) {
+          t.stop();
+        }
+        selectMeter.mark();
+      }
+    }
+    return lookupItems;
+  }
+
+  // Result set column names might not have the case used in the configuration, e.g. upper case in Oracle. The key
+  // column is removed from the row unless it's mapped to a field, the SQL query that is replaced might not return it.
+  private Object getKeyValue(Map<String, Field> fields, String keyColumn) throws StageException {
+    Iterator<Map.Entry<String, Field>> iterator = fields.entrySet().iterator();
+    while (iterator.hasNext()) {
+      Map.Entry<String, Field> entry = iterator.next();
+      if (entry.getKey().equalsIgnoreCase(keyColumn)) {
+        if (!columnsToTypes.containsKey(entry.getKey())) {
+          iterator.remove();
+        }
+        return entry.getValue().getValue();
+      }
+    }
+    throw new StageException(JdbcErrors.JDBC_58, keyColumn);
+  }
+
+  /**
+   * Returns given batch query restricted to the given number of keys, with one parameter per key column and key.
+   */
+  static String getBatchQuery(String query, List<String> keyColumns, int keys) {
+    StringBuilder sql = new StringBuilder("SELECT * FROM (").append(query).append(") SDC_LOOKUP WHERE ");
+    if (keyColumns.size() == 1) {
+      sql.append(keyColumns.get(0)).append(" IN (");
+      for (int i = 0; i < keys; i++) {
+        sql.append((i == 0) ? "?" : ", ?");
+      }
+      sql.append(")");
+    } else {
+      for (int i = 0; i < keys; i++) {
+        sql.append((i == 0) ? "(" : " OR (");
+        for (int j = 0; j < keyColumns.size(); j++) {
+          sql.append((j == 0) ? "" : " AND ").append(keyColumns.get(j)).append(" = ?");
+        }
+        sql.append(")");
+      }
+    }
+    return sql.toString();
+  }
+
+  /**
+   * Returns comparable representation of given key values, the record field and the column holding the same key can
+   * have different types (e.g. LONG field and INTEGER column).
+   */
+  static List<String> normalizeKey(List<Object> key) {
+    List<String> normalized = new ArrayList<>(key.size());
+    for (Object value : key) {
+      if (value instanceof BigDecimal) {
+        normalized.add(((BigDecimal) value).stripTrailingZeros().toPlainString());
+      } else if (value instanceof Integer || value instanceof Long || value instanceof Short || value instanceof Byte) {
+        normalized.add(String.valueOf(((Number) value).longValue()));
+      } else if (value instanceof Number) {
+        normalized.add(new BigDecimal(((Number) value).doubleValue()).stripTrailingZeros().toPlainString());
+      } else if (value instanceof Date) {
+        normalized.add(String.valueOf(((Date) value).getTime()));
+      } else {
+        normalized.add(String.valueOf(value));
+      }
+    }
+    return normalized;
+  }
 }
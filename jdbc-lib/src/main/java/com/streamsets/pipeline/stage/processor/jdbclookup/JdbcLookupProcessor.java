@@ -29,6 +29,7 @@ import com.streamsets.pipeline.api.base.SingleLaneRecordProcessor;
 import com.streamsets.pipeline.api.el.ELEval;
 import com.streamsets.pipeline.api.el.ELEvalException;
 import com.streamsets.pipeline.api.el.ELVars;
+import com.streamsets.pipeline.container.el.ResettableELVars;
 import com.streamsets.pipeline.lib.cache.CacheCleaner;
 import com.streamsets.pipeline.lib.el.RecordEL;
 import com.streamsets.pipeline.lib.jdbc.DataType;
@@ -46,6 +47,7 @@ import com.streamsets.pipeline.stage.processor.kv.LookupUtils;
 import com.zaxxer.hikari.HikariDataSource;
 import java.util.ArrayList;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.Properties;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
@@ -75,9 +77,11 @@ public class JdbcLookupProcessor extends SingleLaneRecordProcessor {
   private static final String HIKARI_CONFIG_PREFIX = "hikariConfigBean.";
   private static final String CONNECTION_STRING = HIKARI_CONFIG_PREFIX + "connectionString";
   private static final String COLUMN_MAPPINGS = "columnMappings";
+  private static final String BATCH_KEY_COLUMNS = "batchLookupConfig.keyColumns";
   private final CacheConfig cacheConfig;
 
   private ELEval queryEval;
+  private ELVars queryVars;
 
   private final String query;
   private final List<JdbcFieldColumnMapping> columnMappings;
@@ -85,6 +89,7 @@ public class JdbcLookupProcessor extends SingleLaneRecordProcessor {
   private final int maxClobSize;
   private final int maxBlobSize;
   private final HikariPoolConfigBean hikariConfigBean;
+  private final BatchLookupConfig batchLookupConfig;
 
   private ErrorRecordHandler errorRecordHandler;
   private HikariDataSource dataSource = null;
@@ -92,14 +97,18 @@ public class JdbcLookupProcessor extends SingleLaneRecordProcessor {
   private Map<String, String> columnsToDefaults = new HashMap<>();
   private Map<String, DataType> columnsToTypes = new HashMap<>();
 
+  private JdbcLookupLoader loader;
   private LoadingCache<String, Optional<List<Map<String, Field>>>> cache;
   private Optional<List<Map<String, Field>>> defaultValue;
   private CacheCleaner cacheCleaner;
   private final MissingValuesBehavior missingValuesBehavior;
 
-  private List<ExecutorService> generationExecutors = new ArrayList<>();
+  private ExecutorService generationExecutor;
   private int preprocessThreads = 0;
 
+  // Values looked up by the batch lookup for the current batch, by prepared query
+  private final Map<String, Optional<List<Map<String, Field>>>> batchValues = new HashMap<>();
+
   public JdbcLookupProcessor(
       String query,
       List<JdbcFieldColumnMapping> columnMappings,
@@ -108,7 +117,8 @@ public class JdbcLookupProcessor extends SingleLaneRecordProcessor {
       int maxClobSize,
       int maxBlobSize,
       HikariPoolConfigBean hikariConfigBean,
-      CacheConfig cacheConfig
+      CacheConfig cacheConfig,
+      BatchLookupConfig batchLookupConfig
   ) {
     this.query = query;
     this.columnMappings = columnMappings;
@@ -118,6 +128,7 @@ public class JdbcLookupProcessor extends SingleLaneRecordProcessor {
     this.maxBlobSize = maxBlobSize;
     this.hikariConfigBean = hikariConfigBean;
     this.cacheConfig = cacheConfig;
+    this.batchLookupConfig = batchLookupConfig;
   }
 
   /** {@inheritDoc} */
@@ -130,6 +141,7 @@ public class JdbcLookupProcessor extends SingleLaneRecordProcessor {
     Processor.Context context = getContext();
 
     queryEval = getContext().createELEval("query");
+    queryVars = getContext().createELVars();
 
     issues = hikariConfigBean.validateConfigs(context, issues);
 
@@ -141,6 +153,10 @@ public class JdbcLookupProcessor extends SingleLaneRecordProcessor {
       }
     }
 
+    if (batchLookupConfig.enabled && batchLookupConfig.keyColumns.isEmpty()) {
+      issues.add(context.createConfigIssue(Groups.JDBC.name(), BATCH_KEY_COLUMNS, JdbcErrors.JDBC_59));
+    }
+
     if(issues.isEmpty()) {
       this.defaultValue = calculateDefault(context, issues);
     }
@@ -148,9 +164,14 @@ public class JdbcLookupProcessor extends SingleLaneRecordProcessor {
     if (issues.isEmpty()) {
       cache = buildCache();
       cacheCleaner = new CacheCleaner(cache, "JdbcLookupProcessor", 10 * 60 * 1000);
-      if (cacheConfig.enabled) {
+      // The batch lookup already loads all the records of the batch, no need to warm the cache
+      if (cacheConfig.enabled && !batchLookupConfig.enabled) {
         preprocessThreads = Math.min(hikariConfigBean.minIdle, Runtime.getRuntime().availableProcessors()-1);
         preprocessThreads = Math.max(preprocessThreads, 1);
+        generationExecutor = Executors.newFixedThreadPool(
+            preprocessThreads,
+            new ThreadFactoryBuilder().setNameFormat("JDBC Lookup Cache Warmer %d").build()
+        );
       }
     }
     // If issues is not empty, the UI will inform the user of each configuration issue in the list.
@@ -233,7 +254,7 @@ public class JdbcLookupProcessor extends SingleLaneRecordProcessor {
   @Override
   public void destroy() {
     closeQuietly(dataSource);
-    for (ExecutorService generationExecutor : generationExecutors) {
+    if (generationExecutor != null) {
       generationExecutor.shutdown();
       try {
         generationExecutor.awaitTermination(5, TimeUnit.SECONDS);
@@ -257,9 +278,7 @@ public class JdbcLookupProcessor extends SingleLaneRecordProcessor {
       Record record = it.next();
       recordNum++;
       try {
-        ELVars elVars = getContext().createELVars();
-        RecordEL.setRecordInContext(elVars, record);
-        String preparedQuery = queryEval.eval(elVars, query, String.class);
+        String preparedQuery = prepareQuery(record);
         preparedQueries.get((recordNum-1) % preprocessThreads).add(preparedQuery);
       } catch (ELEvalException e) {
         LOG.error(JdbcErrors.JDBC_01.getMessage(), query, e);
@@ -268,11 +287,8 @@ public class JdbcLookupProcessor extends SingleLaneRecordProcessor {
     }
 
     for (int i =0; i < preprocessThreads; i++) {
-      generationExecutors.add(Executors.newSingleThreadExecutor(new ThreadFactoryBuilder().setNameFormat("JDBC Lookup "
-          + "Cache Warmer"+i)
-          .build()));
       final List<String> preparedQueriesPart = preparedQueries.get(i);
-      generationExecutors.get(i).submit(() -> {
+      generationExecutor.submit(() -> {
         try {
           for ( String query : preparedQueriesPart)
             cache.get(query);
@@ -293,18 +309,89 @@ public class JdbcLookupProcessor extends SingleLaneRecordProcessor {
     if (preprocessThreads > 0) {
       preprocess(batch);
     }
+    if (batchLookupConfig.enabled) {
+      lookupBatch(batch);
+    }
     //Normal processing per record
-    super.process(batch, batchMaker);
+    try {
+      super.process(batch, batchMaker);
+    } finally {
+      batchValues.clear();
+    }
+  }
+
+  /**
+   * Looks up the keys of all the records of the batch whose query is not cached with as few batch queries as
+   * possible. Records are still processed one by one, using the looked up values instead of running their query.
+   */
+  private void lookupBatch(Batch batch) {
+    Map<List<String>, List<Object>> keys = new LinkedHashMap<>();
+    Map<String, List<String>> queriesToKeys = new HashMap<>();
+    Iterator<Record> it = batch.getRecords();
+    while (it.hasNext()) {
+      Record record = it.next();
+      String preparedQuery;
+      try {
+        preparedQuery = prepareQuery(record);
+      } catch (ELEvalException e) {
+        // Reported when the record is processed
+        continue;
+      }
+      if (queriesToKeys.containsKey(preparedQuery) || cache.getIfPresent(preparedQuery) != null) {
+        continue;
+      }
+      List<Object> key = new ArrayList<>(batchLookupConfig.keyColumns.size());
+      for (JdbcLookupKeyColumn keyColumn : batchLookupConfig.keyColumns) {
+        Field field = record.get(keyColumn.field);
+        if (field == null || field.getValue() == null) {
+          // Can't be matched against the key columns, the record runs its own query
+          key = null;
+          break;
+        }
+        key.add(field.getValue());
+      }
+      if (key != null) {
+        List<String> normalizedKey = JdbcLookupLoader.normalizeKey(key);
+        keys.putIfAbsent(normalizedKey, key);
+        queriesToKeys.put(preparedQuery, normalizedKey);
+      }
+    }
+
+    if (keys.isEmpty()) {
+      return;
+    }
+
+    List<String> keyColumns = new ArrayList<>(batchLookupConfig.keyColumns.size());
+    for (JdbcLookupKeyColumn keyColumn : batchLookupConfig.keyColumns) {
+      keyColumns.add(keyColumn.columnName);
+    }
+    try {
+      Map<List<String>, List<Map<String, Field>>> values = loader.lookupValuesForKeys(
+          batchLookupConfig.query,
+          keyColumns,
+          keys.values(),
+          batchLookupConfig.maxParameters
+      );
+      for (Map.Entry<String, List<String>> entry : queriesToKeys.entrySet()) {
+        batchValues.put(entry.getKey(), Optional.ofNullable(values.get(entry.getValue())));
+      }
+    } catch (StageException e) {
+      LOG.warn("Batch lookup failed, running the query of every record: {}", e.toString(), e);
+    }
   }
 
   /** {@inheritDoc} */
   @Override
   protected void process(Record record, SingleLaneBatchMaker batchMaker) throws StageException {
     try {
-      ELVars elVars = getContext().createELVars();
-      RecordEL.setRecordInContext(elVars, record);
-      String preparedQuery = queryEval.eval(elVars, query, String.class);
-      Optional<List<Map<String, Field>>> entry = cache.get(preparedQuery);
+      String preparedQuery = prepareQuery(record);
+      Optional<List<Map<String, Field>>> batchEntry = batchValues.get(preparedQuery);
+      Optional<List<Map<String, Field>>> entry;
+      if (batchEntry == null) {
+        entry = cache.get(preparedQuery);
+      } else {
+        entry = cache.get(preparedQuery, () -> batchEntry);
+      }
 
       if (!entry.isPresent()) {
         // No results
@@ -350,6 +437,19 @@ public class JdbcLookupProcessor extends SingleLaneRecordProcessor {
     }
   }
 
+  /**
+   * Evaluates the query for the given record. The variables are shared by all records, so they are reset afterwards
+   * to not keep the record referenced after it has been processed.
+   */
+  private String prepareQuery(Record record) throws ELEvalException {
+    RecordEL.setRecordInContext(queryVars, record);
+    try {
+      return queryEval.eval(queryVars, query, String.class);
+    } finally {
+      ResettableELVars.reset(queryVars);
+    }
+  }
+
   private void setFieldsInRecord(Record record, Map<String, Field>fields) {
     for (Map.Entry<String, Field> entry : fields.entrySet()) {
       String columnName = entry.getKey();
@@ -382,7 +482,7 @@ public class JdbcLookupProcessor extends SingleLaneRecordProcessor {
 
   @SuppressWarnings("unchecked")
   private LoadingCache<String, Optional<List<Map<String, Field>>>> buildCache() {
-    JdbcLookupLoader loader = new JdbcLookupLoader(
+    loader = new JdbcLookupLoader(
       getContext(),
       dataSource,
       columnsToTypes,
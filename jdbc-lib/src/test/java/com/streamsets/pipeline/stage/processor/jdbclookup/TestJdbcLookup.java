@@ -22,6 +22,7 @@ import com.streamsets.pipeline.api.OnRecordError;
 import com.streamsets.pipeline.api.Record;
 import com.streamsets.pipeline.api.Stage;
 import com.streamsets.pipeline.api.base.OnRecordErrorException;
+import com.streamsets.pipeline.api.el.ELVars;
 import com.streamsets.pipeline.lib.jdbc.DataType;
 import com.streamsets.pipeline.lib.jdbc.HikariPoolConfigBean;
 import com.streamsets.pipeline.lib.jdbc.JdbcFieldColumnMapping;
@@ -38,8 +39,10 @@ import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
+import org.powermock.reflect.Whitebox;
 
 import javax.validation.constraints.AssertTrue;
+import java.math.BigDecimal;
 import java.sql.Connection;
 import java.sql.DriverManager;
 import java.sql.SQLException;
@@ -725,4 +728,137 @@ public class TestJdbcLookup {
       processorRunner.runDestroy();
     }
   }
+
+  @Test
+  public void testBatchLookup() throws Exception {
+    List<JdbcFieldColumnMapping> columnMappings = ImmutableList.of(new JdbcFieldColumnMapping("P_ID", "[2]"));
+
+    JdbcLookupDProcessor processor = createProcessor();
+    processor.cacheConfig.enabled = true;
+    processor.batchLookupConfig = new BatchLookupConfig();
+    processor.batchLookupConfig.enabled = true;
+    processor.batchLookupConfig.query = "SELECT P_ID, FIRST_NAME, LAST_NAME FROM TEST.TEST_TABLE";
+    processor.batchLookupConfig.keyColumns = ImmutableList.of(
+        new JdbcLookupKeyColumn("FIRST_NAME", "[0]"),
+        new JdbcLookupKeyColumn("LAST_NAME", "[1]")
+    );
+    // Forces the keys to be split over several queries
+    processor.batchLookupConfig.maxParameters = 2;
+
+    ProcessorRunner processorRunner = new ProcessorRunner.Builder(JdbcLookupDProcessor.class, processor)
+        .addConfiguration("query", listQuery)
+        .addConfiguration("columnMappings", columnMappings)
+        .addConfiguration("multipleValuesBehavior", MultipleValuesBehavior.FIRST_ONLY)
+        .addConfiguration("missingValuesBehavior", MissingValuesBehavior.PASS_RECORD_ON)
+        .addConfiguration("maxClobSize", 1000)
+        .addConfiguration("maxBlobSize", 1000)
+        .addOutputLane("lane")
+        .build();
+
+    List<Record> records = new ArrayList<>();
+    String[][] names = {{"Adam", "Kunicki"}, {"Jon", "Natkins"}, {"Pat", "Patterson"}, {"Jon", "Daulton"}};
+    for (String[] name : names) {
+      Record record = RecordCreator.create();
+      List<Field> fields = new ArrayList<>();
+      fields.add(Field.create(name[0]));
+      fields.add(Field.create(name[1]));
+      record.set(Field.create(fields));
+      records.add(record);
+    }
+
+    processorRunner.runInit();
+    try {
+      List<Record> outputRecords = processorRunner.runProcess(records).getRecords().get("lane");
+      Assert.assertEquals(4, outputRecords.size());
+      Assert.assertEquals(1, outputRecords.get(0).get("[2]").getValueAsInteger());
+      Assert.assertEquals(2, outputRecords.get(1).get("[2]").getValueAsInteger());
+      Assert.assertNull(outputRecords.get(2).get("[2]"));
+      Assert.assertEquals(3, outputRecords.get(3).get("[2]").getValueAsInteger());
+      // Key columns that are not mapped are not added to the records
+      Assert.assertEquals(3, outputRecords.get(0).get().getValueAsList().size());
+    } finally {
+      processorRunner.runDestroy();
+    }
+  }
+
+  @Test
+  public void testBatchLookupWithoutKeyColumns() throws Exception {
+    JdbcLookupDProcessor processor = createProcessor();
+    processor.batchLookupConfig = new BatchLookupConfig();
+    processor.batchLookupConfig.enabled = true;
+    processor.batchLookupConfig.query = "SELECT P_ID, FIRST_NAME, LAST_NAME FROM TEST.TEST_TABLE";
+
+    ProcessorRunner processorRunner = new ProcessorRunner.Builder(JdbcLookupDProcessor.class, processor)
+        .addConfiguration("query", listQuery)
+        .addConfiguration("columnMappings", ImmutableList.of(new JdbcFieldColumnMapping("P_ID", "[2]")))
+        .addConfiguration("multipleValuesBehavior", MultipleValuesBehavior.FIRST_ONLY)
+        .addConfiguration("missingValuesBehavior", MissingValuesBehavior.PASS_RECORD_ON)
+        .addConfiguration("maxClobSize", 1000)
+        .addConfiguration("maxBlobSize", 1000)
+        .addOutputLane("lane")
+        .build();
+
+    List<Stage.ConfigIssue> issues = processorRunner.runValidateConfigs();
+    assertEquals(1, issues.size());
+    Assert.assertTrue(issues.get(0).toString().contains("JDBC_59"));
+  }
+
+  @Test
+  public void testQueryVarsClearedAfterEachBatch() throws Exception {
+    JdbcLookupDProcessor processor = createProcessor();
+    processor.batchLookupConfig = new BatchLookupConfig();
+    processor.batchLookupConfig.enabled = true;
+    processor.batchLookupConfig.query = "SELECT P_ID, FIRST_NAME, LAST_NAME FROM TEST.TEST_TABLE";
+    processor.batchLookupConfig.keyColumns = ImmutableList.of(
+        new JdbcLookupKeyColumn("FIRST_NAME", "[0]"),
+        new JdbcLookupKeyColumn("LAST_NAME", "[1]")
+    );
+
+    ProcessorRunner processorRunner = new ProcessorRunner.Builder(JdbcLookupDProcessor.class, processor)
+        .addConfiguration("query", listQuery)
+        .addConfiguration("columnMappings", ImmutableList.of(new JdbcFieldColumnMapping("P_ID", "[2]")))
+        .addConfiguration("multipleValuesBehavior", MultipleValuesBehavior.FIRST_ONLY)
+        .addConfiguration("missingValuesBehavior", MissingValuesBehavior.PASS_RECORD_ON)
+        .addConfiguration("maxClobSize", 1000)
+        .addConfiguration("maxBlobSize", 1000)
+        .addOutputLane("lane")
+        .build();
+
+    String[][] names = {{"Adam", "Kunicki"}, {"Jon", "Natkins"}};
+    processorRunner.runInit();
+    try {
+      ELVars queryVars = Whitebox.getInternalState(processor.getStage(), "queryVars");
+      for (int i = 0; i < names.length; i++) {
+        Record record = RecordCreator.create();
+        List<Field> fields = new ArrayList<>();
+        fields.add(Field.create(names[i][0]));
+        fields.add(Field.create(names[i][1]));
+        record.set(Field.create(fields));
+
+        List<Record> outputRecords = processorRunner.runProcess(ImmutableList.of(record)).getRecords().get("lane");
+        Assert.assertEquals(1, outputRecords.size());
+        Assert.assertEquals(i + 1, outputRecords.get(0).get("[2]").getValueAsInteger());
+        // The variables are reused, the processed record must not stay referenced by them
+        Assert.assertNull(queryVars.getContextVariable("record"));
+      }
+    } finally {
+      processorRunner.runDestroy();
+    }
+  }
+
+  @Test
+  public void testBatchQuery() {
+    Assert.assertEquals(
+        "SELECT * FROM (SELECT * FROM T) SDC_LOOKUP WHERE ID IN (?, ?, ?)",
+        JdbcLookupLoader.getBatchQuery("SELECT * FROM T", ImmutableList.of("ID"), 3)
+    );
+    Assert.assertEquals(
+        "SELECT * FROM (SELECT * FROM T) SDC_LOOKUP WHERE (A = ? AND B = ?) OR (A = ? AND B = ?)",
+        JdbcLookupLoader.getBatchQuery("SELECT * FROM T", ImmutableList.of("A", "B"), 2)
+    );
+    Assert.assertEquals(
+        JdbcLookupLoader.normalizeKey(ImmutableList.of(1, "a")),
+        JdbcLookupLoader.normalizeKey(ImmutableList.of(new BigDecimal("1.00"), "a"))
+    );
+  }
 }
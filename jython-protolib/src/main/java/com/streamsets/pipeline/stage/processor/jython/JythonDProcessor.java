@@ -26,7 +26,7 @@ import com.streamsets.pipeline.stage.processor.scripting.ProcessingMode;
 import com.streamsets.pipeline.stage.processor.scripting.ProcessingModeChooserValues;
 
 @StageDef(
-    version = 2,
+    version = 3,
     label = "Jython Evaluator",
     description = "Processes records using Jython",
     icon = "jython.png",
@@ -230,9 +230,21 @@ public class JythonDProcessor extends DProcessor {
       mode = ConfigDef.Mode.PYTHON)
   public String destroyScript = "";
 
+  @ConfigDef(
+      required = true,
+      type = ConfigDef.Type.BOOLEAN,
+      defaultValue = "false",
+      label = "Lazy Record View",
+      description = "Record fields are converted only when the script reads them and only the changed ones are " +
+          "converted back. Maps and lists are Java collections instead of Python dicts and lists.",
+      displayPosition = 50,
+      group = "JYTHON"
+  )
+  public boolean lazyRecordView = false;
+
   @Override
   protected Processor createProcessor() {
-    return new JythonProcessor(processingMode, script, initScript, destroyScript);
+    return new JythonProcessor(processingMode, script, initScript, destroyScript, lazyRecordView);
   }
 
 }
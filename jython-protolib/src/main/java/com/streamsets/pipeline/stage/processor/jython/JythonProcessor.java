@@ -42,8 +42,18 @@ public class JythonProcessor extends AbstractScriptingProcessor {
 
   public static final String JYTHON_ENGINE = "jython";
 
+  public JythonProcessor(
+      ProcessingMode processingMode,
+      String script,
+      String initScript,
+      String destroyScript,
+      boolean lazyRecordView
+  ) {
+    super(LOG, JYTHON_ENGINE, Groups.JYTHON.name(), processingMode, script, initScript, destroyScript, lazyRecordView);
+  }
+
   public JythonProcessor(ProcessingMode processingMode, String script, String initScript, String destroyScript) {
-    super(LOG, JYTHON_ENGINE, Groups.JYTHON.name(), processingMode, script, initScript, destroyScript);
+    this(processingMode, script, initScript, destroyScript, false);
   }
 
   public JythonProcessor(ProcessingMode processingMode, String script) {
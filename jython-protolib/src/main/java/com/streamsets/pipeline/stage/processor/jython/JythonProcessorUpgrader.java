@@ -32,6 +32,12 @@ public class JythonProcessorUpgrader implements StageUpgrader {
     switch(fromVersion) { // NOSONAR
       case 1:
         upgradeV1ToV2(configs);
+        if (toVersion == 2) {
+          break;
+        }
+        // fall through
+      case 2:
+        upgradeV2ToV3(configs);
         break;
       default:
         throw new IllegalStateException(Utils.format("Unexpected fromVersion {}", fromVersion));
@@ -54,4 +60,8 @@ public class JythonProcessorUpgrader implements StageUpgrader {
     configs.removeAll(configsToRemove);
     configs.addAll(configsToAdd);
   }
+
+  private void upgradeV2ToV3(List<Config> configs) {
+    configs.add(new Config("lazyRecordView", false));
+  }
 }
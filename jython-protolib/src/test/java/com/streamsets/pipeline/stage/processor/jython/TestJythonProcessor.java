@@ -202,6 +202,39 @@ public class TestJythonProcessor {
     ScriptingProcessorTestUtil.verifyListMap(JythonDProcessor.class, processor);
   }
 
+  @Test
+  public void testLazyRecordView() throws Exception {
+    Processor processor = new JythonProcessor(
+        ProcessingMode.RECORD,
+        "for record in records:\n" +
+            "  record.value['a']['x'] = 2\n" +
+            "  record.value['b'].add(3)\n" +
+            "  record.value.remove('d')\n" +
+            "  record.value['e'] = 'new'\n" +
+            "  output.write(record)\n",
+        "",
+        "",
+        true
+    );
+    ScriptingProcessorTestUtil.verifyLazyRecordView(JythonDProcessor.class, processor);
+  }
+
+  @Test
+  public void testGlobalsNotSharedAcrossRecords() throws Exception {
+    Processor processor = new JythonProcessor(
+        ProcessingMode.RECORD,
+        "for record in records:\n" +
+            "  try:\n" +
+            "    seen\n" +
+            "    record.value['leaked'] = True\n" +
+            "  except NameError:\n" +
+            "    record.value['leaked'] = False\n" +
+            "  seen = True\n" +
+            "  output.write(record)\n"
+    );
+    ScriptingProcessorTestUtil.verifyGlobalsNotSharedAcrossRecords(JythonDProcessor.class, processor);
+  }
+
   @Test
   public void testMapCreation() throws Exception {
     Processor processor = new JythonProcessor(
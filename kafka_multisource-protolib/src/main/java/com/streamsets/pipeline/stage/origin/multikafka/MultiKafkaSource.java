@@ -146,7 +146,7 @@ public class MultiKafkaSource extends BasePushSource {
     ) throws StageException {
       String messageId = getMessageId(topic, partition, offset);
       List<Record> records = new ArrayList<>();
-      try(DataParser parser = Utils.checkNotNull(parserFactory, "Initialization failed").getParser(messageId, payload)) {
+      try(DataParser parser = Utils.checkNotNull(parserFactory, "Initialization failed").getMessageParser(messageId, payload)) {
         Record record = parser.parse();
         while (record != null) {
           record.getHeader().setAttribute(HeaderAttributeConstants.TOPIC, topic);
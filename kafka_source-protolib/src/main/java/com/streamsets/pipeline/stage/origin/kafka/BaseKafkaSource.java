@@ -225,7 +225,7 @@ public abstract class BaseKafkaSource extends BaseSource implements OffsetCommit
       );
       return records;
     }
-    try (DataParser parser = Utils.checkNotNull(parserFactory, "Initialization failed").getParser(messageId, payload)) {
+    try (DataParser parser = Utils.checkNotNull(parserFactory, "Initialization failed").getMessageParser(messageId, payload)) {
       Record record = parser.parse();
       while (record != null) {
         record.getHeader().setAttribute(HeaderAttributeConstants.TOPIC, conf.topic);
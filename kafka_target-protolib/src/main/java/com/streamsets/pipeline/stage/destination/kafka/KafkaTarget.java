@@ -22,6 +22,7 @@ import com.streamsets.pipeline.api.base.BaseTarget;
 import com.streamsets.pipeline.api.base.OnRecordErrorException;
 import com.streamsets.pipeline.kafka.api.SdcKafkaProducer;
 import com.streamsets.pipeline.lib.generator.DataGenerator;
+import com.streamsets.pipeline.lib.generator.RecordSerializer;
 import com.streamsets.pipeline.lib.kafka.KafkaErrors;
 import com.streamsets.pipeline.lib.kafka.exception.KafkaConnectionException;
 import com.streamsets.pipeline.stage.common.DefaultErrorRecordHandler;
@@ -46,6 +47,7 @@ public class KafkaTarget extends BaseTarget {
   private long recordCounter = 0;
   private SdcKafkaProducer kafkaProducer;
   private ErrorRecordHandler errorRecordHandler;
+  private RecordSerializer recordSerializer;
 
   public KafkaTarget(KafkaTargetConfig conf) {
     this.conf = conf;
@@ -57,6 +59,9 @@ public class KafkaTarget extends BaseTarget {
     conf.init(getContext(), issues);
     kafkaProducer = conf.getKafkaProducer();
     errorRecordHandler = new DefaultErrorRecordHandler(getContext());
+    if (issues.isEmpty()) {
+      recordSerializer = new RecordSerializer(conf.dataGeneratorFormatConfig.getDataGeneratorFactory());
+    }
     return issues;
   }
 
@@ -256,16 +261,19 @@ public class KafkaTarget extends BaseTarget {
   }
 
   private Object serializeRecord(Record record) throws StageException, IOException {
-    ByteArrayOutputStream baos = new ByteArrayOutputStream(1024);
-    DataGenerator generator = conf.dataGeneratorFormatConfig.getDataGeneratorFactory().getGenerator(baos);
-    generator.write(record);
-    generator.close();
-    return baos.toByteArray();
+    return recordSerializer.serialize(record);
   }
 
   @Override
   public void destroy() {
     LOG.info("Wrote {} number of records to Kafka Broker", recordCounter);
+    if (recordSerializer != null) {
+      try {
+        recordSerializer.close();
+      } catch (IOException e) {
+        LOG.warn("Error closing record serializer: {}", e.toString(), e);
+      }
+    }
     conf.destroy();
   }
 }
@@ -32,8 +32,7 @@ import com.streamsets.pipeline.api.el.ELVars;
 import com.streamsets.pipeline.api.impl.Utils;
 import com.streamsets.pipeline.lib.el.ELUtils;
 import com.streamsets.pipeline.lib.el.RecordEL;
-import com.streamsets.pipeline.lib.generator.DataGenerator;
-import com.streamsets.pipeline.lib.generator.DataGeneratorFactory;
+import com.streamsets.pipeline.lib.generator.RecordSerializer;
 import com.streamsets.pipeline.stage.common.DefaultErrorRecordHandler;
 import com.streamsets.pipeline.stage.common.ErrorRecordHandler;
 import com.streamsets.pipeline.stage.lib.aws.AWSRegions;
@@ -46,7 +45,6 @@ import com.streamsets.pipeline.stage.lib.kinesis.RandomPartitioner;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.util.Iterator;
@@ -66,7 +64,7 @@ public class KinesisTarget extends BaseTarget {
   private final Properties additionalConfigs = new Properties();
 
   private ErrorRecordHandler errorRecordHandler;
-  private DataGeneratorFactory generatorFactory;
+  private RecordSerializer recordSerializer;
   private KinesisProducer kinesisProducer;
   private Partitioner partitioner;
 
@@ -128,7 +126,7 @@ public class KinesisTarget extends BaseTarget {
           KINESIS_CONFIG_BEAN + ".dataGeneratorFormatConfig",
           issues
       );
-      generatorFactory = conf.dataFormatConfig.getDataGeneratorFactory();
+      recordSerializer = new RecordSerializer(conf.dataFormatConfig.getDataGeneratorFactory());
       try {
         KinesisProducerConfiguration producerConfig = KinesisProducerConfiguration
             .fromProperties(additionalConfigs)
@@ -182,6 +180,13 @@ public class KinesisTarget extends BaseTarget {
       kinesisProducer.flushSync();
       kinesisProducer.destroy();
     }
+    if (recordSerializer != null) {
+      try {
+        recordSerializer.close();
+      } catch (IOException e) {
+        LOG.warn("Error closing record serializer: {}", e.toString(), e);
+      }
+    }
     super.destroy();
   }
 
@@ -193,23 +198,20 @@ public class KinesisTarget extends BaseTarget {
 
     while (batchIterator.hasNext()) {
       Record record = batchIterator.next();
-      ByteArrayOutputStream bytes = new ByteArrayOutputStream(ONE_MB);
       try {
-        DataGenerator generator = generatorFactory.getGenerator(bytes);
-        generator.write(record);
-        generator.close();
+        byte[] bytes = recordSerializer.serialize(record);
 
-        if (bytes.size() > ONE_MB) {
+        if (bytes.length > ONE_MB) {
           errorRecordHandler.onError(
               new OnRecordErrorException(
                   record,
                   Errors.KINESIS_08,
-                  bytes.size()
+                  bytes.length
               )
           );
           continue;
         }
-        ByteBuffer data = ByteBuffer.wrap(bytes.toByteArray());
+        ByteBuffer data = ByteBuffer.wrap(bytes);
 
         String partitionerKey = null;
         if (conf.partitionStrategy == PartitionStrategy.EXPRESSION) {
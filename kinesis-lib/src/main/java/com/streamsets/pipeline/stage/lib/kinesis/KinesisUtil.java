@@ -199,14 +199,13 @@ public class KinesisUtil {
       DataParserFactory parserFactory
   ) throws DataParserException, IOException {
     final String recordId = createKinesisRecordId(shardId, kRecord);
-    DataParser parser = parserFactory.getParser(recordId, kRecord.getData().array());
-
     List<com.streamsets.pipeline.api.Record> records = new ArrayList<>();
-    com.streamsets.pipeline.api.Record r;
-    while ((r = parser.parse()) != null) {
-      records.add(r);
+    try (DataParser parser = parserFactory.getMessageParser(recordId, kRecord.getData().array())) {
+      com.streamsets.pipeline.api.Record r;
+      while ((r = parser.parse()) != null) {
+        records.add(r);
+      }
     }
-    parser.close();
     return records;
   }
 
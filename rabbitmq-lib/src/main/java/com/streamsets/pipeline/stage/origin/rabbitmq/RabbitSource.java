@@ -209,7 +209,7 @@ public class RabbitSource extends BaseSource implements OffsetCommitter {
 
   private List<Record> parseRabbitMessage(String id, byte[] data) throws StageException {
     List<Record> records = new ArrayList<>();
-    try (DataParser parser = parserFactory.getParser(id, data)) {
+    try (DataParser parser = parserFactory.getMessageParser(id, data)) {
       Record record = parser.parse();
       while (record != null) {
         records.add(record);
@@ -21,8 +21,7 @@ import com.streamsets.pipeline.api.Record;
 import com.streamsets.pipeline.api.StageException;
 import com.streamsets.pipeline.api.base.BaseTarget;
 import com.streamsets.pipeline.api.base.OnRecordErrorException;
-import com.streamsets.pipeline.lib.generator.DataGenerator;
-import com.streamsets.pipeline.lib.generator.DataGeneratorFactory;
+import com.streamsets.pipeline.lib.generator.RecordSerializer;
 import com.streamsets.pipeline.lib.operation.OperationType;
 import com.streamsets.pipeline.lib.util.ThreadUtil;
 import com.streamsets.pipeline.stage.common.DefaultErrorRecordHandler;
@@ -37,9 +36,9 @@ import redis.clients.jedis.Pipeline;
 import redis.clients.jedis.exceptions.JedisConnectionException;
 import redis.clients.jedis.exceptions.JedisException;
 
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.net.URI;
+import java.nio.charset.Charset;
 import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
@@ -47,7 +46,7 @@ import java.util.Map;
 
 public class RedisTarget extends BaseTarget {
   private ErrorRecordHandler errorRecordHandler;
-  private DataGeneratorFactory generatorFactory;
+  private RecordSerializer recordSerializer;
   private JedisPool pool;
   private Jedis jedis;
   private static final Logger LOG = LoggerFactory.getLogger(RedisTarget.class);
@@ -131,7 +130,7 @@ public class RedisTarget extends BaseTarget {
     }
 
     if(issues.isEmpty()) {
-      generatorFactory = conf.dataFormatConfig.getDataGeneratorFactory();
+      recordSerializer = new RecordSerializer(conf.dataFormatConfig.getDataGeneratorFactory());
       errorRecordHandler = new DefaultErrorRecordHandler(getContext());
     }
 
@@ -160,6 +159,13 @@ public class RedisTarget extends BaseTarget {
     if (pool != null) {
       pool.close();
     }
+    if (recordSerializer != null) {
+      try {
+        recordSerializer.close();
+      } catch (IOException e) {
+        LOG.warn("Error closing record serializer: {}", e.toString(), e);
+      }
+    }
     super.destroy();
   }
 
@@ -428,17 +434,13 @@ public class RedisTarget extends BaseTarget {
 
   private void doPublish(Batch batch) throws StageException {
     Iterator<Record> records = batch.getRecords();
-    ByteArrayOutputStream baos = new ByteArrayOutputStream();
       while (records.hasNext()) {
         Record record = records.next();
-        baos.reset();
         try {
-        DataGenerator generator = this.generatorFactory.getGenerator(baos);
-        generator.write(record);
-        generator.close();
+        String message = recordSerializer.serializeToString(record, Charset.defaultCharset());
 
         for (String channel : conf.channel) {
-          jedis.publish(channel, baos.toString());
+          jedis.publish(channel, message);
         }
         } catch (JedisConnectionException ex) {
           throw new StageException(Errors.REDIS_06, ex.toString(), ex);
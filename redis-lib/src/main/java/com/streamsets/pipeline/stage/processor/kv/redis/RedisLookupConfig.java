@@ -60,6 +60,20 @@ public class RedisLookupConfig {
   @ValueChooserModel(LookupModeChooserValues.class)
   public LookupMode mode;
 
+  @ConfigDef(
+      required = true,
+      type = ConfigDef.Type.NUMBER,
+      label = "Max Pipeline Depth",
+      description = "Maximum number of keys looked up in a single round trip to Redis",
+      defaultValue = "1000",
+      min = 1,
+      dependsOn = "mode",
+      triggeredByValue = "BATCH",
+      displayPosition = 15,
+      group = "#0"
+  )
+  public int maxPipelineDepth = 1000;
+
   @ConfigDef(
       required = true,
       type = ConfigDef.Type.MODEL,
@@ -15,6 +15,8 @@
  */
 package com.streamsets.pipeline.stage.processor.kv.redis;
 
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.Meter;
 import com.google.common.base.Optional;
 import com.google.common.cache.LoadingCache;
 import com.google.common.util.concurrent.UncheckedExecutionException;
@@ -67,6 +69,8 @@ public class RedisLookupProcessor extends BaseProcessor {
 
   private RedisStore store;
   private CacheCleaner cacheCleaner;
+  private Meter roundTripsMeter;
+  private Histogram roundTripsPerBatch;
 
   public RedisLookupProcessor(RedisLookupConfig conf) {
     this.conf = conf;
@@ -105,6 +109,8 @@ public class RedisLookupProcessor extends BaseProcessor {
       cache = LookupUtils.buildCache(store, conf.cache);
 
       cacheCleaner = new CacheCleaner(cache, "RedisLookupProcessor", 10 * 60 * 1000);
+      roundTripsMeter = getContext().createMeter("Round Trips");
+      roundTripsPerBatch = getContext().createHistogram("Round Trips Per Batch");
     }
 
     return issues;
@@ -117,6 +123,7 @@ public class RedisLookupProcessor extends BaseProcessor {
       cacheCleaner.periodicCleanUp();
       return;
     }
+    long roundTrips = store.getRoundTrips();
     if (conf.mode == BATCH) {
       doBatchLookup(batch, batchMaker);
     } else if (conf.mode == RECORD) {
@@ -124,6 +131,9 @@ public class RedisLookupProcessor extends BaseProcessor {
     } else {
       throw new IllegalArgumentException(Utils.format("Unrecognized lookup mode: '{}'", conf.mode));
     }
+    roundTrips = store.getRoundTrips() - roundTrips;
+    roundTripsMeter.mark(roundTrips);
+    roundTripsPerBatch.update(roundTrips);
   }
 
   private void doRecordLookup(Batch batch, BatchMaker batchMaker) throws StageException {
@@ -22,18 +22,23 @@ import org.apache.commons.lang3.tuple.Pair;
 import redis.clients.jedis.Jedis;
 import redis.clients.jedis.JedisPool;
 import redis.clients.jedis.JedisPoolConfig;
+import redis.clients.jedis.Pipeline;
+import redis.clients.jedis.Response;
 
 import java.net.URI;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
 
 public class RedisStore extends CacheLoader<Pair<String, DataType>, LookupValue> {
   private final RedisLookupConfig conf;
   private final JedisPool pool;
+  private final AtomicLong roundTrips = new AtomicLong();
 
   public RedisStore(RedisLookupConfig conf) {
     this.conf = conf;
@@ -76,7 +81,7 @@ public class RedisStore extends CacheLoader<Pair<String, DataType>, LookupValue>
         values = new LookupValue(jedis.get(key), type);
         break;
       case LIST:
-        values = new LookupValue(jedis.lrange(key, 0, jedis.llen(key)), type);
+        values = new LookupValue(jedis.lrange(key, 0, -1), type);
         break;
       case HASH:
         values = new LookupValue(jedis.hgetAll(key), type);
@@ -88,16 +93,82 @@ public class RedisStore extends CacheLoader<Pair<String, DataType>, LookupValue>
         values = null;
     }
     jedis.close();
+    roundTrips.incrementAndGet();
 
     return values;
   }
 
+  /**
+   * Looks up all given keys with as few round trips as possible, values are returned in the order of the keys.
+   *
+   * STRING keys are read with MGET, the other types with pipelined commands. A round trip carries at most
+   * conf.maxPipelineDepth keys so that neither Redis nor the client have to buffer huge replies.
+   */
   public List<LookupValue> get(List<Pair<String, DataType>> keys) {
-    List<LookupValue> result = new ArrayList<>();
-    for(Pair<String, DataType> key : keys) {
-      result.add(get(key));
+    LookupValue[] values = new LookupValue[keys.size()];
+    List<Integer> stringKeys = new ArrayList<>();
+    List<Integer> otherKeys = new ArrayList<>();
+    for (int i = 0; i < keys.size(); i++) {
+      if (keys.get(i).getRight() == DataType.STRING) {
+        stringKeys.add(i);
+      } else {
+        otherKeys.add(i);
+      }
     }
-    return result;
+
+    Jedis jedis = pool.getResource();
+    try {
+      for (List<Integer> chunk : Lists.partition(stringKeys, conf.maxPipelineDepth)) {
+        String[] names = new String[chunk.size()];
+        for (int i = 0; i < names.length; i++) {
+          names[i] = keys.get(chunk.get(i)).getLeft();
+        }
+        List<String> strings = jedis.mget(names);
+        roundTrips.incrementAndGet();
+        for (int i = 0; i < names.length; i++) {
+          values[chunk.get(i)] = new LookupValue(strings.get(i), DataType.STRING);
+        }
+      }
+
+      for (List<Integer> chunk : Lists.partition(otherKeys, conf.maxPipelineDepth)) {
+        Pipeline pipeline = jedis.pipelined();
+        List<Response<?>> responses = new ArrayList<>(chunk.size());
+        for (int index : chunk) {
+          String key = keys.get(index).getLeft();
+          switch (keys.get(index).getRight()) {
+            case LIST:
+              responses.add(pipeline.lrange(key, 0, -1));
+              break;
+            case HASH:
+              responses.add(pipeline.hgetAll(key));
+              break;
+            case SET:
+              responses.add(pipeline.smembers(key));
+              break;
+            default:
+              responses.add(null);
+          }
+        }
+        pipeline.sync();
+        roundTrips.incrementAndGet();
+        for (int i = 0; i < chunk.size(); i++) {
+          Response<?> response = responses.get(i);
+          if (response != null) {
+            values[chunk.get(i)] = new LookupValue(response.get(), keys.get(chunk.get(i)).getRight());
+          }
+        }
+      }
+    } finally {
+      jedis.close();
+    }
+    return Arrays.asList(values);
+  }
+
+  /**
+   * Returns the number of round trips to Redis made by the lookups so far.
+   */
+  public long getRoundTrips() {
+    return roundTrips.get();
   }
 
   public void put(String key, String value) {
@@ -0,0 +1,38 @@
+/*
+ * Copyright 2018 StreamSets Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.streamsets.pipeline.stage.processor.kv.redis;
+
+import com.streamsets.pipeline.api.Config;
+import com.streamsets.pipeline.api.StageException;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class TestRedisLookupProcessorUpgrader {
+  @Test
+  public void testV1toV2() throws StageException {
+    List<Config> configs = new ArrayList<>();
+    configs.add(new Config("conf.mode", "BATCH"));
+
+    new RedisLookupProcessorUpgrader().upgrade("a", "b", "c", 1, 2, configs);
+
+    Assert.assertEquals(2, configs.size());
+    Assert.assertEquals("conf.maxPipelineDepth", configs.get(1).getName());
+    Assert.assertEquals(1000, configs.get(1).getValue());
+  }
+}
@@ -0,0 +1,104 @@
+/*
+ * Copyright 2018 StreamSets Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.streamsets.pipeline.stage.processor.kv.redis;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.streamsets.pipeline.lib.redis.DataType;
+import com.streamsets.pipeline.stage.origin.redis.RandomPortFinder;
+import org.apache.commons.lang3.tuple.Pair;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import redis.clients.jedis.Jedis;
+import redis.embedded.RedisServer;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+
+public class TestRedisStore {
+  private RedisServer redisServer;
+  private RedisStore store;
+
+  @Before
+  public void setUp() throws Exception {
+    int port = RandomPortFinder.find();
+    redisServer = new RedisServer(port);
+    redisServer.start();
+
+    try (Jedis jedis = new Jedis("localhost", port)) {
+      jedis.mset("key1", "value1", "key2", "value2", "key3", "value3");
+      jedis.rpush("lkey1", "lvalue1", "lvalue2");
+      jedis.hmset("hkey1", ImmutableMap.of("hfield1", "hvalue1"));
+      jedis.sadd("skey1", "svalue1", "svalue2");
+    }
+
+    RedisLookupConfig conf = new RedisLookupConfig();
+    conf.uri = "redis://localhost:" + port + "/0";
+    conf.maxPipelineDepth = 2;
+    store = new RedisStore(conf);
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    store.close();
+    redisServer.stop();
+  }
+
+  @Test
+  public void testBulkLookup() {
+    List<Pair<String, DataType>> keys = ImmutableList.of(
+        Pair.of("key1", DataType.STRING),
+        Pair.of("lkey1", DataType.LIST),
+        Pair.of("key2", DataType.STRING),
+        Pair.of("hkey1", DataType.HASH),
+        Pair.of("missing", DataType.STRING),
+        Pair.of("skey1", DataType.SET),
+        Pair.of("key3", DataType.STRING)
+    );
+
+    List<LookupValue> values = store.get(keys);
+
+    Assert.assertEquals(keys.size(), values.size());
+    Assert.assertEquals(new LookupValue("value1", DataType.STRING), values.get(0));
+    Assert.assertEquals(new LookupValue(ImmutableList.of("lvalue1", "lvalue2"), DataType.LIST), values.get(1));
+    Assert.assertEquals(new LookupValue("value2", DataType.STRING), values.get(2));
+    Assert.assertEquals(new LookupValue(ImmutableMap.of("hfield1", "hvalue1"), DataType.HASH), values.get(3));
+    Assert.assertEquals(new LookupValue(null, DataType.STRING), values.get(4));
+    Assert.assertEquals(
+        new LookupValue(ImmutableSet.of("svalue1", "svalue2"), DataType.SET),
+        new LookupValue(new HashSet<>((Iterable<?>) values.get(5).getValue()), DataType.SET)
+    );
+    Assert.assertEquals(new LookupValue("value3", DataType.STRING), values.get(6));
+
+    // 4 strings in 2 MGETs and 3 other keys in 2 pipelines of at most 2 commands
+    Assert.assertEquals(4, store.getRoundTrips());
+  }
+
+  @Test
+  public void testSingleLookup() {
+    Assert.assertEquals(new LookupValue("value1", DataType.STRING), store.get(Pair.of("key1", DataType.STRING)));
+    Assert.assertEquals(
+        new LookupValue(ImmutableList.of("lvalue1", "lvalue2"), DataType.LIST),
+        store.get(Pair.of("lkey1", DataType.LIST))
+    );
+    Assert.assertEquals(2, store.getRoundTrips());
+    Assert.assertEquals(new ArrayList<LookupValue>(), store.get(new ArrayList<>()));
+  }
+}
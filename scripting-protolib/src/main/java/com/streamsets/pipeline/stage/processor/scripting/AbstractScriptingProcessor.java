@@ -41,6 +41,7 @@ import java.util.Map;
 public abstract class AbstractScriptingProcessor extends SingleLaneProcessor {
   private static final String STATE_BINDING_NAME = "state";
   private static final String LOG_BINDING_NAME = "log";
+  private static final String RECORDS_BINDING_NAME = "records";
   private final Logger log;
 
   private final String scriptingEngineName;
@@ -49,6 +50,7 @@ public abstract class AbstractScriptingProcessor extends SingleLaneProcessor {
   private final String script;
   private final String initScript;
   private final String destroyScript;
+  private final boolean lazyRecordView;
   // State obj for use by end-user scripts.
   private Object state;
 
@@ -124,6 +126,19 @@ public abstract class AbstractScriptingProcessor extends SingleLaneProcessor {
       String script,
       String initScript,
       String destroyScript
+  ) {
+    this(log, scriptingEngineName, scriptConfigGroup, processingMode, script, initScript, destroyScript, false);
+  }
+
+  public AbstractScriptingProcessor(
+      Logger log,
+      String scriptingEngineName,
+      String scriptConfigGroup,
+      ProcessingMode processingMode,
+      String script,
+      String initScript,
+      String destroyScript,
+      boolean lazyRecordView
   ) {
     this.log = log;
     this.scriptingEngineName = scriptingEngineName;
@@ -132,6 +147,7 @@ public abstract class AbstractScriptingProcessor extends SingleLaneProcessor {
     this.script = script;
     this.initScript = initScript;
     this.destroyScript = destroyScript;
+    this.lazyRecordView = lazyRecordView;
     this.records = new ArrayList<>();
   }
 
@@ -218,13 +234,26 @@ public abstract class AbstractScriptingProcessor extends SingleLaneProcessor {
     }
   }
 
+  private ScriptRecord createScriptRecord(Record record) {
+    if (lazyRecordView) {
+      return getScriptObjectFactory().createLazyScriptRecord(record);
+    }
+    return getScriptObjectFactory().createScriptRecord(record);
+  }
+
   private void runRecord(Batch batch, Out out) throws StageException {
+    // The same bindings for all the records of the batch, cleared for every record as globals the script sets for one
+    // record (and the engine's own global scope, e.g. nashorn.global) must not be seen by the next one
+    SimpleBindings bindings = new SimpleBindings();
     records.add(null);
     Iterator<Record> it = batch.getRecords();
     while (it.hasNext()) {
       Record record = it.next();
-      records.set(0, getScriptObjectFactory().createScriptRecord(record));
-      runScript(records, out);
+      records.set(0, createScriptRecord(record));
+      bindings.clear();
+      fillBindings(bindings, out);
+      bindings.put(RECORDS_BINDING_NAME, new Object[] {records.get(0)});
+      runScript(bindings);
     }
   }
 
@@ -232,14 +261,16 @@ public abstract class AbstractScriptingProcessor extends SingleLaneProcessor {
     Iterator<Record> it = batch.getRecords();
     while (it.hasNext()) {
       Record record = it.next();
-      records.add(getScriptObjectFactory().createScriptRecord(record));
+      records.add(createScriptRecord(record));
     }
-    runScript(records, out);
+    SimpleBindings bindings = createBindings(out);
+    bindings.put(RECORDS_BINDING_NAME, records.toArray(new Object[records.size()]));
+    runScript(bindings);
   }
 
-  private void runScript(List<ScriptRecord> records, Out out) throws StageException {
+  private void runScript(SimpleBindings bindings) throws StageException {
     try {
-      runScript(createBindings(records, out));
+      compiledScript.eval(bindings);
     } catch (ScriptException ex) {
       switch (processingMode) {
         case RECORD:
@@ -262,27 +293,29 @@ public abstract class AbstractScriptingProcessor extends SingleLaneProcessor {
     }
   }
 
-  private SimpleBindings createBindings(List<ScriptRecord> records, Out out) {
-    SimpleBindings bindings = createBindings();
-    bindings.put("records", records.toArray(new Object[records.size()]));
-    bindings.put("output", out);
+  private SimpleBindings createBindings(Out out) {
+    SimpleBindings bindings = new SimpleBindings();
+    fillBindings(bindings, out);
     return bindings;
   }
 
   private SimpleBindings createBindings() {
     SimpleBindings bindings = new SimpleBindings();
+    fillBindings(bindings);
+    return bindings;
+  }
+
+  private void fillBindings(SimpleBindings bindings, Out out) {
+    fillBindings(bindings);
+    bindings.put("output", out);
+  }
 
+  private void fillBindings(SimpleBindings bindings) {
     bindings.put("error", err);
     bindings.put(STATE_BINDING_NAME, state);
     bindings.put(LOG_BINDING_NAME, log);
     ScriptTypedNullObject.fillNullTypes(bindings);
     bindings.put("sdcFunctions", sdcFunc);
-
-    return bindings;
-  }
-
-  private void runScript(SimpleBindings bindings) throws ScriptException {
-    compiledScript.eval(bindings);
   }
 
   public List<ScriptRecord> getScriptRecords() {
@@ -0,0 +1,143 @@
+/*
+ * Copyright 2018 StreamSets Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.streamsets.pipeline.stage.processor.scripting;
+
+import com.streamsets.pipeline.api.Field;
+import com.streamsets.pipeline.api.Record;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * Lazy script view of a LIST field.
+ *
+ * Until the script changes the list, reads go straight to the elements of the field and only the elements that were
+ * read are converted. The first change copies the element slots (not their values) so that elements can be added,
+ * replaced and removed.
+ */
+public class ScriptListView extends AbstractList<Object> implements ScriptView, RandomAccess {
+  private final ScriptObjectFactory factory;
+  private final Field field;
+  private final String path;
+  private final List<Field> fields;
+
+  // slots of the elements read so far, until the list is changed
+  private Slot[] read;
+  // slots of all the elements once the list has been changed
+  private List<Slot> slots;
+
+  @SuppressWarnings("unchecked")
+  ScriptListView(ScriptObjectFactory factory, Field field, String path) {
+    this.factory = factory;
+    this.field = field;
+    this.path = path;
+    this.fields = (List<Field>) field.getValue();
+  }
+
+  private Slot slot(int index) {
+    if (slots != null) {
+      return slots.get(index);
+    }
+    if (index < 0 || index >= fields.size()) {
+      throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + fields.size());
+    }
+    if (read == null) {
+      read = new Slot[fields.size()];
+    }
+    if (read[index] == null) {
+      read[index] = new Slot(fields.get(index));
+    }
+    return read[index];
+  }
+
+  private void change() {
+    if (slots == null) {
+      slots = new ArrayList<>(fields.size());
+      for (int i = 0; i < fields.size(); i++) {
+        slots.add((read != null && read[i] != null) ? read[i] : new Slot(fields.get(i)));
+      }
+      read = null;
+    }
+  }
+
+  @Override
+  public Object get(int index) {
+    return slot(index).get(factory, factory.composeArrayPath(path, index));
+  }
+
+  @Override
+  public int size() {
+    return (slots != null) ? slots.size() : fields.size();
+  }
+
+  @Override
+  public Object set(int index, Object value) {
+    Object previous = get(index);
+    change();
+    slots.get(index).set(value);
+    return previous;
+  }
+
+  @Override
+  public void add(int index, Object value) {
+    change();
+    Slot slot = new Slot(null);
+    slot.set(value);
+    slots.add(index, slot);
+    modCount++;
+  }
+
+  @Override
+  public Object remove(int index) {
+    Object previous = get(index);
+    change();
+    slots.remove(index);
+    modCount++;
+    return previous;
+  }
+
+  @Override
+  public Field getField() {
+    return field;
+  }
+
+  @Override
+  public Field writeBack(Record record) {
+    List<Field> updated = null;
+    if (slots != null) {
+      updated = new ArrayList<>(slots.size());
+      for (int i = 0; i < slots.size(); i++) {
+        updated.add(slots.get(i).toField(factory, record, factory.composeArrayPath(path, i)));
+      }
+    } else if (read != null) {
+      // only views of the elements that were read may carry changes
+      for (int i = 0; i < read.length; i++) {
+        if (read[i] != null) {
+          Field current = read[i].toField(factory, record, factory.composeArrayPath(path, i));
+          if (current != read[i].field) {
+            if (updated == null) {
+              updated = new ArrayList<>(fields);
+            }
+            updated.set(i, current);
+          }
+        }
+      }
+    }
+    return (updated == null) ? field : Field.create(field, updated);
+  }
+}
@@ -0,0 +1,236 @@
+/*
+ * Copyright 2018 StreamSets Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.streamsets.pipeline.stage.processor.scripting;
+
+import com.streamsets.pipeline.api.Field;
+import com.streamsets.pipeline.api.Record;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Lazy script view of a MAP or LIST_MAP field.
+ *
+ * Until the script changes the map, reads go straight to the entries of the field and only the entries that were read
+ * are converted. The first change copies the entry slots (not their values) so that entries can be added, replaced and
+ * removed while keeping their order.
+ */
+public class ScriptMapView extends AbstractMap<String, Object> implements ScriptView, ScriptObjectFactory.MapInfo {
+  private final ScriptObjectFactory factory;
+  private final Field field;
+  private final String path;
+  private final Map<String, Field> fields;
+
+  // slots of the entries read so far, or of all the entries once the map has been changed
+  private Map<String, Slot> slots;
+  private boolean changed;
+
+  @SuppressWarnings("unchecked")
+  ScriptMapView(ScriptObjectFactory factory, Field field, String path) {
+    this.factory = factory;
+    this.field = field;
+    this.path = path;
+    this.fields = (Map<String, Field>) field.getValue();
+    this.slots = new HashMap<>();
+  }
+
+  private Slot slot(Object key) {
+    Slot slot = slots.get(key);
+    if (slot == null && !changed && fields.containsKey(key)) {
+      slot = new Slot(fields.get(key));
+      slots.put((String) key, slot);
+    }
+    return slot;
+  }
+
+  private String childPath(String key) {
+    return factory.composeMapPath(path, key);
+  }
+
+  private void change() {
+    if (!changed) {
+      Map<String, Slot> all = new LinkedHashMap<>();
+      for (Map.Entry<String, Field> entry : fields.entrySet()) {
+        Slot slot = slots.get(entry.getKey());
+        all.put(entry.getKey(), (slot != null) ? slot : new Slot(entry.getValue()));
+      }
+      slots = all;
+      changed = true;
+    }
+  }
+
+  @Override
+  public Object get(Object key) {
+    Slot slot = slot(key);
+    return (slot == null) ? null : slot.get(factory, childPath((String) key));
+  }
+
+  @Override
+  public boolean containsKey(Object key) {
+    return changed ? slots.containsKey(key) : fields.containsKey(key);
+  }
+
+  @Override
+  public int size() {
+    return changed ? slots.size() : fields.size();
+  }
+
+  @Override
+  public Object put(String key, Object value) {
+    change();
+    Slot slot = slots.get(key);
+    Object previous = null;
+    if (slot == null) {
+      slot = new Slot(null);
+      slots.put(key, slot);
+    } else {
+      previous = slot.get(factory, childPath(key));
+    }
+    slot.set(value);
+    return previous;
+  }
+
+  @Override
+  public Object remove(Object key) {
+    change();
+    Slot slot = slots.remove(key);
+    return (slot == null) ? null : slot.get(factory, childPath((String) key));
+  }
+
+  @Override
+  public void clear() {
+    change();
+    slots.clear();
+  }
+
+  @Override
+  public Set<Map.Entry<String, Object>> entrySet() {
+    return new AbstractSet<Map.Entry<String, Object>>() {
+      @Override
+      public Iterator<Map.Entry<String, Object>> iterator() {
+        return new EntryIterator();
+      }
+
+      @Override
+      public int size() {
+        return ScriptMapView.this.size();
+      }
+    };
+  }
+
+  @Override
+  public boolean isListMap() {
+    return field.getType() == Field.Type.LIST_MAP;
+  }
+
+  @Override
+  public Field getField() {
+    return field;
+  }
+
+  @Override
+  public Field writeBack(Record record) {
+    LinkedHashMap<String, Field> updated = null;
+    if (changed) {
+      updated = new LinkedHashMap<>();
+      for (Map.Entry<String, Slot> entry : slots.entrySet()) {
+        updated.put(entry.getKey(), entry.getValue().toField(factory, record, childPath(entry.getKey())));
+      }
+    } else {
+      // only views of the entries that were read may carry changes
+      for (Map.Entry<String, Slot> entry : slots.entrySet()) {
+        Field current = entry.getValue().toField(factory, record, childPath(entry.getKey()));
+        if (current != entry.getValue().field) {
+          if (updated == null) {
+            updated = new LinkedHashMap<>(fields);
+          }
+          updated.put(entry.getKey(), current);
+        }
+      }
+    }
+    return (updated == null) ? field : Field.create(field, updated);
+  }
+
+  private class EntryIterator implements Iterator<Map.Entry<String, Object>> {
+    private final boolean overSlots = changed;
+    private final Iterator<String> keys = changed ? slots.keySet().iterator() : fields.keySet().iterator();
+    private String last;
+
+    @Override
+    public boolean hasNext() {
+      return keys.hasNext();
+    }
+
+    @Override
+    public Map.Entry<String, Object> next() {
+      last = keys.next();
+      return new Entry(last);
+    }
+
+    @Override
+    public void remove() {
+      if (overSlots) {
+        keys.remove();
+      } else {
+        ScriptMapView.this.remove(last);
+      }
+    }
+  }
+
+  private class Entry implements Map.Entry<String, Object> {
+    private final String key;
+
+    Entry(String key) {
+      this.key = key;
+    }
+
+    @Override
+    public String getKey() {
+      return key;
+    }
+
+    @Override
+    public Object getValue() {
+      return get(key);
+    }
+
+    @Override
+    public Object setValue(Object value) {
+      return put(key, value);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (!(o instanceof Map.Entry)) {
+        return false;
+      }
+      Map.Entry<?, ?> other = (Map.Entry<?, ?>) o;
+      Object value = getValue();
+      return key.equals(other.getKey()) && (value == null ? other.getValue() == null : value.equals(other.getValue()));
+    }
+
+    @Override
+    public int hashCode() {
+      Object value = getValue();
+      return key.hashCode() ^ (value == null ? 0 : value.hashCode());
+    }
+  }
+}
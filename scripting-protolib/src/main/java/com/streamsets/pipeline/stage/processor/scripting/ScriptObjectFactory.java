@@ -50,11 +50,27 @@ public class ScriptObjectFactory {
     return new ScriptRecord(record, scriptValue);
   }
 
+  /**
+   * Creates a script record whose map and list fields are converted only when the script reads them, see
+   * {@link ScriptMapView} and {@link ScriptListView}.
+   */
+  public ScriptRecord createLazyScriptRecord(Record record) {
+    return new ScriptRecord(record, fieldToLazyScript(record.get(), ""));
+  }
+
   @SuppressWarnings("unchecked")
   public Record getRecord(ScriptRecord scriptRecord) {
     Record record = scriptRecord.record;
-    Field field = scriptToField(scriptRecord.value, record, "");
-    record.set(field);
+    if (scriptRecord.rootView != null && scriptRecord.value == scriptRecord.rootView) {
+      // Only the maps and lists changed through the view have to be converted back
+      Field field = scriptRecord.rootView.writeBack(record);
+      if (field != record.get()) {
+        record.set(field);
+      }
+    } else {
+      Field field = scriptToField(scriptRecord.value, record, "");
+      record.set(field);
+    }
     // Update Record Header Attributes
     updateRecordHeader(scriptRecord.attributes, record);
     return record;
@@ -148,6 +164,22 @@ public class ScriptObjectFactory {
     return scriptObject;
   }
 
+  protected Object fieldToLazyScript(Field field, String path) {
+    if (field != null && field.getValue() != null) {
+      switch (field.getType()) {
+        case MAP:
+        case LIST_MAP:
+          return new ScriptMapView(this, field, path);
+        case LIST:
+          return new ScriptListView(this, field, path);
+        default:
+          // no action
+          break;
+      }
+    }
+    return fieldToScript(field);
+  }
+
   public static final Pattern PATTERN = Pattern.compile("\\W", Pattern.CASE_INSENSITIVE);
 
   protected static String singleQuoteEscape(String path) {
@@ -35,6 +35,8 @@ public class ScriptRecord {
   public final String errorStage;
   public final long errorTimestamp;
   public final String errorStackTrace;
+  // Lazy view the record value was created as, if any
+  final ScriptView rootView;
 
   ScriptRecord(Record record, Object scriptObject) {
     this.record = record;
@@ -55,6 +57,7 @@ public class ScriptRecord {
     this.errorStackTrace = record.getHeader().getErrorStackTrace();
 
     value = scriptObject;
+    rootView = (scriptObject instanceof ScriptView) ? (ScriptView) scriptObject : null;
   }
 
 }
@@ -0,0 +1,84 @@
+/*
+ * Copyright 2018 StreamSets Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.streamsets.pipeline.stage.processor.scripting;
+
+import com.streamsets.pipeline.api.Field;
+import com.streamsets.pipeline.api.Record;
+
+/**
+ * Script object that reads a MAP, LIST_MAP or LIST field on demand instead of converting it up front.
+ *
+ * Views never modify the field they were created from, changes made by the script are kept aside and turned into
+ * fields by {@link #writeBack(Record)}, which copies only the maps and lists that were changed.
+ */
+interface ScriptView {
+
+  /**
+   * Returns the field this view was created from.
+   */
+  Field getField();
+
+  /**
+   * Returns the field with all the changes made through this view (and the views of its entries), or the original
+   * field if there are none.
+   */
+  Field writeBack(Record record);
+
+  /**
+   * Entry of a view, its field is converted to a script object the first time the script reads it.
+   */
+  final class Slot {
+    // null for entries added by the script
+    final Field field;
+    private Object value;
+    private boolean converted;
+    // value was set by the script, it has to be converted back as a whole
+    private boolean assigned;
+
+    Slot(Field field) {
+      this.field = field;
+    }
+
+    Object get(ScriptObjectFactory factory, String path) {
+      if (!converted) {
+        value = factory.fieldToLazyScript(field, path);
+        converted = true;
+      }
+      return value;
+    }
+
+    void set(Object value) {
+      // putting back the view of the very same field is not a change by itself
+      assigned = !(value instanceof ScriptView && ((ScriptView) value).getField() == field);
+      this.value = value;
+      converted = true;
+    }
+
+    Field toField(ScriptObjectFactory factory, Record record, String path) {
+      if (assigned) {
+        if (value == null && field != null) {
+          // keep the type of the field the script set to null
+          return Field.create(field.getType(), null);
+        }
+        return factory.scriptToField(value, record, path);
+      }
+      if (value instanceof ScriptView) {
+        return ((ScriptView) value).writeBack(record);
+      }
+      return field;
+    }
+  }
+}
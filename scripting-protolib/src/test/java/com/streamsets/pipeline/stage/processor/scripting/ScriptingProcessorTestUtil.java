@@ -1094,4 +1094,80 @@ public class ScriptingProcessorTestUtil {
     Assert.assertEquals(1, runner.getErrorRecords().size());
   }
 
+  public static <C extends Processor> void verifyLazyRecordView(
+      Class<C> clazz,
+      Processor processor
+  ) throws StageException {
+    // the script sets /a/x to 2, appends 3 to /b, removes /d and adds /e
+    ProcessorRunner runner = new ProcessorRunner.Builder(clazz, processor)
+        .addOutputLane("lane")
+        .build();
+
+    List<Record> input = new ArrayList<>();
+    for (int i = 0; i < 2; i++) {
+      Map<String, Field> a = new LinkedHashMap<>();
+      a.put("x", Field.create(1));
+      a.put("y", Field.create("y" + i));
+      LinkedHashMap<String, Field> map = new LinkedHashMap<>();
+      map.put("a", Field.create(a));
+      map.put("b", Field.create(new ArrayList<>(Arrays.asList(Field.create(1), Field.create(2)))));
+      map.put("c", Field.createDate(new Date(0)));
+      map.put("d", Field.create("d"));
+      Record record = RecordCreator.create();
+      record.set(Field.createListMap(map));
+      input.add(record);
+    }
+
+    runner.runInit();
+    StageRunner.Output output;
+    try {
+      output = runner.runProcess(input);
+    } finally {
+      runner.runDestroy();
+    }
+
+    assertEquals(2, output.getRecords().get("lane").size());
+    for (int i = 0; i < 2; i++) {
+      Record record = output.getRecords().get("lane").get(i);
+      assertEquals(Field.Type.LIST_MAP, record.get().getType());
+      assertEquals(Arrays.asList("a", "b", "c", "e"), new ArrayList<>(record.get().getValueAsListMap().keySet()));
+      assertEquals(2, record.get("/a/x").getValueAsInteger());
+      assertEquals("y" + i, record.get("/a/y").getValueAsString());
+      assertEquals(3, record.get("/b").getValueAsList().size());
+      assertEquals(3, record.get("/b[2]").getValueAsInteger());
+      // fields the script did not touch are not converted, so they keep their type
+      assertEquals(Field.Type.DATE, record.get("/c").getType());
+      assertEquals("new", record.get("/e").getValueAsString());
+    }
+  }
+
+  public static <C extends Processor> void verifyGlobalsNotSharedAcrossRecords(
+      Class<C> clazz,
+      Processor processor
+  ) throws StageException {
+    // the script sets /leaked to whether the global 'seen' is defined, then defines it
+    ProcessorRunner runner = new ProcessorRunner.Builder(clazz, processor)
+        .addOutputLane("lane")
+        .build();
+
+    List<Record> input = new ArrayList<>();
+    for (int i = 0; i < 3; i++) {
+      Record record = RecordCreator.create();
+      record.set(Field.create(new HashMap<>()));
+      input.add(record);
+    }
+
+    runner.runInit();
+    StageRunner.Output output;
+    try {
+      output = runner.runProcess(input);
+    } finally {
+      runner.runDestroy();
+    }
+
+    assertEquals(3, output.getRecords().get("lane").size());
+    for (Record record : output.getRecords().get("lane")) {
+      assertEquals(false, record.get("/leaked").getValueAsBoolean());
+    }
+  }
 }
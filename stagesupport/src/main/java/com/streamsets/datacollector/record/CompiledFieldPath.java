@@ -0,0 +1,262 @@
+/*
+ * Copyright 2018 StreamSets Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.streamsets.datacollector.record;
+
+import com.streamsets.pipeline.api.Field;
+import com.streamsets.pipeline.api.Record;
+import com.streamsets.pipeline.api.impl.Utils;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Field path that has been parsed once and can be used to access any number of records.
+ *
+ * Stages should resolve their configured field paths in init() and use the accessors of this class rather than
+ * {@link Record#get(String)} and friends to avoid parsing the same path for every record. The accessors have exactly
+ * the same semantics as the String based methods on the record, they walk the field tree directly without any
+ * intermediate allocation.
+ */
+public final class CompiledFieldPath {
+
+  // Marker for "path doesn't exist", null is a valid value of an existing list element
+  private static final Field UNREACHABLE = Field.create(Field.Type.STRING, null);
+
+  /**
+   * Upper bound of the compiled path cache. Field paths come from stage configurations so the number of distinct
+   * paths is usually small, if the limit is ever reached the cache is simply emptied and starts over.
+   */
+  private static final int MAX_CACHED_PATHS = Integer.parseInt(
+      System.getProperty("com.streamsets.datacollector.record.CompiledFieldPath.cache_max", "10000")
+  );
+
+  private static final ConcurrentMap<String, CompiledFieldPath> CACHE = new ConcurrentHashMap<>();
+
+  private final String fieldPath;
+  private final List<PathElement> elements;
+
+  private CompiledFieldPath(String fieldPath, List<PathElement> elements) {
+    this.fieldPath = fieldPath;
+    this.elements = elements;
+  }
+
+  /**
+   * Returns compiled form of given (single quote escaped) field path.
+   *
+   * @throws IllegalArgumentException if the field path is not valid
+   */
+  public static CompiledFieldPath compile(String fieldPath) {
+    if(fieldPath == null) {
+      throw new NullPointerException("fieldPath cannot be null");
+    }
+    CompiledFieldPath compiled = CACHE.get(fieldPath);
+    if (compiled == null) {
+      compiled = new CompiledFieldPath(fieldPath, Collections.unmodifiableList(PathElement.parse(fieldPath, true)));
+      if (CACHE.size() >= MAX_CACHED_PATHS) {
+        CACHE.clear();
+      }
+      CACHE.putIfAbsent(fieldPath, compiled);
+    }
+    return compiled;
+  }
+
+  public String getFieldPath() {
+    return fieldPath;
+  }
+
+  public List<PathElement> getElements() {
+    return elements;
+  }
+
+  /**
+   * Equivalent of {@link Record#get(String)}.
+   */
+  public Field get(Record record) {
+    return get(record.get());
+  }
+
+  /**
+   * Same as {@link #get(Record)} but starting at given root field rather than at the root of a record.
+   */
+  public Field get(Field root) {
+    Field field = walk(root, elements.size());
+    return (field == UNREACHABLE) ? null : field;
+  }
+
+  /**
+   * Equivalent of {@link Record#has(String)}.
+   */
+  public boolean has(Record record) {
+    return has(record.get());
+  }
+
+  /**
+   * Same as {@link #has(Record)} but starting at given root field rather than at the root of a record.
+   */
+  public boolean has(Field root) {
+    return walk(root, elements.size()) != UNREACHABLE;
+  }
+
+  /**
+   * Equivalent of {@link Record#set(String, Field)}.
+   */
+  public Field set(Record record, Field newField) {
+    if (elements.size() == 1) {
+      return record.set(newField);
+    }
+    return set(record.get(), newField);
+  }
+
+  /**
+   * Same as {@link #set(Record, Field)} but starting at given root field rather than at the root of a record. The
+   * root itself can't be replaced this way.
+   */
+  public Field set(Field root, Field newField) {
+    int last = elements.size() - 1;
+    Utils.checkArgument(last > 0, "The root field can't be replaced without a record");
+    Field parent = walk(root, last);
+    if (parent == UNREACHABLE) {
+      throw new IllegalArgumentException(Utils.format("Field-path '{}' not reachable", fieldPath));
+    }
+    PathElement element = elements.get(last);
+    switch (element.getType()) {
+      case MAP:
+        return parent.getValueAsMap().put(element.getName(), newField);
+      case LIST:
+        int index = element.getIndex();
+        List<Field> list = parent.getValueAsList();
+        if (index == list.size()) {
+          list.add(newField);
+          return null;
+        }
+        return list.set(index, newField);
+      case FIELD_EXPRESSION:
+      case ROOT:
+      default:
+        return null;
+    }
+  }
+
+  /**
+   * Equivalent of {@link Record#delete(String)}.
+   */
+  public Field delete(Record record) {
+    if (elements.size() == 1) {
+      Field root = record.get();
+      if (root == null) {
+        return null;
+      }
+      record.set((Field) null);
+      return root;
+    }
+    return delete(record.get());
+  }
+
+  /**
+   * Same as {@link #delete(Record)} but starting at given root field rather than at the root of a record. The
+   * root itself can't be deleted this way.
+   */
+  public Field delete(Field root) {
+    int last = elements.size() - 1;
+    Utils.checkArgument(last > 0, "The root field can't be deleted without a record");
+    Field parent = walk(root, last);
+    if (parent == UNREACHABLE || parent == null) {
+      return null;
+    }
+    PathElement element = elements.get(last);
+    if (step(parent, element) == UNREACHABLE) {
+      return null;
+    }
+    switch (element.getType()) {
+      case MAP:
+        return parent.getValueAsMap().remove(element.getName());
+      case LIST:
+        return parent.getValueAsList().remove(element.getIndex());
+      case FIELD_EXPRESSION:
+      default:
+        throw new IllegalStateException("Unexpected field type " + element.getType());
+    }
+  }
+
+  /**
+   * Walks the first {@code count} path elements starting at given root, returns the field at that position
+   * or UNREACHABLE if the path doesn't exist.
+   */
+  private Field walk(Field root, int count) {
+    if (root == null) {
+      return UNREACHABLE;
+    }
+    // The first element is always ROOT
+    Field current = root;
+    for (int i = 1; i < count; i++) {
+      if (current == null) {
+        return UNREACHABLE;
+      }
+      current = step(current, elements.get(i));
+      if (current == UNREACHABLE) {
+        return UNREACHABLE;
+      }
+    }
+    return current;
+  }
+
+  private static Field step(Field current, PathElement element) {
+    switch (element.getType()) {
+      case ROOT:
+        return current;
+      case MAP:
+        if (current.getType().isOneOf(Field.Type.MAP, Field.Type.LIST_MAP)) {
+          Map<String, Field> map = current.getValueAsMap();
+          if (map != null) {
+            Field field = map.get(element.getName());
+            if (field != null) {
+              return field;
+            }
+          }
+        }
+        return UNREACHABLE;
+      case LIST:
+        if (current.getType().isOneOf(Field.Type.LIST, Field.Type.LIST_MAP)) {
+          List<Field> list = current.getValueAsList();
+          if (list != null && list.size() > element.getIndex()) {
+            return list.get(element.getIndex());
+          }
+        }
+        return UNREACHABLE;
+      case FIELD_EXPRESSION:
+      default:
+        return UNREACHABLE;
+    }
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    return this == o || (o instanceof CompiledFieldPath && fieldPath.equals(((CompiledFieldPath) o).fieldPath));
+  }
+
+  @Override
+  public int hashCode() {
+    return fieldPath.hashCode();
+  }
+
+  @Override
+  public String toString() {
+    return Utils.format("CompiledFieldPath[path='{}']", fieldPath);
+  }
+}
@@ -105,6 +105,13 @@ public class PathElement {
     return parse(fieldPath, isSingleQuoteEscaped, false);
   }
 
+  /**
+   * Same as {@code parse(fieldPath, true)} but the result is cached, shared and unmodifiable.
+   */
+  public static List<PathElement> parseCached(String fieldPath) {
+    return CompiledFieldPath.compile(fieldPath).getElements();
+  }
+
   public static List<PathElement> parse(
       String fieldPath,
       boolean isSingleQuoteEscaped,
@@ -0,0 +1,312 @@
+/*
+ * Copyright 2018 StreamSets Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.streamsets.pipeline.lib.util;
+
+import com.streamsets.datacollector.record.PathElement;
+import com.streamsets.datacollector.util.EscapeUtil;
+import com.streamsets.pipeline.api.Field;
+import com.streamsets.pipeline.api.Record;
+import com.streamsets.pipeline.api.el.ELEval;
+import com.streamsets.pipeline.api.el.ELEvalException;
+import com.streamsets.pipeline.api.el.ELVars;
+import com.streamsets.pipeline.api.impl.Utils;
+import com.streamsets.pipeline.container.record.ReadOnlyRecord;
+import com.streamsets.pipeline.lib.el.FieldEL;
+import com.streamsets.pipeline.lib.el.RecordEL;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Field path expression (wildcards and/or field path EL expressions) that has been compiled once and can be
+ * matched against any number of records.
+ *
+ * Matching walks the field tree of the record directly, branches that can't contain a match are not visited and
+ * field paths are built only for the visited fields, so the cost is proportional to the matched part of the record
+ * rather than to its size. The results are the same, and in the same order, as matching the expression against
+ * {@link Record#getEscapedFieldPaths()} with {@link FieldRegexUtil#getMatchingFieldPaths(String, Iterable)} or
+ * {@link FieldPathExpressionUtil#evaluateMatchingFieldPaths(String, ELEval, ELVars, Record)}.
+ */
+public final class FieldPathMatcher {
+  private static final Logger LOG = LoggerFactory.getLogger(FieldPathMatcher.class);
+
+  /**
+   * Upper bound of the compiled expression cache. Expressions come from stage configurations so the number of
+   * distinct expressions is usually small, if the limit is ever reached the cache is simply emptied and starts over.
+   */
+  private static final int MAX_CACHED_EXPRESSIONS = Integer.parseInt(
+      System.getProperty("com.streamsets.pipeline.lib.util.FieldPathMatcher.cache_max", "10000")
+  );
+
+  private static final ConcurrentMap<String, FieldPathMatcher> CACHE = new ConcurrentHashMap<>();
+
+  private enum Mode {
+    // No wildcards nor expressions, the expression is the only field path it can match
+    LITERAL,
+    // Wildcards only, the whole escaped field path is matched against a regular expression
+    REGEX,
+    // Field path EL expressions, every path element is matched separately
+    ELEMENTS,
+  }
+
+  private final String fieldExpression;
+  private final Mode mode;
+  private final Pattern pathPattern;
+  private final PathElement[] elements;
+  private final Pattern[] namePatterns;
+
+  private FieldPathMatcher(String fieldExpression) {
+    this.fieldExpression = fieldExpression;
+    if (FieldPathExpressionUtil.isFieldPathExpressionFast(fieldExpression)) {
+      mode = Mode.ELEMENTS;
+      pathPattern = null;
+      List<PathElement> parsed = PathElement.parse(fieldExpression, false, true);
+      elements = parsed.toArray(new PathElement[parsed.size()]);
+      namePatterns = new Pattern[elements.length];
+      for (int i = 0; i < elements.length; i++) {
+        if (elements[i].getType() == PathElement.Type.MAP) {
+          String name = elements[i].getName();
+          if (FieldRegexUtil.hasWildCards(name)) {
+            name = FieldRegexUtil.transformFieldPathRegex(name);
+          }
+          namePatterns[i] = Pattern.compile(name);
+        }
+      }
+    } else if (FieldRegexUtil.hasWildCards(fieldExpression)) {
+      mode = Mode.REGEX;
+      pathPattern = Pattern.compile(FieldRegexUtil.transformFieldPathRegex(fieldExpression));
+      elements = null;
+      namePatterns = null;
+    } else {
+      mode = Mode.LITERAL;
+      pathPattern = null;
+      elements = null;
+      namePatterns = null;
+    }
+  }
+
+  /**
+   * Returns compiled form of given field path expression.
+   *
+   * @throws IllegalArgumentException if the expression is not a valid field path expression
+   */
+  public static FieldPathMatcher compile(String fieldExpression) {
+    Utils.checkNotNull(fieldExpression, "fieldExpression");
+    FieldPathMatcher matcher = CACHE.get(fieldExpression);
+    if (matcher == null) {
+      matcher = new FieldPathMatcher(fieldExpression);
+      if (CACHE.size() >= MAX_CACHED_EXPRESSIONS) {
+        CACHE.clear();
+      }
+      CACHE.putIfAbsent(fieldExpression, matcher);
+    }
+    return matcher;
+  }
+
+  public String getFieldExpression() {
+    return fieldExpression;
+  }
+
+  /**
+   * Returns true if the expression contains field path EL expressions and thus needs an {@link ELEval} to be matched.
+   */
+  public boolean hasFieldPathExpressions() {
+    return mode == Mode.ELEMENTS;
+  }
+
+  /**
+   * Returns the escaped field paths of the given record matching an expression without field path EL expressions.
+   *
+   * @throws IllegalStateException if the expression contains field path EL expressions
+   */
+  public List<String> getMatchingFieldPaths(Record record) {
+    Utils.checkState(mode != Mode.ELEMENTS, Utils.formatL("'{}' requires an ELEval", fieldExpression));
+    try {
+      return getMatchingFieldPaths(record, null, null);
+    } catch (ELEvalException ex) {
+      // Can't happen without field path expressions
+      throw new IllegalStateException(ex);
+    }
+  }
+
+  /**
+   * Returns the escaped field paths of the given record matching the expression. An expression without wildcards
+   * and field path EL expressions is returned as is, regardless of the field existing in the record or not.
+   *
+   * @param record the record to match the expression against
+   * @param elEval the {@link ELEval} instance in which to evaluate the field path EL expressions
+   * @param elVars the {@link ELVars} instance to use when evaluating the field path EL expressions
+   * @throws ELEvalException if an error occurs during EL evaluation
+   */
+  public List<String> getMatchingFieldPaths(Record record, ELEval elEval, ELVars elVars) throws ELEvalException {
+    if (mode == Mode.LITERAL) {
+      return Arrays.asList(fieldExpression);
+    }
+    List<String> matchingPaths = new ArrayList<>();
+    // Matching only reads the tree, copy-on-write records must not copy it
+    Field root = ReadOnlyRecord.getReadOnly(record);
+    switch (mode) {
+      case REGEX:
+        if (root != null) {
+          matchRegex(pathPattern.matcher(""), "", root, matchingPaths);
+        }
+        break;
+      case ELEMENTS:
+        RecordEL.setRecordInContext(elVars, record);
+        if (root != null) {
+          matchElements(1, root, "", "", elEval, elVars, matchingPaths);
+        }
+        break;
+      default:
+        throw new IllegalStateException("Unexpected mode " + mode);
+    }
+    return matchingPaths;
+  }
+
+  /**
+   * Matches the escaped path of the field and visits its children as long as the regular expression needs more input
+   * to decide, i.e. a longer path could still match.
+   */
+  private static void matchRegex(Matcher matcher, String path, Field field, List<String> matchingPaths) {
+    matcher.reset(path);
+    if (matcher.matches()) {
+      matchingPaths.add(path);
+    }
+    if (!matcher.hitEnd() || field == null) {
+      return;
+    }
+    switch (field.getType()) {
+      case MAP:
+      case LIST_MAP:
+        Map<String, Field> map = field.getValueAsMap();
+        if (map != null) {
+          for (Map.Entry<String, Field> entry : map.entrySet()) {
+            String childPath = path + "/" + EscapeUtil.singleQuoteEscape(entry.getKey());
+            matchRegex(matcher, childPath, entry.getValue(), matchingPaths);
+          }
+        }
+        break;
+      case LIST:
+        List<Field> list = field.getValueAsList();
+        if (list != null) {
+          for (int i = 0; i < list.size(); i++) {
+            matchRegex(matcher, path + "[" + i + "]", list.get(i), matchingPaths);
+          }
+        }
+        break;
+      default:
+        break;
+    }
+  }
+
+  /**
+   * Matches path element {@code index} and the following ones against the given field, {@code escapedPath} is the
+   * path reported for matches while {@code path} is the unescaped one exposed to the field path EL expressions.
+   */
+  private void matchElements(
+      int index,
+      Field field,
+      String escapedPath,
+      String path,
+      ELEval elEval,
+      ELVars elVars,
+      List<String> matchingPaths
+  ) throws ELEvalException {
+    if (index == elements.length) {
+      matchingPaths.add(escapedPath);
+      return;
+    }
+    if (field == null) {
+      return;
+    }
+    PathElement element = elements[index];
+    switch (element.getType()) {
+      case MAP:
+        if (field.getType().isOneOf(Field.Type.MAP, Field.Type.LIST_MAP)) {
+          Map<String, Field> map = field.getValueAsMap();
+          if (map != null) {
+            Matcher nameMatcher = namePatterns[index].matcher("");
+            for (Map.Entry<String, Field> entry : map.entrySet()) {
+              String name = entry.getKey();
+              if (nameMatcher.reset(name).matches()) {
+                matchElements(
+                    index + 1,
+                    entry.getValue(),
+                    escapedPath + "/" + EscapeUtil.singleQuoteEscape(name),
+                    path + "/" + name,
+                    elEval,
+                    elVars,
+                    matchingPaths
+                );
+              }
+            }
+          }
+        }
+        break;
+      case LIST:
+        if (field.getType() == Field.Type.LIST) {
+          List<Field> list = field.getValueAsList();
+          if (list != null) {
+            int matchIndex = element.getIndex();
+            for (int i = 0; i < list.size(); i++) {
+              if (matchIndex == PathElement.WILDCARD_INDEX_ANY_LENGTH
+                  || (matchIndex == PathElement.WILDCARD_INDEX_SINGLE_CHAR && i < 10)
+                  || matchIndex == i) {
+                String suffix = "[" + i + "]";
+                matchElements(
+                    index + 1,
+                    list.get(i),
+                    escapedPath + suffix,
+                    path + suffix,
+                    elEval,
+                    elVars,
+                    matchingPaths
+                );
+              }
+            }
+          }
+        }
+        break;
+      case FIELD_EXPRESSION:
+        FieldEL.setFieldInContext(elVars, path, field);
+        String expression = element.getName();
+        final boolean result = elEval.eval(elVars, expression, Boolean.class);
+        if (LOG.isDebugEnabled()) {
+          LOG.debug("Result of evaluating expression {} on field {} with path {} was {}", expression, field, path, result);
+        }
+        if (result) {
+          matchElements(index + 1, field, escapedPath, path, elEval, elVars, matchingPaths);
+        }
+        break;
+      case ROOT:
+      default:
+        break;
+    }
+  }
+
+  @Override
+  public String toString() {
+    return Utils.format("FieldPathMatcher[expression='{}']", fieldExpression);
+  }
+}